@@ -0,0 +1,12 @@
+package com.nstrange.bffservice;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class BffServiceApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(BffServiceApplication.class, args);
+    }
+}
@@ -0,0 +1,62 @@
+package com.nstrange.bffservice.client;
+
+import com.nstrange.bffservice.dto.ExpenseItemDto;
+import com.nstrange.bffservice.dto.upstream.BaseSpendDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.LocalDate;
+import java.util.List;
+
+@Component
+public class ExpenseServiceClient
+{
+
+    private static final String USER_HEADER = "X-User-ID";
+
+    // only what the dashboard shows; ExpenseService selects just these columns
+    private static final String RECENT_FIELDS = "external_id,amount,merchant,currency,category,created_at";
+
+    private static final ParameterizedTypeReference<List<ExpenseItemDto>> EXPENSE_LIST =
+            new ParameterizedTypeReference<>() {};
+
+    private final RestClient restClient;
+
+    public ExpenseServiceClient(RestClient.Builder builder,
+                                HttpClient upstreamHttpClient,
+                                @Value("${bff.expense-service.base-url:http://localhost:9820}") String baseUrl,
+                                @Value("${bff.expense-service.timeout-ms:1200}") long timeoutMs) {
+        this.restClient = builder
+                .baseUrl(baseUrl)
+                .requestFactory(UpstreamClientConfig.requestFactory(upstreamHttpClient, timeoutMs))
+                .build();
+    }
+
+    /** The user's expenses created on or after {@code from}, in no particular order. */
+    public List<ExpenseItemDto> getExpensesSince(String userId, LocalDate from) {
+        return restClient.get()
+                .uri(uri -> uri.path("/expense/v1/getExpense")
+                        .queryParam("from", from)
+                        .queryParam("fields", RECENT_FIELDS)
+                        .build())
+                .header(USER_HEADER, userId)
+                .retrieve()
+                .body(EXPENSE_LIST);
+    }
+
+    /** Spend between the dates, inclusive, per category and converted to the user's base currency. */
+    public BaseSpendDto getBaseSpendByCategory(String userId, LocalDate from, LocalDate to) {
+        return restClient.get()
+                .uri(uri -> uri.path("/expense/v1/getBaseSpend")
+                        .queryParam("from", from)
+                        .queryParam("to", to)
+                        .queryParam("group_by", "category")
+                        .build())
+                .header(USER_HEADER, userId)
+                .retrieve()
+                .body(BaseSpendDto.class);
+    }
+}
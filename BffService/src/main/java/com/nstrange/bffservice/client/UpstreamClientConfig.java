@@ -0,0 +1,36 @@
+package com.nstrange.bffservice.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * One JDK {@link HttpClient} shared by the upstream clients, so they share its connection pool. Each
+ * client wraps it in a request factory with its own read timeout.
+ */
+@Configuration
+public class UpstreamClientConfig
+{
+
+    @Bean
+    public HttpClient upstreamHttpClient(@Value("${bff.upstream.connect-timeout-ms:300}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                // the services speak plain HTTP/1.1; skips the h2c upgrade attempt on every new connection
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    static ClientHttpRequestFactory requestFactory(HttpClient httpClient, long readTimeoutMs) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return factory;
+    }
+}
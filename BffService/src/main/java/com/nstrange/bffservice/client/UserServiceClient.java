@@ -0,0 +1,36 @@
+package com.nstrange.bffservice.client;
+
+import com.nstrange.bffservice.dto.upstream.UserInfoDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+
+@Component
+public class UserServiceClient
+{
+
+    private final RestClient restClient;
+
+    public UserServiceClient(RestClient.Builder builder,
+                             HttpClient upstreamHttpClient,
+                             @Value("${bff.user-service.base-url:http://localhost:9810}") String baseUrl,
+                             @Value("${bff.user-service.timeout-ms:800}") long timeoutMs) {
+        this.restClient = builder
+                .baseUrl(baseUrl)
+                .requestFactory(UpstreamClientConfig.requestFactory(upstreamHttpClient, timeoutMs))
+                .build();
+    }
+
+    /**
+     * @throws org.springframework.web.client.RestClientException if the call fails, times out or the user
+     *                                                            has no profile
+     */
+    public UserInfoDto getUser(String userId) {
+        return restClient.get()
+                .uri("/user/v1/users/{userId}", userId)
+                .retrieve()
+                .body(UserInfoDto.class);
+    }
+}
@@ -0,0 +1,33 @@
+package com.nstrange.bffservice.controller;
+
+import com.nstrange.bffservice.dashboard.DashboardService;
+import com.nstrange.bffservice.dto.DashboardDto;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/bff/v1")
+public class DashboardController
+{
+
+    private final DashboardService dashboardService;
+
+    DashboardController(DashboardService dashboardService){
+        this.dashboardService = dashboardService;
+    }
+
+    @GetMapping(path = "/dashboard")
+    public ResponseEntity<DashboardDto> getDashboard(@RequestHeader("X-User-ID") String userId){
+        if (userId.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User ID must not be blank");
+        }
+        return ResponseEntity.ok(dashboardService.getDashboard(userId));
+    }
+
+    @GetMapping("/health")
+    public ResponseEntity<Boolean> checkHealth(){
+        return new ResponseEntity<>(true, HttpStatus.OK);
+    }
+}
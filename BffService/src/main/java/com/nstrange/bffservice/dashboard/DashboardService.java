@@ -0,0 +1,194 @@
+package com.nstrange.bffservice.dashboard;
+
+import com.nstrange.bffservice.client.ExpenseServiceClient;
+import com.nstrange.bffservice.client.UserServiceClient;
+import com.nstrange.bffservice.dto.CategorySpendDto;
+import com.nstrange.bffservice.dto.DashboardDto;
+import com.nstrange.bffservice.dto.ExpenseItemDto;
+import com.nstrange.bffservice.dto.MonthSpendDto;
+import com.nstrange.bffservice.dto.ProfileDto;
+import com.nstrange.bffservice.dto.upstream.BaseSpendDto;
+import com.nstrange.bffservice.dto.upstream.SpendBucketDto;
+import com.nstrange.bffservice.dto.upstream.UserInfoDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Builds the home screen from UserService and ExpenseService in one round trip for the client. The
+ * profile, the recent expenses and the month's spend are fetched at the same time, each call on its own
+ * virtual thread in a {@link StructuredTaskScope}, so the dashboard takes as long as the slowest call
+ * rather than the sum of them. Every call has its own timeout, and the whole fan-out is capped at
+ * {@code bff.dashboard.budget-ms}: whatever has not answered by then is cancelled and its section left
+ * out, so one slow service degrades the screen instead of failing it.
+ */
+@Service
+public class DashboardService
+{
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardService.class);
+
+    static final String PROFILE = "profile";
+
+    static final String MONTH_SPEND = "month_spend";
+
+    static final String RECENT_EXPENSES = "recent_expenses";
+
+    private final UserServiceClient userServiceClient;
+
+    private final ExpenseServiceClient expenseServiceClient;
+
+    private final long budgetMs;
+
+    private final int recentDays;
+
+    private final int recentLimit;
+
+    private final int topCategories;
+
+    private final Map<String, Counter> unavailableCounters;
+
+    public DashboardService(UserServiceClient userServiceClient,
+                            ExpenseServiceClient expenseServiceClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${bff.dashboard.budget-ms:1500}") long budgetMs,
+                            @Value("${bff.dashboard.recent-days:30}") int recentDays,
+                            @Value("${bff.dashboard.recent-limit:10}") int recentLimit,
+                            @Value("${bff.dashboard.top-categories:5}") int topCategories) {
+        this.userServiceClient = userServiceClient;
+        this.expenseServiceClient = expenseServiceClient;
+        this.budgetMs = budgetMs;
+        this.recentDays = Math.max(1, recentDays);
+        this.recentLimit = Math.max(1, recentLimit);
+        this.topCategories = Math.max(1, topCategories);
+        this.unavailableCounters = Map.of(
+                PROFILE, unavailableCounter(meterRegistry, PROFILE),
+                MONTH_SPEND, unavailableCounter(meterRegistry, MONTH_SPEND),
+                RECENT_EXPENSES, unavailableCounter(meterRegistry, RECENT_EXPENSES));
+    }
+
+    /**
+     * @throws ResponseStatusException 503 if no section could be fetched
+     */
+    public DashboardDto getDashboard(String userId) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate monthStart = today.withDayOfMonth(1);
+        Instant deadline = Instant.now().plusMillis(budgetMs);
+        try (StructuredTaskScope<Object> scope = new StructuredTaskScope<>()) {
+            Subtask<UserInfoDto> profile = scope.fork(() -> userServiceClient.getUser(userId));
+            Subtask<BaseSpendDto> monthSpend = scope.fork(
+                    () -> expenseServiceClient.getBaseSpendByCategory(userId, monthStart, today));
+            Subtask<List<ExpenseItemDto>> recent = scope.fork(
+                    () -> expenseServiceClient.getExpensesSince(userId, today.minusDays(recentDays - 1)));
+            try {
+                scope.joinUntil(deadline);
+            } catch (TimeoutException ex) {
+                // interrupts the calls still running; their subtasks stay UNAVAILABLE
+                scope.shutdown();
+                scope.join();
+            }
+
+            List<String> unavailable = new ArrayList<>();
+            DashboardDto dashboard = DashboardDto.builder()
+                    .userId(userId)
+                    .profile(resultOf(PROFILE, profile, unavailable, DashboardService::toProfile))
+                    .monthSpend(resultOf(MONTH_SPEND, monthSpend, unavailable, this::toMonthSpend))
+                    .recentExpenses(resultOf(RECENT_EXPENSES, recent, unavailable, this::mostRecent))
+                    .partial(!unavailable.isEmpty())
+                    .unavailable(unavailable.isEmpty() ? null : unavailable)
+                    .build();
+            if (unavailable.size() == unavailableCounters.size()) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Dashboard upstreams did not answer within " + budgetMs + " ms");
+            }
+            return dashboard;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Dashboard request was interrupted");
+        }
+    }
+
+    private <T, R> R resultOf(String section, Subtask<T> subtask, List<String> unavailable, Function<T, R> mapper) {
+        switch (subtask.state()) {
+            case SUCCESS -> {
+                T value = subtask.get();
+                if (Objects.nonNull(value)) {
+                    return mapper.apply(value);
+                }
+                log.warn("Dashboard section {} came back empty", section);
+            }
+            case FAILED -> log.warn("Dashboard section {} failed: {}", section, subtask.exception().getMessage());
+            case UNAVAILABLE -> log.warn("Dashboard section {} did not answer within {} ms", section, budgetMs);
+        }
+        unavailable.add(section);
+        unavailableCounters.get(section).increment();
+        return null;
+    }
+
+    private static ProfileDto toProfile(UserInfoDto user) {
+        return ProfileDto.builder()
+                .username(user.getUsername())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .profilePic(user.getProfilePic())
+                .build();
+    }
+
+    private MonthSpendDto toMonthSpend(BaseSpendDto spend) {
+        List<CategorySpendDto> categories = Objects.isNull(spend.getGroups()) ? List.of() : spend.getGroups().stream()
+                .filter(group -> Objects.nonNull(group.getTotal()))
+                .sorted(Comparator.comparing(SpendBucketDto::getTotal).reversed())
+                .limit(topCategories)
+                .map(group -> CategorySpendDto.builder()
+                        .category(group.getKey())
+                        .total(group.getTotal())
+                        .count(group.getCount())
+                        .build())
+                .toList();
+        List<String> unconverted = Objects.isNull(spend.getUnconverted()) ? List.of() : spend.getUnconverted().stream()
+                .map(SpendBucketDto::getKey)
+                .toList();
+        return MonthSpendDto.builder()
+                .from(spend.getFrom())
+                .to(spend.getTo())
+                .currency(spend.getBaseCurrency())
+                .total(spend.getTotal())
+                .count(spend.getCount())
+                .topCategories(categories)
+                .unconvertedCurrencies(unconverted.isEmpty() ? null : unconverted)
+                .build();
+    }
+
+    private List<ExpenseItemDto> mostRecent(List<ExpenseItemDto> expenses) {
+        return expenses.stream()
+                .sorted(Comparator.comparing(ExpenseItemDto::getCreatedAt,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(recentLimit)
+                .toList();
+    }
+
+    private static Counter unavailableCounter(MeterRegistry meterRegistry, String section) {
+        return Counter.builder("bff.dashboard.unavailable")
+                .description("Dashboards served without a section because its upstream call failed or timed out")
+                .tag("section", section)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,36 @@
+package com.nstrange.bffservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Everything the home screen shows, in one response. A section whose upstream call failed or ran out of
+ * time is omitted and named in {@code unavailable}.
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DashboardDto {
+
+    private String userId;
+
+    private ProfileDto profile;
+
+    private MonthSpendDto monthSpend;
+
+    private List<ExpenseItemDto> recentExpenses;
+
+    private boolean partial;
+
+    private List<String> unavailable;
+}
@@ -0,0 +1,36 @@
+package com.nstrange.bffservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * An expense as projected by ExpenseService for the dashboard, passed through unchanged.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ExpenseItemDto {
+
+    private String externalId;
+
+    private BigDecimal amount;
+
+    private String merchant;
+
+    private String currency;
+
+    private String category;
+
+    private Timestamp createdAt;
+}
@@ -0,0 +1,41 @@
+package com.nstrange.bffservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Month-to-date spend in the user's base currency.
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MonthSpendDto {
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    private String currency;
+
+    private BigDecimal total;
+
+    private long count;
+
+    /** The largest categories, highest spend first. */
+    private List<CategorySpendDto> topCategories;
+
+    /** Currencies with no exchange rate; their spend is not in {@code total}. */
+    private List<String> unconvertedCurrencies;
+}
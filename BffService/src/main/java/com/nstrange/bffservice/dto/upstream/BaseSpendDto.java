@@ -0,0 +1,38 @@
+package com.nstrange.bffservice.dto.upstream;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * ExpenseService's {@code /getBaseSpend} response.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BaseSpendDto {
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    private String baseCurrency;
+
+    private BigDecimal total;
+
+    private long count;
+
+    private List<SpendBucketDto> groups;
+
+    /** Spend in currencies with no rate, keyed by currency and left out of {@code total}. */
+    private List<SpendBucketDto> unconverted;
+}
@@ -0,0 +1,29 @@
+package com.nstrange.bffservice.dto.upstream;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The parts of UserService's {@code /user/v1/users/{userId}} response the dashboard uses.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UserInfoDto {
+
+    private String userId;
+
+    private String username;
+
+    private String firstName;
+
+    private String lastName;
+
+    private String profilePic;
+}
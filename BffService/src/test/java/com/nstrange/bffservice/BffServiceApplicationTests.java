@@ -0,0 +1,13 @@
+package com.nstrange.bffservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class BffServiceApplicationTests {
+
+    @Test
+    void contextLoads() {
+    }
+
+}
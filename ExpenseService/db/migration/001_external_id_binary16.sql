@@ -0,0 +1,37 @@
+-- Converts expense.external_id from VARCHAR(255) (canonical UUID text) to BINARY(16).
+-- Run before deploying the build that maps external_id with UuidBinaryConverter; ddl-auto=update
+-- does not change the type of an existing column. Existing UUIDv4 ids keep their value, only
+-- the storage changes, so ids already handed to clients stay valid.
+
+ALTER TABLE expense ADD COLUMN external_id_bin BINARY(16) NULL;
+
+DELIMITER //
+CREATE PROCEDURE expense_backfill_external_id_bin(IN batch_size INT)
+BEGIN
+    DECLARE last_id BIGINT DEFAULT 0;
+    DECLARE max_id BIGINT;
+    SELECT COALESCE(MAX(id), 0) INTO max_id FROM expense;
+    -- short id-range batches keep row locks and undo small on a live table
+    WHILE last_id < max_id DO
+        UPDATE expense
+           SET external_id_bin = UUID_TO_BIN(external_id)
+         WHERE id > last_id AND id <= last_id + batch_size
+           AND external_id IS NOT NULL AND external_id_bin IS NULL;
+        SET last_id = last_id + batch_size;
+    END WHILE;
+END //
+DELIMITER ;
+
+CALL expense_backfill_external_id_bin(10000);
+DROP PROCEDURE expense_backfill_external_id_bin;
+
+-- rows written by the old build between the backfill and this point
+UPDATE expense SET external_id_bin = UUID_TO_BIN(external_id)
+ WHERE external_id IS NOT NULL AND external_id_bin IS NULL;
+
+ALTER TABLE expense
+    DROP INDEX uk_expense_external_id,
+    DROP COLUMN external_id,
+    RENAME COLUMN external_id_bin TO external_id,
+    ADD UNIQUE INDEX uk_expense_external_id (external_id),
+    ALGORITHM = INPLACE, LOCK = NONE;
@@ -0,0 +1,60 @@
+-- Range-partitions expense by created_at month: one partition pYYYYMM per month from the oldest row
+-- to three months ahead, plus an empty pmax catch-all that ExpensePartitionManager splits as time
+-- moves on. Set expense.partitioning.enabled=true once this has run.
+--
+-- MySQL requires every unique key of a partitioned table to contain the partitioning column, so:
+--   * the primary key becomes (id, created_at); id stays AUTO_INCREMENT and is still unique in practice;
+--   * uk_expense_external_id becomes the plain index idx_expense_external_id (ids are server-minted
+--     UUIDv7s, so collisions are not a practical concern);
+--   * (user_id, idempotency_key) uniqueness moves to expense_idempotency_key, backfilled below.
+-- The rebuild copies the table; on a large table run it with pt-online-schema-change or
+-- gh-ost using the same ALTER.
+
+CREATE TABLE IF NOT EXISTS expense_idempotency_key (
+    id              BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id         VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(64)  NOT NULL,
+    expense_id      BIGINT       NOT NULL,
+    CONSTRAINT uk_expense_idempotency_key UNIQUE (user_id, idempotency_key)
+) ENGINE = InnoDB;
+
+INSERT IGNORE INTO expense_idempotency_key (user_id, idempotency_key, expense_id)
+SELECT user_id, idempotency_key, id FROM expense WHERE idempotency_key IS NOT NULL;
+
+UPDATE expense SET created_at = COALESCE(updated_at, NOW(3)) WHERE created_at IS NULL;
+
+-- a schema first created by this build has neither unique index; drop those two clauses there
+
+ALTER TABLE expense
+    DROP INDEX uk_expense_user_idempotency_key,
+    DROP INDEX uk_expense_external_id,
+    ADD INDEX idx_expense_external_id (external_id),
+    ADD INDEX idx_expense_user_created_at (user_id, created_at),
+    MODIFY created_at DATETIME(6) NOT NULL,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_at);
+
+DELIMITER //
+CREATE PROCEDURE expense_partition_by_month(IN months_ahead INT)
+BEGIN
+    DECLARE month_start DATE;
+    DECLARE last_month DATE DEFAULT DATE_ADD(DATE_FORMAT(UTC_DATE(), '%Y-%m-01'), INTERVAL months_ahead MONTH);
+    DECLARE parts TEXT DEFAULT '';
+
+    SELECT DATE_FORMAT(COALESCE(MIN(created_at), UTC_DATE()), '%Y-%m-01') INTO month_start FROM expense;
+    WHILE month_start <= last_month DO
+        SET parts = CONCAT(parts, 'PARTITION p', DATE_FORMAT(month_start, '%Y%m'),
+                           ' VALUES LESS THAN (''', DATE_ADD(month_start, INTERVAL 1 MONTH), '''), ');
+        SET month_start = DATE_ADD(month_start, INTERVAL 1 MONTH);
+    END WHILE;
+
+    SET @ddl = CONCAT('ALTER TABLE expense PARTITION BY RANGE COLUMNS (created_at) (',
+                      parts, 'PARTITION pmax VALUES LESS THAN (MAXVALUE))');
+    PREPARE stmt FROM @ddl;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+END //
+DELIMITER ;
+
+CALL expense_partition_by_month(3);
+DROP PROCEDURE expense_partition_by_month;
@@ -0,0 +1,39 @@
+-- Takes expenses flagged as near-duplicates on ingest (duplicate_of set) back out of the spend
+-- rollups, which counted them until SpendRollupService started skipping them. Run it once on every
+-- shard, right after the build that skips them is deployed: a duplicate deleted in between is not
+-- subtracted by the new build's delete nor, being deleted, by this script, and stays counted.
+--
+-- Buckets are keyed as SpendRollupService keys them: UTC day and month of created_at (stored in UTC),
+-- category and merchant trimmed, with blanks counted as 'uncategorized' and 'unknown'. Duplicates
+-- already moved to cold storage are no longer in expense and stay counted.
+
+UPDATE expense_daily_rollup r
+JOIN (SELECT user_id, DATE(created_at) AS bucket_day, SUM(amount) AS total, COUNT(*) AS expenses
+      FROM expense
+      WHERE duplicate_of IS NOT NULL AND deleted_at IS NULL
+      GROUP BY user_id, DATE(created_at)) d
+    ON d.user_id = r.user_id AND d.bucket_day = r.bucket_day
+SET r.total_amount = r.total_amount - d.total,
+    r.expense_count = r.expense_count - d.expenses;
+
+UPDATE expense_category_rollup r
+JOIN (SELECT user_id, CAST(DATE_FORMAT(created_at, '%Y-%m-01') AS DATE) AS bucket_month,
+             COALESCE(NULLIF(TRIM(category), ''), 'uncategorized') AS category,
+             SUM(amount) AS total, COUNT(*) AS expenses
+      FROM expense
+      WHERE duplicate_of IS NOT NULL AND deleted_at IS NULL
+      GROUP BY 1, 2, 3) d
+    ON d.user_id = r.user_id AND d.bucket_month = r.bucket_month AND d.category = r.category
+SET r.total_amount = r.total_amount - d.total,
+    r.expense_count = r.expense_count - d.expenses;
+
+UPDATE expense_merchant_rollup r
+JOIN (SELECT user_id, CAST(DATE_FORMAT(created_at, '%Y-%m-01') AS DATE) AS bucket_month,
+             COALESCE(NULLIF(TRIM(merchant), ''), 'unknown') AS merchant,
+             SUM(amount) AS total, COUNT(*) AS expenses
+      FROM expense
+      WHERE duplicate_of IS NOT NULL AND deleted_at IS NULL
+      GROUP BY 1, 2, 3) d
+    ON d.user_id = r.user_id AND d.bucket_month = r.bucket_month AND d.merchant = r.merchant
+SET r.total_amount = r.total_amount - d.total,
+    r.expense_count = r.expense_count - d.expenses;
@@ -0,0 +1,65 @@
+-- Keys the spend rollups by currency, so a bucket never adds amounts in different currencies, and
+-- rebuilds their rows from expense. Stop writes on the shard, run this, then start the build that
+-- writes rollups by currency. Run it once on every shard.
+--
+-- Currencies are keyed as SpendRollupService keys them: the upper-cased ISO code, or 'unknown'.
+-- Buckets with no rows left in expense (months moved to cold storage or dropped with their
+-- partition) cannot be split by currency; they keep their totals under 'unknown'. Every other bucket
+-- is deleted and rebuilt from the live, non-duplicate rows, which also backfills rollups for rows
+-- written before the rollups existed.
+
+ALTER TABLE expense_daily_rollup
+    ADD COLUMN currency VARCHAR(8) NOT NULL DEFAULT 'unknown' AFTER bucket_day,
+    DROP INDEX uk_daily_rollup_bucket,
+    ADD CONSTRAINT uk_daily_rollup_bucket UNIQUE (user_id, bucket_day, currency);
+
+ALTER TABLE expense_category_rollup
+    ADD COLUMN currency VARCHAR(8) NOT NULL DEFAULT 'unknown' AFTER category,
+    DROP INDEX uk_category_rollup_bucket,
+    ADD CONSTRAINT uk_category_rollup_bucket UNIQUE (user_id, bucket_month, category, currency);
+
+ALTER TABLE expense_merchant_rollup
+    ADD COLUMN currency VARCHAR(8) NOT NULL DEFAULT 'unknown' AFTER merchant,
+    DROP INDEX uk_merchant_rollup_bucket,
+    ADD CONSTRAINT uk_merchant_rollup_bucket UNIQUE (user_id, bucket_month, merchant, currency);
+
+DELETE r FROM expense_daily_rollup r
+WHERE EXISTS (SELECT 1 FROM expense e
+              WHERE e.user_id = r.user_id
+                AND e.created_at >= r.bucket_day AND e.created_at < r.bucket_day + INTERVAL 1 DAY);
+
+INSERT INTO expense_daily_rollup (user_id, bucket_day, currency, total_amount, expense_count)
+SELECT user_id, DATE(created_at),
+       CASE WHEN UPPER(TRIM(currency)) REGEXP '^[A-Z]{3}$' THEN UPPER(TRIM(currency)) ELSE 'unknown' END,
+       COALESCE(SUM(amount), 0), COUNT(*)
+FROM expense
+WHERE deleted_at IS NULL AND duplicate_of IS NULL
+GROUP BY 1, 2, 3;
+
+DELETE r FROM expense_category_rollup r
+WHERE EXISTS (SELECT 1 FROM expense e
+              WHERE e.user_id = r.user_id
+                AND e.created_at >= r.bucket_month AND e.created_at < r.bucket_month + INTERVAL 1 MONTH);
+
+INSERT INTO expense_category_rollup (user_id, bucket_month, category, currency, total_amount, expense_count)
+SELECT user_id, CAST(DATE_FORMAT(created_at, '%Y-%m-01') AS DATE),
+       COALESCE(NULLIF(TRIM(category), ''), 'uncategorized'),
+       CASE WHEN UPPER(TRIM(currency)) REGEXP '^[A-Z]{3}$' THEN UPPER(TRIM(currency)) ELSE 'unknown' END,
+       COALESCE(SUM(amount), 0), COUNT(*)
+FROM expense
+WHERE deleted_at IS NULL AND duplicate_of IS NULL
+GROUP BY 1, 2, 3, 4;
+
+DELETE r FROM expense_merchant_rollup r
+WHERE EXISTS (SELECT 1 FROM expense e
+              WHERE e.user_id = r.user_id
+                AND e.created_at >= r.bucket_month AND e.created_at < r.bucket_month + INTERVAL 1 MONTH);
+
+INSERT INTO expense_merchant_rollup (user_id, bucket_month, merchant, currency, total_amount, expense_count)
+SELECT user_id, CAST(DATE_FORMAT(created_at, '%Y-%m-01') AS DATE),
+       COALESCE(NULLIF(TRIM(merchant), ''), 'unknown'),
+       CASE WHEN UPPER(TRIM(currency)) REGEXP '^[A-Z]{3}$' THEN UPPER(TRIM(currency)) ELSE 'unknown' END,
+       COALESCE(SUM(amount), 0), COUNT(*)
+FROM expense
+WHERE deleted_at IS NULL AND duplicate_of IS NULL
+GROUP BY 1, 2, 3, 4;
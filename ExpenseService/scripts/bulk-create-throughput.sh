@@ -0,0 +1,39 @@
+#!/usr/bin/env bash
+# Compares create throughput of POST /addExpense (one request per expense) with
+# POST /addExpenses (batches). Usage: bulk-create-throughput.sh [count] [batch-size]
+set -euo pipefail
+
+BASE_URL="${BASE_URL:-http://localhost:9820/expense/v1}"
+COUNT="${1:-1000}"
+BATCH="${2:-100}"
+USER_ID="throughput-$(date +%s)"
+
+item() {
+  printf '{"amount": %d.50, "merchant": "Bench Merchant %d", "fund_source": "card"' "$(( $1 % 500 + 1 ))" "$(( $1 % 50 ))"
+}
+
+now_ms() { date +%s%3N; }
+
+start=$(now_ms)
+for ((i = 0; i < COUNT; i++)); do
+  curl -sf -o /dev/null -X POST "$BASE_URL/addExpense" \
+    -H "X-User-ID: $USER_ID-single" -H "Content-Type: application/json" \
+    -d "$(item "$i")}"
+done
+single_ms=$(( $(now_ms) - start ))
+
+start=$(now_ms)
+for ((offset = 0; offset < COUNT; offset += BATCH)); do
+  body="["
+  for ((i = offset; i < offset + BATCH && i < COUNT; i++)); do
+    [[ $i -gt $offset ]] && body+=","
+    body+="$(item "$i"), \"idempotency_key\": \"bench-$i\"}"
+  done
+  body+="]"
+  curl -sf -o /dev/null -X POST "$BASE_URL/addExpenses" \
+    -H "X-User-ID: $USER_ID-bulk" -H "Content-Type: application/json" -d "$body"
+done
+bulk_ms=$(( $(now_ms) - start ))
+
+echo "per-item: $COUNT expenses in ${single_ms} ms ($(( COUNT * 1000 / (single_ms > 0 ? single_ms : 1) )) /s)"
+echo "bulk($BATCH): $COUNT expenses in ${bulk_ms} ms ($(( COUNT * 1000 / (bulk_ms > 0 ? bulk_ms : 1) )) /s)"
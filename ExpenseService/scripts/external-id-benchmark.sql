@@ -0,0 +1,96 @@
+-- Insert throughput and index size of random UUIDv4 text ids (the old scheme) versus
+-- time-ordered UUIDv7 ids in BINARY(16), each behind a unique index, in scratch tables.
+--
+--   mysql -u root -p expense_service -e "SET @rows = 50000000; SOURCE scripts/external-id-benchmark.sql"
+--
+-- @rows defaults to 50M. Needs MySQL 8.0.13+ (UUID_TO_BIN); v7 ids are built in SQL from
+-- a synthetic millisecond clock so both runs do the same amount of id-generation work.
+
+SET @rows = COALESCE(@rows, 50000000);
+
+DROP TABLE IF EXISTS bench_expense_v4;
+DROP TABLE IF EXISTS bench_expense_v7;
+
+CREATE TABLE bench_expense_v4 (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    external_id VARCHAR(255) NOT NULL,
+    user_id     VARCHAR(64) NOT NULL,
+    amount      DECIMAL(19, 2) NOT NULL,
+    UNIQUE KEY uk_external_id (external_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE bench_expense_v7 (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    external_id BINARY(16) NOT NULL,
+    user_id     VARCHAR(64) NOT NULL,
+    amount      DECIMAL(19, 2) NOT NULL,
+    UNIQUE KEY uk_external_id (external_id)
+) ENGINE = InnoDB;
+
+DROP PROCEDURE IF EXISTS bench_fill;
+DELIMITER //
+CREATE PROCEDURE bench_fill(IN scheme VARCHAR(2), IN total BIGINT)
+BEGIN
+    DECLARE n BIGINT DEFAULT 0;
+    DECLARE base_ms BIGINT DEFAULT FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000);
+    DECLARE hex_ms CHAR(12);
+    DECLARE rnd CHAR(32);
+    WHILE n < total DO
+        START TRANSACTION;
+        -- 1000-row transactions, close to the bulk endpoint's JDBC batches
+        SET @batch_end = LEAST(n + 1000, total);
+        WHILE n < @batch_end DO
+            IF scheme = 'v4' THEN
+                INSERT INTO bench_expense_v4 (external_id, user_id, amount)
+                VALUES (UUID_v4(), CONCAT('user-', n MOD 10000), (n MOD 50000) / 100);
+            ELSE
+                -- ~50 ids per millisecond, then v7 layout: ts48 | ver 7 | rand_a | var 10 | rand_b
+                SET hex_ms = LPAD(HEX(base_ms + n DIV 50), 12, '0');
+                SET rnd = MD5(RAND());
+                INSERT INTO bench_expense_v7 (external_id, user_id, amount)
+                VALUES (UNHEX(CONCAT(hex_ms, '7', SUBSTRING(rnd, 1, 3),
+                                     HEX(8 + FLOOR(RAND() * 4)), SUBSTRING(rnd, 4, 15))),
+                        CONCAT('user-', n MOD 10000), (n MOD 50000) / 100);
+            END IF;
+            SET n = n + 1;
+        END WHILE;
+        COMMIT;
+    END WHILE;
+END //
+
+-- MySQL's UUID() is v1 (time-ordered within a host); the service used Java's random v4
+DROP FUNCTION IF EXISTS UUID_v4 //
+CREATE FUNCTION UUID_v4() RETURNS CHAR(36) NOT DETERMINISTIC NO SQL
+BEGIN
+    DECLARE h CHAR(32) DEFAULT MD5(RAND());
+    RETURN LOWER(CONCAT(SUBSTRING(h, 1, 8), '-', SUBSTRING(h, 9, 4), '-4', SUBSTRING(h, 14, 3), '-',
+                        HEX(8 + FLOOR(RAND() * 4)), SUBSTRING(h, 18, 3), '-', SUBSTRING(h, 21, 12)));
+END //
+DELIMITER ;
+
+SET @t0 = NOW(6);
+CALL bench_fill('v4', @rows);
+SET @v4_seconds = TIMESTAMPDIFF(MICROSECOND, @t0, NOW(6)) / 1e6;
+
+SET @t0 = NOW(6);
+CALL bench_fill('v7', @rows);
+SET @v7_seconds = TIMESTAMPDIFF(MICROSECOND, @t0, NOW(6)) / 1e6;
+
+ANALYZE TABLE bench_expense_v4, bench_expense_v7;
+
+SELECT 'uuid_v4_varchar' AS scheme, @rows AS row_count, ROUND(@v4_seconds, 1) AS seconds,
+       ROUND(@rows / @v4_seconds) AS rows_per_second
+UNION ALL
+SELECT 'uuid_v7_binary16', @rows, ROUND(@v7_seconds, 1), ROUND(@rows / @v7_seconds);
+
+-- size is in pages; n_leaf_pages shows how full the splits left the leaves
+SELECT table_name, index_name, stat_name,
+       stat_value, ROUND(stat_value * @@innodb_page_size / 1024 / 1024) AS mib
+  FROM mysql.innodb_index_stats
+ WHERE database_name = DATABASE()
+   AND table_name IN ('bench_expense_v4', 'bench_expense_v7')
+   AND stat_name IN ('size', 'n_leaf_pages')
+ ORDER BY table_name, index_name, stat_name;
+
+DROP PROCEDURE bench_fill;
+DROP FUNCTION UUID_v4;
@@ -0,0 +1,135 @@
+-- Recent-window query latency on a month-partitioned expense table versus the same rows in an
+-- unpartitioned one, in scratch tables. @rows (default 100M) are spread evenly over @months
+-- (default 36) ending this month, across 100k users.
+--
+--   mysql -u root -p expense_service -e "SET @rows = 100000000; SOURCE scripts/partition-load-test.sql"
+--
+-- Loading 100M rows takes a while and roughly 2 x 12 GB of disk; the loads use INSERT ... SELECT over
+-- a numbers table, not a row-at-a-time loop. The report prints EXPLAIN partitions (pruning) and the
+-- median of repeated runs of three query shapes the service issues.
+
+SET @rows = COALESCE(@rows, 100000000);
+SET @months = COALESCE(@months, 36);
+SET @users = 100000;
+SET @first_month = DATE_SUB(DATE_FORMAT(UTC_DATE(), '%Y-%m-01'), INTERVAL @months - 1 MONTH);
+SET @span_seconds = TIMESTAMPDIFF(SECOND, @first_month, DATE_ADD(DATE_FORMAT(UTC_DATE(), '%Y-%m-01'), INTERVAL 1 MONTH));
+
+DROP TABLE IF EXISTS load_expense_flat, load_expense_part, load_numbers, load_timings;
+
+CREATE TABLE load_expense_flat (
+    id         BIGINT AUTO_INCREMENT,
+    user_id    VARCHAR(64)    NOT NULL,
+    amount     DECIMAL(19, 2) NOT NULL,
+    merchant   VARCHAR(64),
+    category   VARCHAR(32),
+    created_at DATETIME(6)    NOT NULL,
+    deleted_at DATETIME(6),
+    PRIMARY KEY (id),
+    KEY idx_user_created_at (user_id, created_at)
+) ENGINE = InnoDB;
+
+CREATE TABLE load_expense_part LIKE load_expense_flat;
+ALTER TABLE load_expense_part DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at);
+
+DROP PROCEDURE IF EXISTS load_partition_by_month;
+DELIMITER //
+CREATE PROCEDURE load_partition_by_month()
+BEGIN
+    DECLARE month_start DATE DEFAULT @first_month;
+    DECLARE parts TEXT DEFAULT '';
+    WHILE month_start <= DATE_FORMAT(UTC_DATE(), '%Y-%m-01') DO
+        SET parts = CONCAT(parts, 'PARTITION p', DATE_FORMAT(month_start, '%Y%m'),
+                           ' VALUES LESS THAN (''', DATE_ADD(month_start, INTERVAL 1 MONTH), '''), ');
+        SET month_start = DATE_ADD(month_start, INTERVAL 1 MONTH);
+    END WHILE;
+    SET @ddl = CONCAT('ALTER TABLE load_expense_part PARTITION BY RANGE COLUMNS (created_at) (',
+                      parts, 'PARTITION pmax VALUES LESS THAN (MAXVALUE))');
+    PREPARE stmt FROM @ddl;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+END //
+
+CREATE PROCEDURE load_fill(IN target VARCHAR(32))
+BEGIN
+    DECLARE done BIGINT DEFAULT 0;
+    WHILE done < @rows DO
+        -- one million rows per statement; n spreads rows over users and time
+        SET @sql = CONCAT('INSERT INTO ', target, ' (user_id, amount, merchant, category, created_at) ',
+                          'SELECT CONCAT(''user-'', n MOD ', @users, '), ((n * 7919) MOD 500000) / 100, ',
+                          'CONCAT(''merchant-'', n MOD 5000), ELT(1 + n MOD 6, ''food'', ''travel'', ''bills'', ''shopping'', ''health'', NULL), ',
+                          'TIMESTAMPADD(SECOND, (n * 2654435761) MOD ', @span_seconds, ', ''', @first_month, ''') ',
+                          'FROM (SELECT ', done, ' + a.i * 1000 + b.i AS n FROM load_numbers a, load_numbers b) s ',
+                          'WHERE n < ', @rows);
+        PREPARE stmt FROM @sql;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+        SET done = done + 1000000;
+    END WHILE;
+END //
+
+CREATE PROCEDURE load_time(IN label VARCHAR(64), IN query TEXT, IN runs INT)
+BEGIN
+    DECLARE i INT DEFAULT 0;
+    SET @q = query;
+    PREPARE stmt FROM @q;
+    WHILE i < runs DO
+        SET @t0 = NOW(6);
+        EXECUTE stmt;
+        INSERT INTO load_timings VALUES (label, i, TIMESTAMPDIFF(MICROSECOND, @t0, NOW(6)));
+        SET i = i + 1;
+    END WHILE;
+    DEALLOCATE PREPARE stmt;
+END //
+DELIMITER ;
+
+CALL load_partition_by_month();
+
+CREATE TABLE load_numbers (i INT PRIMARY KEY);
+INSERT INTO load_numbers
+WITH RECURSIVE seq (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM seq WHERE i < 999)
+SELECT i FROM seq;
+CREATE TABLE load_timings (label VARCHAR(64), run INT, micros BIGINT);
+
+CALL load_fill('load_expense_flat');
+CALL load_fill('load_expense_part');
+ANALYZE TABLE load_expense_flat, load_expense_part;
+
+SET @recent = DATE_SUB(DATE_FORMAT(UTC_DATE(), '%Y-%m-01'), INTERVAL 2 MONTH);
+SET @user = 'user-4242';
+
+-- pruning: the partitioned plan should list only the last three monthly partitions (and pmax)
+EXPLAIN SELECT amount, merchant, created_at FROM load_expense_part
+ WHERE user_id = 'user-4242' AND deleted_at IS NULL AND created_at >= @recent;
+
+-- 1) one user's recent expenses (getExpense?from=), 2) the same as an aggregate (getSpend),
+-- 3) a recent-window scan across all users; results go into variables so only timings print
+DROP PROCEDURE IF EXISTS load_run;
+DELIMITER //
+CREATE PROCEDURE load_run(IN tbl VARCHAR(32))
+BEGIN
+    DECLARE window_filter TEXT DEFAULT CONCAT('created_at >= ''', @recent, '''');
+    CALL load_time(CONCAT(tbl, ' list'), CONCAT(
+        'SELECT COUNT(*) INTO @ignored FROM (SELECT amount, merchant, created_at FROM ', tbl,
+        ' WHERE user_id = ''', @user, ''' AND deleted_at IS NULL AND ', window_filter, ') q'), 50);
+    CALL load_time(CONCAT(tbl, ' sum'), CONCAT(
+        'SELECT SUM(amount), COUNT(*) INTO @ignored, @ignored2 FROM ', tbl,
+        ' WHERE user_id = ''', @user, ''' AND deleted_at IS NULL AND ', window_filter), 50);
+    CALL load_time(CONCAT(tbl, ' scan'), CONCAT(
+        'SELECT COUNT(*) INTO @ignored FROM (SELECT category, SUM(amount) FROM ', tbl,
+        ' WHERE ', window_filter, ' GROUP BY category) q'), 5);
+END //
+DELIMITER ;
+
+CALL load_run('load_expense_flat');
+CALL load_run('load_expense_part');
+
+SELECT label, COUNT(*) AS runs,
+       ROUND(MIN(micros) / 1000, 2) AS min_ms,
+       ROUND(SUBSTRING_INDEX(SUBSTRING_INDEX(GROUP_CONCAT(micros ORDER BY micros), ',', CEIL(COUNT(*) / 2)), ',', -1) / 1000, 2) AS median_ms,
+       ROUND(MAX(micros) / 1000, 2) AS max_ms
+  FROM load_timings GROUP BY label ORDER BY label;
+
+DROP PROCEDURE load_partition_by_month;
+DROP PROCEDURE load_fill;
+DROP PROCEDURE load_time;
+DROP PROCEDURE load_run;
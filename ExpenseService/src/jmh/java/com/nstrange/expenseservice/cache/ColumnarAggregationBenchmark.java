@@ -0,0 +1,114 @@
+package com.nstrange.expenseservice.cache;
+
+import com.nstrange.expenseservice.entities.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range-sum and group-by over one user's history: columnar primitives versus the entity scan with
+ * {@link BigDecimal} arithmetic that the non-cached path performs once rows are materialized.
+ *
+ * <pre>./gradlew jmh</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColumnarAggregationBenchmark {
+
+    private static final String[] MERCHANTS = {"swiggy", "zomato", "amazon", "uber", "bigbasket", "irctc", "netflix"};
+
+    private static final String[] CATEGORIES = {"food", "shopping", "travel", "groceries", "entertainment"};
+
+    private static final String[] FUND_SOURCES = {"hdfc-cc", "icici-debit", "upi", "cash"};
+
+    @Param({"1000", "20000"})
+    private int rows;
+
+    private UserExpenseColumns columns;
+
+    private List<Expense> entities;
+
+    private long fromMillis;
+
+    private long toMillis;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        long start = 1_700_000_000_000L;
+        long step = TimeUnit.HOURS.toMillis(6);
+
+        columns = new UserExpenseColumns(rows);
+        entities = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long time = start + i * step;
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(500_000), 2);
+            String merchant = MERCHANTS[random.nextInt(MERCHANTS.length)];
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            String fundSource = FUND_SOURCES[random.nextInt(FUND_SOURCES.length)];
+
+            columns.insert(i, time, MinorUnits.of(amount), merchant, category, fundSource);
+
+            Expense expense = new Expense();
+            expense.setId((long) i);
+            expense.setCreatedAt(new Timestamp(time));
+            expense.setAmount(amount);
+            expense.setMerchant(merchant);
+            expense.setCategory(category);
+            expense.setFundSource(fundSource);
+            entities.add(expense);
+        }
+        fromMillis = start + (rows / 4) * step;
+        toMillis = start + (3L * rows / 4) * step;
+    }
+
+    @Benchmark
+    public SpendAggregate columnarRangeSumByFundSource() {
+        return columns.sum(fromMillis, toMillis, "hdfc-cc");
+    }
+
+    @Benchmark
+    public BigDecimal entityRangeSumByFundSource() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Expense expense : entities) {
+            long time = expense.getCreatedAt().getTime();
+            if (time >= fromMillis && time < toMillis && Objects.equals(expense.getFundSource(), "hdfc-cc")) {
+                total = total.add(expense.getAmount());
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Map<String, SpendAggregate> columnarGroupByCategory() {
+        return columns.groupBy(SpendDimension.CATEGORY, fromMillis, toMillis, null);
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> entityGroupByCategory() {
+        Map<String, BigDecimal> totals = new HashMap<>();
+        for (Expense expense : entities) {
+            long time = expense.getCreatedAt().getTime();
+            if (time >= fromMillis && time < toMillis) {
+                totals.merge(expense.getCategory(), expense.getAmount(), BigDecimal::add);
+            }
+        }
+        return totals;
+    }
+}
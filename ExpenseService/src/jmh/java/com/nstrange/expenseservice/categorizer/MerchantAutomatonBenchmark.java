@@ -0,0 +1,72 @@
+package com.nstrange.expenseservice.categorizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup throughput of the bundled merchant rules on typical SMS-derived merchant strings.
+ *
+ * <pre>./gradlew jmh -Pjmh.includes=MerchantAutomatonBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MerchantAutomatonBenchmark {
+
+    private static final String[] MERCHANTS = {
+            "SWIGGY*ORDER 1234567",
+            "UPI/ZOMATO LTD/ref 99812",
+            "AMAZON PAY INDIA PVT LTD",
+            "OLACABS BANGALORE",
+            "IRCTC E-TICKETING",
+            "NETFLIX.COM",
+            "BESCOM BILL PAYMENT",
+            "INDIAN OIL CORP PETROL PUMP",
+            "APOLLO PHARMACY KORAMANGALA",
+            "RANDOM LOCAL KIRANA STORE",
+            "Coca Cola vending",
+            "BigBasket Supermarket"
+    };
+
+    private MerchantAutomaton automaton;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Objects.requireNonNull(getClass().getClassLoader().getResourceAsStream("merchant-categories.txt")),
+                StandardCharsets.UTF_8))) {
+            Map<String, String> rules = CategoryRules.parse(reader);
+            automaton = MerchantAutomaton.build(rules);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String matchSingleThread() {
+        cursor = (cursor + 1) % MERCHANTS.length;
+        return automaton.match(MERCHANTS[cursor]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String matchFourThreads() {
+        return automaton.match(MERCHANTS[(int) (Thread.currentThread().getId() % MERCHANTS.length)]);
+    }
+}
@@ -0,0 +1,132 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.model.ExpenseField;
+import com.nstrange.expenseservice.model.ProjectedExpense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response-side cost of {@code getExpense}: entities copied into {@link ExpenseDto}s and serialized,
+ * versus {@link ProjectedExpense} rows written directly, for all fields and for a list-view subset.
+ * Run with the GC profiler to compare bytes allocated per operation:
+ *
+ * <pre>./gradlew jmh -Pjmh.includes=ExpenseProjectionBenchmark</pre>
+ *
+ * The query side is not covered here; projections additionally skip entity instantiation and
+ * persistence-context registration inside Hibernate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExpenseProjectionBenchmark {
+
+    private static final List<ExpenseField> LIST_VIEW =
+            List.of(ExpenseField.AMOUNT, ExpenseField.MERCHANT, ExpenseField.CREATED_AT);
+
+    @Param({"100", "2000"})
+    private int rows;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<Expense> entities;
+
+    private List<ProjectedExpense> fullRows;
+
+    private List<ProjectedExpense> listViewRows;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        entities = new ArrayList<>(rows);
+        fullRows = new ArrayList<>(rows);
+        listViewRows = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Expense expense = new Expense();
+            expense.setId((long) i);
+            expense.setExternalId(Expense.newExternalId());
+            expense.setUserId("user-1");
+            expense.setAmount(BigDecimal.valueOf(random.nextInt(500_000), 2));
+            expense.setMerchant("merchant-" + random.nextInt(200));
+            expense.setCurrency("INR");
+            expense.setBaseAmount(expense.getAmount());
+            expense.setBaseCurrency("INR");
+            expense.setCreatedAt(new Timestamp(1_700_000_000_000L + i * 3_600_000L));
+            expense.setNotes(i % 4 == 0 ? "note " + i : null);
+            expense.setCategory("food");
+            expense.setFundSource("upi");
+            expense.setUpdatedAt(expense.getCreatedAt());
+            expense.setVersion(0L);
+            entities.add(expense);
+
+            fullRows.add(new ProjectedExpense()
+                    .set(ExpenseField.EXTERNAL_ID, expense.getExternalId())
+                    .set(ExpenseField.AMOUNT, expense.getAmount())
+                    .set(ExpenseField.USER_ID, expense.getUserId())
+                    .set(ExpenseField.MERCHANT, expense.getMerchant())
+                    .set(ExpenseField.CURRENCY, expense.getCurrency())
+                    .set(ExpenseField.BASE_AMOUNT, expense.getBaseAmount())
+                    .set(ExpenseField.BASE_CURRENCY, expense.getBaseCurrency())
+                    .set(ExpenseField.CREATED_AT, expense.getCreatedAt())
+                    .set(ExpenseField.NOTES, expense.getNotes())
+                    .set(ExpenseField.CATEGORY, expense.getCategory())
+                    .set(ExpenseField.FUND_SOURCE, expense.getFundSource())
+                    .set(ExpenseField.DUPLICATE_OF, expense.getDuplicateOf())
+                    .set(ExpenseField.UPDATED_AT, expense.getUpdatedAt())
+                    .set(ExpenseField.VERSION, expense.getVersion()));
+            listViewRows.add(new ProjectedExpense()
+                    .set(ExpenseField.AMOUNT, expense.getAmount())
+                    .set(ExpenseField.MERCHANT, expense.getMerchant())
+                    .set(ExpenseField.CREATED_AT, expense.getCreatedAt()));
+        }
+    }
+
+    @Benchmark
+    public byte[] entitiesMappedToDtos() throws Exception {
+        List<ExpenseDto> dtos = new ArrayList<>(entities.size());
+        for (Expense expense : entities) {
+            // same copy as ExpenseController.mapToDto
+            dtos.add(ExpenseDto.builder()
+                    .externalId(expense.getExternalId())
+                    .amount(expense.getAmount())
+                    .userId(expense.getUserId())
+                    .merchant(expense.getMerchant())
+                    .currency(expense.getCurrency())
+                    .baseAmount(expense.getBaseAmount())
+                    .baseCurrency(expense.getBaseCurrency())
+                    .createdAt(expense.getCreatedAt())
+                    .fundSource(expense.getFundSource())
+                    .category(expense.getCategory())
+                    .notes(expense.getNotes())
+                    .duplicateOf(expense.getDuplicateOf())
+                    .updatedAt(expense.getUpdatedAt())
+                    .version(expense.getVersion())
+                    .build());
+        }
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public byte[] projectedAllFields() throws Exception {
+        return objectMapper.writeValueAsBytes(new ProjectedExpenses(ExpenseField.ALL, fullRows));
+    }
+
+    @Benchmark
+    public byte[] projectedListView() throws Exception {
+        return objectMapper.writeValueAsBytes(new ProjectedExpenses(LIST_VIEW, listViewRows));
+    }
+}
@@ -0,0 +1,41 @@
+package com.nstrange.expenseservice.ids;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of minting an external id in the old (random v4 text) and new (v7, bound as 16 bytes) schemes,
+ * single-threaded and under contention on the shared counter. Insert throughput and index size are
+ * measured against MySQL by {@code scripts/external-id-benchmark.sql}.
+ *
+ * <pre>./gradlew jmh -Pjmh.includes=ExternalIdBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExternalIdBenchmark {
+
+    @Benchmark
+    public String uuidV4Text() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public byte[] uuidV7Binary() {
+        return UuidBytes.toBytes(UuidV7.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] uuidV7BinaryContended() {
+        return UuidBytes.toBytes(UuidV7.next());
+    }
+}
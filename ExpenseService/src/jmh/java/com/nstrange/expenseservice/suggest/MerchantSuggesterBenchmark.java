@@ -0,0 +1,135 @@
+package com.nstrange.expenseservice.suggest;
+
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.events.ExpenseChangedEvent;
+import com.nstrange.expenseservice.repository.MerchantSpendRollupRepository;
+import com.nstrange.expenseservice.sharding.ShardingProperties;
+import com.nstrange.expenseservice.sharding.Shards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link MerchantSuggester#suggest} latency: validation, the user's overlay, the global trie
+ * and the merge of pending counts, with and without a full pending map. Rollups come from an in-memory
+ * stub, and every user's overlay is loaded during setup, so no lookup pays for a load.
+ *
+ * <pre>./gradlew jmh -Pjmh.includes=MerchantSuggesterBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MerchantSuggesterBenchmark {
+
+    private static final String[] WORDS = {
+            "swiggy", "zomato", "amazon", "apollo", "big", "basket", "indian", "oil", "pharmacy", "store",
+            "kirana", "cafe", "coffee", "day", "mart", "fresh", "super", "market", "petrol", "pump",
+            "bakery", "travels", "medicals", "electronics", "tea", "house", "foods", "pvt", "ltd", "online"
+    };
+
+    private static final int PREFIXES = 4096;
+
+    private static final int USERS = 1024;
+
+    private static final int USER_MERCHANTS = 50;
+
+    private static final int MIN_USERS = 3;
+
+    @Param({"100000"})
+    private int merchants;
+
+    @Param({"0", "10000"})
+    private int pendingMerchants;
+
+    private MerchantSuggester suggester;
+
+    private String[] prefixes;
+
+    private String[] userIds;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<Object[]> global = new ArrayList<>(merchants);
+        for (int i = 0; i < merchants; i++) {
+            // a few merchants take most of the usage, as in real spend data
+            long count = 1 + 100_000 / (1 + random.nextInt(100_000));
+            global.add(new Object[]{name(random, i), count, (long) MIN_USERS});
+        }
+        List<Object[]> perUser = new ArrayList<>(USER_MERCHANTS);
+        for (int i = 0; i < USER_MERCHANTS; i++) {
+            perUser.add(new Object[]{name(random, merchants + i), (long) (1 + random.nextInt(20))});
+        }
+
+        suggester = new MerchantSuggester(rollups(global, perUser), new Shards(new ShardingProperties()),
+                new SimpleMeterRegistry(), 32L << 20, 64L << 20, MIN_USERS, Math.max(1, pendingMerchants), 10);
+        suggester.rebuild();
+
+        userIds = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = "user-" + i;
+            suggester.suggest(userIds[i], "", 10);
+        }
+        for (int i = 0; i < pendingMerchants; i++) {
+            String merchant = name(random, 2 * merchants + i);
+            // enough distinct users that the pending merchant is suggested before the next compaction
+            for (int u = 0; u < MIN_USERS; u++) {
+                Expense expense = new Expense();
+                expense.setUserId(userIds[random.nextInt(USERS)] + "-" + u);
+                expense.setMerchant(merchant);
+                suggester.onExpenseChanged(ExpenseChangedEvent.created(expense));
+            }
+        }
+
+        prefixes = new String[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            prefixes[i] = word.substring(0, 1 + random.nextInt(word.length()));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object suggest() {
+        cursor = (cursor + 1) & (PREFIXES - 1);
+        return suggester.suggest(userIds[cursor & (USERS - 1)], prefixes[cursor], 5);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object suggestFourThreads() {
+        int slot = (int) (Thread.currentThread().getId() & (PREFIXES - 1));
+        return suggester.suggest(userIds[slot & (USERS - 1)], prefixes[slot], 5);
+    }
+
+    private static String name(Random random, int i) {
+        return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+    }
+
+    private static MerchantSpendRollupRepository rollups(List<Object[]> global, List<Object[]> perUser) {
+        return (MerchantSpendRollupRepository) Proxy.newProxyInstance(
+                MerchantSpendRollupRepository.class.getClassLoader(),
+                new Class<?>[]{MerchantSpendRollupRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "sumCountsByMerchant" -> global;
+                    case "sumCountsByMerchantForUser" -> perUser;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,93 @@
+package com.nstrange.expenseservice.suggest;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-k prefix lookup latency on synthetic merchant names with a long-tailed usage distribution.
+ * The {@link Footprint} counter reports the trie's size scaled to a million merchants next to the timings.
+ *
+ * <pre>./gradlew jmh -Pjmh.includes=MerchantTrieBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MerchantTrieBenchmark {
+
+    private static final String[] WORDS = {
+            "swiggy", "zomato", "amazon", "apollo", "big", "basket", "indian", "oil", "pharmacy", "store",
+            "kirana", "cafe", "coffee", "day", "mart", "fresh", "super", "market", "petrol", "pump",
+            "bakery", "travels", "medicals", "electronics", "tea", "house", "foods", "pvt", "ltd", "online"
+    };
+
+    private static final int PREFIXES = 4096;
+
+    @Param({"100000", "1000000"})
+    private int merchants;
+
+    private MerchantTrie trie;
+
+    private String[] prefixes;
+
+    private int[] hits;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<MerchantTrie.Entry> entries = new ArrayList<>(merchants);
+        for (int i = 0; i < merchants; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            // a few merchants take most of the usage, as in real spend data
+            entries.add(new MerchantTrie.Entry(name, 1 + (int) (100_000 / (1 + random.nextInt(100_000)))));
+        }
+        trie = MerchantTrie.build(entries, Long.MAX_VALUE);
+
+        prefixes = new String[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            prefixes[i] = word.substring(0, 1 + random.nextInt(word.length()));
+        }
+        hits = new int[10];
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int topTen(Footprint footprint) {
+        cursor = (cursor + 1) & (PREFIXES - 1);
+        return trie.top(prefixes[cursor], hits);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int topTenFourThreads() {
+        return trie.top(prefixes[(int) (Thread.currentThread().getId() & (PREFIXES - 1))], new int[10]);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long bytesPerMillionMerchants;
+
+        @Setup(Level.Iteration)
+        public void measure(MerchantTrieBenchmark benchmark) {
+            bytesPerMillionMerchants = benchmark.trie.estimatedBytes() * 1_000_000L / benchmark.trie.size();
+        }
+    }
+}
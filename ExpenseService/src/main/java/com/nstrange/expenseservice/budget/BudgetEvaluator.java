@@ -0,0 +1,559 @@
+package com.nstrange.expenseservice.budget;
+
+import com.nstrange.expenseservice.cache.MinorUnits;
+import com.nstrange.expenseservice.entities.Budget;
+import com.nstrange.expenseservice.entities.BudgetSpendCheckpoint;
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.events.ExpenseChangedEvent;
+import com.nstrange.expenseservice.fx.BaseCurrencyService;
+import com.nstrange.expenseservice.fx.FxRateService;
+import com.nstrange.expenseservice.fx.FxRateTable;
+import com.nstrange.expenseservice.model.BaseSpendAggregateView;
+import com.nstrange.expenseservice.model.ExpenseSnapshot;
+import com.nstrange.expenseservice.producer.BudgetAlertEvent;
+import com.nstrange.expenseservice.producer.BudgetAlertProducer;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.BudgetRepository;
+import com.nstrange.expenseservice.repository.BudgetSpendCheckpointRepository;
+import com.nstrange.expenseservice.repository.ExpenseRepository;
+import com.nstrange.expenseservice.exception.UserShardMovingException;
+import com.nstrange.expenseservice.service.SpendRollupService;
+import com.nstrange.expenseservice.sharding.ShardContext;
+import com.nstrange.expenseservice.sharding.Shards;
+import com.nstrange.expenseservice.sharding.UserShardResolver;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams committed expenses through per-user monthly budgets. Running totals live in a
+ * {@link ConcurrentHashMap} of {@link RunningTotal}s, so each expense costs a couple of hash lookups
+ * and CAS operations. Limits and totals are in the user's base currency: an expense counts with its
+ * stored base amount, converted at the current rates when it has none or was stored in an earlier
+ * base currency, and is left out when either currency has no rate.
+ * <p>
+ * Totals are checkpointed to {@code budget_spend_checkpoint}, which all instances share: every
+ * {@code expense.budget.checkpoint-interval-ms} each instance adds the deltas it has applied since its
+ * last pass to the rows and reads back the rows any instance changed, which takes in writes made
+ * elsewhere. At startup the month's rows are loaded as they are. A scope is seeded from the month's
+ * expenses, summed per stored currency, only when it has no row yet or its row is in another base
+ * currency. Every {@code expense.budget.reconcile-interval-ms} the resident totals of scopes with no
+ * recent writes are compared with that sum and corrected, which repairs deltas lost in a crash and
+ * rate changes for expenses converted on read. A threshold is claimed on the same row before its alert
+ * is sent, so each alert fires once however many instances see the crossing.
+ */
+@Service
+public class BudgetEvaluator
+{
+
+    private static final Logger log = LoggerFactory.getLogger(BudgetEvaluator.class);
+
+    private final BudgetRepository budgetRepository;
+
+    private final BudgetSpendCheckpointRepository checkpointRepository;
+
+    private final ExpenseRepository expenseRepository;
+
+    private final FxRateService fxRateService;
+
+    private final BaseCurrencyService baseCurrencyService;
+
+    private final BudgetAlertProducer budgetAlertProducer;
+
+    private final TransactionTemplate checkpointTransaction;
+
+    private final Shards shards;
+
+    private final UserShardResolver shardResolver;
+
+    private final long settleMillis;
+
+    private final long quietMillis;
+
+    private final ConcurrentHashMap<SpendKey, RunningTotal> totals = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, UserBudgets> budgets = new ConcurrentHashMap<>();
+
+    private volatile long refreshedAt = System.currentTimeMillis();
+
+    public BudgetEvaluator(BudgetRepository budgetRepository,
+                           BudgetSpendCheckpointRepository checkpointRepository,
+                           ExpenseRepository expenseRepository,
+                           FxRateService fxRateService,
+                           BaseCurrencyService baseCurrencyService,
+                           BudgetAlertProducer budgetAlertProducer,
+                           PlatformTransactionManager transactionManager,
+                           Shards shards,
+                           UserShardResolver shardResolver,
+                           @Value("${expense.budget.checkpoint-interval-ms:5000}") long checkpointIntervalMillis,
+                           @Value("${expense.sync.settle-millis:2000}") long settleMillis) {
+        this.budgetRepository = budgetRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.expenseRepository = expenseRepository;
+        this.fxRateService = fxRateService;
+        this.baseCurrencyService = baseCurrencyService;
+        this.budgetAlertProducer = budgetAlertProducer;
+        // checkpoint writes are made after the expense's transaction committed, whose resources are still bound
+        this.checkpointTransaction = new TransactionTemplate(transactionManager);
+        this.checkpointTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.shards = shards;
+        this.shardResolver = shardResolver;
+        this.settleMillis = settleMillis;
+        // by then every instance has flushed the deltas of a write, unless its checkpoint failed
+        this.quietMillis = 2 * checkpointIntervalMillis + settleMillis;
+    }
+
+    @TransactionalEventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        Expense expense = event.getExpense();
+        try {
+            UserBudgets userBudgets = budgetsFor(expense.getUserId());
+            if (userBudgets.isEmpty()) {
+                return;
+            }
+            Set<SpendKey> seeded = new HashSet<>(4);
+            FxRateTable rates = fxRateService.current();
+            String base = baseCurrencyService.baseCurrencyOf(expense.getUserId());
+            ExpenseSnapshot previous = event.getPrevious();
+            if (Objects.nonNull(previous) && previous.isCounted()) {
+                apply(userBudgets, previous.getUserId(), monthOf(previous.getCreatedAt()),
+                        SpendRollupService.categoryKey(previous.getCategory()), base,
+                        -baseMinor(rates, base, previous.getAmount(), previous.getCurrency(),
+                                previous.getBaseAmount(), previous.getBaseCurrency()),
+                        null, seeded);
+            }
+            if (event.getType() != ExpenseChangedEvent.Type.DELETED && Objects.isNull(expense.getDuplicateOf())) {
+                apply(userBudgets, expense.getUserId(), monthOf(expense.getCreatedAt()),
+                        SpendRollupService.categoryKey(expense.getCategory()), base,
+                        baseMinor(rates, base, expense.getAmount(), expense.getCurrency(),
+                                expense.getBaseAmount(), expense.getBaseCurrency()),
+                        expense, seeded);
+            }
+        } catch (RuntimeException ex) {
+            // budgets are advisory; never fail the write path because of them
+            log.error("Budget evaluation failed for userId={}: {}", expense.getUserId(), ex.getMessage(), ex);
+        }
+    }
+
+    /** Month-to-date spend for a scope, in hundredths of the user's base currency. */
+    public long currentSpendMinor(String userId, String scope) {
+        SpendKey key = new SpendKey(userId, monthOf(null), scope);
+        String base = baseCurrencyService.baseCurrencyOf(userId);
+        RunningTotal total = totals.get(key);
+        if (Objects.nonNull(total) && base.equals(total.currency())) {
+            return total.total();
+        }
+        return findCheckpoint(key)
+                .filter(checkpoint -> base.equals(checkpoint.getCurrency()))
+                .map(BudgetSpendCheckpoint::getTotalMinor)
+                .orElseGet(() -> seedTotal(key, base));
+    }
+
+    public void invalidateBudgets(String userId) {
+        budgets.remove(userId);
+    }
+
+    /** Loads this month's checkpointed totals, so neither they nor their alert level need a query later. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDate month = monthOf(null);
+        refreshedAt = System.currentTimeMillis();
+        shards.forEach(shard -> {
+            try {
+                List<BudgetSpendCheckpoint> checkpoints =
+                        ReadRoutingContext.callOnPrimary(() -> checkpointRepository.findByMonth(month));
+                int loaded = 0;
+                for (BudgetSpendCheckpoint checkpoint : checkpoints) {
+                    if (Objects.nonNull(checkpoint.getCurrency())) {
+                        totals.putIfAbsent(keyOf(checkpoint), fromCheckpoint(checkpoint));
+                        loaded++;
+                    }
+                }
+                log.info("Loaded {} budget running totals for month={} shard={}", loaded, month, shard);
+            } catch (DataAccessException ex) {
+                log.error("Failed to load budget running totals on shard={}, falling back to lazy loading", shard, ex);
+            }
+        });
+    }
+
+    /**
+     * Adds each total's unflushed deltas to its row, then moves every resident total onto the rows
+     * changed since the last pass, by this or any other instance, and sends any alert such a change
+     * crossed that no instance has claimed.
+     */
+    @Scheduled(fixedDelayString = "${expense.budget.checkpoint-interval-ms:5000}")
+    public synchronized void checkpoint() {
+        LocalDate oldestKept = monthOf(null).minusMonths(1);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int written = 0;
+        for (Map.Entry<SpendKey, RunningTotal> entry : totals.entrySet()) {
+            SpendKey key = entry.getKey();
+            RunningTotal total = entry.getValue();
+            long delta = total.takeUnflushed();
+            if (delta != 0L) {
+                try {
+                    boolean updated = Boolean.TRUE.equals(shardResolver.callForUser(key.getUserId(),
+                            () -> checkpointTransaction.execute(status -> checkpointRepository.addToTotal(
+                                    key.getUserId(), key.getMonth(), key.getScope(), total.currency(), delta, now) > 0)));
+                    if (!updated) {
+                        // the row was re-seeded in another base currency; reload it on the next touch
+                        totals.remove(key, total);
+                        continue;
+                    }
+                    written++;
+                } catch (UserShardMovingException | DataAccessException ex) {
+                    total.restoreUnflushed(delta);
+                    log.error("Failed to checkpoint budget total for userId={} scope={}", key.getUserId(), key.getScope(), ex);
+                    continue;
+                }
+            }
+            if (key.getMonth().isBefore(oldestKept) && total.unflushed() == 0L) {
+                totals.remove(key, total);
+            }
+        }
+        if (written > 0) {
+            log.debug("Checkpointed {} budget running totals", written);
+        }
+        refresh(oldestKept, now.getTime());
+    }
+
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        checkpoint();
+    }
+
+    /**
+     * Corrects each resident total that has had no writes for a while to the sum of its month's expenses.
+     * Between passes a total moves only by the deltas applied to it, so this is where a delta lost with
+     * a crashed instance, or a rate change for an expense converted on read, is taken in.
+     */
+    @Scheduled(fixedDelayString = "${expense.budget.reconcile-interval-ms:3600000}",
+            initialDelayString = "${expense.budget.reconcile-interval-ms:3600000}")
+    public synchronized void reconcile() {
+        LocalDate oldestKept = monthOf(null).minusMonths(1);
+        int corrected = 0;
+        for (Map.Entry<SpendKey, RunningTotal> entry : totals.entrySet()) {
+            SpendKey key = entry.getKey();
+            RunningTotal total = entry.getValue();
+            if (key.getMonth().isBefore(oldestKept) || total.unflushed() != 0L) {
+                continue;
+            }
+            try {
+                String shard = shardResolver.shardFor(key.getUserId());
+                if (Boolean.TRUE.equals(ShardContext.callOn(shard, () -> reconcile(key, total)))) {
+                    corrected++;
+                }
+            } catch (UserShardMovingException ex) {
+                // picked up by the next pass, once the user has landed
+            } catch (DataAccessException ex) {
+                log.error("Failed to reconcile budget total for userId={} scope={}", key.getUserId(), key.getScope(), ex);
+            }
+        }
+        if (corrected > 0) {
+            log.info("Corrected {} budget running totals", corrected);
+        }
+    }
+
+    private boolean reconcile(SpendKey key, RunningTotal total) {
+        long quietSince = System.currentTimeMillis() - quietMillis;
+        Timestamp lastWrite = ReadRoutingContext.callOnPrimary(() -> expenseRepository.findStatementVersion(
+                key.getUserId(), monthStart(key.getMonth()), monthStart(key.getMonth().plusMonths(1))))
+                .getLastUpdatedAt();
+        if (Objects.nonNull(lastWrite) && lastWrite.getTime() >= quietSince) {
+            // a write whose delta is not flushed yet would be counted twice
+            return false;
+        }
+        BudgetSpendCheckpoint checkpoint = findCheckpoint(key).orElse(null);
+        if (Objects.isNull(checkpoint) || !total.currency().equals(checkpoint.getCurrency())) {
+            return false;
+        }
+        long seed = seedTotal(key, total.currency());
+        if (seed == checkpoint.getTotalMinor()) {
+            return false;
+        }
+        boolean updated = Boolean.TRUE.equals(checkpointTransaction.execute(status -> checkpointRepository.reconcileTotal(
+                key.getUserId(), key.getMonth(), key.getScope(), total.currency(), seed,
+                checkpoint.getTotalMinor(), checkpoint.getCheckpointedAt(), new Timestamp(System.currentTimeMillis())) > 0));
+        if (!updated) {
+            return false;
+        }
+        log.info("Budget total for userId={} scope={} month={} drifted by {}; corrected",
+                key.getUserId(), key.getScope(), key.getMonth(), seed - checkpoint.getTotalMinor());
+        alertIfReached(key, total, total.rebase(seed));
+        return true;
+    }
+
+    private void refresh(LocalDate oldestKept, long startedAt) {
+        // rows are stamped with the writing instance's clock and may commit a little after it
+        Timestamp since = new Timestamp(refreshedAt - settleMillis);
+        refreshedAt = startedAt;
+        shards.forEach(shard -> {
+            try {
+                List<BudgetSpendCheckpoint> changed = ReadRoutingContext.callOnPrimary(
+                        () -> checkpointRepository.findChangedSince(oldestKept, since));
+                for (BudgetSpendCheckpoint checkpoint : changed) {
+                    SpendKey key = keyOf(checkpoint);
+                    RunningTotal total = totals.get(key);
+                    if (Objects.isNull(total)) {
+                        continue;
+                    }
+                    if (!total.currency().equals(checkpoint.getCurrency())) {
+                        totals.remove(key, total);
+                        continue;
+                    }
+                    total.alerted(checkpoint.getAlertedPercent());
+                    alertIfReached(key, total, total.rebase(checkpoint.getTotalMinor()));
+                }
+            } catch (DataAccessException ex) {
+                log.error("Failed to refresh budget running totals on shard={}", shard, ex);
+            }
+        });
+    }
+
+    private void apply(UserBudgets userBudgets, String userId, LocalDate month, String category, String base,
+                       long deltaMinor, Expense source, Set<SpendKey> seeded) {
+        if (Objects.nonNull(userBudgets.overall)) {
+            advance(userBudgets.overall, new SpendKey(userId, month, Budget.OVERALL_SCOPE), base,
+                    deltaMinor, source, seeded);
+        }
+        BudgetRule categoryRule = userBudgets.byCategory.get(category);
+        if (Objects.nonNull(categoryRule)) {
+            advance(categoryRule, new SpendKey(userId, month, category), base, deltaMinor, source, seeded);
+        }
+    }
+
+    private void advance(BudgetRule rule, SpendKey key, String base, long deltaMinor, Expense source,
+                         Set<SpendKey> seeded) {
+        RunningTotal total = totals.get(key);
+        if (Objects.nonNull(total) && !base.equals(total.currency())) {
+            // the user switched base currency; its unflushed deltas are in the old one and are dropped
+            totals.remove(key, total);
+            total = null;
+        }
+        if (Objects.isNull(total)) {
+            Set<SpendKey> fromSeed = new HashSet<>(1);
+            RunningTotal fresh = load(key, base, fromSeed);
+            total = totals.putIfAbsent(key, fresh);
+            if (Objects.isNull(total)) {
+                total = fresh;
+                seeded.addAll(fromSeed);
+            }
+        }
+        // the event is delivered after commit, so a seed taken now already reflects every delta of it
+        long after = seeded.contains(key) ? total.total() : total.add(deltaMinor);
+
+        if (deltaMinor <= 0 || Objects.isNull(source)) {
+            return;
+        }
+        alert(rule, key, total, rule.crossedThreshold(after - deltaMinor, after), after, source);
+    }
+
+    /**
+     * The scope's checkpointed total, or a seed from the month's expenses when it has no row in
+     * {@code base} yet. {@code key} is added to {@code seeded} when the seed was written.
+     */
+    private RunningTotal load(SpendKey key, String base, Set<SpendKey> seeded) {
+        Optional<BudgetSpendCheckpoint> existing = findCheckpoint(key);
+        if (existing.isPresent() && base.equals(existing.get().getCurrency())) {
+            return fromCheckpoint(existing.get());
+        }
+        long seed = seedTotal(key, base);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        boolean written = Boolean.TRUE.equals(checkpointTransaction.execute(status ->
+                checkpointRepository.insertIfAbsent(key.getUserId(), key.getMonth(), key.getScope(), base, seed, now) > 0
+                        || checkpointRepository.reseedIfCurrencyChanged(
+                                key.getUserId(), key.getMonth(), key.getScope(), base, seed, now) > 0));
+        if (written) {
+            seeded.add(key);
+            return new RunningTotal(base, seed, existing.map(BudgetSpendCheckpoint::getAlertedPercent).orElse(0));
+        }
+        // another instance seeded it first
+        return findCheckpoint(key)
+                .filter(checkpoint -> base.equals(checkpoint.getCurrency()))
+                .map(BudgetSpendCheckpoint::getTotalMinor)
+                .map(total -> new RunningTotal(base, total, existing.map(BudgetSpendCheckpoint::getAlertedPercent).orElse(0)))
+                .orElseGet(() -> new RunningTotal(base, seed, 0));
+    }
+
+    private void alertIfReached(SpendKey key, RunningTotal total, long spentMinor) {
+        BudgetRule rule = ruleFor(key);
+        if (Objects.nonNull(rule)) {
+            alert(rule, key, total, rule.reachedThreshold(spentMinor), spentMinor, null);
+        }
+    }
+
+    /**
+     * Sends the alert for {@code percent} unless it, or a higher threshold, was already claimed for this
+     * month. {@code source} is {@code null} when a checkpoint pass found the threshold crossed.
+     */
+    private void alert(BudgetRule rule, SpendKey key, RunningTotal total, int percent, long spentMinor, Expense source) {
+        if (percent <= total.alertedPercent()) {
+            return;
+        }
+        boolean claimed = claimAlert(key, percent);
+        total.alerted(percent);
+        if (!claimed) {
+            return;
+        }
+        log.info("Budget threshold {}% crossed for userId={} scope={} month={}",
+                percent, key.getUserId(), key.getScope(), key.getMonth());
+        budgetAlertProducer.sendAlert(BudgetAlertEvent.builder()
+                .userId(key.getUserId())
+                .category(Budget.OVERALL_SCOPE.equals(key.getScope()) ? null : key.getScope())
+                .month(key.getMonth())
+                .thresholdPercent(percent)
+                .monthlyLimit(rule.getMonthlyLimit())
+                .spent(BigDecimal.valueOf(spentMinor, MinorUnits.SCALE))
+                .currency(total.currency())
+                .expenseExternalId(Objects.nonNull(source) ? source.getExternalId() : null)
+                .crossedAt(new Timestamp(System.currentTimeMillis()))
+                .build());
+    }
+
+    /**
+     * Raises the scope's claimed threshold to {@code percent} in MySQL.
+     *
+     * @return {@code false} if it was already there, i.e. another instance sent the alert
+     */
+    private boolean claimAlert(SpendKey key, int percent) {
+        return Boolean.TRUE.equals(shardResolver.callForUser(key.getUserId(),
+                () -> checkpointTransaction.execute(status -> checkpointRepository.claimAlert(
+                        key.getUserId(), key.getMonth(), key.getScope(), percent) > 0)));
+    }
+
+    private Optional<BudgetSpendCheckpoint> findCheckpoint(SpendKey key) {
+        return ReadRoutingContext.callOnPrimary(() -> checkpointRepository.findByUserIdAndMonthAndScope(
+                key.getUserId(), key.getMonth(), key.getScope()));
+    }
+
+    private BudgetRule ruleFor(SpendKey key) {
+        UserBudgets userBudgets = budgetsFor(key.getUserId());
+        return Budget.OVERALL_SCOPE.equals(key.getScope())
+                ? userBudgets.overall
+                : userBudgets.byCategory.get(key.getScope());
+    }
+
+    private long seedTotal(SpendKey key, String base) {
+        Timestamp from = monthStart(key.getMonth());
+        Timestamp to = monthStart(key.getMonth().plusMonths(1));
+        boolean overall = Budget.OVERALL_SCOPE.equals(key.getScope());
+        // the seed is checkpointed and advanced by deltas, so it must not miss a write a replica has not applied
+        List<BaseSpendAggregateView> rows = ReadRoutingContext.callOnPrimary(() -> overall
+                ? expenseRepository.sumBaseAmount(key.getUserId(), from, to, null)
+                : expenseRepository.sumBaseAmountByCategory(key.getUserId(), from, to, null));
+        FxRateTable rates = fxRateService.current();
+        long seed = 0L;
+        for (BaseSpendAggregateView row : rows) {
+            if (overall || key.getScope().equals(SpendRollupService.categoryKey(row.getGroupKey()))) {
+                seed += baseMinor(rates, base, row.getTotal(), row.getCurrency(), null, null);
+            }
+        }
+        return seed;
+    }
+
+    private static RunningTotal fromCheckpoint(BudgetSpendCheckpoint checkpoint) {
+        return new RunningTotal(checkpoint.getCurrency(), checkpoint.getTotalMinor(), checkpoint.getAlertedPercent());
+    }
+
+    private static SpendKey keyOf(BudgetSpendCheckpoint checkpoint) {
+        return new SpendKey(checkpoint.getUserId(), checkpoint.getMonth(), checkpoint.getScope());
+    }
+
+    private static Timestamp monthStart(LocalDate month) {
+        return Timestamp.from(month.atStartOfDay(SpendRollupService.ROLLUP_ZONE).toInstant());
+    }
+
+    /**
+     * {@code amount} in hundredths of {@code base}: the stored base amount when it is in that currency,
+     * otherwise converted at the current rates, or {@code 0} if either currency has no rate.
+     */
+    private static long baseMinor(FxRateTable rates, String base, BigDecimal amount, String currency,
+                                  BigDecimal baseAmount, String baseCurrency) {
+        if (Objects.nonNull(baseAmount) && Objects.nonNull(baseCurrency)) {
+            amount = baseAmount;
+            currency = baseCurrency;
+        }
+        if (Objects.isNull(amount)) {
+            return 0L;
+        }
+        BigDecimal converted = base.equals(FxRateTable.normalize(currency))
+                ? amount
+                : rates.convert(amount, currency, base);
+        if (Objects.isNull(converted)) {
+            log.debug("No FX rate from {} to {}; left out of budget totals", currency, base);
+            return 0L;
+        }
+        return MinorUnits.of(converted);
+    }
+
+    private UserBudgets budgetsFor(String userId) {
+        UserBudgets cached = budgets.get(userId);
+        if (Objects.nonNull(cached)) {
+            return cached;
+        }
+        UserBudgets loaded = UserBudgets.of(ReadRoutingContext.callOnPrimary(() -> budgetRepository.findByUserId(userId)));
+        UserBudgets raced = budgets.putIfAbsent(userId, loaded);
+        return Objects.nonNull(raced) ? raced : loaded;
+    }
+
+    private static LocalDate monthOf(Timestamp createdAt) {
+        return SpendRollupService.dayOf(createdAt).withDayOfMonth(1);
+    }
+
+    private static final class UserBudgets {
+
+        private static final UserBudgets EMPTY = new UserBudgets(null, Map.of());
+
+        private final BudgetRule overall;
+
+        private final Map<String, BudgetRule> byCategory;
+
+        private UserBudgets(BudgetRule overall, Map<String, BudgetRule> byCategory) {
+            this.overall = overall;
+            this.byCategory = byCategory;
+        }
+
+        private static UserBudgets of(List<Budget> definitions) {
+            if (definitions.isEmpty()) {
+                return EMPTY;
+            }
+            BudgetRule overall = null;
+            Map<String, BudgetRule> byCategory = new HashMap<>();
+            for (Budget definition : definitions) {
+                BudgetRule rule = BudgetRule.of(definition);
+                if (Budget.OVERALL_SCOPE.equals(definition.getScope())) {
+                    overall = rule;
+                } else {
+                    byCategory.put(definition.getScope(), rule);
+                }
+            }
+            return new UserBudgets(overall, Map.copyOf(byCategory));
+        }
+
+        private boolean isEmpty() {
+            return overall == null && byCategory.isEmpty();
+        }
+    }
+}
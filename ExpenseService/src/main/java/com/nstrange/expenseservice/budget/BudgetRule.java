@@ -0,0 +1,70 @@
+package com.nstrange.expenseservice.budget;
+
+import com.nstrange.expenseservice.cache.MinorUnits;
+import com.nstrange.expenseservice.entities.Budget;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiled form of a {@link Budget}: limit in hundredths and thresholds as ascending percentages.
+ */
+@Getter
+final class BudgetRule {
+
+    static final List<Integer> DEFAULT_THRESHOLDS = List.of(80, 100);
+
+    private final String scope;
+
+    private final BigDecimal monthlyLimit;
+
+    private final long limitMinor;
+
+    private final int[] thresholds;
+
+    private BudgetRule(String scope, BigDecimal monthlyLimit, int[] thresholds) {
+        this.scope = scope;
+        this.monthlyLimit = monthlyLimit;
+        this.limitMinor = MinorUnits.of(monthlyLimit);
+        this.thresholds = thresholds;
+    }
+
+    static BudgetRule of(Budget budget) {
+        return new BudgetRule(budget.getScope(), budget.getMonthlyLimit(), parseThresholds(budget.getAlertThresholds()));
+    }
+
+    static int[] parseThresholds(String value) {
+        if (value == null || value.isBlank()) {
+            return DEFAULT_THRESHOLDS.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * Highest threshold whose boundary lies in {@code (before, after]}, or {@code 0} if none was crossed.
+     */
+    int crossedThreshold(long before, long after) {
+        for (int i = thresholds.length - 1; i >= 0; i--) {
+            long boundary = limitMinor * thresholds[i] / 100;
+            if (before < boundary && after >= boundary) {
+                return thresholds[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Highest threshold whose boundary {@code total} has reached, or {@code 0} if none.
+     */
+    int reachedThreshold(long total) {
+        return crossedThreshold(Long.MIN_VALUE, total);
+    }
+}
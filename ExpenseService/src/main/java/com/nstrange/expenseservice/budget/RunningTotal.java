@@ -0,0 +1,78 @@
+package com.nstrange.expenseservice.budget;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free month-to-date total for one budget scope, in hundredths of {@link #currency()}. Concurrent
+ * writers serialize only on the CAS of this key. The total is the last checkpointed value plus the
+ * deltas this instance has not flushed yet; the checkpointed part is only moved by the checkpoint pass.
+ * The alerted threshold mirrors the claim recorded in MySQL, so it only rises.
+ */
+final class RunningTotal {
+
+    private final String currency;
+
+    private final AtomicLong totalMinor;
+
+    private final AtomicLong unflushedMinor = new AtomicLong();
+
+    private final AtomicLong checkpointedMinor;
+
+    private final AtomicInteger alertedPercent;
+
+    RunningTotal(String currency, long checkpointedMinor, int alertedPercent) {
+        this.currency = currency;
+        this.totalMinor = new AtomicLong(checkpointedMinor);
+        this.checkpointedMinor = new AtomicLong(checkpointedMinor);
+        this.alertedPercent = new AtomicInteger(alertedPercent);
+    }
+
+    String currency() {
+        return currency;
+    }
+
+    long add(long deltaMinor) {
+        unflushedMinor.addAndGet(deltaMinor);
+        return totalMinor.addAndGet(deltaMinor);
+    }
+
+    long total() {
+        return totalMinor.get();
+    }
+
+    long unflushed() {
+        return unflushedMinor.get();
+    }
+
+    /** Hands the unflushed deltas to a checkpoint write, counting them as checkpointed. */
+    long takeUnflushed() {
+        long delta = unflushedMinor.getAndSet(0L);
+        checkpointedMinor.addAndGet(delta);
+        return delta;
+    }
+
+    /** Gives back deltas whose checkpoint write failed. */
+    void restoreUnflushed(long deltaMinor) {
+        checkpointedMinor.addAndGet(-deltaMinor);
+        unflushedMinor.addAndGet(deltaMinor);
+    }
+
+    /**
+     * Moves the checkpointed part onto the value now in MySQL, keeping the unflushed deltas.
+     *
+     * @return the new total
+     */
+    long rebase(long checkpointed) {
+        long drift = checkpointed - checkpointedMinor.getAndSet(checkpointed);
+        return totalMinor.addAndGet(drift);
+    }
+
+    int alertedPercent() {
+        return alertedPercent.get();
+    }
+
+    void alerted(int percent) {
+        alertedPercent.accumulateAndGet(percent, Math::max);
+    }
+}
@@ -0,0 +1,19 @@
+package com.nstrange.expenseservice.budget;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+final class SpendKey {
+
+    private final String userId;
+
+    private final LocalDate month;
+
+    private final String scope;
+}
@@ -0,0 +1,282 @@
+package com.nstrange.expenseservice.cache;
+
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.events.ExpenseChangedEvent;
+import com.nstrange.expenseservice.model.ExpenseColumnsView;
+import com.nstrange.expenseservice.model.ExpenseSnapshot;
+import com.nstrange.expenseservice.model.SyncCursor;
+import com.nstrange.expenseservice.partition.ExpensePartitionManager;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.ExpenseRepository;
+import com.nstrange.expenseservice.service.SpendRollupService;
+import com.nstrange.expenseservice.sharding.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Optional per-user columnar copy of expenses for range-sum and group-by queries. Users are loaded
+ * lazily on first query, kept in LRU order under a byte budget, and patched from committed writes.
+ * <p>
+ * Writes committed on this instance are patched in from {@link ExpenseChangedEvent}. While any user is
+ * resident, a tail of every shard by {@code (updated_at, id)} also patches in writes committed by other
+ * instances, such as the one that consumed the Kafka message. A tailed row replaces whatever the cache
+ * holds under its id, so a write seen both ways is applied once.
+ */
+@Service
+public class ColumnarExpenseCache
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarExpenseCache.class);
+
+    private static final int WRITE_STRIPES = 64;
+
+    // bounds one tail tick, so a burst of writes does not hold the scheduler thread for long
+    private static final int MAX_PAGES_PER_TICK = 10;
+
+    private final ExpenseRepository expenseRepository;
+
+    private final ExpensePartitionManager partitionManager;
+
+    private final Shards shards;
+
+    private final boolean enabled;
+
+    private final long maxBytes;
+
+    private final int tailBatchSize;
+
+    private final long settleMillis;
+
+    // access-ordered, so iteration starts at the least recently used user
+    private final LinkedHashMap<String, UserExpenseColumns> users = new LinkedHashMap<>(16, 0.75f, true);
+
+    // bumped on every write so a load racing with a commit is not cached stale
+    private final AtomicLongArray writeStamps = new AtomicLongArray(WRITE_STRIPES);
+
+    // tail position per shard, only kept while some user is resident
+    private final ConcurrentHashMap<String, SyncCursor> cursors = new ConcurrentHashMap<>();
+
+    private long residentBytes;
+
+    public ColumnarExpenseCache(ExpenseRepository expenseRepository, ExpensePartitionManager partitionManager,
+                                Shards shards,
+                                @Value("${expense.columnar-cache.enabled:false}") boolean enabled,
+                                @Value("${expense.columnar-cache.max-bytes:67108864}") long maxBytes,
+                                @Value("${expense.columnar-cache.tail-batch-size:500}") int tailBatchSize,
+                                @Value("${expense.sync.settle-millis:2000}") long settleMillis) {
+        this.expenseRepository = expenseRepository;
+        this.partitionManager = partitionManager;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.tailBatchSize = tailBatchSize;
+        this.settleMillis = settleMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public SpendAggregate sum(String userId, long fromMillis, long toMillis, String fundSource) {
+        return columnsFor(userId).sum(fromMillis, toMillis, fundSource);
+    }
+
+    public Map<String, SpendAggregate> groupBy(String userId, SpendDimension dimension,
+                                               long fromMillis, long toMillis, String fundSource) {
+        return columnsFor(userId).groupBy(dimension, fromMillis, toMillis, fundSource);
+    }
+
+    @TransactionalEventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Expense expense = event.getExpense();
+        writeStamps.incrementAndGet(stripe(expense.getUserId()));
+
+        synchronized (users) {
+            UserExpenseColumns columns = users.get(expense.getUserId());
+            if (Objects.isNull(columns)) {
+                return;
+            }
+            long before = columns.estimatedBytes();
+            ExpenseSnapshot previous = event.getPrevious();
+            if (Objects.nonNull(previous) && previous.isCounted()) {
+                columns.remove(expense.getId(), millisOf(previous.getCreatedAt()));
+            }
+            if (event.getType() != ExpenseChangedEvent.Type.DELETED && Objects.isNull(expense.getDuplicateOf())) {
+                insert(columns, expense.getId(), expense.getCreatedAt(), expense.getAmount(),
+                        expense.getMerchant(), expense.getCategory(), expense.getFundSource());
+            }
+            residentBytes += columns.estimatedBytes() - before;
+            evictOverBudget(expense.getUserId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${expense.columnar-cache.poll-ms:1000}")
+    public void tail() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (users) {
+            if (users.isEmpty()) {
+                cursors.clear();
+                return;
+            }
+        }
+        shards.forEach(shard -> {
+            String key = Objects.isNull(shard) ? Shards.UNSHARDED : shard;
+            try {
+                tail(key);
+            } catch (DataAccessException ex) {
+                log.error("Columnar cache tail failed on shard={}", key, ex);
+            }
+        });
+    }
+
+    /** Drops a user whose rows were rewritten outside the write path, such as a move to another shard. */
+    public void evict(String userId) {
+        writeStamps.incrementAndGet(stripe(userId));
+        synchronized (users) {
+            UserExpenseColumns columns = users.remove(userId);
+            if (Objects.nonNull(columns)) {
+                residentBytes -= columns.estimatedBytes();
+            }
+        }
+    }
+
+    private void tail(String shard) {
+        Timestamp from = partitionManager.retainedFrom();
+        long settled = System.currentTimeMillis() - settleMillis;
+        // users loaded before the tail started read every row committed up to their load
+        SyncCursor cursor = cursors.computeIfAbsent(shard, k -> new SyncCursor(settled, 0L));
+        boolean drained = false;
+        for (int pages = 0; pages < MAX_PAGES_PER_TICK && !drained; pages++) {
+            SyncCursor since = cursor;
+            // a replica behind the cursor would make the tail skip rows for good
+            List<Expense> rows = ReadRoutingContext.callOnPrimary(() -> expenseRepository.findAllChangesSince(from,
+                    new Timestamp(since.getUpdatedAtMillis()), since.getId(), PageRequest.of(0, tailBatchSize)));
+            for (Expense expense : rows) {
+                replace(expense);
+            }
+            if (!rows.isEmpty()) {
+                Expense last = rows.get(rows.size() - 1);
+                cursor = new SyncCursor(last.getUpdatedAt().getTime(), last.getId());
+            }
+            drained = rows.size() < tailBatchSize;
+        }
+        // same settle as /getChanges: a row stamped earlier but committed later is still ahead of the cursor
+        if (drained && cursor.getUpdatedAtMillis() > settled) {
+            SyncCursor previous = cursors.get(shard);
+            cursor = new SyncCursor(Math.max(settled, previous.getUpdatedAtMillis()), 0L);
+        }
+        cursors.put(shard, cursor);
+    }
+
+    /** Makes a resident user's copy of {@code expense} match the row as committed. */
+    private void replace(Expense expense) {
+        writeStamps.incrementAndGet(stripe(expense.getUserId()));
+        synchronized (users) {
+            UserExpenseColumns columns = users.get(expense.getUserId());
+            if (Objects.isNull(columns)) {
+                return;
+            }
+            long before = columns.estimatedBytes();
+            columns.remove(expense.getId(), millisOf(expense.getCreatedAt()));
+            if (Objects.isNull(expense.getDeletedAt()) && Objects.isNull(expense.getDuplicateOf())) {
+                insert(columns, expense.getId(), expense.getCreatedAt(), expense.getAmount(),
+                        expense.getMerchant(), expense.getCategory(), expense.getFundSource());
+            }
+            residentBytes += columns.estimatedBytes() - before;
+            evictOverBudget(expense.getUserId());
+        }
+    }
+
+    private UserExpenseColumns columnsFor(String userId) {
+        synchronized (users) {
+            UserExpenseColumns cached = users.get(userId);
+            if (Objects.nonNull(cached)) {
+                return cached;
+            }
+        }
+
+        long stamp = writeStamps.get(stripe(userId));
+        UserExpenseColumns loaded = load(userId);
+
+        synchronized (users) {
+            UserExpenseColumns cached = users.get(userId);
+            if (Objects.nonNull(cached)) {
+                return cached;
+            }
+            if (writeStamps.get(stripe(userId)) != stamp) {
+                log.debug("Skipping columnar cache fill for userId={} after a concurrent write", userId);
+                return loaded;
+            }
+            users.put(userId, loaded);
+            residentBytes += loaded.estimatedBytes();
+            evictOverBudget(userId);
+        }
+        return loaded;
+    }
+
+    private UserExpenseColumns load(String userId) {
+        // cached until evicted, so read what the write stamps describe rather than a replica's past
+        List<ExpenseColumnsView> rows = ReadRoutingContext.callOnPrimary(
+                () -> expenseRepository.findColumnsByUserId(userId, partitionManager.retainedFrom()));
+        UserExpenseColumns columns = new UserExpenseColumns(rows.size());
+        for (ExpenseColumnsView row : rows) {
+            insert(columns, row.getId(), row.getCreatedAt(), row.getAmount(),
+                    row.getMerchant(), row.getCategory(), row.getFundSource());
+        }
+        log.debug("Loaded {} expenses into columnar cache for userId={}", rows.size(), userId);
+        return columns;
+    }
+
+    private void insert(UserExpenseColumns columns, Long id, Timestamp createdAt, BigDecimal amount,
+                        String merchant, String category, String fundSource) {
+        columns.insert(
+                id,
+                millisOf(createdAt),
+                MinorUnits.of(amount),
+                SpendRollupService.merchantKey(merchant),
+                SpendRollupService.categoryKey(category),
+                SpendRollupService.fundSourceKey(fundSource));
+    }
+
+    private void evictOverBudget(String keep) {
+        Iterator<Map.Entry<String, UserExpenseColumns>> it = users.entrySet().iterator();
+        while (residentBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, UserExpenseColumns> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            residentBytes -= eldest.getValue().estimatedBytes();
+            it.remove();
+            log.debug("Evicted userId={} from columnar cache, residentBytes={}", eldest.getKey(), residentBytes);
+        }
+    }
+
+    private static long millisOf(Timestamp timestamp) {
+        return Objects.nonNull(timestamp) ? timestamp.getTime() : 0L;
+    }
+
+    private static int stripe(String userId) {
+        return userId.hashCode() & (WRITE_STRIPES - 1);
+    }
+}
@@ -0,0 +1,23 @@
+package com.nstrange.expenseservice.cache;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * Fixed-point conversion of amounts to {@code long} hundredths, as stored in the columnar cache.
+ */
+public final class MinorUnits {
+
+    public static final int SCALE = 2;
+
+    private MinorUnits() {
+    }
+
+    public static long of(BigDecimal amount) {
+        if (Objects.isNull(amount)) {
+            return 0L;
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,21 @@
+package com.nstrange.expenseservice.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+@AllArgsConstructor
+public class SpendAggregate {
+
+    public static final SpendAggregate EMPTY = new SpendAggregate(0L, 0L);
+
+    private final long totalMinor;
+
+    private final long count;
+
+    public BigDecimal getTotal() {
+        return BigDecimal.valueOf(totalMinor, MinorUnits.SCALE);
+    }
+}
@@ -0,0 +1,24 @@
+package com.nstrange.expenseservice.cache;
+
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+
+import java.util.Locale;
+import java.util.Objects;
+
+public enum SpendDimension {
+    CATEGORY,
+    MERCHANT,
+    FUND_SOURCE;
+
+    public static SpendDimension parse(String value) {
+        if (Objects.isNull(value) || value.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidExpenseRequestException(
+                    "Unsupported group_by '" + value + "', expected category, merchant or fund_source");
+        }
+    }
+}
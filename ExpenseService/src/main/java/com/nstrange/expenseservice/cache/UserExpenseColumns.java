@@ -0,0 +1,253 @@
+package com.nstrange.expenseservice.cache;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One user's expenses as parallel primitive columns sorted by {@code createdAt}. Range queries
+ * binary-search the time column and then scan contiguous primitive arrays without boxing.
+ */
+final class UserExpenseColumns {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // id + time + amount (longs) and three dictionary ids (ints)
+    private static final long BYTES_PER_ROW = 3L * Long.BYTES + 3L * Integer.BYTES;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ValueDictionary merchants = new ValueDictionary();
+
+    private final ValueDictionary categories = new ValueDictionary();
+
+    private final ValueDictionary fundSources = new ValueDictionary();
+
+    private long[] ids;
+
+    private long[] times;
+
+    private long[] amounts;
+
+    private int[] merchantIds;
+
+    private int[] categoryIds;
+
+    private int[] fundSourceIds;
+
+    private int size;
+
+    UserExpenseColumns(int expectedRows) {
+        int capacity = Math.max(INITIAL_CAPACITY, expectedRows);
+        ids = new long[capacity];
+        times = new long[capacity];
+        amounts = new long[capacity];
+        merchantIds = new int[capacity];
+        categoryIds = new int[capacity];
+        fundSourceIds = new int[capacity];
+    }
+
+    void insert(long id, long time, long amountMinor, String merchant, String category, String fundSource) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + 1);
+            // rows almost always arrive in time order, so this is normally an append
+            int pos = upperBound(time);
+            int tail = size - pos;
+            if (tail > 0) {
+                System.arraycopy(ids, pos, ids, pos + 1, tail);
+                System.arraycopy(times, pos, times, pos + 1, tail);
+                System.arraycopy(amounts, pos, amounts, pos + 1, tail);
+                System.arraycopy(merchantIds, pos, merchantIds, pos + 1, tail);
+                System.arraycopy(categoryIds, pos, categoryIds, pos + 1, tail);
+                System.arraycopy(fundSourceIds, pos, fundSourceIds, pos + 1, tail);
+            }
+            ids[pos] = id;
+            times[pos] = time;
+            amounts[pos] = amountMinor;
+            merchantIds[pos] = merchants.encode(merchant);
+            categoryIds[pos] = categories.encode(category);
+            fundSourceIds[pos] = fundSources.encode(fundSource);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the row with the given id, probing at {@code hintTime} first and falling back to a scan.
+     */
+    boolean remove(long id, long hintTime) {
+        lock.writeLock().lock();
+        try {
+            int pos = -1;
+            for (int i = lowerBound(hintTime); i < size && times[i] == hintTime; i++) {
+                if (ids[i] == id) {
+                    pos = i;
+                    break;
+                }
+            }
+            if (pos < 0) {
+                for (int i = 0; i < size; i++) {
+                    if (ids[i] == id) {
+                        pos = i;
+                        break;
+                    }
+                }
+            }
+            if (pos < 0) {
+                return false;
+            }
+            int tail = size - pos - 1;
+            if (tail > 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, tail);
+                System.arraycopy(times, pos + 1, times, pos, tail);
+                System.arraycopy(amounts, pos + 1, amounts, pos, tail);
+                System.arraycopy(merchantIds, pos + 1, merchantIds, pos, tail);
+                System.arraycopy(categoryIds, pos + 1, categoryIds, pos, tail);
+                System.arraycopy(fundSourceIds, pos + 1, fundSourceIds, pos, tail);
+            }
+            size--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sums rows with {@code fromMillis <= createdAt < toMillis}, optionally restricted to one fund source.
+     */
+    SpendAggregate sum(long fromMillis, long toMillis, String fundSource) {
+        lock.readLock().lock();
+        try {
+            int fundSourceId = fundSource == null ? ValueDictionary.ABSENT : fundSources.lookup(fundSource);
+            if (fundSource != null && fundSourceId == ValueDictionary.ABSENT) {
+                return SpendAggregate.EMPTY;
+            }
+            int lo = lowerBound(fromMillis);
+            int hi = lowerBound(toMillis);
+            long total = 0L;
+            long count = 0L;
+            if (fundSource == null) {
+                for (int i = lo; i < hi; i++) {
+                    total += amounts[i];
+                }
+                count = hi - lo;
+            } else {
+                for (int i = lo; i < hi; i++) {
+                    if (fundSourceIds[i] == fundSourceId) {
+                        total += amounts[i];
+                        count++;
+                    }
+                }
+            }
+            return new SpendAggregate(total, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Map<String, SpendAggregate> groupBy(SpendDimension dimension, long fromMillis, long toMillis, String fundSource) {
+        lock.readLock().lock();
+        try {
+            int fundSourceId = fundSource == null ? ValueDictionary.ABSENT : fundSources.lookup(fundSource);
+            if (fundSource != null && fundSourceId == ValueDictionary.ABSENT) {
+                return Map.of();
+            }
+            ValueDictionary dictionary = dictionaryFor(dimension);
+            int[] keys = columnFor(dimension);
+            long[] totals = new long[dictionary.size()];
+            long[] counts = new long[dictionary.size()];
+
+            int lo = lowerBound(fromMillis);
+            int hi = lowerBound(toMillis);
+            for (int i = lo; i < hi; i++) {
+                if (fundSource != null && fundSourceIds[i] != fundSourceId) {
+                    continue;
+                }
+                totals[keys[i]] += amounts[i];
+                counts[keys[i]]++;
+            }
+
+            Map<String, SpendAggregate> result = new LinkedHashMap<>();
+            for (int key = 0; key < counts.length; key++) {
+                if (counts[key] > 0) {
+                    result.put(dictionary.decode(key), new SpendAggregate(totals[key], counts[key]));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return ids.length * BYTES_PER_ROW
+                    + merchants.estimatedBytes() + categories.estimatedBytes() + fundSources.estimatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ValueDictionary dictionaryFor(SpendDimension dimension) {
+        return switch (dimension) {
+            case CATEGORY -> categories;
+            case MERCHANT -> merchants;
+            case FUND_SOURCE -> fundSources;
+        };
+    }
+
+    private int[] columnFor(SpendDimension dimension) {
+        return switch (dimension) {
+            case CATEGORY -> categoryIds;
+            case MERCHANT -> merchantIds;
+            case FUND_SOURCE -> fundSourceIds;
+        };
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        times = Arrays.copyOf(times, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        merchantIds = Arrays.copyOf(merchantIds, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        fundSourceIds = Arrays.copyOf(fundSourceIds, capacity);
+    }
+
+    /** First index with {@code times[i] >= time}. */
+    private int lowerBound(long time) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** First index with {@code times[i] > time}. */
+    private int upperBound(long time) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] <= time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
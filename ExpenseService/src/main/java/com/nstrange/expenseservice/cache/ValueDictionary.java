@@ -0,0 +1,51 @@
+package com.nstrange.expenseservice.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense string-to-int encoding for a low-cardinality column. Not thread-safe; guarded by the
+ * owning {@link UserExpenseColumns} lock.
+ */
+final class ValueDictionary {
+
+    static final int ABSENT = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private final List<String> values = new ArrayList<>();
+
+    private long valueBytes;
+
+    int encode(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        int next = values.size();
+        values.add(value);
+        ids.put(value, next);
+        valueBytes += 2L * value.length();
+        return next;
+    }
+
+    int lookup(String value) {
+        Integer id = ids.get(value);
+        return id != null ? id : ABSENT;
+    }
+
+    String decode(int id) {
+        return values.get(id);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    long estimatedBytes() {
+        // entry + boxed id + String header per value, plus the characters themselves
+        return values.size() * 96L + valueBytes;
+    }
+}
@@ -0,0 +1,32 @@
+package com.nstrange.expenseservice.categorizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parses rule files of {@code pattern = category} lines; blank lines and {@code #} comments are ignored.
+ */
+final class CategoryRules {
+
+    private CategoryRules() {
+    }
+
+    static Map<String, String> parse(BufferedReader reader) throws IOException {
+        Map<String, String> rules = new LinkedHashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            int separator = trimmed.lastIndexOf('=');
+            if (separator <= 0 || separator == trimmed.length() - 1) {
+                continue;
+            }
+            rules.put(trimmed.substring(0, separator).trim(), trimmed.substring(separator + 1).trim());
+        }
+        return rules;
+    }
+}
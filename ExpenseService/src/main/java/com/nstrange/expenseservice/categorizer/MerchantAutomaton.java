@@ -0,0 +1,218 @@
+package com.nstrange.expenseservice.categorizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton over merchant patterns, compiled to a dense transition table on a
+ * 37-symbol alphabet (a-z, 0-9, separator). Matching walks the input once, folds case and
+ * collapses separators on the fly, and allocates nothing; the longest matching pattern wins.
+ * Patterns are anchored at a word start, so {@code ola} matches "OLACABS" but not "COCA COLA".
+ * Instances are immutable and safe to share between threads.
+ */
+final class MerchantAutomaton {
+
+    private static final int ALPHABET = 37;
+
+    private static final int SEPARATOR = 36;
+
+    private static final int NO_MATCH = -1;
+
+    private final int[] transitions;
+
+    private final int[] matchCategory;
+
+    private final int[] matchLength;
+
+    private final String[] categories;
+
+    private final int patternCount;
+
+    private MerchantAutomaton(int[] transitions, int[] matchCategory, int[] matchLength,
+                              String[] categories, int patternCount) {
+        this.transitions = transitions;
+        this.matchCategory = matchCategory;
+        this.matchLength = matchLength;
+        this.categories = categories;
+        this.patternCount = patternCount;
+    }
+
+    static MerchantAutomaton build(Map<String, String> patternToCategory) {
+        Builder builder = new Builder();
+        patternToCategory.forEach(builder::add);
+        return builder.compile();
+    }
+
+    /**
+     * @return category of the longest pattern occurring in {@code merchant}, or {@code null}
+     */
+    String match(CharSequence merchant) {
+        if (merchant == null) {
+            return null;
+        }
+        // the input behaves as if it began with a separator, which every pattern starts with
+        int state = transitions[SEPARATOR];
+        int bestCategory = NO_MATCH;
+        int bestLength = 0;
+        int previous = SEPARATOR;
+        for (int i = 0, n = merchant.length(); i < n; i++) {
+            int symbol = symbolOf(merchant.charAt(i));
+            if (symbol == SEPARATOR && previous == SEPARATOR) {
+                continue;
+            }
+            previous = symbol;
+            state = transitions[state * ALPHABET + symbol];
+            if (matchLength[state] > bestLength) {
+                bestLength = matchLength[state];
+                bestCategory = matchCategory[state];
+            }
+        }
+        return bestCategory == NO_MATCH ? null : categories[bestCategory];
+    }
+
+    int patternCount() {
+        return patternCount;
+    }
+
+    /**
+     * Lower-cases and reduces every run of non-alphanumeric characters to a single space.
+     */
+    static String normalize(String merchant) {
+        if (merchant == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(merchant.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < merchant.length(); i++) {
+            int symbol = symbolOf(merchant.charAt(i));
+            if (symbol == SEPARATOR) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(symbol < 26 ? (char) ('a' + symbol) : (char) ('0' + symbol - 26));
+        }
+        return sb.toString();
+    }
+
+    private static int symbolOf(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + (c - '0');
+        }
+        return SEPARATOR;
+    }
+
+    private static final class Builder {
+
+        private int[] transitions = new int[ALPHABET * 64];
+
+        private int[] matchCategory = new int[64];
+
+        private int[] matchLength = new int[64];
+
+        private int states = 1;
+
+        private int patterns;
+
+        private final List<String> categories = new ArrayList<>();
+
+        private final Map<String, Integer> categoryIds = new HashMap<>();
+
+        private Builder() {
+            Arrays.fill(transitions, -1);
+            Arrays.fill(matchCategory, NO_MATCH);
+        }
+
+        private void add(String pattern, String category) {
+            String normalized = normalize(pattern);
+            if (normalized.isEmpty() || category == null || category.isBlank()) {
+                return;
+            }
+            int state = 0;
+            String anchored = ' ' + normalized;
+            for (int i = 0; i < anchored.length(); i++) {
+                int symbol = symbolOf(anchored.charAt(i));
+                int slot = state * ALPHABET + symbol;
+                if (transitions[slot] < 0) {
+                    // newState() may replace the array, so it must run before the store
+                    int child = newState();
+                    transitions[slot] = child;
+                }
+                state = transitions[slot];
+            }
+            if (anchored.length() >= matchLength[state]) {
+                matchLength[state] = anchored.length();
+                matchCategory[state] = categoryIds.computeIfAbsent(category.trim(), c -> {
+                    categories.add(c);
+                    return categories.size() - 1;
+                });
+            }
+            patterns++;
+        }
+
+        private int newState() {
+            if (states == matchLength.length) {
+                int capacity = states * 2;
+                int oldSlots = transitions.length;
+                transitions = Arrays.copyOf(transitions, capacity * ALPHABET);
+                Arrays.fill(transitions, oldSlots, transitions.length, -1);
+                matchCategory = Arrays.copyOf(matchCategory, capacity);
+                Arrays.fill(matchCategory, states, capacity, NO_MATCH);
+                matchLength = Arrays.copyOf(matchLength, capacity);
+            }
+            return states++;
+        }
+
+        private MerchantAutomaton compile() {
+            int[] fail = new int[states];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                int child = transitions[symbol];
+                if (child < 0) {
+                    transitions[symbol] = 0;
+                } else {
+                    fail[child] = 0;
+                    queue.add(child);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                // a state's own pattern is the longest ending here; otherwise inherit via the failure link
+                if (matchCategory[state] == NO_MATCH) {
+                    matchCategory[state] = matchCategory[fail[state]];
+                    matchLength[state] = matchLength[fail[state]];
+                }
+                for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                    int slot = state * ALPHABET + symbol;
+                    int child = transitions[slot];
+                    int fallback = transitions[fail[state] * ALPHABET + symbol];
+                    if (child < 0) {
+                        transitions[slot] = fallback;
+                    } else {
+                        fail[child] = fallback;
+                        queue.add(child);
+                    }
+                }
+            }
+            return new MerchantAutomaton(
+                    Arrays.copyOf(transitions, states * ALPHABET),
+                    Arrays.copyOf(matchCategory, states),
+                    Arrays.copyOf(matchLength, states),
+                    categories.toArray(new String[0]),
+                    patterns);
+        }
+    }
+}
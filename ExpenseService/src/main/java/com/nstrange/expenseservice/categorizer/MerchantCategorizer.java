@@ -0,0 +1,216 @@
+package com.nstrange.expenseservice.categorizer;
+
+import com.nstrange.expenseservice.entities.UserMerchantCategory;
+import com.nstrange.expenseservice.events.MerchantCategoryChosenEvent;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.UserMerchantCategoryRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Assigns a category to a merchant string: the user's own past choices first, then the shared
+ * pattern automaton built from the bundled rules plus an optional hot-reloaded rule file. Learned
+ * choices are cached per instance, least recently used first out, and re-read after
+ * {@code expense.categorizer.learned-cache-ms} so a choice made through another instance is picked up.
+ */
+@Service
+public class MerchantCategorizer
+{
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantCategorizer.class);
+
+    private static final String DEFAULT_RULES = "merchant-categories.txt";
+
+    private final UserMerchantCategoryRepository userMerchantCategoryRepository;
+
+    private final TransactionTemplate learnTransaction;
+
+    private final String rulesFile;
+
+    private final int maxCachedUsers;
+
+    private final long learnedCacheMillis;
+
+    private volatile MerchantAutomaton automaton;
+
+    private volatile long rulesFileModifiedAt = -1L;
+
+    // access-ordered LRU of learned per-user mappings (normalized merchant -> category)
+    private final LinkedHashMap<String, CachedMappings> learned = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedMappings> eldest) {
+            return size() > maxCachedUsers;
+        }
+    };
+
+    public MerchantCategorizer(UserMerchantCategoryRepository userMerchantCategoryRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${expense.categorizer.rules-file:}") String rulesFile,
+                               @Value("${expense.categorizer.max-cached-users:10000}") int maxCachedUsers,
+                               @Value("${expense.categorizer.learned-cache-ms:60000}") long learnedCacheMillis) {
+        this.userMerchantCategoryRepository = userMerchantCategoryRepository;
+        // runs after the expense's transaction committed, whose resources are still bound to the thread
+        this.learnTransaction = new TransactionTemplate(transactionManager);
+        this.learnTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rulesFile = rulesFile;
+        this.maxCachedUsers = maxCachedUsers;
+        this.learnedCacheMillis = learnedCacheMillis;
+    }
+
+    @PostConstruct
+    void init() {
+        reloadRules();
+    }
+
+    /**
+     * @return category for the merchant, or {@code null} when nothing matches
+     */
+    public String categorize(String userId, String merchant) {
+        if (Objects.isNull(merchant) || merchant.isBlank()) {
+            return null;
+        }
+        Map<String, String> userMappings = learnedFor(userId);
+        if (!userMappings.isEmpty()) {
+            String category = userMappings.get(MerchantAutomaton.normalize(merchant));
+            if (Objects.nonNull(category)) {
+                return category;
+            }
+        }
+        return automaton.match(merchant);
+    }
+
+    /**
+     * Remembers the category a user chose for a merchant, once the expense carrying the choice has
+     * committed. A failure here leaves the expense as saved; the mapping is learned on the next choice.
+     */
+    @TransactionalEventListener
+    public void onCategoryChosen(MerchantCategoryChosenEvent event) {
+        try {
+            learnTransaction.executeWithoutResult(status ->
+                    learn(event.getUserId(), event.getMerchant(), event.getCategory()));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to learn category for userId={} merchant={}: {}",
+                    event.getUserId(), event.getMerchant(), ex.getMessage(), ex);
+        }
+    }
+
+    private void learn(String userId, String merchant, String category) {
+        if (Objects.isNull(userId) || Objects.isNull(merchant) || Objects.isNull(category) || category.isBlank()) {
+            return;
+        }
+        String merchantKey = MerchantAutomaton.normalize(merchant);
+        if (merchantKey.isEmpty()) {
+            return;
+        }
+        userMerchantCategoryRepository.upsert(userId, merchantKey, category.trim(),
+                new Timestamp(System.currentTimeMillis()));
+        synchronized (learned) {
+            CachedMappings cached = learned.get(userId);
+            if (Objects.nonNull(cached)) {
+                Map<String, String> updated = new HashMap<>(cached.mappings());
+                updated.put(merchantKey, category.trim());
+                learned.put(userId, new CachedMappings(Map.copyOf(updated), cached.loadedAt()));
+            }
+        }
+    }
+
+    /**
+     * The key learned mappings are stored under: lower-cased, with punctuation and spacing collapsed.
+     */
+    public static String merchantKey(String merchant) {
+        return MerchantAutomaton.normalize(merchant);
+    }
+
+    @Scheduled(fixedDelayString = "${expense.categorizer.reload-interval-ms:10000}")
+    public void reloadIfChanged() {
+        if (rulesFile.isBlank()) {
+            return;
+        }
+        try {
+            long modifiedAt = Files.getLastModifiedTime(Path.of(rulesFile)).toMillis();
+            if (modifiedAt != rulesFileModifiedAt) {
+                reloadRules();
+            }
+        } catch (IOException ex) {
+            log.warn("Cannot stat categorizer rules file {}: {}", rulesFile, ex.getMessage());
+        }
+    }
+
+    private void reloadRules() {
+        Map<String, String> rules = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(DEFAULT_RULES).getInputStream(), StandardCharsets.UTF_8))) {
+            rules.putAll(CategoryRules.parse(reader));
+        } catch (IOException ex) {
+            log.error("Failed to read bundled categorizer rules {}", DEFAULT_RULES, ex);
+        }
+
+        if (!rulesFile.isBlank()) {
+            Path path = Path.of(rulesFile);
+            try {
+                long modifiedAt = Files.getLastModifiedTime(path).toMillis();
+                try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    rules.putAll(CategoryRules.parse(reader));
+                }
+                rulesFileModifiedAt = modifiedAt;
+            } catch (IOException ex) {
+                log.warn("Failed to read categorizer rules file {}, keeping bundled rules only: {}", rulesFile, ex.getMessage());
+            }
+        }
+
+        MerchantAutomaton compiled = MerchantAutomaton.build(rules);
+        automaton = compiled;
+        log.info("Loaded {} merchant categorization patterns", compiled.patternCount());
+    }
+
+    private Map<String, String> learnedFor(String userId) {
+        if (Objects.isNull(userId)) {
+            return Map.of();
+        }
+        long now = System.currentTimeMillis();
+        synchronized (learned) {
+            CachedMappings cached = learned.get(userId);
+            if (Objects.nonNull(cached) && now - cached.loadedAt() < learnedCacheMillis) {
+                return cached.mappings();
+            }
+        }
+
+        Map<String, String> loaded = new HashMap<>();
+        List<UserMerchantCategory> mappings =
+                ReadRoutingContext.callOnPrimary(() -> userMerchantCategoryRepository.findByUserId(userId));
+        for (UserMerchantCategory mapping : mappings) {
+            loaded.put(mapping.getMerchantKey(), mapping.getCategory());
+        }
+        Map<String, String> immutable = Map.copyOf(loaded);
+
+        synchronized (learned) {
+            learned.put(userId, new CachedMappings(immutable, now));
+        }
+        return immutable;
+    }
+
+    private record CachedMappings(Map<String, String> mappings, long loadedAt) {
+    }
+}
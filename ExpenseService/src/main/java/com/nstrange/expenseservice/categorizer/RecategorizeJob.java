@@ -0,0 +1,127 @@
+package com.nstrange.expenseservice.categorizer;
+
+import com.nstrange.expenseservice.dto.RecategorizeStatusDto;
+import com.nstrange.expenseservice.model.RecategorizeBatch;
+import com.nstrange.expenseservice.service.ExpenseService;
+import com.nstrange.expenseservice.sharding.Shards;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background pass that walks historical uncategorized expenses in id order, one transaction per batch,
+ * one shard after another.
+ */
+@Component
+public class RecategorizeJob
+{
+
+    private static final Logger log = LoggerFactory.getLogger(RecategorizeJob.class);
+
+    private final ExpenseService expenseService;
+
+    private final Shards shards;
+
+    private final int batchSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "recategorize-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile long scanned;
+
+    private volatile long updated;
+
+    private volatile String shard;
+
+    private volatile long lastId;
+
+    private volatile Instant startedAt;
+
+    private volatile Instant finishedAt;
+
+    private volatile String error;
+
+    public RecategorizeJob(ExpenseService expenseService, Shards shards,
+                           @Value("${expense.categorizer.recategorize-batch-size:500}") int batchSize) {
+        this.expenseService = expenseService;
+        this.shards = shards;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return {@code false} if a run is already in progress
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        scanned = 0;
+        updated = 0;
+        shard = null;
+        lastId = 0;
+        error = null;
+        finishedAt = null;
+        startedAt = Instant.now();
+        executor.execute(this::run);
+        return true;
+    }
+
+    public RecategorizeStatusDto status() {
+        return RecategorizeStatusDto.builder()
+                .running(running.get())
+                .scanned(scanned)
+                .updated(updated)
+                .shard(shard)
+                .lastId(lastId)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .error(error)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run() {
+        log.info("Starting bulk re-categorization of uncategorized expenses");
+        try {
+            shards.forEach(this::runShard);
+            log.info("Bulk re-categorization finished: scanned={} updated={}", scanned, updated);
+        } catch (RuntimeException ex) {
+            error = ex.getMessage();
+            log.error("Bulk re-categorization failed on shard={} after id={}", shard, lastId, ex);
+        } finally {
+            finishedAt = Instant.now();
+            running.set(false);
+        }
+    }
+
+    private void runShard(String shardName) {
+        // ids are per shard, so the cursor starts over on each one
+        shard = shardName;
+        lastId = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            RecategorizeBatch batch = expenseService.recategorizeBatch(lastId, batchSize);
+            scanned += batch.getScanned();
+            updated += batch.getUpdated();
+            lastId = batch.getLastId();
+            if (batch.getScanned() < batchSize) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.nstrange.expenseservice.coldstorage;
+
+import com.nstrange.expenseservice.model.ExpenseField;
+import com.nstrange.expenseservice.model.ProjectedExpense;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * An archived expense read back from a cold segment. Cold expenses are read-only and never tombstones.
+ */
+@Getter
+@AllArgsConstructor
+public class ColdExpense {
+
+    private final long id;
+
+    private final String externalId;
+
+    private final String userId;
+
+    private final BigDecimal amount;
+
+    private final String merchant;
+
+    private final String currency;
+
+    private final Timestamp createdAt;
+
+    private final String notes;
+
+    private final String category;
+
+    private final String fundSource;
+
+    private final String duplicateOf;
+
+    private final Timestamp updatedAt;
+
+    private final long version;
+
+    /** This expense reduced to {@code fields}, in the row type the MySQL projection returns. */
+    public ProjectedExpense project(List<ExpenseField> fields) {
+        ProjectedExpense row = new ProjectedExpense();
+        for (ExpenseField field : fields) {
+            row.set(field, valueOf(field));
+        }
+        return row;
+    }
+
+    private Object valueOf(ExpenseField field) {
+        return switch (field) {
+            case EXTERNAL_ID -> externalId;
+            case AMOUNT -> amount;
+            case USER_ID -> userId;
+            case MERCHANT -> merchant;
+            case CURRENCY -> currency;
+            // segments keep only the original amount; base-currency totals convert it on read
+            case BASE_AMOUNT, BASE_CURRENCY -> null;
+            case CREATED_AT -> createdAt;
+            case NOTES -> notes;
+            case CATEGORY -> category;
+            case FUND_SOURCE -> fundSource;
+            case DUPLICATE_OF -> duplicateOf;
+            case UPDATED_AT -> updatedAt;
+            case VERSION -> version;
+        };
+    }
+}
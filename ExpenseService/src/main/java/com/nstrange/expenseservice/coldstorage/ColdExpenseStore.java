@@ -0,0 +1,226 @@
+package com.nstrange.expenseservice.coldstorage;
+
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.service.SpendRollupService;
+import com.nstrange.expenseservice.sharding.ShardContext;
+import com.nstrange.expenseservice.sharding.Shards;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Cold tier for expenses older than {@code expense.cold-storage.after-months}: one compressed columnar
+ * segment file per month under {@code expense.cold-storage.dir}, written by {@link ColdStorageArchiver}.
+ * <p>
+ * Two boundaries matter to callers. {@link #coldBefore()} is the write boundary: older expenses are
+ * read-only because they are about to be, or already are, archived. {@link #archivedBefore()} is the
+ * read boundary: rows older than it are served from segments and must not be read from MySQL, which
+ * may still hold copies while a month is being deleted.
+ * <p>
+ * Segments are published by whichever instance holds the archiver lock, so every instance rescans the
+ * directory every {@code expense.cold-storage.rescan-interval-ms} to pick up the others' months; the
+ * archiver only deletes a month's rows once its segment is older than two rescan intervals.
+ * <p>
+ * With sharding on, each shard has its own segments in a subdirectory named after it, and every method
+ * works on the shard in {@link ShardContext}.
+ */
+@Service
+public class ColdExpenseStore
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ColdExpenseStore.class);
+
+    private static final Timestamp UNBOUNDED = Timestamp.valueOf("1970-01-01 00:00:00");
+
+    private final boolean enabled;
+
+    private final Path dir;
+
+    private final int afterMonths;
+
+    private final long rescanIntervalMillis;
+
+    private final Shards shards;
+
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<YearMonth, SegmentReader>> segmentsByShard =
+            new ConcurrentHashMap<>();
+
+    public ColdExpenseStore(Shards shards,
+                            @Value("${expense.cold-storage.enabled:false}") boolean enabled,
+                            @Value("${expense.cold-storage.dir:}") String dir,
+                            @Value("${expense.cold-storage.after-months:18}") int afterMonths,
+                            @Value("${expense.cold-storage.rescan-interval-ms:30000}") long rescanIntervalMillis) {
+        if (enabled && dir.isBlank()) {
+            throw new IllegalStateException("expense.cold-storage.dir must be set when cold storage is enabled");
+        }
+        this.enabled = enabled;
+        this.dir = dir.isBlank() ? null : Path.of(dir);
+        this.afterMonths = afterMonths;
+        this.rescanIntervalMillis = rescanIntervalMillis;
+        this.shards = shards;
+        this.clock = Clock.system(SpendRollupService.ROLLUP_ZONE);
+    }
+
+    @PostConstruct
+    void open() {
+        if (!enabled) {
+            return;
+        }
+        shards.forEach(shard -> {
+            try {
+                Files.createDirectories(shardDir());
+                refresh();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot open cold expense segments in " + shardDir(), ex);
+            }
+            log.info("Opened {} cold expense segments from {} for shard={}", segments().size(), shardDir(), shard);
+        });
+    }
+
+    /** Starts serving segments other instances have published since the last scan. */
+    @Scheduled(fixedDelayString = "${expense.cold-storage.rescan-interval-ms:30000}")
+    public void rescan() {
+        if (!enabled) {
+            return;
+        }
+        shards.forEach(shard -> {
+            try {
+                refresh();
+            } catch (IOException ex) {
+                log.error("Failed to rescan cold expense segments in {} for shard={}", shardDir(), shard, ex);
+            }
+        });
+    }
+
+    /**
+     * Opens the current shard's segment files that are not served yet. Temp files are left alone: they
+     * belong to an archive run in progress, and a run that crashed is overwritten by the next one.
+     */
+    void refresh() throws IOException {
+        ConcurrentSkipListMap<YearMonth, SegmentReader> segments = segments();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(shardDir())) {
+            for (Path file : files) {
+                YearMonth month = SegmentFormat.monthOf(file.getFileName().toString());
+                if (Objects.nonNull(month) && !segments.containsKey(month)) {
+                    segments.putIfAbsent(month, SegmentReader.open(file));
+                    log.info("Serving cold expense segment {} from {}", month, file);
+                }
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Start of the oldest month that still accepts writes; the epoch when the cold tier is off. */
+    public Timestamp coldBefore() {
+        if (!enabled) {
+            return UNBOUNDED;
+        }
+        return Timestamp.valueOf(YearMonth.now(clock).minusMonths(afterMonths).atDay(1).atStartOfDay());
+    }
+
+    /** End of the newest archived month: rows before it are read from segments only. */
+    public Timestamp archivedBefore() {
+        Map.Entry<YearMonth, SegmentReader> newest = segments().lastEntry();
+        if (Objects.isNull(newest)) {
+            return UNBOUNDED;
+        }
+        return Timestamp.valueOf(newest.getKey().plusMonths(1).atDay(1).atStartOfDay());
+    }
+
+    public void checkWritable(Timestamp createdAt) {
+        if (enabled && Objects.nonNull(createdAt) && createdAt.before(coldBefore())) {
+            throw new InvalidExpenseRequestException("Expenses dated before "
+                    + coldBefore().toLocalDateTime().toLocalDate() + " are archived and read-only");
+        }
+    }
+
+    /**
+     * @return the user's archived expenses with {@code fromMillis <= createdAt < toMillis}, oldest first
+     */
+    public List<ColdExpense> find(String userId, long fromMillis, long toMillis) {
+        ConcurrentSkipListMap<YearMonth, SegmentReader> segments = segments();
+        if (segments.isEmpty() || fromMillis >= toMillis) {
+            return List.of();
+        }
+        List<ColdExpense> result = new ArrayList<>();
+        for (SegmentReader segment : segments.values()) {
+            long monthStart = Timestamp.valueOf(segment.month().atDay(1).atStartOfDay()).getTime();
+            long monthEnd = Timestamp.valueOf(segment.month().plusMonths(1).atDay(1).atStartOfDay()).getTime();
+            if (monthEnd <= fromMillis || monthStart >= toMillis) {
+                continue;
+            }
+            try {
+                result.addAll(segment.read(userId, fromMillis, toMillis));
+            } catch (RuntimeException ex) {
+                log.error("Failed to read cold segment {} for userId={}", segment.month(), userId, ex);
+                throw new ExpenseServiceException("Failed to read archived expenses for user " + userId, ex);
+            }
+        }
+        return result;
+    }
+
+    boolean hasSegment(YearMonth month) {
+        return segments().containsKey(month);
+    }
+
+    /**
+     * Whether {@code month}'s segment was published at least two rescan intervals ago, so every running
+     * instance reads the month from it and its MySQL rows can go.
+     */
+    boolean servedEverywhere(YearMonth month) throws IOException {
+        long published = Files.getLastModifiedTime(segmentFile(month)).toMillis();
+        return published + 2 * rescanIntervalMillis <= clock.millis();
+    }
+
+    Path segmentFile(YearMonth month) {
+        return shardDir().resolve(SegmentFormat.fileName(month));
+    }
+
+    Path tempFile(YearMonth month) {
+        return shardDir().resolve(SegmentFormat.fileName(month) + ".tmp");
+    }
+
+    /**
+     * Atomically renames a finished segment into place and starts serving it.
+     */
+    void publish(YearMonth month, Path tempFile) throws IOException {
+        Path target = segmentFile(month);
+        Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        segments().put(month, SegmentReader.open(target));
+    }
+
+    private ConcurrentSkipListMap<YearMonth, SegmentReader> segments() {
+        String shard = ShardContext.current();
+        return segmentsByShard.computeIfAbsent(Objects.isNull(shard) ? Shards.UNSHARDED : shard,
+                key -> new ConcurrentSkipListMap<>());
+    }
+
+    private Path shardDir() {
+        String shard = ShardContext.current();
+        return Objects.isNull(shard) ? dir : dir.resolve(shard);
+    }
+}
@@ -0,0 +1,229 @@
+package com.nstrange.expenseservice.coldstorage;
+
+import com.nstrange.expenseservice.ids.UuidBytes;
+import com.nstrange.expenseservice.sharding.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Moves whole months of expenses older than {@link ColdExpenseStore#coldBefore()} out of MySQL, oldest
+ * month first: the month is streamed into a segment file and the file is published. Its rows are only
+ * deleted, in small batches, by a later run once {@link ColdExpenseStore#servedEverywhere} says every
+ * instance has picked the segment up and stopped reading the month from MySQL; until then the rows are
+ * stale copies that nobody who has seen the segment reads. Soft-deleted rows are dropped rather than
+ * archived. Each shard is archived into its own segments.
+ */
+@Service
+public class ColdStorageArchiver
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ColdStorageArchiver.class);
+
+    private static final String LOCK_NAME = "expense_cold_storage_archiver";
+
+    private static final String OLDEST_SQL = "SELECT MIN(created_at) FROM expense WHERE created_at >= ? AND created_at < ?";
+
+    private static final Timestamp EPOCH = Timestamp.valueOf("1970-01-01 00:00:00");
+
+    // binary order keeps each user's rows contiguous whatever the column collation
+    private static final String MONTH_SQL = "SELECT id, external_id, user_id, amount, merchant, currency, created_at, "
+            + "notes, category, fund_source, duplicate_of, updated_at, version FROM expense "
+            + "WHERE created_at >= ? AND created_at < ? AND deleted_at IS NULL "
+            + "ORDER BY CAST(user_id AS BINARY), created_at, id";
+
+    private static final String DELETE_SQL = "DELETE FROM expense WHERE created_at >= ? AND created_at < ? LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ColdExpenseStore store;
+
+    private final Shards shards;
+
+    private final int deleteBatchSize;
+
+    public ColdStorageArchiver(JdbcTemplate jdbcTemplate, ColdExpenseStore store, Shards shards,
+                               @Value("${expense.cold-storage.delete-batch-size:5000}") int deleteBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.store = store;
+        this.shards = shards;
+        this.deleteBatchSize = deleteBatchSize;
+    }
+
+    @Scheduled(cron = "${expense.cold-storage.archive-cron:0 0 3 * * *}", zone = "UTC")
+    public void archive() {
+        if (!store.isEnabled()) {
+            return;
+        }
+        shards.forEach(this::archiveShard);
+    }
+
+    private void archiveShard(String shard) {
+        String lockName = Objects.isNull(shard) ? LOCK_NAME : LOCK_NAME + "_" + shard;
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                if (!lock(connection, "SELECT GET_LOCK(?, 0)", lockName)) {
+                    log.debug("Cold storage archiving is running on another instance");
+                    return null;
+                }
+                try {
+                    archiveDueMonths(connection);
+                } finally {
+                    lock(connection, "SELECT RELEASE_LOCK(?)", lockName);
+                }
+                return null;
+            });
+        } catch (DataAccessException | UncheckedIOException ex) {
+            log.error("Cold storage archiving failed on shard={}", shard, ex);
+        }
+    }
+
+    private void archiveDueMonths(Connection connection) throws SQLException {
+        try {
+            store.refresh();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to rescan cold segments", ex);
+        }
+        Timestamp coldBefore = store.coldBefore();
+        YearMonth last = YearMonth.from(coldBefore.toLocalDateTime()).minusMonths(1);
+        Timestamp after = EPOCH;
+        while (true) {
+            Timestamp oldest;
+            try (PreparedStatement statement = connection.prepareStatement(OLDEST_SQL)) {
+                statement.setTimestamp(1, after);
+                statement.setTimestamp(2, coldBefore);
+                try (ResultSet rs = statement.executeQuery()) {
+                    oldest = rs.next() ? rs.getTimestamp(1) : null;
+                }
+            }
+            if (Objects.isNull(oldest)) {
+                return;
+            }
+            YearMonth month = YearMonth.from(oldest.toLocalDateTime());
+            if (month.isAfter(last)) {
+                return;
+            }
+            archiveMonth(connection, month);
+            after = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        }
+    }
+
+    private void archiveMonth(Connection connection, YearMonth month) throws SQLException {
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+
+        if (!store.hasSegment(month)) {
+            long started = System.currentTimeMillis();
+            Path temp = store.tempFile(month);
+            int rows;
+            try (SegmentWriter writer = new SegmentWriter(temp, month)) {
+                rows = writeMonth(connection, writer, from, to);
+                writer.finish();
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to write cold segment for " + month, ex);
+            }
+            try {
+                store.publish(month, temp);
+                log.info("Archived {} expenses for {} into a {} byte segment in {} ms",
+                        rows, month, Files.size(store.segmentFile(month)), System.currentTimeMillis() - started);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to publish cold segment for " + month, ex);
+            }
+            return;
+        }
+        try {
+            if (!store.servedEverywhere(month)) {
+                log.info("Keeping MySQL rows for {} until every instance serves its cold segment", month);
+                return;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to stat cold segment for " + month, ex);
+        }
+
+        long deleted = 0L;
+        try (PreparedStatement statement = connection.prepareStatement(DELETE_SQL)) {
+            statement.setTimestamp(1, from);
+            statement.setTimestamp(2, to);
+            statement.setInt(3, deleteBatchSize);
+            int batch;
+            do {
+                batch = statement.executeUpdate();
+                deleted += batch;
+            } while (batch > 0);
+        }
+        log.info("Deleted {} archived expense rows for {} from MySQL", deleted, month);
+    }
+
+    private static int writeMonth(Connection connection, SegmentWriter writer, Timestamp from, Timestamp to)
+            throws SQLException, IOException {
+        try (PreparedStatement statement = connection.prepareStatement(MONTH_SQL,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Connector/J streams rows one at a time with this fetch size instead of buffering the month
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setTimestamp(1, from);
+            statement.setTimestamp(2, to);
+            int count = 0;
+            String currentUser = null;
+            List<ColdExpense> userRows = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    String userId = rs.getString("user_id");
+                    if (!userId.equals(currentUser)) {
+                        if (Objects.nonNull(currentUser)) {
+                            writer.writeUser(currentUser, userRows);
+                        }
+                        userRows.clear();
+                        currentUser = userId;
+                    }
+                    userRows.add(new ColdExpense(
+                            rs.getLong("id"),
+                            UuidBytes.fromBytes(rs.getBytes("external_id")).toString(),
+                            userId,
+                            rs.getBigDecimal("amount"),
+                            rs.getString("merchant"),
+                            rs.getString("currency"),
+                            rs.getTimestamp("created_at"),
+                            rs.getString("notes"),
+                            rs.getString("category"),
+                            rs.getString("fund_source"),
+                            rs.getString("duplicate_of"),
+                            rs.getTimestamp("updated_at"),
+                            rs.getLong("version")));
+                    count++;
+                }
+            }
+            if (Objects.nonNull(currentUser)) {
+                writer.writeUser(currentUser, userRows);
+            }
+            return count;
+        }
+    }
+
+    private static boolean lock(Connection connection, String sql, String lockName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, lockName);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+}
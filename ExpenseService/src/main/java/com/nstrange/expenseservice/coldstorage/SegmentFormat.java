@@ -0,0 +1,56 @@
+package com.nstrange.expenseservice.coldstorage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+
+/**
+ * Layout of a cold segment, one file per {@code created_at} month:
+ * <pre>
+ *   header   magic(8) version(int) yyyymm(int)
+ *   blocks   one deflated columnar block per user
+ *   index    userCount(int), then per user in user_id order: userId(short length + UTF-8) offset(long)
+ *            compressedLength(int) rawLength(int) rowCount(int) minCreatedAt(long) maxCreatedAt(long)
+ *   trailer  indexOffset(long) magic(8)
+ * </pre>
+ * A block holds its rows sorted by {@code created_at}, column after column: id and created_at as
+ * zigzag deltas, updated_at as a zigzag offset from created_at, version, amount in hundredths, the
+ * 16-byte external id, then each string column as a block-local dictionary followed by one code per
+ * row (0 for null).
+ */
+final class SegmentFormat {
+
+    static final byte[] MAGIC = "EXPSEG01".getBytes(StandardCharsets.US_ASCII);
+
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = MAGIC.length + 2 * Integer.BYTES;
+
+    static final int TRAILER_BYTES = Long.BYTES + MAGIC.length;
+
+    static final String FILE_PREFIX = "expense-";
+
+    static final String FILE_SUFFIX = ".seg";
+
+    private SegmentFormat() {
+    }
+
+    static String fileName(YearMonth month) {
+        return FILE_PREFIX + String.format("%04d%02d", month.getYear(), month.getMonthValue()) + FILE_SUFFIX;
+    }
+
+    /**
+     * @return the month of a segment file name, or {@code null} if it is not one
+     */
+    static YearMonth monthOf(String fileName) {
+        if (!fileName.startsWith(FILE_PREFIX) || !fileName.endsWith(FILE_SUFFIX)
+                || fileName.length() != FILE_PREFIX.length() + 6 + FILE_SUFFIX.length()) {
+            return null;
+        }
+        String digits = fileName.substring(FILE_PREFIX.length(), FILE_PREFIX.length() + 6);
+        try {
+            return YearMonth.of(Integer.parseInt(digits.substring(0, 4)), Integer.parseInt(digits.substring(4)));
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+}
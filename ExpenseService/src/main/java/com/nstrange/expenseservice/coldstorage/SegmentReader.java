@@ -0,0 +1,199 @@
+package com.nstrange.expenseservice.coldstorage;
+
+import com.nstrange.expenseservice.cache.MinorUnits;
+import com.nstrange.expenseservice.ids.UuidBytes;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read side of a segment file. The file is memory-mapped once and the index is decoded onto the heap;
+ * a lookup binary-searches the index and inflates only that user's block straight from the mapping,
+ * so cold reads go through the page cache rather than the InnoDB buffer pool.
+ */
+final class SegmentReader {
+
+    private final YearMonth month;
+
+    private final MappedByteBuffer mapped;
+
+    private final String[] userIds;
+
+    private final long[] offsets;
+
+    private final int[] compressedLengths;
+
+    private final int[] rawLengths;
+
+    private final int[] rowCounts;
+
+    private final long[] minCreatedAt;
+
+    private final long[] maxCreatedAt;
+
+    private SegmentReader(YearMonth month, MappedByteBuffer mapped, int users) {
+        this.month = month;
+        this.mapped = mapped;
+        this.userIds = new String[users];
+        this.offsets = new long[users];
+        this.compressedLengths = new int[users];
+        this.rawLengths = new int[users];
+        this.rowCounts = new int[users];
+        this.minCreatedAt = new long[users];
+        this.maxCreatedAt = new long[users];
+    }
+
+    static SegmentReader open(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = mapped.capacity();
+        if (size < SegmentFormat.HEADER_BYTES + SegmentFormat.TRAILER_BYTES
+                || !hasMagic(mapped, 0) || !hasMagic(mapped, size - SegmentFormat.MAGIC.length)) {
+            throw new IOException("Not a complete expense segment: " + file);
+        }
+        if (mapped.getInt(SegmentFormat.MAGIC.length) != SegmentFormat.VERSION) {
+            throw new IOException("Unsupported segment version in " + file);
+        }
+        int yyyymm = mapped.getInt(SegmentFormat.MAGIC.length + Integer.BYTES);
+
+        ByteBuffer index = mapped.duplicate();
+        index.position((int) mapped.getLong(size - SegmentFormat.TRAILER_BYTES));
+        int users = index.getInt();
+        SegmentReader reader = new SegmentReader(YearMonth.of(yyyymm / 100, yyyymm % 100), mapped, users);
+        for (int i = 0; i < users; i++) {
+            byte[] utf8 = new byte[Short.toUnsignedInt(index.getShort())];
+            index.get(utf8);
+            reader.userIds[i] = new String(utf8, StandardCharsets.UTF_8);
+            reader.offsets[i] = index.getLong();
+            reader.compressedLengths[i] = index.getInt();
+            reader.rawLengths[i] = index.getInt();
+            reader.rowCounts[i] = index.getInt();
+            reader.minCreatedAt[i] = index.getLong();
+            reader.maxCreatedAt[i] = index.getLong();
+        }
+        return reader;
+    }
+
+    YearMonth month() {
+        return month;
+    }
+
+    /**
+     * @return the user's archived expenses with {@code fromMillis <= createdAt < toMillis}, oldest first
+     */
+    List<ColdExpense> read(String userId, long fromMillis, long toMillis) {
+        int slot = Arrays.binarySearch(userIds, userId);
+        if (slot < 0 || maxCreatedAt[slot] < fromMillis || minCreatedAt[slot] >= toMillis) {
+            return List.of();
+        }
+        ByteBuffer block = ByteBuffer.wrap(inflate(slot));
+        int rows = rowCounts[slot];
+
+        long[] ids = new long[rows];
+        long[] created = new long[rows];
+        long previous = 0L;
+        for (int i = 0; i < rows; i++) {
+            previous += ColumnBuffer.readSignedVarLong(block);
+            ids[i] = previous;
+        }
+        previous = 0L;
+        for (int i = 0; i < rows; i++) {
+            previous += ColumnBuffer.readSignedVarLong(block);
+            created[i] = previous;
+        }
+        long[] updated = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            updated[i] = created[i] + ColumnBuffer.readSignedVarLong(block);
+        }
+        long[] versions = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            versions[i] = ColumnBuffer.readVarLong(block);
+        }
+        long[] amounts = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            amounts[i] = ColumnBuffer.readSignedVarLong(block);
+        }
+        String[] externalIds = new String[rows];
+        byte[] uuid = new byte[16];
+        for (int i = 0; i < rows; i++) {
+            block.get(uuid);
+            externalIds[i] = UuidBytes.fromBytes(uuid).toString();
+        }
+        String[] merchants = readDictionaryColumn(block, rows);
+        String[] currencies = readDictionaryColumn(block, rows);
+        String[] notes = readDictionaryColumn(block, rows);
+        String[] categories = readDictionaryColumn(block, rows);
+        String[] fundSources = readDictionaryColumn(block, rows);
+        String[] duplicateOf = readDictionaryColumn(block, rows);
+
+        List<ColdExpense> result = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            if (created[i] < fromMillis || created[i] >= toMillis) {
+                continue;
+            }
+            result.add(new ColdExpense(ids[i], externalIds[i], userId, BigDecimal.valueOf(amounts[i], MinorUnits.SCALE),
+                    merchants[i], currencies[i], new Timestamp(created[i]), notes[i], categories[i], fundSources[i],
+                    duplicateOf[i], new Timestamp(updated[i]), versions[i]));
+        }
+        return result;
+    }
+
+    private byte[] inflate(int slot) {
+        ByteBuffer input = mapped.slice(Math.toIntExact(offsets[slot]), compressedLengths[slot]);
+        byte[] raw = new byte[rawLengths[slot]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                read += inflater.inflate(raw, read, raw.length - read);
+            }
+            if (read != raw.length) {
+                throw new IllegalStateException("Truncated block for user " + userIds[slot] + " in segment " + month);
+            }
+            return raw;
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Corrupt block for user " + userIds[slot] + " in segment " + month, ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static String[] readDictionaryColumn(ByteBuffer block, int rows) {
+        String[] dictionary = new String[(int) ColumnBuffer.readVarLong(block)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = ColumnBuffer.readString(block);
+        }
+        String[] column = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            int code = (int) ColumnBuffer.readVarLong(block);
+            column[i] = code == 0 ? null : dictionary[code - 1];
+        }
+        return column;
+    }
+
+    private static boolean hasMagic(MappedByteBuffer buffer, int at) {
+        for (int i = 0; i < SegmentFormat.MAGIC.length; i++) {
+            if (buffer.get(at + i) != SegmentFormat.MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,168 @@
+package com.nstrange.expenseservice.coldstorage;
+
+import com.nstrange.expenseservice.cache.MinorUnits;
+import com.nstrange.expenseservice.ids.UuidBytes;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+
+/**
+ * Streams one month of expenses into a segment file, one call per user with that user's rows sorted by
+ * {@code created_at}. Users may come in any order; the index is sorted when the file is finished.
+ */
+final class SegmentWriter implements AutoCloseable {
+
+    private final FileChannel channel;
+
+    private final DataOutputStream out;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+
+    private final List<IndexEntry> index = new ArrayList<>();
+
+    private byte[] compressed = new byte[4096];
+
+    private long position;
+
+    SegmentWriter(Path file, YearMonth month) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        OutputStream stream = Channels.newOutputStream(channel);
+        this.out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        out.write(SegmentFormat.MAGIC);
+        out.writeInt(SegmentFormat.VERSION);
+        out.writeInt(month.getYear() * 100 + month.getMonthValue());
+        position = SegmentFormat.HEADER_BYTES;
+    }
+
+    void writeUser(String userId, List<ColdExpense> rows) throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        ColumnBuffer block = encode(rows);
+        deflater.reset();
+        deflater.setInput(block.array(), 0, block.size());
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        out.write(compressed, 0, length);
+
+        index.add(new IndexEntry(userId, position, length, block.size(), rows.size(),
+                rows.get(0).getCreatedAt().getTime(), rows.get(rows.size() - 1).getCreatedAt().getTime()));
+        position += length;
+    }
+
+    /**
+     * Writes the index and trailer and forces the file to disk.
+     */
+    void finish() throws IOException {
+        long indexOffset = position;
+        index.sort(Comparator.comparing(IndexEntry::userId));
+        out.writeInt(index.size());
+        for (IndexEntry entry : index) {
+            out.writeUTF(entry.userId);
+            out.writeLong(entry.offset);
+            out.writeInt(entry.compressedLength);
+            out.writeInt(entry.rawLength);
+            out.writeInt(entry.rowCount);
+            out.writeLong(entry.minCreatedAt);
+            out.writeLong(entry.maxCreatedAt);
+        }
+        out.writeLong(indexOffset);
+        out.write(SegmentFormat.MAGIC);
+        out.flush();
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+    }
+
+    private static ColumnBuffer encode(List<ColdExpense> rows) {
+        ColumnBuffer buffer = new ColumnBuffer();
+        long previousId = 0L;
+        for (ColdExpense row : rows) {
+            buffer.writeSignedVarLong(row.getId() - previousId);
+            previousId = row.getId();
+        }
+        long previousTime = 0L;
+        for (ColdExpense row : rows) {
+            long time = row.getCreatedAt().getTime();
+            buffer.writeSignedVarLong(time - previousTime);
+            previousTime = time;
+        }
+        for (ColdExpense row : rows) {
+            long updated = row.getUpdatedAt() != null ? row.getUpdatedAt().getTime() : row.getCreatedAt().getTime();
+            buffer.writeSignedVarLong(updated - row.getCreatedAt().getTime());
+        }
+        for (ColdExpense row : rows) {
+            buffer.writeVarLong(row.getVersion());
+        }
+        for (ColdExpense row : rows) {
+            buffer.writeSignedVarLong(MinorUnits.of(row.getAmount()));
+        }
+        for (ColdExpense row : rows) {
+            buffer.writeBytes(UuidBytes.toBytes(UUID.fromString(row.getExternalId())));
+        }
+        writeDictionary(buffer, rows, ColdExpense::getMerchant);
+        writeDictionary(buffer, rows, ColdExpense::getCurrency);
+        writeDictionary(buffer, rows, ColdExpense::getNotes);
+        writeDictionary(buffer, rows, ColdExpense::getCategory);
+        writeDictionary(buffer, rows, ColdExpense::getFundSource);
+        writeDictionary(buffer, rows, ColdExpense::getDuplicateOf);
+        return buffer;
+    }
+
+    private static void writeDictionary(ColumnBuffer buffer, List<ColdExpense> rows, Function<ColdExpense, String> column) {
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> values = new ArrayList<>();
+        int[] rowCodes = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            String value = column.apply(rows.get(i));
+            if (value == null) {
+                continue;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                values.add(value);
+                code = values.size();
+                codes.put(value, code);
+            }
+            rowCodes[i] = code;
+        }
+        buffer.writeVarLong(values.size());
+        for (String value : values) {
+            buffer.writeString(value);
+        }
+        for (int code : rowCodes) {
+            buffer.writeVarLong(code);
+        }
+    }
+
+    private record IndexEntry(String userId, long offset, int compressedLength, int rawLength, int rowCount,
+                              long minCreatedAt, long maxCreatedAt) {
+    }
+}
@@ -0,0 +1,236 @@
+package com.nstrange.expenseservice.consumer;
+
+import com.nstrange.expenseservice.cache.MinorUnits;
+import com.nstrange.expenseservice.dto.ExpenseDto;
+import com.nstrange.expenseservice.fx.FxRateTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Flags Kafka expenses that repeat one seen for the same user a few seconds earlier, e.g. a bank's
+ * debit alert followed by its card alert. Expenses are bucketed on (user, amount, currency, fund
+ * source); within a bucket, one matches an earlier one when their merchants' token sets, with
+ * payment-rail and company noise removed, have a Jaccard similarity of at least
+ * {@code merchant-similarity}. A merchant with no tokens left matches nothing. Entries expire after the
+ * window and are capped at {@code max-entries}.
+ */
+@Component
+public class DuplicateExpenseDetector
+{
+
+    private static final Set<String> MERCHANT_NOISE = Set.of(
+            "upi", "pos", "ach", "nach", "neft", "imps", "rtgs", "ecom", "txn", "ref", "vpa",
+            "to", "at", "by", "on", "the", "for", "of", "via",
+            "pvt", "ltd", "private", "limited", "llp", "inc", "india", "payment", "payments");
+
+    private final boolean enabled;
+
+    private final long windowMillis;
+
+    private final int maxEntries;
+
+    private final double minSimilarity;
+
+    private final Counter checked;
+
+    private final Counter detected;
+
+    private final Counter evicted;
+
+    private final Clock clock;
+
+    // insertion order is last-arrival order, so buckets whose entries have all expired are at the head
+    private final LinkedHashMap<DuplicateKey, List<SeenExpense>> recent = new LinkedHashMap<>();
+
+    private int entries;
+
+    @Autowired
+    public DuplicateExpenseDetector(@Value("${expense.dedup.enabled:true}") boolean enabled,
+                                    @Value("${expense.dedup.window-seconds:120}") long windowSeconds,
+                                    @Value("${expense.dedup.max-entries:100000}") int maxEntries,
+                                    @Value("${expense.dedup.merchant-similarity:0.5}") double minSimilarity,
+                                    MeterRegistry meterRegistry) {
+        this(enabled, windowSeconds, maxEntries, minSimilarity, meterRegistry, Clock.systemUTC());
+    }
+
+    DuplicateExpenseDetector(boolean enabled, long windowSeconds, int maxEntries, double minSimilarity,
+                             MeterRegistry meterRegistry, Clock clock) {
+        this.enabled = enabled;
+        this.windowMillis = windowSeconds * 1000L;
+        this.maxEntries = maxEntries;
+        this.minSimilarity = minSimilarity;
+        this.checked = Counter.builder("expense.dedup.checked")
+                .description("Kafka expenses checked for near-duplicates")
+                .register(meterRegistry);
+        this.detected = Counter.builder("expense.dedup.detected")
+                .description("Kafka expenses detected as near-duplicates")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("expense.dedup.evicted")
+                .description("Index entries dropped by the size cap before their window expired")
+                .register(meterRegistry);
+        this.clock = clock;
+    }
+
+    /**
+     * @return external id of the expense this one duplicates, or {@code null}
+     */
+    public String findDuplicate(ExpenseDto expense) {
+        if (!enabled) {
+            return null;
+        }
+        checked.increment();
+        long now = clock.millis();
+        long eventTime = eventTimeOf(expense, now);
+        DuplicateKey key = keyOf(expense);
+        Set<String> merchant = merchantTokens(expense.getMerchant());
+        synchronized (recent) {
+            expire(now);
+            List<SeenExpense> bucket = recent.get(key);
+            if (Objects.isNull(bucket)) {
+                return null;
+            }
+            for (SeenExpense seen : bucket) {
+                if (now - seen.seenAtMillis <= windowMillis
+                        && Math.abs(eventTime - seen.eventTimeMillis) <= windowMillis
+                        && similarity(merchant, seen.merchant) >= minSimilarity) {
+                    detected.increment();
+                    return seen.externalId;
+                }
+            }
+        }
+        return null;
+    }
+
+    public void record(ExpenseDto expense, String externalId) {
+        if (!enabled) {
+            return;
+        }
+        long now = clock.millis();
+        DuplicateKey key = keyOf(expense);
+        SeenExpense seen = new SeenExpense(externalId, merchantTokens(expense.getMerchant()),
+                eventTimeOf(expense, now), now);
+        synchronized (recent) {
+            // re-insert so the bucket moves to the tail with a fresh arrival time
+            List<SeenExpense> bucket = recent.remove(key);
+            if (Objects.isNull(bucket)) {
+                bucket = new ArrayList<>(2);
+            } else {
+                int before = bucket.size();
+                bucket.removeIf(e -> now - e.seenAtMillis > windowMillis);
+                entries -= before - bucket.size();
+            }
+            bucket.add(seen);
+            entries++;
+            recent.put(key, bucket);
+            Iterator<List<SeenExpense>> it = recent.values().iterator();
+            while (entries > maxEntries && it.hasNext()) {
+                int dropped = it.next().size();
+                it.remove();
+                entries -= dropped;
+                evicted.increment(dropped);
+            }
+        }
+    }
+
+    /**
+     * Lower-cased alphanumeric tokens of {@code merchant}, without payment-rail and company noise,
+     * single characters or anything containing a digit (references, terminal ids).
+     */
+    static Set<String> merchantTokens(String merchant) {
+        if (Objects.isNull(merchant)) {
+            return Set.of();
+        }
+        Set<String> tokens = new HashSet<>();
+        for (String token : merchant.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (token.length() < 2 || MERCHANT_NOISE.contains(token) || token.chars().anyMatch(Character::isDigit)) {
+                continue;
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Jaccard similarity of two token sets, or {@code 0} when either is empty: a missing or noise-only
+     * merchant says nothing about whether two expenses are the same.
+     */
+    static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+        int shared = 0;
+        for (String token : a) {
+            if (b.contains(token)) {
+                shared++;
+            }
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    private void expire(long now) {
+        Iterator<List<SeenExpense>> it = recent.values().iterator();
+        while (it.hasNext()) {
+            List<SeenExpense> bucket = it.next();
+            // the last entry of a bucket is its newest
+            if (now - bucket.get(bucket.size() - 1).seenAtMillis <= windowMillis) {
+                return;
+            }
+            it.remove();
+            entries -= bucket.size();
+        }
+    }
+
+    private static DuplicateKey keyOf(ExpenseDto expense) {
+        String fundSource = Objects.isNull(expense.getFundSource()) ? ""
+                : expense.getFundSource().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+        String currency = Objects.requireNonNullElse(FxRateTable.normalize(expense.getCurrency()), "");
+        return new DuplicateKey(expense.getUserId(), MinorUnits.of(expense.getAmount()), currency, fundSource);
+    }
+
+    private static long eventTimeOf(ExpenseDto expense, long now) {
+        return Objects.nonNull(expense.getCreatedAt()) ? expense.getCreatedAt().getTime() : now;
+    }
+
+    @EqualsAndHashCode
+    private static final class DuplicateKey {
+        private final String userId;
+        private final long amountMinor;
+        private final String currency;
+        private final String fundSource;
+
+        private DuplicateKey(String userId, long amountMinor, String currency, String fundSource) {
+            this.userId = userId;
+            this.amountMinor = amountMinor;
+            this.currency = currency;
+            this.fundSource = fundSource;
+        }
+    }
+
+    private static final class SeenExpense {
+        private final String externalId;
+        private final Set<String> merchant;
+        private final long eventTimeMillis;
+        private final long seenAtMillis;
+
+        private SeenExpense(String externalId, Set<String> merchant, long eventTimeMillis, long seenAtMillis) {
+            this.externalId = externalId;
+            this.merchant = merchant;
+            this.eventTimeMillis = eventTimeMillis;
+            this.seenAtMillis = seenAtMillis;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.nstrange.expenseservice.consumer;
 
 import com.nstrange.expenseservice.dto.ExpenseDto;
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
 import com.nstrange.expenseservice.service.ExpenseService;
+import com.nstrange.expenseservice.sharding.UserShardResolver;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
@@ -16,19 +20,54 @@ public class ExpenseConsumer
 
     private static final Logger log = LoggerFactory.getLogger(ExpenseConsumer.class);
 
+    private static final String DROP_DUPLICATES = "drop";
+
     private ExpenseService expenseService;
 
+    private DuplicateExpenseDetector duplicateDetector;
+
+    private UserShardResolver shardResolver;
+
+    private boolean dropDuplicates;
+
     @Autowired
-    ExpenseConsumer(ExpenseService expenseService){
+    ExpenseConsumer(ExpenseService expenseService, DuplicateExpenseDetector duplicateDetector,
+                    UserShardResolver shardResolver,
+                    @Value("${expense.dedup.action:flag}") String duplicateAction){
         this.expenseService = expenseService;
+        this.duplicateDetector = duplicateDetector;
+        this.shardResolver = shardResolver;
+        this.dropDuplicates = DROP_DUPLICATES.equalsIgnoreCase(duplicateAction);
     }
 
     @KafkaListener(topics = "${spring.kafka.topic-json.name}", groupId = "${spring.kafka.consumer.group-id}")
     public void listen(ExpenseDto eventData) {
         log.info("Received Kafka expense event for userId={}", eventData.getUserId());
         try{
-            // Todo: Make it transactional, and check if duplicate event (Handle idempotency)
-            expenseService.createExpense(eventData);
+            String duplicateOf = duplicateDetector.findDuplicate(eventData);
+            if (duplicateOf != null) {
+                if (dropDuplicates) {
+                    log.info("Dropping Kafka expense event for userId={} as duplicate of externalId={}",
+                            eventData.getUserId(), duplicateOf);
+                    return;
+                }
+                log.info("Flagging Kafka expense event for userId={} as possible duplicate of externalId={}",
+                        eventData.getUserId(), duplicateOf);
+                eventData.setDuplicateOf(duplicateOf);
+            }
+
+            // so the write makes this user's reads sticky to the primary, as it does for their own requests
+            ReadRoutingContext.setUser(eventData.getUserId());
+            Expense saved;
+            try {
+                saved = shardResolver.callForUser(eventData.getUserId(),
+                        () -> expenseService.createExpense(eventData));
+            } finally {
+                ReadRoutingContext.clear();
+            }
+            if (duplicateOf == null) {
+                duplicateDetector.record(eventData, saved.getExternalId());
+            }
             log.info("Successfully processed Kafka expense event for userId={}", eventData.getUserId());
         }catch(Exception ex){
             log.error("Failed to process Kafka expense event for userId={}: {}",
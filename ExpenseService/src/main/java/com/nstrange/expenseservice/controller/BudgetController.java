@@ -0,0 +1,45 @@
+package com.nstrange.expenseservice.controller;
+
+import com.nstrange.expenseservice.dto.BudgetDto;
+import com.nstrange.expenseservice.dto.BudgetRequestDto;
+import com.nstrange.expenseservice.service.BudgetService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/expense/v1")
+public class BudgetController
+{
+
+    private static final Logger log = LoggerFactory.getLogger(BudgetController.class);
+
+    private final BudgetService budgetService;
+
+    @Autowired
+    BudgetController(BudgetService budgetService){
+        this.budgetService = budgetService;
+    }
+
+    @GetMapping(path = "/getBudgets")
+    public ResponseEntity<List<BudgetDto>> getBudgets(
+            @RequestHeader("X-User-ID") String userId){
+
+        log.info("Fetching budgets for userId={}", userId);
+        return ResponseEntity.ok(budgetService.getBudgets(userId));
+    }
+
+    @PostMapping(path = "/setBudget")
+    public ResponseEntity<BudgetDto> setBudget(
+            @RequestHeader("X-User-ID") String userId,
+            @Valid @RequestBody BudgetRequestDto requestDto){
+
+        log.info("Setting budget for userId={}, category={}", userId, requestDto.getCategory());
+        return ResponseEntity.ok(budgetService.setBudget(userId, requestDto));
+    }
+}
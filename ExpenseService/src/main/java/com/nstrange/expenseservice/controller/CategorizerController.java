@@ -0,0 +1,39 @@
+package com.nstrange.expenseservice.controller;
+
+import com.nstrange.expenseservice.categorizer.RecategorizeJob;
+import com.nstrange.expenseservice.dto.RecategorizeStatusDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/expense/v1")
+public class CategorizerController
+{
+
+    private static final Logger log = LoggerFactory.getLogger(CategorizerController.class);
+
+    private final RecategorizeJob recategorizeJob;
+
+    @Autowired
+    CategorizerController(RecategorizeJob recategorizeJob){
+        this.recategorizeJob = recategorizeJob;
+    }
+
+    @PostMapping(path = "/recategorize")
+    public ResponseEntity<RecategorizeStatusDto> startRecategorize(){
+        boolean started = recategorizeJob.start();
+        log.info("Bulk re-categorization requested, started={}", started);
+        return ResponseEntity
+                .status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(recategorizeJob.status());
+    }
+
+    @GetMapping(path = "/recategorize")
+    public ResponseEntity<RecategorizeStatusDto> getRecategorizeStatus(){
+        return ResponseEntity.ok(recategorizeJob.status());
+    }
+}
@@ -0,0 +1,64 @@
+package com.nstrange.expenseservice.controller;
+
+import com.nstrange.expenseservice.dto.BaseCurrencyDto;
+import com.nstrange.expenseservice.dto.BaseSpendResultDto;
+import com.nstrange.expenseservice.fx.BaseCurrencyService;
+import com.nstrange.expenseservice.service.SpendQueryService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/expense/v1")
+public class CurrencyController
+{
+
+    private static final Logger log = LoggerFactory.getLogger(CurrencyController.class);
+
+    private final BaseCurrencyService baseCurrencyService;
+
+    private final SpendQueryService spendQueryService;
+
+    @Autowired
+    CurrencyController(BaseCurrencyService baseCurrencyService, SpendQueryService spendQueryService){
+        this.baseCurrencyService = baseCurrencyService;
+        this.spendQueryService = spendQueryService;
+    }
+
+    @GetMapping(path = "/getBaseCurrency")
+    public ResponseEntity<BaseCurrencyDto> getBaseCurrency(
+            @RequestHeader("X-User-ID") String userId){
+        return ResponseEntity.ok(BaseCurrencyDto.builder()
+                .baseCurrency(baseCurrencyService.baseCurrencyOf(userId))
+                .build());
+    }
+
+    @PostMapping(path = "/setBaseCurrency")
+    public ResponseEntity<BaseCurrencyDto> setBaseCurrency(
+            @RequestHeader("X-User-ID") String userId,
+            @Valid @RequestBody BaseCurrencyDto requestDto){
+
+        log.info("Setting base currency for userId={} to {}", userId, requestDto.getBaseCurrency());
+        return ResponseEntity.ok(BaseCurrencyDto.builder()
+                .baseCurrency(baseCurrencyService.setBaseCurrency(userId, requestDto.getBaseCurrency()))
+                .build());
+    }
+
+    @GetMapping(path = "/getBaseSpend")
+    public ResponseEntity<BaseSpendResultDto> getBaseSpend(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "fund_source", required = false) String fundSource,
+            @RequestParam(name = "group_by", required = false) String groupBy){
+
+        log.info("Computing base-currency spend for userId={}, from={}, to={}, groupBy={}", userId, from, to, groupBy);
+        return ResponseEntity.ok(spendQueryService.getBaseSpend(userId, from, to, fundSource, groupBy));
+    }
+}
@@ -1,19 +1,45 @@
 package com.nstrange.expenseservice.controller;
 
+import com.nstrange.expenseservice.dto.BulkCreateExpenseItemDto;
+import com.nstrange.expenseservice.dto.BulkCreateExpenseResponseDto;
+import com.nstrange.expenseservice.dto.BulkItemResultDto;
 import com.nstrange.expenseservice.dto.CreateExpenseRequestDto;
+import com.nstrange.expenseservice.dto.ExpenseChangesDto;
 import com.nstrange.expenseservice.dto.ExpenseDto;
+import com.nstrange.expenseservice.dto.ExpenseSearchResultDto;
+import com.nstrange.expenseservice.dto.ExpenseTombstoneDto;
+import com.nstrange.expenseservice.dto.MerchantSuggestionsDto;
+import com.nstrange.expenseservice.dto.ProjectedExpenses;
+import com.nstrange.expenseservice.dto.SpendQueryResultDto;
+import com.nstrange.expenseservice.dto.SpendSummaryDto;
 import com.nstrange.expenseservice.dto.UpdateExpenseDto;
 import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.feed.ExpenseFeed;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.model.BulkItemOutcome;
+import com.nstrange.expenseservice.model.ExpenseChanges;
+import com.nstrange.expenseservice.model.ExpenseField;
+import com.nstrange.expenseservice.search.ExpenseSearchIndex;
 import com.nstrange.expenseservice.service.ExpenseService;
+import com.nstrange.expenseservice.service.SpendQueryService;
+import com.nstrange.expenseservice.service.SpendRollupService;
+import com.nstrange.expenseservice.suggest.MerchantSuggester;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/expense/v1")
@@ -24,22 +50,37 @@ public class ExpenseController
 
     private final ExpenseService expenseService;
 
+    private final SpendRollupService spendRollupService;
+
+    private final SpendQueryService spendQueryService;
+
+    private final ExpenseSearchIndex expenseSearchIndex;
+
+    private final MerchantSuggester merchantSuggester;
+
+    private final ExpenseFeed expenseFeed;
+
     @Autowired
-    ExpenseController(ExpenseService expenseService){
+    ExpenseController(ExpenseService expenseService, SpendRollupService spendRollupService,
+                      SpendQueryService spendQueryService, ExpenseSearchIndex expenseSearchIndex,
+                      MerchantSuggester merchantSuggester, ExpenseFeed expenseFeed){
         this.expenseService = expenseService;
+        this.spendRollupService = spendRollupService;
+        this.spendQueryService = spendQueryService;
+        this.expenseSearchIndex = expenseSearchIndex;
+        this.merchantSuggester = merchantSuggester;
+        this.expenseFeed = expenseFeed;
     }
 
     @GetMapping(path = "/getExpense")
-    public ResponseEntity<List<ExpenseDto>> getExpense(
-            @RequestHeader("X-User-ID") String userId){
-
-        log.info("Fetching expenses for userId={}", userId);
-        List<Expense> expenses = expenseService.getExpenses(userId);
+    public ResponseEntity<ProjectedExpenses> getExpense(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
 
-        List<ExpenseDto> response =
-                expenses.stream()
-                        .map(this::mapToDto)
-                        .toList();
+        log.info("Fetching expenses for userId={}, fields={}, from={}, to={}", userId, fields, from, to);
+        ProjectedExpenses response = expenseService.getExpenseProjection(userId, ExpenseField.parse(fields), from, to);
 
         log.info("Returning {} expenses for userId={}", response.size(), userId);
         return ResponseEntity.ok(response);
@@ -57,21 +98,152 @@ public class ExpenseController
                 createdExpense.getExternalId(), userId);
         return ResponseEntity
                 .status(HttpStatus.CREATED)
+                .eTag(eTagOf(createdExpense))
                 .body(mapToDto(createdExpense));
     }
 
+    @PostMapping(path="/addExpenses")
+    public ResponseEntity<BulkCreateExpenseResponseDto> addExpenses(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestBody List<BulkCreateExpenseItemDto> requestDtos){
+
+        log.info("Bulk creating {} expenses for userId={}", requestDtos.size(), userId);
+        List<BulkItemOutcome> outcomes = expenseService.createExpenses(requestDtos, userId);
+
+        int created = 0;
+        int duplicates = 0;
+        int invalid = 0;
+        List<BulkItemResultDto> results = new ArrayList<>(outcomes.size());
+        for (BulkItemOutcome outcome : outcomes) {
+            switch (outcome.getStatus()) {
+                case CREATED -> created++;
+                case DUPLICATE -> duplicates++;
+                case INVALID -> invalid++;
+            }
+            results.add(BulkItemResultDto.builder()
+                    .index(outcome.getIndex())
+                    .idempotencyKey(outcome.getIdempotencyKey())
+                    .status(outcome.getStatus())
+                    .expense(Objects.nonNull(outcome.getExpense()) ? mapToDto(outcome.getExpense()) : null)
+                    .errors(outcome.getErrors())
+                    .build());
+        }
+
+        log.info("Bulk create finished for userId={}: created={}, duplicates={}, invalid={}",
+                userId, created, duplicates, invalid);
+        return ResponseEntity.ok(BulkCreateExpenseResponseDto.builder()
+                .created(created)
+                .duplicates(duplicates)
+                .invalid(invalid)
+                .results(results)
+                .build());
+    }
+
     @PostMapping(path="/updateExpense")
     public ResponseEntity<ExpenseDto> updateExpense(
+            @RequestHeader("X-User-ID") String userId,
             @RequestHeader("X-External-ID") String expenseId,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody UpdateExpenseDto requestDto
             ) {
-        log.info("Updating expense with expenseId={}", expenseId);
-        Expense updatedExpense = expenseService.updateExpense(requestDto, expenseId);
+        log.info("Updating expense with expenseId={} for userId={}, ifMatch={}", expenseId, userId, ifMatch);
+        Expense updatedExpense = expenseService.updateExpense(requestDto, expenseId, userId, parseIfMatch(ifMatch));
         return ResponseEntity
                 .status(HttpStatus.OK)
+                .eTag(eTagOf(updatedExpense))
                 .body(mapToDto(updatedExpense));
     }
 
+    @DeleteMapping(path = "/deleteExpense")
+    public ResponseEntity<Void> deleteExpense(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestHeader("X-External-ID") String expenseId){
+        log.info("Deleting expense with expenseId={} for userId={}", expenseId, userId);
+        expenseService.deleteExpense(expenseId, userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping(path = "/getChanges")
+    public ResponseEntity<ExpenseChangesDto> getChanges(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "since", required = false) String since,
+            @RequestParam(name = "limit", required = false) Integer limit){
+
+        log.info("Fetching changes for userId={}", userId);
+        ExpenseChanges changes = expenseService.getChanges(userId, since, limit);
+
+        List<ExpenseDto> upserted = new ArrayList<>();
+        List<ExpenseTombstoneDto> deleted = new ArrayList<>();
+        for (Expense expense : changes.getExpenses()) {
+            if (Objects.nonNull(expense.getDeletedAt())) {
+                deleted.add(ExpenseTombstoneDto.builder()
+                        .externalId(expense.getExternalId())
+                        .deletedAt(expense.getDeletedAt())
+                        .build());
+            } else {
+                upserted.add(mapToDto(expense));
+            }
+        }
+        return ResponseEntity.ok(ExpenseChangesDto.builder()
+                .upserted(upserted)
+                .deleted(deleted)
+                .cursor(changes.getCursor().encode())
+                .hasMore(changes.isHasMore())
+                .build());
+    }
+
+    @GetMapping(path = "/streamExpenses", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamExpenses(@RequestHeader("X-User-ID") String userId){
+
+        log.info("Opening expense feed for userId={}", userId);
+        return expenseFeed.subscribe(userId);
+    }
+
+    @GetMapping(path = "/getSummary")
+    public ResponseEntity<SpendSummaryDto> getSummary(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "granularity", required = false) String granularity,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+
+        log.info("Fetching spend summary for userId={}, granularity={}", userId, granularity);
+        return ResponseEntity.ok(spendRollupService.getSummary(userId, granularity, from, to));
+    }
+
+    @GetMapping(path = "/getSpend")
+    public ResponseEntity<SpendQueryResultDto> getSpend(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "fund_source", required = false) String fundSource,
+            @RequestParam(name = "group_by", required = false) String groupBy){
+
+        log.info("Computing spend for userId={}, from={}, to={}, groupBy={}", userId, from, to, groupBy);
+        return ResponseEntity.ok(spendQueryService.getSpend(userId, from, to, fundSource, groupBy));
+    }
+
+    @GetMapping(path = "/search")
+    public ResponseEntity<ExpenseSearchResultDto> search(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "q") String query,
+            @RequestParam(name = "page", required = false) Integer page,
+            @RequestParam(name = "size", required = false) Integer size){
+
+        log.info("Searching expenses for userId={}, page={}, size={}", userId, page, size);
+        return ResponseEntity.ok(expenseSearchIndex.search(userId, query, page, size));
+    }
+
+    @GetMapping(path = "/suggestMerchants")
+    public ResponseEntity<MerchantSuggestionsDto> suggestMerchants(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "prefix", required = false) String prefix,
+            @RequestParam(name = "limit", required = false) Integer limit){
+
+        // called on every keystroke, so stay quiet at info
+        log.debug("Suggesting merchants for userId={}, limit={}", userId, limit);
+        return ResponseEntity.ok(merchantSuggester.suggest(userId, prefix, limit));
+    }
+
     private ExpenseDto mapToDto(Expense expense) {
         return ExpenseDto.builder()
                 .externalId(expense.getExternalId())
@@ -79,10 +251,38 @@ public class ExpenseController
                 .userId(expense.getUserId())
                 .merchant(expense.getMerchant())
                 .currency(expense.getCurrency())
+                .baseAmount(expense.getBaseAmount())
+                .baseCurrency(expense.getBaseCurrency())
                 .createdAt(expense.getCreatedAt())
                 .fundSource(expense.getFundSource())
                 .category(expense.getCategory())
                 .notes(expense.getNotes())
+                .duplicateOf(expense.getDuplicateOf())
+                .updatedAt(expense.getUpdatedAt())
+                .version(expense.getVersion())
                 .build();
     }
+
+    private static String eTagOf(Expense expense) {
+        return "\"" + expense.getVersion() + "\"";
+    }
+
+    /**
+     * @return the version named by an {@code If-Match} header, or {@code null} when absent or {@code *}
+     */
+    private static Long parseIfMatch(String ifMatch) {
+        if (Objects.isNull(ifMatch) || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        tag = tag.replace("\"", "");
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException ex) {
+            throw new InvalidExpenseRequestException("If-Match must be an ETag returned by this service");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.nstrange.expenseservice.controller;
+
+import com.nstrange.expenseservice.dto.ExpenseScheduleDto;
+import com.nstrange.expenseservice.dto.ExpenseScheduleRequestDto;
+import com.nstrange.expenseservice.recurring.ExpenseScheduleService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/expense/v1")
+public class ExpenseScheduleController
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseScheduleController.class);
+
+    private final ExpenseScheduleService scheduleService;
+
+    @Autowired
+    ExpenseScheduleController(ExpenseScheduleService scheduleService){
+        this.scheduleService = scheduleService;
+    }
+
+    @PostMapping(path = "/addSchedule")
+    public ResponseEntity<ExpenseScheduleDto> addSchedule(
+            @RequestHeader("X-User-ID") String userId,
+            @Valid @RequestBody ExpenseScheduleRequestDto requestDto){
+
+        log.info("Adding expense schedule for userId={}, cadence={}", userId, requestDto.getCadence());
+        return ResponseEntity.ok(scheduleService.addSchedule(userId, requestDto));
+    }
+
+    @GetMapping(path = "/getSchedules")
+    public ResponseEntity<List<ExpenseScheduleDto>> getSchedules(
+            @RequestHeader("X-User-ID") String userId){
+        return ResponseEntity.ok(scheduleService.getSchedules(userId));
+    }
+
+    @DeleteMapping(path = "/deleteSchedule")
+    public ResponseEntity<Void> deleteSchedule(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "schedule_id") Long scheduleId){
+
+        log.info("Deleting expense schedule {} for userId={}", scheduleId, userId);
+        scheduleService.deleteSchedule(userId, scheduleId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.nstrange.expenseservice.controller;
+
+import com.nstrange.expenseservice.dto.ImportJobStatusDto;
+import com.nstrange.expenseservice.importer.StatementImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/expense/v1")
+public class ImportController
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ImportController.class);
+
+    private final StatementImportService statementImportService;
+
+    @Autowired
+    ImportController(StatementImportService statementImportService){
+        this.statementImportService = statementImportService;
+    }
+
+    @PostMapping(path = "/importStatement", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobStatusDto> importStatement(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(name = "date_format", required = false) String dateFormat,
+            @RequestParam(name = "currency", required = false) String currency,
+            @RequestParam(name = "fund_source", required = false) String fundSource){
+
+        log.info("Statement import requested by userId={}, file={}", userId, file.getOriginalFilename());
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(statementImportService.submit(userId, file, dateFormat, currency, fundSource));
+    }
+
+    @GetMapping(path = "/importStatus")
+    public ResponseEntity<ImportJobStatusDto> getImportStatus(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "job_id") String jobId){
+        return ResponseEntity.ok(statementImportService.status(userId, jobId));
+    }
+}
@@ -0,0 +1,146 @@
+package com.nstrange.expenseservice.controller;
+
+import com.nstrange.expenseservice.dto.ReceiptDto;
+import com.nstrange.expenseservice.receipt.ReceiptService;
+import jakarta.servlet.ServletResponseWrapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+@RestController
+@RequestMapping("/expense/v1")
+public class ReceiptController
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptController.class);
+
+    // Tomcat's NIO connector advertises sendfile on the request and serves the file itself once the
+    // servlet returns, straight from the page cache to the socket
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ReceiptService receiptService;
+
+    @Autowired
+    ReceiptController(ReceiptService receiptService){
+        this.receiptService = receiptService;
+    }
+
+    /**
+     * The body is the raw file, read straight from the request stream rather than parsed as multipart,
+     * so nothing is spooled or buffered before the store hashes it.
+     */
+    @PutMapping(path = "/uploadReceipt")
+    public ResponseEntity<ReceiptDto> uploadReceipt(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestHeader("X-External-ID") String expenseId,
+            HttpServletRequest request) throws IOException {
+
+        log.info("Receipt upload requested by userId={} for expenseId={}, contentLength={}",
+                userId, expenseId, request.getContentLengthLong());
+        return ResponseEntity.ok(receiptService.upload(userId, expenseId, request.getInputStream()));
+    }
+
+    @GetMapping(path = "/getReceipt")
+    public void getReceipt(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestHeader("X-External-ID") String expenseId,
+            @RequestParam(name = "thumbnail", required = false, defaultValue = "false") boolean thumbnail,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        ReceiptService.ReceiptFile file = receiptService.find(userId, expenseId, thumbnail);
+        long length = file.sizeBytes();
+
+        response.setHeader(HttpHeaders.ETAG, file.etag());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // content-addressed, so a given ETag always names the same bytes
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=86400");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
+
+        if (file.etag().equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // a stale If-Range means the client's partial copy is of other bytes, so it gets the whole file
+        if (Objects.nonNull(rangeHeader) && (Objects.isNull(ifRange) || file.etag().equals(ifRange))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                }
+            } catch (IllegalArgumentException ex) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            // several ranges would need a multipart body; receipts are small enough to send whole instead
+            if (ranges.size() == 1) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(file.mediaType());
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)) && !(response instanceof ServletResponseWrapper)) {
+            request.setAttribute(SENDFILE_FILENAME, file.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        // without sendfile, transferTo still moves the bytes inside the kernel where the output allows it
+        // and otherwise through a small copy buffer, never the whole file on the heap
+        try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    @DeleteMapping(path = "/deleteReceipt")
+    public ResponseEntity<Void> deleteReceipt(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestHeader("X-External-ID") String expenseId){
+        receiptService.delete(userId, expenseId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.nstrange.expenseservice.controller;
+
+import com.nstrange.expenseservice.dto.RecurrenceDetectionStatusDto;
+import com.nstrange.expenseservice.dto.RecurringExpenseDto;
+import com.nstrange.expenseservice.recurring.DetectedRecurrenceService;
+import com.nstrange.expenseservice.recurring.RecurrenceDetectionJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/expense/v1")
+public class RecurrenceController
+{
+
+    private static final Logger log = LoggerFactory.getLogger(RecurrenceController.class);
+
+    private final RecurrenceDetectionJob detectionJob;
+
+    private final DetectedRecurrenceService recurrenceService;
+
+    @Autowired
+    RecurrenceController(RecurrenceDetectionJob detectionJob, DetectedRecurrenceService recurrenceService){
+        this.detectionJob = detectionJob;
+        this.recurrenceService = recurrenceService;
+    }
+
+    @PostMapping(path = "/recurring/detect")
+    public ResponseEntity<RecurrenceDetectionStatusDto> startDetection(){
+        boolean started = detectionJob.start();
+        log.info("Recurrence detection requested, started={}", started);
+        return ResponseEntity
+                .status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(detectionJob.status());
+    }
+
+    @GetMapping(path = "/recurring/detect")
+    public ResponseEntity<RecurrenceDetectionStatusDto> getDetectionStatus(){
+        return ResponseEntity.ok(detectionJob.status());
+    }
+
+    @GetMapping(path = "/getRecurring")
+    public ResponseEntity<List<RecurringExpenseDto>> getRecurring(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "active_only", required = false, defaultValue = "false") boolean activeOnly){
+        return ResponseEntity.ok(recurrenceService.getRecurring(userId, activeOnly));
+    }
+}
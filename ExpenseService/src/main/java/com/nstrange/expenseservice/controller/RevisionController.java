@@ -0,0 +1,30 @@
+package com.nstrange.expenseservice.controller;
+
+import com.nstrange.expenseservice.dto.ExpenseRevisionDto;
+import com.nstrange.expenseservice.revision.RevisionLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/expense/v1")
+public class RevisionController
+{
+
+    private final RevisionLog revisionLog;
+
+    @Autowired
+    RevisionController(RevisionLog revisionLog){
+        this.revisionLog = revisionLog;
+    }
+
+    @GetMapping(path = "/getExpenseHistory")
+    public ResponseEntity<List<ExpenseRevisionDto>> getExpenseHistory(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestHeader("X-External-ID") String expenseId,
+            @RequestParam(name = "limit", required = false) Integer limit){
+        return ResponseEntity.ok(revisionLog.getHistory(userId, expenseId, limit));
+    }
+}
@@ -0,0 +1,71 @@
+package com.nstrange.expenseservice.controller;
+
+import com.nstrange.expenseservice.dto.ReshardStatusDto;
+import com.nstrange.expenseservice.dto.ShardStatsDto;
+import com.nstrange.expenseservice.dto.UserMoveResultDto;
+import com.nstrange.expenseservice.dto.UserShardDto;
+import com.nstrange.expenseservice.sharding.ShardAdminService;
+import com.nstrange.expenseservice.sharding.UserShardMover;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/expense/v1/admin")
+public class ShardAdminController
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ShardAdminController.class);
+
+    private final ShardAdminService shardAdminService;
+
+    private final UserShardMover userShardMover;
+
+    @Autowired
+    ShardAdminController(ShardAdminService shardAdminService, UserShardMover userShardMover){
+        this.shardAdminService = shardAdminService;
+        this.userShardMover = userShardMover;
+    }
+
+    @GetMapping(path = "/shards")
+    public ResponseEntity<List<ShardStatsDto>> getShards(){
+        return ResponseEntity.ok(shardAdminService.shardStats());
+    }
+
+    @GetMapping(path = "/userShard")
+    public ResponseEntity<UserShardDto> getUserShard(
+            @RequestParam(name = "user_id") String userId){
+        return ResponseEntity.ok(shardAdminService.userShard(userId));
+    }
+
+    @PostMapping(path = "/moveUser")
+    public ResponseEntity<UserMoveResultDto> moveUser(
+            @RequestParam(name = "user_id") String userId,
+            @RequestParam(name = "target") String target){
+
+        log.info("Moving userId={} to shard {}", userId, target);
+        UserMoveResultDto result = userShardMover.move(userId, target);
+        return ResponseEntity
+                .status(result.getStatus() == UserMoveResultDto.Status.FAILED ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.OK)
+                .body(result);
+    }
+
+    @PostMapping(path = "/reshard")
+    public ResponseEntity<ReshardStatusDto> startReshard(){
+        boolean started = userShardMover.startReshard();
+        log.info("Resharding requested, started={}", started);
+        return ResponseEntity
+                .status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(userShardMover.reshardStatus());
+    }
+
+    @GetMapping(path = "/reshard")
+    public ResponseEntity<ReshardStatusDto> getReshardStatus(){
+        return ResponseEntity.ok(userShardMover.reshardStatus());
+    }
+}
@@ -0,0 +1,69 @@
+package com.nstrange.expenseservice.controller;
+
+import com.nstrange.expenseservice.dto.StatementJobStatusDto;
+import com.nstrange.expenseservice.report.MonthlyStatementService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/expense/v1")
+public class StatementController
+{
+
+    private static final Logger log = LoggerFactory.getLogger(StatementController.class);
+
+    private final MonthlyStatementService statementService;
+
+    @Autowired
+    StatementController(MonthlyStatementService statementService){
+        this.statementService = statementService;
+    }
+
+    @PostMapping(path = "/requestStatement")
+    public ResponseEntity<StatementJobStatusDto> requestStatement(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "month") String month,
+            @RequestParam(name = "format", required = false, defaultValue = "csv") String format){
+
+        log.info("Statement requested by userId={}, month={}, format={}", userId, month, format);
+        StatementJobStatusDto status = statementService.request(userId, month, format);
+        return ResponseEntity
+                .status(status.isCached() ? HttpStatus.OK : HttpStatus.ACCEPTED)
+                .body(status);
+    }
+
+    @GetMapping(path = "/statementStatus")
+    public ResponseEntity<StatementJobStatusDto> getStatementStatus(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "job_id") String jobId){
+        return ResponseEntity.ok(statementService.status(userId, jobId));
+    }
+
+    /**
+     * Range and {@code If-None-Match} requests are answered by Spring from the resource and the ETag.
+     */
+    @GetMapping(path = "/downloadStatement")
+    public ResponseEntity<Resource> downloadStatement(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(name = "month") String month,
+            @RequestParam(name = "format", required = false, defaultValue = "csv") String format){
+
+        MonthlyStatementService.StatementFile file = statementService.find(userId, month, format);
+        return ResponseEntity.ok()
+                .eTag(file.version())
+                .contentType(MediaType.parseMediaType(file.mediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(file.fileName()).build().toString())
+                .header(HttpHeaders.CACHE_CONTROL, "private, no-cache")
+                .body(new FileSystemResource(file.path()));
+    }
+}
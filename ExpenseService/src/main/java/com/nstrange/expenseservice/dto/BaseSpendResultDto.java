@@ -0,0 +1,46 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BaseSpendResultDto {
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    private String fundSource;
+
+    private String groupBy;
+
+    private String baseCurrency;
+
+    /** Version and date of the rate table used for amounts converted on read. */
+    private long fxVersion;
+
+    private LocalDate fxAsOf;
+
+    private BigDecimal total;
+
+    private long count;
+
+    private List<SpendBucketDto> groups;
+
+    /** Spend in currencies with no rate, keyed by currency and left out of {@code total}. */
+    private List<SpendBucketDto> unconverted;
+}
@@ -0,0 +1,31 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Getter
+@Setter
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class BudgetRequestDto {
+
+    /** Category to budget; omit for an overall monthly budget. */
+    private String category;
+
+    @NotNull(message = "Monthly limit is required")
+    @Positive(message = "Monthly limit must be positive")
+    private BigDecimal monthlyLimit;
+
+    @Size(max = 5, message = "At most 5 alert thresholds are allowed")
+    private List<@NotNull @Min(value = 1, message = "Threshold must be at least 1%")
+            @Max(value = 1000, message = "Threshold must be at most 1000%") Integer> alertThresholds;
+}
@@ -0,0 +1,23 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+@Getter
+@Setter
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class BulkCreateExpenseItemDto extends CreateExpenseRequestDto {
+
+    @NotBlank(message = "Idempotency key is required")
+    @Size(max = 64, message = "Idempotency key must be at most 64 characters")
+    private String idempotencyKey;
+
+    /** When the expense happened on the device; defaults to the time of the sync. */
+    private Timestamp createdAt;
+}
@@ -0,0 +1,26 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class BulkCreateExpenseResponseDto {
+
+    private int created;
+
+    private int duplicates;
+
+    private int invalid;
+
+    private List<BulkItemResultDto> results;
+}
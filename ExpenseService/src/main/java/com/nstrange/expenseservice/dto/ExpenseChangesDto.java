@@ -0,0 +1,26 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class ExpenseChangesDto {
+
+    private List<ExpenseDto> upserted;
+
+    private List<ExpenseTombstoneDto> deleted;
+
+    private String cursor;
+
+    private boolean hasMore;
+}
@@ -35,6 +35,12 @@ public class ExpenseDto
     @JsonProperty(value = "currency")
     private String currency;
 
+    @JsonProperty(value = "base_amount")
+    private BigDecimal baseAmount;
+
+    @JsonProperty(value = "base_currency")
+    private String baseCurrency;
+
     @JsonProperty(value = "created_at")
     private Timestamp createdAt;
 
@@ -46,4 +52,13 @@ public class ExpenseDto
 
     @JsonProperty(value = "fund_source")
     private String fundSource;
+
+    @JsonProperty(value = "duplicate_of")
+    private String duplicateOf;
+
+    @JsonProperty(value = "updated_at")
+    private Timestamp updatedAt;
+
+    @JsonProperty(value = "version")
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * One recorded state of an expense, as it was right after the change in {@code changeType}.
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExpenseRevisionDto {
+
+    private String changeType;
+
+    private Long version;
+
+    private Timestamp changedAt;
+
+    private BigDecimal amount;
+
+    private String merchant;
+
+    private String currency;
+
+    private String notes;
+
+    private String category;
+
+    private String fundSource;
+
+    private Timestamp createdAt;
+}
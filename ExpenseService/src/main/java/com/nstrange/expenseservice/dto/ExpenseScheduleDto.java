@@ -0,0 +1,47 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExpenseScheduleDto {
+
+    private Long scheduleId;
+
+    private BigDecimal amount;
+
+    private String merchant;
+
+    private String currency;
+
+    private String notes;
+
+    private String category;
+
+    private String fundSource;
+
+    private String cadence;
+
+    private LocalDate startOn;
+
+    private LocalDate endOn;
+
+    private long firedCount;
+
+    /** Absent once the schedule has ended. */
+    private Timestamp nextRunAt;
+}
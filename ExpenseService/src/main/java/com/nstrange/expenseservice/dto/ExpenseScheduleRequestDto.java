@@ -0,0 +1,25 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class ExpenseScheduleRequestDto extends CreateExpenseRequestDto {
+
+    /** {@code WEEKLY}, {@code BIWEEKLY}, {@code MONTHLY}, {@code QUARTERLY} or {@code YEARLY}. */
+    @NotBlank(message = "Cadence is required")
+    private String cadence;
+
+    /** Day of the first occurrence; defaults to today (UTC). Later occurrences keep its day of month. */
+    private LocalDate startOn;
+
+    /** Last day an occurrence may fall on; omit to repeat until deleted. */
+    private LocalDate endOn;
+}
@@ -0,0 +1,30 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class ExpenseSearchResultDto {
+
+    private String query;
+
+    private int page;
+
+    private int size;
+
+    private long totalHits;
+
+    private boolean hasMore;
+
+    private List<ExpenseSearchHitDto> hits;
+}
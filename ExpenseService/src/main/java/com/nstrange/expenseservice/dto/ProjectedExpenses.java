@@ -0,0 +1,27 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.nstrange.expenseservice.model.ExpenseField;
+import com.nstrange.expenseservice.model.ProjectedExpense;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Expenses as projected rows; serialized as a JSON array of objects holding only {@code fields}, in
+ * the same shape as {@link ExpenseDto}.
+ */
+@Getter
+@AllArgsConstructor
+@JsonSerialize(using = ProjectedExpensesSerializer.class)
+public class ProjectedExpenses {
+
+    private final List<ExpenseField> fields;
+
+    private final List<ProjectedExpense> rows;
+
+    public int size() {
+        return rows.size();
+    }
+}
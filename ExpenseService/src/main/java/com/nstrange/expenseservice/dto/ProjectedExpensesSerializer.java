@@ -0,0 +1,35 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.nstrange.expenseservice.model.ExpenseField;
+import com.nstrange.expenseservice.model.ProjectedExpense;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes projected rows straight to the generator, without an intermediate DTO or map per row.
+ * Values go through the provider so timestamps and decimals render exactly as they do for {@link ExpenseDto}.
+ */
+public class ProjectedExpensesSerializer extends StdSerializer<ProjectedExpenses> {
+
+    public ProjectedExpensesSerializer() {
+        super(ProjectedExpenses.class);
+    }
+
+    @Override
+    public void serialize(ProjectedExpenses value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        List<ExpenseField> fields = value.getFields();
+        gen.writeStartArray(value, value.size());
+        for (ProjectedExpense row : value.getRows()) {
+            gen.writeStartObject();
+            for (ExpenseField field : fields) {
+                provider.defaultSerializeField(field.getJsonName(), row.get(field), gen);
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+}
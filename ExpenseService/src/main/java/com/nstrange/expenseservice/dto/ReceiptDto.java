@@ -0,0 +1,31 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class ReceiptDto {
+
+    private String externalId;
+
+    private String sha256;
+
+    private String contentType;
+
+    private long sizeBytes;
+
+    private Timestamp uploadedAt;
+
+    /** False until the background thumbnailer has run, and always for PDFs. */
+    private boolean thumbnailAvailable;
+}
@@ -0,0 +1,44 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RecurringExpenseDto {
+
+    private String merchant;
+
+    private String currency;
+
+    private BigDecimal typicalAmount;
+
+    private String cadence;
+
+    private int occurrences;
+
+    private double confidence;
+
+    private LocalDate firstSeenOn;
+
+    private LocalDate lastSeenOn;
+
+    private LocalDate nextExpectedOn;
+
+    private boolean active;
+
+    private Timestamp detectedAt;
+}
@@ -0,0 +1,38 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReshardStatusDto {
+
+    private boolean running;
+
+    private String shard;
+
+    private long scanned;
+
+    private long moved;
+
+    private long skipped;
+
+    private long failed;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    private String error;
+}
@@ -0,0 +1,36 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class SpendSummaryDto {
+
+    private String granularity;
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    /** One entry per currency; amounts in different currencies are not added together. */
+    private List<SpendBucketDto> totals;
+
+    private long count;
+
+    private List<SpendBucketDto> series;
+
+    private List<SpendBucketDto> byCategory;
+
+    private List<SpendBucketDto> byMerchant;
+}
@@ -0,0 +1,36 @@
+package com.nstrange.expenseservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserMoveResultDto {
+
+    public enum Status {
+        MOVED,
+        SKIPPED,
+        FAILED
+    }
+
+    private String userId;
+
+    private String fromShard;
+
+    private String toShard;
+
+    private Status status;
+
+    private long rowsCopied;
+
+    private String message;
+}
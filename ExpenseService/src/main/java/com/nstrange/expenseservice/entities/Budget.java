@@ -0,0 +1,53 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "budget",
+        uniqueConstraints = @UniqueConstraint(name = "uk_budget_scope", columnNames = {"user_id", "scope"}))
+public class Budget
+{
+
+    public static final String OVERALL_SCOPE = "*";
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    /** Category the budget applies to, or {@link #OVERALL_SCOPE} for the user's total monthly spend. */
+    @Column(name = "scope", nullable = false)
+    private String scope;
+
+    /** In the user's base currency; expenses count with their base amounts. */
+    @Column(name = "monthly_limit", nullable = false)
+    private BigDecimal monthlyLimit;
+
+    /** Comma-separated percentages of the limit that raise an alert, e.g. {@code 80,100}. */
+    @Column(name = "alert_thresholds", nullable = false)
+    private String alertThresholds;
+
+    @Column(name = "updated_at")
+    private Timestamp updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    private void touch() {
+        updatedAt = Timestamp.from(Instant.now());
+    }
+}
@@ -0,0 +1,51 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "budget_spend_checkpoint",
+        uniqueConstraints = @UniqueConstraint(name = "uk_budget_checkpoint_key",
+                columnNames = {"user_id", "bucket_month", "scope"}))
+public class BudgetSpendCheckpoint
+{
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "bucket_month", nullable = false)
+    private LocalDate month;
+
+    @Column(name = "scope", nullable = false)
+    private String scope;
+
+    /** Base currency {@link #totalMinor} is in; {@code null} on rows written before totals were kept here. */
+    @Column(name = "currency", length = 8)
+    private String currency;
+
+    /** Month-to-date spend in hundredths, as last flushed by any instance. */
+    @Column(name = "total_minor", nullable = false)
+    private long totalMinor;
+
+    /** Highest threshold alerted this month, by whichever instance claimed it first. */
+    @Column(name = "alerted_percent", nullable = false)
+    private int alertedPercent;
+
+    @Column(name = "checkpointed_at", nullable = false)
+    private Timestamp checkpointedAt;
+}
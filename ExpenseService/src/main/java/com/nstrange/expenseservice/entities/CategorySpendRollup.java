@@ -0,0 +1,45 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "expense_category_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_category_rollup_bucket",
+                columnNames = {"user_id", "bucket_month", "category", "currency"}))
+public class CategorySpendRollup
+{
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "bucket_month", nullable = false)
+    private LocalDate month;
+
+    @Column(name = "category", nullable = false)
+    private String category;
+
+    @Column(name = "currency", nullable = false, length = 8)
+    private String currency;
+
+    @Column(name = "total_amount", nullable = false)
+    private BigDecimal totalAmount;
+
+    @Column(name = "expense_count", nullable = false)
+    private long expenseCount;
+}
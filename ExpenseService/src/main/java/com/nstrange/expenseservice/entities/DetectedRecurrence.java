@@ -0,0 +1,71 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * A periodic payment found in a user's history by the recurrence detection job. A user's rows are
+ * replaced as a whole on every run.
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "detected_recurrence",
+        indexes = @Index(name = "idx_detected_recurrence_user", columnList = "user_id"))
+public class DetectedRecurrence
+{
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    /** Merchant as last spelled by the user. */
+    @Column(name = "merchant", nullable = false)
+    private String merchant;
+
+    @Column(name = "currency", length = 16)
+    private String currency;
+
+    /** Median amount of the matched payments. */
+    @Column(name = "typical_amount", nullable = false)
+    private BigDecimal typicalAmount;
+
+    @Column(name = "cadence", nullable = false, length = 16)
+    private String cadence;
+
+    @Column(name = "occurrences", nullable = false)
+    private int occurrences;
+
+    /** Share of gaps between payments that matched the cadence, 0 to 1. */
+    @Column(name = "confidence", nullable = false)
+    private double confidence;
+
+    @Column(name = "first_seen_on", nullable = false)
+    private LocalDate firstSeenOn;
+
+    @Column(name = "last_seen_on", nullable = false)
+    private LocalDate lastSeenOn;
+
+    @Column(name = "next_expected_on", nullable = false)
+    private LocalDate nextExpectedOn;
+
+    /** False once two expected payments in a row have not shown up. */
+    @Column(name = "active", nullable = false)
+    private boolean active;
+
+    @Column(name = "detected_at", nullable = false)
+    private Timestamp detectedAt;
+}
@@ -2,16 +2,18 @@ package com.nstrange.expenseservice.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.nstrange.expenseservice.ids.UuidV7;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.time.Instant;
-import java.util.UUID;
 
 @Entity
 @Setter
@@ -19,6 +21,14 @@ import java.util.UUID;
 @AllArgsConstructor
 @NoArgsConstructor
 @JsonIgnoreProperties(ignoreUnknown = true)
+@DynamicUpdate
+@Table(name = "expense",
+        indexes = {
+                @Index(name = "idx_expense_external_id", columnList = "external_id"),
+                @Index(name = "idx_expense_user_updated_at", columnList = "user_id, updated_at"),
+                @Index(name = "idx_expense_user_created_at", columnList = "user_id, created_at"),
+                @Index(name = "idx_expense_updated_at", columnList = "updated_at")
+        })
 public class Expense
 {
 
@@ -27,7 +37,9 @@ public class Expense
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "external_id")
+    /** Public id: a time-ordered UUIDv7, stored as BINARY(16). Legacy rows keep their v4 values. */
+    @Convert(converter = UuidBinaryConverter.class)
+    @Column(name = "external_id", columnDefinition = "BINARY(16)")
     private String externalId;
 
     @Column(name = "user_id")
@@ -42,6 +54,20 @@ public class Expense
     @Column(name = "currency")
     private String currency;
 
+    /** {@code amount} in the owner's base currency at the rates current when it was written; null if no rate was known. */
+    @JsonProperty("base_amount")
+    @Column(name = "base_amount")
+    private BigDecimal baseAmount;
+
+    @JsonProperty("base_currency")
+    @Column(name = "base_currency", length = 3)
+    private String baseCurrency;
+
+    /** Version of the FX rate table {@code base_amount} was converted with. */
+    @JsonProperty("fx_rate_version")
+    @Column(name = "fx_rate_version")
+    private Long fxRateVersion;
+
     @Column(name = "notes")
     private String notes;
 
@@ -52,12 +78,51 @@ public class Expense
     @Column(name = "fund_source")
     private String fundSource;
 
+    /** Partitioning column: the table is range-partitioned by month of {@code created_at}. */
     @JsonProperty(value = "created_at")
+    @Column(name = "created_at", nullable = false)
     private Timestamp createdAt;
 
+    /** External id of the expense this one was flagged as a near-duplicate of on ingest. */
+    @JsonProperty("duplicate_of")
+    @Column(name = "duplicate_of")
+    private String duplicateOf;
+
+    /** Client-supplied key that makes bulk creates safe to retry; uniqueness lives in {@link ExpenseIdempotencyKey}. */
+    @JsonProperty("idempotency_key")
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey;
+
+    /** Last write time; the delta-sync cursor orders by (updated_at, id). */
+    @JsonProperty("updated_at")
+    @Column(name = "updated_at")
+    private Timestamp updatedAt;
+
+    /** Set instead of deleting the row, so sync clients can be told about the delete. */
+    @JsonProperty("deleted_at")
+    @Column(name = "deleted_at")
+    private Timestamp deletedAt;
+
+    /** Optimistic-lock version, exposed to clients as the ETag for {@code If-Match}. */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public static String newExternalId() {
+        return UuidV7.next().toString();
+    }
+
     @PrePersist
     private void prePersist() {
-        if (this.externalId == null) this.externalId = UUID.randomUUID().toString();
+        if (this.externalId == null) this.externalId = newExternalId();
         if (createdAt == null) createdAt = Timestamp.from(Instant.now());
+        // millisecond precision, so a sync cursor (which carries millis) compares exactly against the column
+        if (updatedAt == null) updatedAt = new Timestamp(System.currentTimeMillis());
+    }
+
+    @PreUpdate
+    private void preUpdate() {
+        updatedAt = new Timestamp(System.currentTimeMillis());
     }
 }
\ No newline at end of file
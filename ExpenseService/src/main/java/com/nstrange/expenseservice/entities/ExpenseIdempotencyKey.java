@@ -0,0 +1,37 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Enforces one expense per (user, idempotency key). This cannot be a unique key on {@code expense}
+ * itself: a partitioned MySQL table only accepts unique keys that contain the partitioning column.
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "expense_idempotency_key",
+        uniqueConstraints = @UniqueConstraint(name = "uk_expense_idempotency_key",
+                columnNames = {"user_id", "idempotency_key"}))
+public class ExpenseIdempotencyKey
+{
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String idempotencyKey;
+
+    @Column(name = "expense_id", nullable = false)
+    private Long expenseId;
+}
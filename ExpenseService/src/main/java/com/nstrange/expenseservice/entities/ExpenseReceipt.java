@@ -0,0 +1,51 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * The receipt attached to an expense. The bytes live in the content-addressed receipt store under
+ * {@code sha256}, so identical uploads share one file; rows reference the expense by external id, which
+ * survives a move to another shard.
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "expense_receipt",
+        uniqueConstraints = @UniqueConstraint(name = "uk_expense_receipt",
+                columnNames = {"user_id", "external_id"}),
+        indexes = @Index(name = "idx_expense_receipt_sha256", columnList = "sha256"))
+public class ExpenseReceipt
+{
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Convert(converter = UuidBinaryConverter.class)
+    @Column(name = "external_id", nullable = false, columnDefinition = "BINARY(16)")
+    private String externalId;
+
+    @Column(name = "sha256", nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "content_type", nullable = false, length = 64)
+    private String contentType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "uploaded_at", nullable = false)
+    private Timestamp uploadedAt;
+}
@@ -0,0 +1,86 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A user-defined recurring expense, such as rent or an insurance premium, that the scheduler creates on
+ * every occurrence from {@code startOn} on.
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "expense_schedule",
+        indexes = {
+                @Index(name = "idx_expense_schedule_user", columnList = "user_id"),
+                @Index(name = "idx_expense_schedule_next_run", columnList = "next_run_at, id")
+        })
+public class ExpenseSchedule
+{
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "amount", nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "merchant", nullable = false)
+    private String merchant;
+
+    @Column(name = "currency")
+    private String currency;
+
+    @Column(name = "notes")
+    private String notes;
+
+    @Column(name = "category")
+    private String category;
+
+    @Column(name = "fund_source")
+    private String fundSource;
+
+    @Column(name = "cadence", nullable = false, length = 16)
+    private String cadence;
+
+    @Column(name = "start_on", nullable = false)
+    private LocalDate startOn;
+
+    /** Last day an occurrence may fall on; null for no end. */
+    @Column(name = "end_on")
+    private LocalDate endOn;
+
+    /** Occurrences created so far; occurrence {@code n} falls {@code n} periods after {@code startOn}. */
+    @Column(name = "fired_count", nullable = false)
+    private long firedCount;
+
+    /** When the next occurrence is due (its day at 00:00 UTC), or null once the schedule has ended. */
+    @Column(name = "next_run_at")
+    private Timestamp nextRunAt;
+
+    @Column(name = "created_at", nullable = false)
+    private Timestamp createdAt;
+
+    @Column(name = "updated_at")
+    private Timestamp updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    private void touch() {
+        updatedAt = Timestamp.from(Instant.now());
+    }
+}
@@ -0,0 +1,45 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * Progress of the recurrence detection job on one shard: every user up to and including
+ * {@code lastUserId} has been scanned in the run that started at {@code runStartedAt}.
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "recurrence_scan_checkpoint")
+public class RecurrenceScanCheckpoint
+{
+
+    public static final String JOB = "recurrence-detection";
+
+    @Id
+    @Column(name = "job", length = 64)
+    private String job;
+
+    @Column(name = "last_user_id")
+    private String lastUserId;
+
+    @Column(name = "users_scanned", nullable = false)
+    private long usersScanned;
+
+    @Column(name = "run_started_at", nullable = false)
+    private Timestamp runStartedAt;
+
+    /** Null while the run is unfinished, in which case the next run resumes after {@code lastUserId}. */
+    @Column(name = "completed_at")
+    private Timestamp completedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Timestamp updatedAt;
+}
@@ -0,0 +1,29 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One row per running instance, stamped on the primary every heartbeat and read back from each
+ * replica to measure its lag. Written with plain JDBC by {@code ReplicaHealthMonitor}; mapped here so
+ * the schema is managed with the rest.
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "replica_heartbeat")
+public class ReplicaHeartbeat
+{
+
+    @Id
+    @Column(name = "instance_id", length = 64)
+    private String instanceId;
+
+    @Column(name = "beat_at", nullable = false)
+    private long beatAt;
+}
@@ -0,0 +1,36 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/** The currency a user's totals are reported in; users without a row use {@code expense.fx.default-base-currency}. */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "user_base_currency",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_base_currency", columnNames = "user_id"),
+        indexes = @Index(name = "idx_user_base_currency_updated_at", columnList = "updated_at"))
+public class UserBaseCurrency
+{
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "base_currency", nullable = false, length = 3)
+    private String baseCurrency;
+
+    @Column(name = "updated_at", nullable = false)
+    private Timestamp updatedAt;
+}
@@ -0,0 +1,38 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "user_merchant_category",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_merchant_category",
+                columnNames = {"user_id", "merchant_key"}))
+public class UserMerchantCategory
+{
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "merchant_key", nullable = false)
+    private String merchantKey;
+
+    @Column(name = "category", nullable = false)
+    private String category;
+
+    @Column(name = "updated_at", nullable = false)
+    private Timestamp updatedAt;
+}
@@ -0,0 +1,37 @@
+package com.nstrange.expenseservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * Places a user on a shard other than the one the hash ring picks, or marks the user as moving.
+ * Only the directory shard's copy of this table is read.
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "user_shard_pin",
+        indexes = @Index(name = "idx_user_shard_pin_updated_at", columnList = "updated_at"))
+public class UserShardPin
+{
+
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    @Column(name = "shard", nullable = false, length = 64)
+    private String shard;
+
+    @Column(name = "moving", nullable = false)
+    private boolean moving;
+
+    @Column(name = "updated_at", nullable = false)
+    private Timestamp updatedAt;
+}
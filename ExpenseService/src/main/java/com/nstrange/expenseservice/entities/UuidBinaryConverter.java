@@ -0,0 +1,25 @@
+package com.nstrange.expenseservice.entities;
+
+import com.nstrange.expenseservice.ids.UuidBytes;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.UUID;
+
+/**
+ * Stores canonical UUID strings as {@code BINARY(16)}: 16 bytes per key instead of 36 characters,
+ * which keeps the unique index (and every secondary index entry that points at it) small.
+ */
+@Converter
+public class UuidBinaryConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        return attribute == null ? null : UuidBytes.toBytes(UUID.fromString(attribute));
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        return dbData == null ? null : UuidBytes.fromBytes(dbData).toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.nstrange.expenseservice.events;
+
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.model.ExpenseSnapshot;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@code ExpenseService} for every persisted write. Listeners that maintain
+ * in-memory state should use {@code @TransactionalEventListener} so they only see committed data.
+ */
+@Getter
+@AllArgsConstructor
+public class ExpenseChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+
+    private final Expense expense;
+
+    /** State before the write; {@code null} for {@link Type#CREATED}. */
+    private final ExpenseSnapshot previous;
+
+    public static ExpenseChangedEvent created(Expense expense) {
+        return new ExpenseChangedEvent(Type.CREATED, expense, null);
+    }
+
+    public static ExpenseChangedEvent updated(Expense expense, ExpenseSnapshot previous) {
+        return new ExpenseChangedEvent(Type.UPDATED, expense, previous);
+    }
+
+    /** {@code expense} is the tombstoned row; {@code previous} is what it contributed before the delete. */
+    public static ExpenseChangedEvent deleted(Expense expense, ExpenseSnapshot previous) {
+        return new ExpenseChangedEvent(Type.DELETED, expense, previous);
+    }
+}
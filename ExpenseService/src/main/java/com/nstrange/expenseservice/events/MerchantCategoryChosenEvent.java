@@ -0,0 +1,19 @@
+package com.nstrange.expenseservice.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@code ExpenseService} when a user sets an expense's category themselves, so the choice
+ * is learned for that merchant once the write has committed.
+ */
+@Getter
+@AllArgsConstructor
+public class MerchantCategoryChosenEvent {
+
+    private final String userId;
+
+    private final String merchant;
+
+    private final String category;
+}
@@ -0,0 +1,15 @@
+package com.nstrange.expenseservice.exception;
+
+/**
+ * Thrown when a write collides with a concurrent write to the same data and should be retried.
+ */
+public class ExpenseConflictException extends RuntimeException {
+
+    public ExpenseConflictException(String message) {
+        super(message);
+    }
+
+    public ExpenseConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package com.nstrange.expenseservice.exception;
+
+/**
+ * Thrown when an update's expected version (from {@code If-Match}) no longer matches the stored row.
+ */
+public class ExpenseVersionConflictException extends RuntimeException {
+
+    public ExpenseVersionConflictException(String message) {
+        super(message);
+    }
+
+    public ExpenseVersionConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
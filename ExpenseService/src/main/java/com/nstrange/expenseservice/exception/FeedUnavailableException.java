@@ -0,0 +1,12 @@
+package com.nstrange.expenseservice.exception;
+
+/**
+ * Thrown when the live expense feed is disabled or this instance already holds its maximum number of
+ * open streams.
+ */
+public class FeedUnavailableException extends RuntimeException {
+
+    public FeedUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -5,15 +5,20 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingRequestHeaderException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.support.MissingServletRequestPartException;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
 import java.util.List;
@@ -49,6 +54,71 @@ public class GlobalExceptionHandler {
         return buildResponse(HttpStatus.NOT_FOUND, ex.getMessage(), request);
     }
 
+    @ExceptionHandler(ExpenseConflictException.class)
+    public ResponseEntity<ApiErrorResponse> handleExpenseConflict(
+            ExpenseConflictException ex, HttpServletRequest request) {
+        log.warn("Expense write conflict: {}", ex.getMessage());
+        return buildResponse(HttpStatus.CONFLICT, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(ExpenseVersionConflictException.class)
+    public ResponseEntity<ApiErrorResponse> handleVersionConflict(
+            ExpenseVersionConflictException ex, HttpServletRequest request) {
+        log.warn("Expense version conflict: {}", ex.getMessage());
+        return buildResponse(HttpStatus.PRECONDITION_FAILED, ex.getMessage(), request);
+    }
+
+    // version check that only failed when the transaction flushed at commit
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiErrorResponse> handleOptimisticLockingFailure(
+            OptimisticLockingFailureException ex, HttpServletRequest request) {
+        log.warn("Optimistic locking failure on {}: {}", request.getRequestURI(), ex.getMessage());
+        return buildResponse(HttpStatus.PRECONDITION_FAILED,
+                "The expense was modified by another request. Reload it and retry.", request);
+    }
+
+    @ExceptionHandler(ImportRejectedException.class)
+    public ResponseEntity<ApiErrorResponse> handleImportRejected(
+            ImportRejectedException ex, HttpServletRequest request) {
+        log.warn("Statement import rejected: {}", ex.getMessage());
+        return buildResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(StatementRejectedException.class)
+    public ResponseEntity<ApiErrorResponse> handleStatementRejected(
+            StatementRejectedException ex, HttpServletRequest request) {
+        log.warn("Statement request rejected: {}", ex.getMessage());
+        return buildResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(UserShardMovingException.class)
+    public ResponseEntity<ApiErrorResponse> handleUserShardMoving(
+            UserShardMovingException ex, HttpServletRequest request) {
+        log.warn("User shard move in progress: {}", ex.getMessage());
+        return buildResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(SearchUnavailableException.class)
+    public ResponseEntity<ApiErrorResponse> handleSearchUnavailable(
+            SearchUnavailableException ex, HttpServletRequest request) {
+        log.warn("Expense search unavailable: {}", ex.getMessage());
+        return buildResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(FeedUnavailableException.class)
+    public ResponseEntity<ApiErrorResponse> handleFeedUnavailable(
+            FeedUnavailableException ex, HttpServletRequest request) {
+        log.warn("Expense feed unavailable: {}", ex.getMessage());
+        return buildResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(RevisionHistoryUnavailableException.class)
+    public ResponseEntity<ApiErrorResponse> handleRevisionHistoryUnavailable(
+            RevisionHistoryUnavailableException ex, HttpServletRequest request) {
+        log.warn("Expense revision history unavailable: {}", ex.getMessage());
+        return buildResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request);
+    }
+
     @ExceptionHandler(ExpenseServiceException.class)
     public ResponseEntity<ApiErrorResponse> handleExpenseServiceException(
             ExpenseServiceException ex, HttpServletRequest request) {
@@ -103,6 +173,38 @@ public class GlobalExceptionHandler {
                 "Required header '" + ex.getHeaderName() + "' is missing.", request);
     }
 
+    @ExceptionHandler(MissingServletRequestParameterException.class)
+    public ResponseEntity<ApiErrorResponse> handleMissingParameter(
+            MissingServletRequestParameterException ex, HttpServletRequest request) {
+        log.warn("Missing required parameter: {}", ex.getParameterName());
+        return buildResponse(HttpStatus.BAD_REQUEST,
+                "Required parameter '" + ex.getParameterName() + "' is missing.", request);
+    }
+
+    @ExceptionHandler(MissingServletRequestPartException.class)
+    public ResponseEntity<ApiErrorResponse> handleMissingPart(
+            MissingServletRequestPartException ex, HttpServletRequest request) {
+        log.warn("Missing required request part: {}", ex.getRequestPartName());
+        return buildResponse(HttpStatus.BAD_REQUEST,
+                "Required part '" + ex.getRequestPartName() + "' is missing.", request);
+    }
+
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<ApiErrorResponse> handleUploadTooLarge(
+            MaxUploadSizeExceededException ex, HttpServletRequest request) {
+        log.warn("Upload too large for {}: {}", request.getRequestURI(), ex.getMessage());
+        return buildResponse(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Uploaded file exceeds the maximum allowed size.", request);
+    }
+
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ApiErrorResponse> handleArgumentTypeMismatch(
+            MethodArgumentTypeMismatchException ex, HttpServletRequest request) {
+        log.warn("Invalid value for parameter '{}': {}", ex.getName(), ex.getValue());
+        return buildResponse(HttpStatus.BAD_REQUEST,
+                "Invalid value for parameter '" + ex.getName() + "'.", request);
+    }
+
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<ApiErrorResponse> handleUnreadableMessage(
             HttpMessageNotReadableException ex, HttpServletRequest request) {
@@ -0,0 +1,11 @@
+package com.nstrange.expenseservice.exception;
+
+/**
+ * Thrown when a statement import cannot be queued because the import workers are saturated.
+ */
+public class ImportRejectedException extends RuntimeException {
+
+    public ImportRejectedException(String message) {
+        super(message);
+    }
+}
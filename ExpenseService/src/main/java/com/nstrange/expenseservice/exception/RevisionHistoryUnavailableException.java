@@ -0,0 +1,11 @@
+package com.nstrange.expenseservice.exception;
+
+/**
+ * Thrown when expense revision history is disabled on this instance.
+ */
+public class RevisionHistoryUnavailableException extends RuntimeException {
+
+    public RevisionHistoryUnavailableException(String message) {
+        super(message);
+    }
+}
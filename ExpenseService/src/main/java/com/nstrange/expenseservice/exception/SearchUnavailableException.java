@@ -0,0 +1,11 @@
+package com.nstrange.expenseservice.exception;
+
+/**
+ * Thrown when expense search is disabled or its index could not be opened on this instance.
+ */
+public class SearchUnavailableException extends RuntimeException {
+
+    public SearchUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.nstrange.expenseservice.exception;
+
+/**
+ * Thrown when a statement cannot be queued because the statement workers are saturated.
+ */
+public class StatementRejectedException extends RuntimeException {
+
+    public StatementRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.nstrange.expenseservice.exception;
+
+/**
+ * Thrown when a user's data is being moved to another shard; the request can be retried shortly.
+ */
+public class UserShardMovingException extends RuntimeException {
+
+    public UserShardMovingException(String message) {
+        super(message);
+    }
+}
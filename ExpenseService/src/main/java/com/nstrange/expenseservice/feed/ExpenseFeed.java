@@ -0,0 +1,297 @@
+package com.nstrange.expenseservice.feed;
+
+import com.nstrange.expenseservice.dto.ExpenseDto;
+import com.nstrange.expenseservice.dto.ExpenseTombstoneDto;
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.events.ExpenseChangedEvent;
+import com.nstrange.expenseservice.exception.FeedUnavailableException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.model.SyncCursor;
+import com.nstrange.expenseservice.partition.ExpensePartitionManager;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.ExpenseRepository;
+import com.nstrange.expenseservice.sharding.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live stream of a user's committed expense changes over server-sent events, so clients stop polling
+ * for SMS-parsed expenses. Writes committed on this instance are pushed from {@link ExpenseChangedEvent}
+ * as soon as they commit. While anyone is subscribed, a tail of every shard by {@code (updated_at, id)}
+ * also picks up writes committed by other instances, such as the one that consumed the Kafka message.
+ * <p>
+ * The stream only carries live changes: on connect, and after a {@code resync} event, clients fill the
+ * gap from {@code /getChanges} with their cursor.
+ */
+@Service
+public class ExpenseFeed
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseFeed.class);
+
+    static final String EXPENSE_EVENT = "expense";
+
+    static final String DELETED_EVENT = "deleted";
+
+    static final String RESYNC_EVENT = "resync";
+
+    // bounds one tail tick, so a burst of writes does not hold the scheduler thread for long
+    private static final int MAX_PAGES_PER_TICK = 10;
+
+    private final ExpenseRepository expenseRepository;
+
+    private final ExpensePartitionManager partitionManager;
+
+    private final Shards shards;
+
+    private final boolean enabled;
+
+    private final long timeoutMs;
+
+    private final int bufferSize;
+
+    private final int maxSubscribersPerUser;
+
+    private final int maxSubscribers;
+
+    private final int tailBatchSize;
+
+    private final long settleMillis;
+
+    private final ExecutorService sendPool;
+
+    private final ConcurrentHashMap<String, CopyOnWriteArrayList<FeedSubscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger open = new AtomicInteger();
+
+    // tail position per shard, only kept while someone is subscribed
+    private final ConcurrentHashMap<String, SyncCursor> cursors = new ConcurrentHashMap<>();
+
+    private final Counter overflows;
+
+    public ExpenseFeed(ExpenseRepository expenseRepository, ExpensePartitionManager partitionManager, Shards shards,
+                       MeterRegistry meterRegistry,
+                       @Value("${expense.feed.enabled:true}") boolean enabled,
+                       @Value("${expense.feed.timeout-ms:1800000}") long timeoutMs,
+                       @Value("${expense.feed.buffer-size:64}") int bufferSize,
+                       @Value("${expense.feed.max-subscribers-per-user:5}") int maxSubscribersPerUser,
+                       @Value("${expense.feed.max-subscribers:10000}") int maxSubscribers,
+                       @Value("${expense.feed.send-threads:4}") int sendThreads,
+                       @Value("${expense.feed.tail-batch-size:500}") int tailBatchSize,
+                       @Value("${expense.sync.settle-millis:2000}") long settleMillis) {
+        this.expenseRepository = expenseRepository;
+        this.partitionManager = partitionManager;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+        this.bufferSize = bufferSize;
+        this.maxSubscribersPerUser = maxSubscribersPerUser;
+        this.maxSubscribers = maxSubscribers;
+        this.tailBatchSize = tailBatchSize;
+        this.settleMillis = settleMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sendPool = Executors.newFixedThreadPool(Math.max(1, sendThreads), r -> {
+            Thread thread = new Thread(r, "expense-feed-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.overflows = Counter.builder("expense.feed.overflows")
+                .description("Streams closed with a resync because the client fell behind")
+                .register(meterRegistry);
+        Gauge.builder("expense.feed.subscribers", open, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(String userId) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        if (!enabled) {
+            throw new FeedUnavailableException("The expense feed is disabled on this instance");
+        }
+        if (open.incrementAndGet() > maxSubscribers) {
+            open.decrementAndGet();
+            throw new FeedUnavailableException("Too many open expense feeds on this instance, retry later");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        FeedSubscriber[] holder = new FeedSubscriber[1];
+        FeedSubscriber subscriber = new FeedSubscriber(userId, emitter, bufferSize, sendPool,
+                () -> unregister(holder[0]));
+        holder[0] = subscriber;
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(ex -> subscriber.close());
+
+        subscribers.compute(userId, (id, list) -> {
+            CopyOnWriteArrayList<FeedSubscriber> current = Objects.isNull(list) ? new CopyOnWriteArrayList<>() : list;
+            current.add(subscriber);
+            return current;
+        });
+        // an old tab or a reconnect that never saw its close makes room for the newest stream
+        List<FeedSubscriber> userSubscribers = subscribers.getOrDefault(userId, new CopyOnWriteArrayList<>());
+        for (int i = 0; i < userSubscribers.size() - maxSubscribersPerUser; i++) {
+            userSubscribers.get(i).complete();
+        }
+
+        // flushes the response headers, so the client sees the stream open right away
+        subscriber.offer(SseEmitter.event().comment("connected").build());
+        log.debug("Opened expense feed for userId={}, open={}", userId, open.get());
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        try {
+            publish(event.getExpense());
+        } catch (RuntimeException ex) {
+            // the feed is best effort; never fail the write path because of it
+            log.error("Failed to publish expense to feed for userId={}: {}",
+                    event.getExpense().getUserId(), ex.getMessage(), ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${expense.feed.heartbeat-ms:15000}")
+    public void heartbeat() {
+        Set<ResponseBodyEmitter.DataWithMediaType> heartbeat = SseEmitter.event().comment("heartbeat").build();
+        for (List<FeedSubscriber> userSubscribers : subscribers.values()) {
+            for (FeedSubscriber subscriber : userSubscribers) {
+                // proxies drop idle connections; a failed write also surfaces clients that went away
+                if (!subscriber.offer(heartbeat)) {
+                    overflows.increment();
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${expense.feed.poll-ms:1000}")
+    public void tail() {
+        if (subscribers.isEmpty()) {
+            cursors.clear();
+            return;
+        }
+        shards.forEach(shard -> {
+            String key = Objects.isNull(shard) ? Shards.UNSHARDED : shard;
+            try {
+                tail(key);
+            } catch (DataAccessException ex) {
+                log.error("Expense feed tail failed on shard={}", key, ex);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (List<FeedSubscriber> userSubscribers : subscribers.values()) {
+            for (FeedSubscriber subscriber : userSubscribers) {
+                subscriber.complete();
+            }
+        }
+        sendPool.shutdownNow();
+    }
+
+    private void tail(String shard) {
+        Timestamp from = partitionManager.retainedFrom();
+        long settled = System.currentTimeMillis() - settleMillis;
+        // a new tail starts at the settle horizon; earlier rows are the client's /getChanges catch-up
+        SyncCursor cursor = cursors.computeIfAbsent(shard, k -> new SyncCursor(settled, 0L));
+        boolean drained = false;
+        for (int pages = 0; pages < MAX_PAGES_PER_TICK && !drained; pages++) {
+            SyncCursor since = cursor;
+            // a replica behind the cursor would make the tail skip rows for good
+            List<Expense> rows = ReadRoutingContext.callOnPrimary(() -> expenseRepository.findAllChangesSince(from,
+                    new Timestamp(since.getUpdatedAtMillis()), since.getId(), PageRequest.of(0, tailBatchSize)));
+            for (Expense expense : rows) {
+                publish(expense);
+            }
+            if (!rows.isEmpty()) {
+                Expense last = rows.get(rows.size() - 1);
+                cursor = new SyncCursor(last.getUpdatedAt().getTime(), last.getId());
+            }
+            drained = rows.size() < tailBatchSize;
+        }
+        // same settle as /getChanges: a row stamped earlier but committed later is still ahead of the cursor
+        if (drained && cursor.getUpdatedAtMillis() > settled) {
+            SyncCursor previous = cursors.get(shard);
+            cursor = new SyncCursor(Math.max(settled, previous.getUpdatedAtMillis()), 0L);
+        }
+        cursors.put(shard, cursor);
+    }
+
+    private void publish(Expense expense) {
+        List<FeedSubscriber> userSubscribers = subscribers.get(expense.getUserId());
+        if (Objects.isNull(userSubscribers)) {
+            return;
+        }
+        // built once and shared: a built event is immutable, unlike the builder
+        Set<ResponseBodyEmitter.DataWithMediaType> event = toEvent(expense);
+        long version = Objects.requireNonNullElse(expense.getVersion(), 0L);
+        for (FeedSubscriber subscriber : userSubscribers) {
+            if (subscriber.markSent(expense.getId(), version) && !subscriber.offer(event)) {
+                overflows.increment();
+            }
+        }
+    }
+
+    private void unregister(FeedSubscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId(), (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+        open.decrementAndGet();
+        log.debug("Closed expense feed for userId={}, open={}", subscriber.userId(), open.get());
+    }
+
+    private static Set<ResponseBodyEmitter.DataWithMediaType> toEvent(Expense expense) {
+        if (Objects.nonNull(expense.getDeletedAt())) {
+            return SseEmitter.event()
+                    .name(DELETED_EVENT)
+                    .data(ExpenseTombstoneDto.builder()
+                            .externalId(expense.getExternalId())
+                            .deletedAt(expense.getDeletedAt())
+                            .build(), MediaType.APPLICATION_JSON)
+                    .build();
+        }
+        return SseEmitter.event()
+                .name(EXPENSE_EVENT)
+                .data(ExpenseDto.builder()
+                        .externalId(expense.getExternalId())
+                        .amount(expense.getAmount())
+                        .userId(expense.getUserId())
+                        .merchant(expense.getMerchant())
+                        .currency(expense.getCurrency())
+                        .baseAmount(expense.getBaseAmount())
+                        .baseCurrency(expense.getBaseCurrency())
+                        .createdAt(expense.getCreatedAt())
+                        .fundSource(expense.getFundSource())
+                        .category(expense.getCategory())
+                        .notes(expense.getNotes())
+                        .duplicateOf(expense.getDuplicateOf())
+                        .updatedAt(expense.getUpdatedAt())
+                        .version(expense.getVersion())
+                        .build(), MediaType.APPLICATION_JSON)
+                .build();
+    }
+}
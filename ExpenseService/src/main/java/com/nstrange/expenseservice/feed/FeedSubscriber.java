@@ -0,0 +1,140 @@
+package com.nstrange.expenseservice.feed;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One open event stream. Publishers only {@link #offer} built events into a bounded queue; a single
+ * drain task at a time writes the queue to the connection on the feed's executor, so a slow client never
+ * blocks a commit. When the queue overflows the client is told to resync from {@code /getChanges} and the stream
+ * is closed rather than silently skipping events.
+ */
+final class FeedSubscriber {
+
+    // versions of recently sent expenses, so the cross-instance tail does not resend local writes
+    private static final int REMEMBERED_EXPENSES = 256;
+
+    private final String userId;
+
+    private final SseEmitter emitter;
+
+    private final ArrayBlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+
+    private final Executor executor;
+
+    private final Runnable onClose;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final LinkedHashMap<Long, Long> sentVersions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > REMEMBERED_EXPENSES;
+        }
+    };
+
+    private volatile boolean overflowed;
+
+    FeedSubscriber(String userId, SseEmitter emitter, int bufferSize, Executor executor, Runnable onClose) {
+        this.userId = userId;
+        this.emitter = emitter;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+        this.executor = executor;
+        this.onClose = onClose;
+    }
+
+    String userId() {
+        return userId;
+    }
+
+    /**
+     * @return true the first time this version of the expense, or a later one, is seen
+     */
+    boolean markSent(long expenseId, long version) {
+        synchronized (sentVersions) {
+            Long sent = sentVersions.get(expenseId);
+            if (Objects.nonNull(sent) && sent >= version) {
+                return false;
+            }
+            sentVersions.put(expenseId, version);
+            return true;
+        }
+    }
+
+    /**
+     * @return false when the event did not fit, in which case the stream ends with a resync
+     */
+    boolean offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (closed.get()) {
+            return true;
+        }
+        boolean accepted = queue.offer(event);
+        if (!accepted) {
+            overflowed = true;
+        }
+        scheduleDrain();
+        return accepted;
+    }
+
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            queue.clear();
+            onClose.run();
+        }
+    }
+
+    /** Closes the stream from the server side, e.g. to make room for a newer one. */
+    void complete() {
+        close();
+        try {
+            emitter.complete();
+        } catch (IllegalStateException ex) {
+            // already completed by the client or the container
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                draining.set(false);
+                close();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            while (!closed.get() && Objects.nonNull(event = queue.poll())) {
+                emitter.send(event);
+            }
+            if (overflowed && !closed.get()) {
+                emitter.send(SseEmitter.event().name(ExpenseFeed.RESYNC_EVENT).data("{}"));
+                emitter.complete();
+                close();
+            }
+        } catch (IOException | IllegalStateException ex) {
+            // the client went away or the emitter already completed; the container finishes the request
+            close();
+        } finally {
+            draining.set(false);
+        }
+        if (!closed.get() && (!queue.isEmpty() || overflowed)) {
+            scheduleDrain();
+        }
+    }
+}
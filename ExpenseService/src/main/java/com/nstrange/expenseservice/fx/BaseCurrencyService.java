@@ -0,0 +1,186 @@
+package com.nstrange.expenseservice.fx;
+
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.entities.UserBaseCurrency;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.model.SyncCursor;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.UserBaseCurrencyRepository;
+import com.nstrange.expenseservice.sharding.Shards;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Each user's base currency and the write-time conversion into it. Every stored choice is held in
+ * memory, so conversions and totals never read the database for it: the table is loaded from every
+ * shard at startup, updated here on a change, and tailed by {@code (updated_at, id)} every
+ * {@code expense.fx.base-currency-refresh-ms} to pick up changes made through another instance.
+ * Users without a row use {@code expense.fx.default-base-currency}.
+ */
+@Service
+public class BaseCurrencyService
+{
+
+    private static final Logger log = LoggerFactory.getLogger(BaseCurrencyService.class);
+
+    private final UserBaseCurrencyRepository repository;
+
+    private final FxRateService fxRateService;
+
+    private final Shards shards;
+
+    private final String defaultBaseCurrency;
+
+    private final int refreshBatchSize;
+
+    private final long settleMillis;
+
+    private final ConcurrentHashMap<String, String> currencies = new ConcurrentHashMap<>();
+
+    // guarded by this; keyed by shard name, Shards.UNSHARDED when sharding is off
+    private final Map<String, SyncCursor> cursors = new HashMap<>();
+
+    public BaseCurrencyService(UserBaseCurrencyRepository repository, FxRateService fxRateService, Shards shards,
+                               @Value("${expense.fx.default-base-currency:INR}") String defaultBaseCurrency,
+                               @Value("${expense.fx.base-currency-refresh-batch-size:1000}") int refreshBatchSize,
+                               @Value("${expense.sync.settle-millis:2000}") long settleMillis) {
+        this.repository = repository;
+        this.fxRateService = fxRateService;
+        this.shards = shards;
+        this.defaultBaseCurrency = Objects.requireNonNull(FxRateTable.normalize(defaultBaseCurrency),
+                "expense.fx.default-base-currency must be a three-letter code");
+        this.refreshBatchSize = refreshBatchSize;
+        this.settleMillis = settleMillis;
+    }
+
+    @PostConstruct
+    void init() {
+        try {
+            shards.forEach(shard -> tail(Objects.isNull(shard) ? Shards.UNSHARDED : shard));
+        } catch (DataAccessException ex) {
+            // converting with the default for users who chose otherwise would store wrong base amounts
+            throw new IllegalStateException("Failed to load base currencies", ex);
+        }
+        log.info("Loaded base currencies for {} users", currencies.size());
+    }
+
+    public String baseCurrencyOf(String userId) {
+        return currencies.getOrDefault(userId, defaultBaseCurrency);
+    }
+
+    /**
+     * Picks up choices committed through other instances, trailing them by at most this interval plus
+     * {@code expense.sync.settle-millis}.
+     */
+    @Scheduled(fixedDelayString = "${expense.fx.base-currency-refresh-ms:5000}",
+            initialDelayString = "${expense.fx.base-currency-refresh-ms:5000}")
+    public void refresh() {
+        shards.forEach(shard -> {
+            String key = Objects.isNull(shard) ? Shards.UNSHARDED : shard;
+            try {
+                tail(key);
+            } catch (DataAccessException ex) {
+                log.error("Base currency refresh failed on shard={}", key, ex);
+            }
+        });
+    }
+
+    /**
+     * Sets the currency future expenses are converted to. Expenses already stored keep the base amount
+     * they were written with; totals convert those on read.
+     *
+     * @return the normalized currency code
+     */
+    @Transactional
+    public String setBaseCurrency(String userId, String currency) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        String code = FxRateTable.normalize(currency);
+        if (Objects.isNull(code) || !fxRateService.current().supports(code)) {
+            throw new InvalidExpenseRequestException("Unsupported base currency '" + currency + "'; expected one of "
+                    + fxRateService.current().currencies().stream().sorted().toList());
+        }
+        try {
+            repository.upsert(userId, code, new Timestamp(System.currentTimeMillis()));
+        } catch (DataAccessException ex) {
+            log.error("Database error while setting base currency for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to set base currency for user " + userId, ex);
+        }
+        // held until the change commits; a rolled-back choice would otherwise stay in memory for good
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                currencies.put(userId, code);
+            }
+        });
+        log.info("Base currency for userId={} set to {}", userId, code);
+        return code;
+    }
+
+    /**
+     * Stamps {@code expense} with its amount in the owner's base currency, at the current rates. When
+     * either currency has no rate the base fields are cleared and totals fall back to converting the
+     * original amount on read.
+     */
+    public void applyBaseAmount(Expense expense) {
+        FxRateTable rates = fxRateService.current();
+        String base = baseCurrencyOf(expense.getUserId());
+        BigDecimal converted = rates.convert(expense.getAmount(), expense.getCurrency(), base);
+        if (Objects.isNull(converted)) {
+            log.debug("No FX rate from {} to {} for userId={}", expense.getCurrency(), base, expense.getUserId());
+            expense.setBaseAmount(null);
+            expense.setBaseCurrency(null);
+            expense.setFxRateVersion(null);
+            return;
+        }
+        expense.setBaseAmount(converted);
+        expense.setBaseCurrency(base);
+        expense.setFxRateVersion(rates.version());
+    }
+
+    private synchronized void tail(String shard) {
+        long settled = System.currentTimeMillis() - settleMillis;
+        SyncCursor cursor = cursors.getOrDefault(shard, SyncCursor.START);
+        while (true) {
+            SyncCursor since = cursor;
+            // a replica behind the cursor would make the tail skip a change for good
+            List<UserBaseCurrency> rows = ReadRoutingContext.callOnPrimary(() -> repository.findChangesSince(
+                    new Timestamp(since.getUpdatedAtMillis()), since.getId(), PageRequest.of(0, refreshBatchSize)));
+            for (UserBaseCurrency row : rows) {
+                currencies.put(row.getUserId(), row.getBaseCurrency());
+            }
+            if (!rows.isEmpty()) {
+                UserBaseCurrency last = rows.get(rows.size() - 1);
+                cursor = new SyncCursor(last.getUpdatedAt().getTime(), last.getId());
+            }
+            if (rows.size() < refreshBatchSize) {
+                break;
+            }
+        }
+        // a row stamped before the cursor but committed after it is still read next time
+        if (cursor.getUpdatedAtMillis() > settled) {
+            SyncCursor previous = cursors.getOrDefault(shard, SyncCursor.START);
+            cursor = new SyncCursor(Math.max(settled, previous.getUpdatedAtMillis()), 0L);
+        }
+        cursors.put(shard, cursor);
+    }
+}
@@ -0,0 +1,100 @@
+package com.nstrange.expenseservice.fx;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link FxRateTable}. The bundled {@code fx-rates.txt} is loaded at startup, and
+ * {@code expense.fx.rates-file}, written by whatever job pulls rates from a provider, is polled and
+ * swapped in when it carries a higher version. Readers take the table with one volatile read and keep
+ * using that snapshot, so a conversion never sees two versions and never waits on a reload.
+ */
+@Service
+public class FxRateService
+{
+
+    private static final Logger log = LoggerFactory.getLogger(FxRateService.class);
+
+    private static final String DEFAULT_RATES = "fx-rates.txt";
+
+    private final String ratesFile;
+
+    private final AtomicReference<FxRateTable> table = new AtomicReference<>();
+
+    private volatile long ratesFileModifiedAt = -1L;
+
+    public FxRateService(MeterRegistry meterRegistry,
+                         @Value("${expense.fx.rates-file:}") String ratesFile) {
+        this.ratesFile = ratesFile;
+        Gauge.builder("expense.fx.version", table, t -> t.get().version())
+                .register(meterRegistry);
+        Gauge.builder("expense.fx.currencies", table, t -> t.get().currencies().size())
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(DEFAULT_RATES).getInputStream(), StandardCharsets.UTF_8))) {
+            offer(FxRateTable.parse(reader), DEFAULT_RATES);
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new IllegalStateException("Failed to read bundled FX rates " + DEFAULT_RATES, ex);
+        }
+        reloadIfChanged();
+    }
+
+    /** The snapshot to use for a whole conversion or aggregation. */
+    public FxRateTable current() {
+        return table.get();
+    }
+
+    @Scheduled(fixedDelayString = "${expense.fx.reload-interval-ms:60000}")
+    public void reloadIfChanged() {
+        if (ratesFile.isBlank()) {
+            return;
+        }
+        Path path = Path.of(ratesFile);
+        try {
+            long modifiedAt = Files.getLastModifiedTime(path).toMillis();
+            if (modifiedAt == ratesFileModifiedAt) {
+                return;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                offer(FxRateTable.parse(reader), ratesFile);
+            }
+            ratesFileModifiedAt = modifiedAt;
+        } catch (IOException | IllegalArgumentException ex) {
+            log.warn("Failed to read FX rates file {}, keeping version {}: {}",
+                    ratesFile, table.get().version(), ex.getMessage());
+        }
+    }
+
+    private void offer(FxRateTable candidate, String source) {
+        // only ever moves forward, so an old file restored from backup cannot roll rates back
+        FxRateTable swapped = table.accumulateAndGet(candidate,
+                (current, next) -> Objects.isNull(current) || next.version() > current.version() ? next : current);
+        if (swapped == candidate) {
+            log.info("Loaded FX rates version {} as of {} from {}: {} currencies against {}",
+                    candidate.version(), candidate.asOf(), source, candidate.currencies().size(), candidate.base());
+        } else {
+            log.debug("Ignoring FX rates version {} from {}; version {} is loaded",
+                    candidate.version(), source, swapped.version());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.nstrange.expenseservice.fx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * One immutable set of reference rates, each held as units of the currency per one unit of the
+ * table's {@code base}. Any pair converts through the base, so n rates cover every pair of the n
+ * currencies; nothing here touches the database or the network.
+ */
+public final class FxRateTable {
+
+    private static final Pattern CURRENCY_CODE = Pattern.compile("[A-Z]{3}");
+
+    private static final int AMOUNT_SCALE = 2;
+
+    private final long version;
+
+    private final LocalDate asOf;
+
+    private final String base;
+
+    private final Map<String, BigDecimal> unitsPerBase;
+
+    private FxRateTable(long version, LocalDate asOf, String base, Map<String, BigDecimal> unitsPerBase) {
+        this.version = version;
+        this.asOf = asOf;
+        this.base = base;
+        this.unitsPerBase = Map.copyOf(unitsPerBase);
+    }
+
+    /**
+     * Parses a rate file: {@code version = n}, {@code as-of = yyyy-MM-dd} and {@code base = CODE} headers
+     * followed by {@code CODE = units per base} lines. Blank lines and {@code #} comments are ignored.
+     *
+     * @throws IllegalArgumentException if a header is missing or a line is malformed
+     */
+    public static FxRateTable parse(BufferedReader reader) throws IOException {
+        Long version = null;
+        LocalDate asOf = null;
+        String base = null;
+        Map<String, BigDecimal> rates = new HashMap<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            int separator = trimmed.indexOf('=');
+            if (separator <= 0 || separator == trimmed.length() - 1) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": expected 'key = value'");
+            }
+            String key = trimmed.substring(0, separator).trim();
+            String value = trimmed.substring(separator + 1).trim();
+            try {
+                switch (key.toLowerCase(Locale.ROOT)) {
+                    case "version" -> version = Long.parseLong(value);
+                    case "as-of" -> asOf = LocalDate.parse(value);
+                    case "base" -> base = normalize(value);
+                    default -> {
+                        String code = normalize(key);
+                        if (Objects.isNull(code)) {
+                            throw new IllegalArgumentException("Line " + lineNumber + ": '" + key + "' is not a currency code");
+                        }
+                        BigDecimal rate = new BigDecimal(value);
+                        if (rate.signum() <= 0) {
+                            throw new IllegalArgumentException("Line " + lineNumber + ": rate must be positive");
+                        }
+                        rates.put(code, rate);
+                    }
+                }
+            } catch (NumberFormatException | DateTimeParseException ex) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": invalid value '" + value + "'", ex);
+            }
+        }
+        if (Objects.isNull(version) || Objects.isNull(asOf) || Objects.isNull(base)) {
+            throw new IllegalArgumentException("Rate file must declare version, as-of and base");
+        }
+        rates.putIfAbsent(base, BigDecimal.ONE);
+        if (rates.get(base).compareTo(BigDecimal.ONE) != 0) {
+            throw new IllegalArgumentException("Rate of the base currency " + base + " must be 1");
+        }
+        return new FxRateTable(version, asOf, base, rates);
+    }
+
+    /**
+     * @return the upper-cased ISO code, or {@code null} if {@code currency} is not three letters
+     */
+    public static String normalize(String currency) {
+        if (Objects.isNull(currency)) {
+            return null;
+        }
+        String code = currency.trim().toUpperCase(Locale.ROOT);
+        return CURRENCY_CODE.matcher(code).matches() ? code : null;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public LocalDate asOf() {
+        return asOf;
+    }
+
+    public String base() {
+        return base;
+    }
+
+    public Set<String> currencies() {
+        return unitsPerBase.keySet();
+    }
+
+    public boolean supports(String currency) {
+        return Objects.nonNull(lookup(currency));
+    }
+
+    /**
+     * @return units of {@code to} per one unit of {@code from}, or {@code null} if either is unknown
+     */
+    public BigDecimal rate(String from, String to) {
+        BigDecimal fromRate = lookup(from);
+        BigDecimal toRate = lookup(to);
+        if (Objects.isNull(fromRate) || Objects.isNull(toRate)) {
+            return null;
+        }
+        return toRate.divide(fromRate, MathContext.DECIMAL64);
+    }
+
+    /**
+     * @return {@code amount} in {@code to}, rounded to cents, or {@code null} if either currency is unknown
+     */
+    public BigDecimal convert(BigDecimal amount, String from, String to) {
+        if (Objects.isNull(amount)) {
+            return null;
+        }
+        BigDecimal rate = rate(from, to);
+        return Objects.isNull(rate) ? null : amount.multiply(rate).setScale(AMOUNT_SCALE, RoundingMode.HALF_EVEN);
+    }
+
+    private BigDecimal lookup(String currency) {
+        String code = normalize(currency);
+        return Objects.isNull(code) ? null : unitsPerBase.get(code);
+    }
+}
@@ -0,0 +1,42 @@
+package com.nstrange.expenseservice.ids;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Big-endian 16-byte form of a UUID, the layout MySQL's {@code UUID_TO_BIN(uuid)} (without swap) produces.
+ */
+public final class UuidBytes {
+
+    private UuidBytes() {
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("Expected 16 bytes but got " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * @return the parsed UUID, or {@code null} if {@code value} is not in canonical 8-4-4-4-12 form
+     */
+    public static UUID parseOrNull(String value) {
+        if (value == null || value.length() != 36) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.nstrange.expenseservice.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 style CSV reader: quoted fields may contain the delimiter, doubled quotes and line breaks.
+ * Reads character by character from a buffered reader, so only the current row is held in memory.
+ */
+final class CsvStatementReader implements StatementReader {
+
+    private static final int MAX_FIELD_LENGTH = 64 * 1024;
+
+    private final Reader reader;
+
+    private final char delimiter;
+
+    private final StringBuilder field = new StringBuilder(64);
+
+    private long rowNumber;
+
+    private long linesRead;
+
+    private int pushedBack = -1;
+
+    private boolean bomChecked;
+
+    CsvStatementReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public List<String> nextRow() throws IOException {
+        int c = read();
+        if (!bomChecked) {
+            bomChecked = true;
+            if (c == '\uFEFF') {
+                c = read();
+            }
+        }
+        // skip blank lines between records
+        while (c == '\r' || c == '\n') {
+            if (c == '\n') {
+                linesRead++;
+            }
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        rowNumber = linesRead + 1;
+
+        List<String> cells = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field starting on row " + rowNumber);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        linesRead++;
+                    }
+                    append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == delimiter) {
+                cells.add(field.toString().trim());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        pushedBack = next;
+                    }
+                }
+                if (c != -1) {
+                    linesRead++;
+                }
+                cells.add(field.toString().trim());
+                return cells;
+            } else {
+                append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    @Override
+    public long rowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void append(char c) throws IOException {
+        if (field.length() >= MAX_FIELD_LENGTH) {
+            throw new IOException("Field longer than " + MAX_FIELD_LENGTH + " characters on row " + rowNumber);
+        }
+        field.append(c);
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -1) {
+            int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,133 @@
+package com.nstrange.expenseservice.importer;
+
+import com.nstrange.expenseservice.dto.ImportJobStatusDto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one statement import. Counters are written by the worker and read by status requests.
+ */
+final class ImportJob {
+
+    enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private static final int MAX_ERRORS = 50;
+
+    private final String id;
+
+    private final String userId;
+
+    private final String fileName;
+
+    private final StatementFormat format;
+
+    private final Instant submittedAt = Instant.now();
+
+    private final AtomicLong rowsRead = new AtomicLong();
+
+    private final AtomicLong created = new AtomicLong();
+
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final List<String> errors = new ArrayList<>();
+
+    private volatile Status status = Status.QUEUED;
+
+    private volatile Instant startedAt;
+
+    private volatile Instant finishedAt;
+
+    ImportJob(String id, String userId, String fileName, StatementFormat format) {
+        this.id = id;
+        this.userId = userId;
+        this.fileName = fileName;
+        this.format = format;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getUserId() {
+        return userId;
+    }
+
+    StatementFormat getFormat() {
+        return format;
+    }
+
+    Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void finished(Status outcome) {
+        finishedAt = Instant.now();
+        status = outcome;
+    }
+
+    void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    void addCreated(long count) {
+        created.addAndGet(count);
+    }
+
+    void addDuplicates(long count) {
+        duplicates.addAndGet(count);
+    }
+
+    void rowSkipped() {
+        skipped.incrementAndGet();
+    }
+
+    void rowFailed(long rowNumber, String message) {
+        failed.incrementAndGet();
+        error("row " + rowNumber + ": " + message);
+    }
+
+    void error(String message) {
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(message);
+            }
+        }
+    }
+
+    ImportJobStatusDto toDto() {
+        List<String> errorsCopy;
+        synchronized (errors) {
+            errorsCopy = List.copyOf(errors);
+        }
+        return ImportJobStatusDto.builder()
+                .jobId(id)
+                .status(status.name())
+                .fileName(fileName)
+                .format(format.name().toLowerCase(Locale.ROOT))
+                .rowsRead(rowsRead.get())
+                .created(created.get())
+                .duplicates(duplicates.get())
+                .skipped(skipped.get())
+                .failed(failed.get())
+                .errors(errorsCopy.isEmpty() ? null : errorsCopy)
+                .submittedAt(submittedAt)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .build();
+    }
+}
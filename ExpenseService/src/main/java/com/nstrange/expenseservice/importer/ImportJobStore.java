@@ -0,0 +1,98 @@
+package com.nstrange.expenseservice.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nstrange.expenseservice.dto.ImportJobStatusDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * The status of each import job as {@code <job id>.json} under {@code expense.import.status-dir}, so a
+ * status request can be answered by any instance, not only the one running the import. A file is written
+ * to {@code tmp} and renamed into place, so a reader sees either the old status or the new one.
+ */
+@Component
+public class ImportJobStore
+{
+
+    private final Path root;
+
+    private final Path tmpDir;
+
+    private final ObjectMapper objectMapper;
+
+    public ImportJobStore(@Value("${expense.import.status-dir:${java.io.tmpdir}/expense-import-status}") String dir,
+                          ObjectMapper objectMapper) {
+        this.root = Path.of(dir);
+        this.tmpDir = root.resolve("tmp");
+        this.objectMapper = objectMapper;
+    }
+
+    public void save(String jobId, String userId, ImportJobStatusDto status) throws IOException {
+        Files.createDirectories(tmpDir);
+        Path tmp = tmpDir.resolve(UUID.randomUUID() + ".part");
+        try {
+            Files.write(tmp, objectMapper.writeValueAsBytes(new StoredJob(userId, status)));
+            Files.move(tmp, jobFile(jobId), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @return the stored status of job {@code jobId}, or {@code null} if there is none or it belongs to
+     *         another user
+     */
+    public ImportJobStatusDto find(String jobId, String userId) throws IOException {
+        StoredJob stored;
+        try {
+            stored = objectMapper.readValue(Files.readAllBytes(jobFile(jobId)), StoredJob.class);
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+        return Objects.equals(stored.userId(), userId) ? stored.status() : null;
+    }
+
+    public void delete(String jobId) throws IOException {
+        Files.deleteIfExists(jobFile(jobId));
+    }
+
+    /**
+     * Deletes statuses last written before {@code cutoff}: finished jobs past retention on any instance,
+     * including those left by an instance that died, and temp files of interrupted writes.
+     *
+     * @return how many files were deleted
+     */
+    public long deleteOlderThan(Instant cutoff) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        long deleted = 0;
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)
+                        && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private Path jobFile(String jobId) {
+        // job ids come from the client, so only a UUID may name a file
+        return root.resolve(UUID.fromString(jobId) + ".json");
+    }
+
+    private record StoredJob(String userId, ImportJobStatusDto status) {
+    }
+}
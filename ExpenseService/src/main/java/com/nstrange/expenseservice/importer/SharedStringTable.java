@@ -0,0 +1,185 @@
+package com.nstrange.expenseservice.importer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The shared-string table of an .xlsx workbook, spooled to two temp files instead of the heap: the
+ * strings as UTF-8 one after another, and a fixed-width index of where each starts. A lookup reads the
+ * two offsets and the string with positional reads, so memory stays bounded however many strings the
+ * workbook has; a small cache keeps the header and repeated merchant names off the disk.
+ */
+final class SharedStringTable implements Closeable {
+
+    // Excel's own limit on the text of a cell
+    static final int MAX_STRING_LENGTH = 32_767;
+
+    private static final int CACHED_STRINGS = 1024;
+
+    private final Path dataFile;
+
+    private final Path indexFile;
+
+    private final FileChannel data;
+
+    private final FileChannel index;
+
+    private final long count;
+
+    private final long dataLength;
+
+    private final Map<Long, String> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > CACHED_STRINGS;
+        }
+    };
+
+    private SharedStringTable(Path dataFile, Path indexFile, long count) throws IOException {
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.count = count;
+        this.data = FileChannel.open(dataFile, StandardOpenOption.READ);
+        this.index = FileChannel.open(indexFile, StandardOpenOption.READ);
+        this.dataLength = data.size();
+    }
+
+    /** A table with no strings, for a workbook without {@code sharedStrings.xml}. */
+    static SharedStringTable empty(Path dir) throws IOException {
+        return spool(null, null, dir);
+    }
+
+    /**
+     * Streams the {@code <si>} entries of {@code xml} into temp files under {@code dir}. Phonetic runs are
+     * left out, and each string is cut at {@link #MAX_STRING_LENGTH} characters.
+     */
+    static SharedStringTable spool(XMLInputFactory factory, InputStream xml, Path dir) throws IOException {
+        Path dataFile = Files.createTempFile(dir, "shared-strings-", ".dat");
+        Path indexFile;
+        try {
+            indexFile = Files.createTempFile(dir, "shared-strings-", ".idx");
+        } catch (IOException ex) {
+            Files.deleteIfExists(dataFile);
+            throw ex;
+        }
+        long count = 0;
+        try {
+            try (OutputStream dataOut = new BufferedOutputStream(Files.newOutputStream(dataFile));
+                 DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+                if (xml != null) {
+                    count = copy(factory.createXMLStreamReader(xml), dataOut, indexOut);
+                }
+            }
+            return new SharedStringTable(dataFile, indexFile, count);
+        } catch (IOException | XMLStreamException | RuntimeException ex) {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(indexFile);
+            throw ex instanceof IOException io ? io : new IOException("Malformed shared strings: " + ex.getMessage(), ex);
+        }
+    }
+
+    long size() {
+        return count;
+    }
+
+    /** The string at {@code position}, or {@code ""} if there is none. */
+    String get(long position) throws IOException {
+        if (position < 0 || position >= count) {
+            return "";
+        }
+        String cached = cache.get(position);
+        if (cached != null) {
+            return cached;
+        }
+        ByteBuffer offsets = ByteBuffer.allocate(2 * Long.BYTES);
+        readFully(index, offsets, position * Long.BYTES);
+        long start = offsets.getLong(0);
+        long end = position + 1 < count ? offsets.getLong(Long.BYTES) : dataLength;
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        readFully(data, bytes, start);
+        String value = new String(bytes.array(), StandardCharsets.UTF_8);
+        cache.put(position, value);
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            data.close();
+            index.close();
+        } finally {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    private static long copy(XMLStreamReader xml, OutputStream dataOut, DataOutputStream indexOut)
+            throws IOException, XMLStreamException {
+        long count = 0;
+        long offset = 0;
+        StringBuilder current = null;
+        boolean inText = false;
+        boolean inPhonetic = false;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = xml.getLocalName();
+                if ("si".equals(name)) {
+                    current = new StringBuilder();
+                } else if ("rPh".equals(name)) {
+                    // phonetic runs repeat the text in another script
+                    inPhonetic = true;
+                }
+                inText = "t".equals(name) && current != null && !inPhonetic;
+            } else if (event == XMLStreamConstants.CHARACTERS && inText) {
+                int room = MAX_STRING_LENGTH - current.length();
+                if (room > 0) {
+                    String text = xml.getText();
+                    current.append(text, 0, Math.min(room, text.length()));
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                String name = xml.getLocalName();
+                if ("si".equals(name) && current != null) {
+                    byte[] bytes = current.toString().getBytes(StandardCharsets.UTF_8);
+                    indexOut.writeLong(offset);
+                    dataOut.write(bytes);
+                    offset += bytes.length;
+                    count++;
+                    current = null;
+                } else if ("rPh".equals(name)) {
+                    inPhonetic = false;
+                } else if ("t".equals(name)) {
+                    inText = false;
+                }
+            }
+        }
+        xml.close();
+        return count;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                // the last string has no following offset to read
+                return;
+            }
+        }
+    }
+}
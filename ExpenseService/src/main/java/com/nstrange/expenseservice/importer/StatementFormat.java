@@ -0,0 +1,24 @@
+package com.nstrange.expenseservice.importer;
+
+import java.util.Locale;
+import java.util.Objects;
+
+enum StatementFormat {
+    CSV,
+    XLSX;
+
+    /**
+     * @return the format implied by the file extension or content type, or {@code null} if unsupported
+     */
+    static StatementFormat detect(String fileName, String contentType) {
+        String name = Objects.nonNull(fileName) ? fileName.toLowerCase(Locale.ROOT) : "";
+        String type = Objects.nonNull(contentType) ? contentType.toLowerCase(Locale.ROOT) : "";
+        if (name.endsWith(".xlsx") || type.contains("spreadsheetml")) {
+            return XLSX;
+        }
+        if (name.endsWith(".csv") || type.startsWith("text/csv") || type.startsWith("text/plain")) {
+            return CSV;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,365 @@
+package com.nstrange.expenseservice.importer;
+
+import com.nstrange.expenseservice.categorizer.MerchantCategorizer;
+import com.nstrange.expenseservice.dto.BulkCreateExpenseItemDto;
+import com.nstrange.expenseservice.dto.ImportJobStatusDto;
+import com.nstrange.expenseservice.exception.ExpenseNotFoundException;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.ImportRejectedException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.model.BulkItemOutcome;
+import com.nstrange.expenseservice.service.ExpenseService;
+import com.nstrange.expenseservice.sharding.UserShardResolver;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports bank statements in the background. The upload is spooled to disk, then a worker streams it
+ * row by row and writes fixed-size chunks through {@link ExpenseService#createExpenses}, so memory is
+ * bounded by the chunk size and no request thread waits on the import. Each row gets an idempotency
+ * key derived from its content, which makes re-importing an overlapping statement report duplicates.
+ * <p>
+ * Jobs run on the instance that accepted the upload. Their status is also saved to the
+ * {@link ImportJobStore} when they start, after every chunk and when they finish, so {@link #status}
+ * works on any instance.
+ */
+@Service
+public class StatementImportService
+{
+
+    private static final Logger log = LoggerFactory.getLogger(StatementImportService.class);
+
+    private static final int MAX_PREAMBLE_ROWS = 50;
+
+    private static final String KEY_PREFIX = "imp:";
+
+    // 30 bytes of SHA-256 as hex plus the prefix fills the 64-character idempotency key column
+    private static final int KEY_HASH_BYTES = 30;
+
+    // identical rows sit together in a statement, so this many distinct recent rows is plenty to count them
+    private static final int OCCURRENCE_WINDOW = 10_000;
+
+    private final ExpenseService expenseService;
+
+    private final MerchantCategorizer merchantCategorizer;
+
+    private final UserShardResolver shardResolver;
+
+    private final ImportJobStore jobStore;
+
+    private final Path importDir;
+
+    private final int batchSize;
+
+    private final Duration retention;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ConcurrentHashMap<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public StatementImportService(ExpenseService expenseService, MerchantCategorizer merchantCategorizer,
+                                  UserShardResolver shardResolver, ImportJobStore jobStore,
+                                  @Value("${expense.import.dir:${java.io.tmpdir}/expense-imports}") String importDir,
+                                  @Value("${expense.import.batch-size:500}") int batchSize,
+                                  @Value("${expense.import.workers:2}") int workers,
+                                  @Value("${expense.import.queue-capacity:20}") int queueCapacity,
+                                  @Value("${expense.import.retention-minutes:60}") long retentionMinutes) {
+        this.expenseService = expenseService;
+        this.merchantCategorizer = merchantCategorizer;
+        this.shardResolver = shardResolver;
+        this.jobStore = jobStore;
+        this.importDir = Path.of(importDir);
+        this.batchSize = batchSize;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "statement-import-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public ImportJobStatusDto submit(String userId, MultipartFile file, String dateFormat, String currency,
+                                     String fundSource) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        if (Objects.isNull(file) || file.isEmpty()) {
+            throw new InvalidExpenseRequestException("Statement file must not be empty");
+        }
+        StatementFormat format = StatementFormat.detect(file.getOriginalFilename(), file.getContentType());
+        if (Objects.isNull(format)) {
+            throw new InvalidExpenseRequestException("Unsupported statement format; upload a .csv or .xlsx file");
+        }
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), userId, file.getOriginalFilename(), format);
+        Path spooled = importDir.resolve(job.getId() + "." + format.name().toLowerCase(Locale.ROOT));
+        try {
+            Files.createDirectories(importDir);
+            // moves or stream-copies the multipart temp file; the upload is never held in memory
+            file.transferTo(spooled);
+        } catch (IOException ex) {
+            log.error("Failed to spool statement upload for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to store uploaded statement", ex);
+        }
+
+        String resolvedCurrency = Objects.nonNull(currency) && !currency.isBlank()
+                ? currency.trim().toUpperCase(Locale.ROOT) : null;
+        String resolvedFundSource = Objects.nonNull(fundSource) && !fundSource.isBlank() ? fundSource.trim() : null;
+        jobs.put(job.getId(), job);
+        save(job);
+        try {
+            executor.execute(() -> run(job, spooled, dateFormat, resolvedCurrency, resolvedFundSource));
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.getId());
+            delete(job.getId());
+            deleteQuietly(spooled);
+            log.warn("Statement import queue full, rejecting upload for userId={}", userId);
+            throw new ImportRejectedException("Too many imports in progress; retry later");
+        }
+        log.info("Queued statement import jobId={} for userId={} format={} size={}",
+                job.getId(), userId, format, file.getSize());
+        return job.toDto();
+    }
+
+    /**
+     * Answered from memory on the instance running the job, and from the stored status anywhere else.
+     */
+    public ImportJobStatusDto status(String userId, String jobId) {
+        ImportJob job = Objects.nonNull(jobId) ? jobs.get(jobId) : null;
+        if (Objects.nonNull(job)) {
+            if (!job.getUserId().equals(userId)) {
+                throw new ExpenseNotFoundException("Import job " + jobId + " not found");
+            }
+            return job.toDto();
+        }
+        ImportJobStatusDto stored = null;
+        try {
+            stored = Objects.nonNull(jobId) ? jobStore.find(jobId, userId) : null;
+        } catch (IllegalArgumentException ex) {
+            // not a job id this service could have issued
+        } catch (IOException ex) {
+            log.error("Failed to read import jobId={}", jobId, ex);
+            throw new ExpenseServiceException("Failed to read import job " + jobId, ex);
+        }
+        if (Objects.isNull(stored)) {
+            throw new ExpenseNotFoundException("Import job " + jobId + " not found");
+        }
+        return stored;
+    }
+
+    /**
+     * Forgets finished jobs after the retention period, and deletes stored statuses not written for as
+     * long, which also clears those of jobs whose instance died.
+     */
+    @Scheduled(fixedDelayString = "${expense.import.cleanup-interval-ms:60000}")
+    public void evictFinishedJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> Objects.nonNull(job.getFinishedAt()) && job.getFinishedAt().isBefore(cutoff));
+        try {
+            jobStore.deleteOlderThan(cutoff);
+        } catch (IOException ex) {
+            log.warn("Could not delete expired import statuses: {}", ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ImportJob job, Path file, String dateFormat, String currency, String fundSource) {
+        job.started();
+        save(job);
+        log.info("Starting statement import jobId={} for userId={}", job.getId(), job.getUserId());
+        List<BulkCreateExpenseItemDto> batch = new ArrayList<>(batchSize);
+        List<Long> batchRows = new ArrayList<>(batchSize);
+        Map<String, Integer> occurrences = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > OCCURRENCE_WINDOW;
+            }
+        };
+        MessageDigest digest = sha256();
+
+        try (StatementReader reader = open(job.getFormat(), file)) {
+            StatementRowMapper mapper = null;
+            List<String> row;
+            while ((row = reader.nextRow()) != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Import interrupted");
+                }
+                if (isBlank(row)) {
+                    continue;
+                }
+                if (Objects.isNull(mapper)) {
+                    mapper = StatementRowMapper.fromHeader(row, dateFormat, currency, fundSource);
+                    if (Objects.isNull(mapper) && reader.rowNumber() >= MAX_PREAMBLE_ROWS) {
+                        break;
+                    }
+                    continue;
+                }
+
+                job.rowRead();
+                BulkCreateExpenseItemDto item;
+                try {
+                    item = mapper.map(row);
+                } catch (IllegalArgumentException ex) {
+                    job.rowFailed(reader.rowNumber(), ex.getMessage());
+                    continue;
+                }
+                if (Objects.isNull(item)) {
+                    job.rowSkipped();
+                    continue;
+                }
+                item.setIdempotencyKey(idempotencyKey(digest, item, occurrences));
+                String merchant = item.getMerchant();
+                item.setCategory(shardResolver.callForUser(job.getUserId(),
+                        () -> merchantCategorizer.categorize(job.getUserId(), merchant)));
+                batch.add(item);
+                batchRows.add(reader.rowNumber());
+                if (batch.size() >= batchSize) {
+                    flush(job, batch, batchRows);
+                }
+            }
+            if (Objects.isNull(mapper)) {
+                throw new IOException("No header row with date, description and amount or debit columns in the first "
+                        + MAX_PREAMBLE_ROWS + " rows");
+            }
+            flush(job, batch, batchRows);
+            job.finished(ImportJob.Status.COMPLETED);
+            ImportJobStatusDto summary = job.toDto();
+            log.info("Statement import jobId={} completed: rows={} created={} duplicates={} failed={}", job.getId(),
+                    summary.getRowsRead(), summary.getCreated(), summary.getDuplicates(), summary.getFailed());
+        } catch (IOException | RuntimeException ex) {
+            job.error(ex.getMessage());
+            job.finished(ImportJob.Status.FAILED);
+            log.error("Statement import jobId={} failed", job.getId(), ex);
+        } finally {
+            save(job);
+            deleteQuietly(file);
+        }
+    }
+
+    private void flush(ImportJob job, List<BulkCreateExpenseItemDto> batch, List<Long> batchRows) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long created = 0;
+        long duplicates = 0;
+        // resolved per chunk, so a long import follows the user if they are moved to another shard
+        List<BulkItemOutcome> outcomes = shardResolver.callForUser(job.getUserId(),
+                () -> expenseService.createExpenses(batch, job.getUserId()));
+        for (BulkItemOutcome outcome : outcomes) {
+            switch (outcome.getStatus()) {
+                case CREATED -> created++;
+                case DUPLICATE -> duplicates++;
+                case INVALID -> job.rowFailed(batchRows.get(outcome.getIndex()), outcome.getErrors().stream()
+                        .map(e -> Objects.nonNull(e.getField()) ? e.getField() + " " + e.getMessage() : e.getMessage())
+                        .reduce((a, b) -> a + "; " + b)
+                        .orElse("invalid"));
+            }
+        }
+        job.addCreated(created);
+        job.addDuplicates(duplicates);
+        batch.clear();
+        batchRows.clear();
+        save(job);
+    }
+
+    /**
+     * A status that cannot be saved is still served by this instance, so the import carries on.
+     */
+    private void save(ImportJob job) {
+        try {
+            jobStore.save(job.getId(), job.getUserId(), job.toDto());
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not save status of import jobId={}: {}", job.getId(), ex.getMessage());
+        }
+    }
+
+    private void delete(String jobId) {
+        try {
+            jobStore.delete(jobId);
+        } catch (IOException ex) {
+            log.warn("Could not delete status of import jobId={}: {}", jobId, ex.getMessage());
+        }
+    }
+
+    /**
+     * Content hash of the row plus how many identical rows came before it in this file, so two equal
+     * purchases on the same day stay distinct while a re-upload of the same file maps onto the same keys.
+     * Counts are kept for the {@value #OCCURRENCE_WINDOW} most recently seen distinct rows; the window
+     * depends only on the file, so a re-upload still derives the same keys.
+     */
+    private static String idempotencyKey(MessageDigest digest, BulkCreateExpenseItemDto item,
+                                          Map<String, Integer> occurrences) {
+        String content = item.getCreatedAt().getTime() + "|" + item.getAmount().toPlainString() + "|"
+                + item.getMerchant().toLowerCase(Locale.ROOT) + "|" + item.getCurrency();
+        int occurrence = occurrences.merge(content, 1, Integer::sum);
+        byte[] hash = digest.digest((content + "|" + occurrence).getBytes(StandardCharsets.UTF_8));
+        return KEY_PREFIX + HexFormat.of().formatHex(hash, 0, KEY_HASH_BYTES);
+    }
+
+    private static StatementReader open(StatementFormat format, Path file) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvStatementReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), ',');
+            case XLSX -> new XlsxStatementReader(file);
+        };
+    }
+
+    private static boolean isBlank(List<String> row) {
+        for (String cell : row) {
+            if (Objects.nonNull(cell) && !cell.isBlank()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Could not delete spooled statement {}: {}", file, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.nstrange.expenseservice.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Forward-only reader over the rows of a bank statement. Implementations hold at most one row in memory.
+ */
+interface StatementReader extends Closeable {
+
+    /**
+     * @return the next row's cells, or {@code null} at end of input
+     */
+    List<String> nextRow() throws IOException;
+
+    /** 1-based number of the row last returned, as the user would see it in the file. */
+    long rowNumber();
+}
@@ -0,0 +1,231 @@
+package com.nstrange.expenseservice.importer;
+
+import com.nstrange.expenseservice.dto.BulkCreateExpenseItemDto;
+import com.nstrange.expenseservice.service.SpendRollupService;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Maps raw statement rows to expense items. Columns are located by header name (common bank export
+ * spellings), amounts are stripped of currency symbols and thousands separators, and dates are tried
+ * against a list of day-first formats, remembering the one that matched last.
+ */
+final class StatementRowMapper {
+
+    private static final int MAX_MERCHANT_LENGTH = 255;
+
+    private static final LocalDate EXCEL_EPOCH = LocalDate.of(1899, 12, 30);
+
+    private static final Pattern EXCEL_SERIAL = Pattern.compile("\\d{5}(\\.\\d+)?");
+
+    private static final Pattern TRAILING_TIME = Pattern.compile("[ T]\\d{1,2}:\\d{2}.*$");
+
+    private static final Pattern HEADER_NOISE = Pattern.compile("\\(.*?\\)|[^a-z0-9/ ]");
+
+    private static final List<String> DEFAULT_DATE_PATTERNS = List.of(
+            "yyyy-M-d", "d/M/yyyy", "d-M-yyyy", "d.M.yyyy", "d/M/yy", "d-M-yy",
+            "d-MMM-yyyy", "d-MMM-yy", "d MMM yyyy", "d MMM yy", "MMM d, yyyy", "yyyy/M/d");
+
+    private static final Map<String, String> HEADER_ALIASES = Map.ofEntries(
+            Map.entry("date", "date"), Map.entry("transaction date", "date"), Map.entry("txn date", "date"),
+            Map.entry("tran date", "date"), Map.entry("value date", "date"), Map.entry("posting date", "date"),
+            Map.entry("description", "description"), Map.entry("narration", "description"),
+            Map.entry("particulars", "description"), Map.entry("details", "description"),
+            Map.entry("transaction details", "description"), Map.entry("merchant", "description"),
+            Map.entry("payee", "description"), Map.entry("remarks", "description"),
+            Map.entry("amount", "amount"), Map.entry("transaction amount", "amount"),
+            Map.entry("debit", "debit"), Map.entry("debit amount", "debit"), Map.entry("withdrawal", "debit"),
+            Map.entry("withdrawal amt", "debit"), Map.entry("withdrawal amount", "debit"), Map.entry("dr", "debit"),
+            Map.entry("credit", "credit"), Map.entry("credit amount", "credit"), Map.entry("deposit", "credit"),
+            Map.entry("deposit amt", "credit"), Map.entry("deposit amount", "credit"), Map.entry("cr", "credit"),
+            Map.entry("type", "type"), Map.entry("transaction type", "type"), Map.entry("dr/cr", "type"),
+            Map.entry("cr/dr", "type"), Map.entry("currency", "currency"));
+
+    private final int dateColumn;
+
+    private final int descriptionColumn;
+
+    private final int amountColumn;
+
+    private final int debitColumn;
+
+    private final int creditColumn;
+
+    private final int typeColumn;
+
+    private final int currencyColumn;
+
+    private final List<DateTimeFormatter> dateFormats;
+
+    private final String defaultCurrency;
+
+    private final String fundSource;
+
+    private int lastDateFormat;
+
+    private StatementRowMapper(Map<String, Integer> columns, List<DateTimeFormatter> dateFormats,
+                               String defaultCurrency, String fundSource) {
+        this.dateColumn = columns.getOrDefault("date", -1);
+        this.descriptionColumn = columns.getOrDefault("description", -1);
+        this.amountColumn = columns.getOrDefault("amount", -1);
+        this.debitColumn = columns.getOrDefault("debit", -1);
+        this.creditColumn = columns.getOrDefault("credit", -1);
+        this.typeColumn = columns.getOrDefault("type", -1);
+        this.currencyColumn = columns.getOrDefault("currency", -1);
+        this.dateFormats = dateFormats;
+        this.defaultCurrency = defaultCurrency;
+        this.fundSource = fundSource;
+    }
+
+    /**
+     * @return a mapper if {@code header} names a date, a description and an amount or debit column,
+     *         otherwise {@code null} (the row is preamble, not the header)
+     */
+    static StatementRowMapper fromHeader(List<String> header, String dateFormat, String defaultCurrency,
+                                         String fundSource) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String normalized = HEADER_NOISE.matcher(header.get(i).toLowerCase(Locale.ROOT)).replaceAll("")
+                    .replaceAll("\\s+", " ").trim();
+            String role = HEADER_ALIASES.get(normalized);
+            if (Objects.nonNull(role)) {
+                columns.putIfAbsent(role, i);
+            }
+        }
+        if (!columns.containsKey("date") || !columns.containsKey("description")
+                || !(columns.containsKey("amount") || columns.containsKey("debit"))) {
+            return null;
+        }
+        List<DateTimeFormatter> formats = (Objects.nonNull(dateFormat) && !dateFormat.isBlank()
+                ? List.of(dateFormat.trim()) : DEFAULT_DATE_PATTERNS).stream()
+                .map(pattern -> new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern(pattern)
+                        .toFormatter(Locale.ENGLISH))
+                .toList();
+        return new StatementRowMapper(columns, formats, defaultCurrency, fundSource);
+    }
+
+    /**
+     * @return the expense for a debit row, or {@code null} for credits and rows without an amount
+     * @throws IllegalArgumentException if the row cannot be interpreted
+     */
+    BulkCreateExpenseItemDto map(List<String> cells) {
+        BigDecimal amount;
+        if (debitColumn >= 0) {
+            String debit = cell(cells, debitColumn);
+            if (debit.isEmpty() || isZero(debit)) {
+                return null;
+            }
+            amount = parseAmount(debit).abs();
+        } else {
+            String raw = cell(cells, amountColumn);
+            if (raw.isEmpty()) {
+                return null;
+            }
+            String upper = raw.toUpperCase(Locale.ROOT);
+            String type = cell(cells, typeColumn).toUpperCase(Locale.ROOT);
+            if (upper.endsWith("CR") || type.startsWith("CR") || type.startsWith("CREDIT")) {
+                return null;
+            }
+            amount = parseAmount(upper.endsWith("DR") ? raw.substring(0, raw.length() - 2) : raw).abs();
+        }
+        if (amount.signum() == 0) {
+            return null;
+        }
+
+        String description = cell(cells, descriptionColumn).replaceAll("\\s+", " ");
+        if (description.isEmpty()) {
+            throw new IllegalArgumentException("missing description");
+        }
+        LocalDate date = parseDate(cell(cells, dateColumn));
+        String currency = cell(cells, currencyColumn);
+
+        BulkCreateExpenseItemDto item = new BulkCreateExpenseItemDto();
+        item.setAmount(amount);
+        item.setMerchant(description.length() > MAX_MERCHANT_LENGTH
+                ? description.substring(0, MAX_MERCHANT_LENGTH) : description);
+        item.setCurrency(currency.isEmpty() ? defaultCurrency : currency.toUpperCase(Locale.ROOT));
+        item.setFundSource(fundSource);
+        item.setCreatedAt(Timestamp.from(date.atStartOfDay(SpendRollupService.ROLLUP_ZONE).toInstant()));
+        return item;
+    }
+
+    static BigDecimal parseAmount(String raw) {
+        String value = raw.trim();
+        boolean negative = false;
+        if (value.startsWith("(") && value.endsWith(")")) {
+            negative = true;
+            value = value.substring(1, value.length() - 1);
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isDigit(c)) {
+                digits.append(c);
+            } else if (c == '.' && (!digits.isEmpty() || i == 0 || !Character.isLetter(value.charAt(i - 1)))) {
+                // a dot right after letters is an abbreviation such as "Rs.", not a decimal point
+                digits.append(c);
+            } else if (c == '-') {
+                negative = true;
+            }
+        }
+        if (digits.isEmpty()) {
+            throw new IllegalArgumentException("unreadable amount '" + raw + "'");
+        }
+        try {
+            BigDecimal amount = new BigDecimal(digits.toString()).setScale(2, RoundingMode.HALF_UP);
+            return negative ? amount.negate() : amount;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("unreadable amount '" + raw + "'");
+        }
+    }
+
+    private LocalDate parseDate(String raw) {
+        if (raw.isEmpty()) {
+            throw new IllegalArgumentException("missing date");
+        }
+        if (EXCEL_SERIAL.matcher(raw).matches()) {
+            return EXCEL_EPOCH.plusDays((long) Double.parseDouble(raw));
+        }
+        String value = TRAILING_TIME.matcher(raw).replaceFirst("");
+        int formats = dateFormats.size();
+        for (int attempt = 0; attempt < formats; attempt++) {
+            int index = (lastDateFormat + attempt) % formats;
+            try {
+                LocalDate date = LocalDate.parse(value, dateFormats.get(index));
+                lastDateFormat = index;
+                return date;
+            } catch (DateTimeParseException ex) {
+                // try the next format
+            }
+        }
+        throw new IllegalArgumentException("unreadable date '" + raw + "'");
+    }
+
+    private static boolean isZero(String value) {
+        try {
+            return parseAmount(value).signum() == 0;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private static String cell(List<String> cells, int column) {
+        if (column < 0 || column >= cells.size()) {
+            return "";
+        }
+        String value = cells.get(column);
+        return Objects.nonNull(value) ? value.trim() : "";
+    }
+}
@@ -0,0 +1,185 @@
+package com.nstrange.expenseservice.importer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the first worksheet of an .xlsx workbook with StAX instead of building a DOM. The shared-string
+ * table is spooled to disk beside the upload ({@link SharedStringTable}), so memory does not grow with
+ * the sheet or the number of distinct strings. Cell values are returned as the raw stored text; dates
+ * therefore come back as Excel serial numbers.
+ */
+final class XlsxStatementReader implements StatementReader {
+
+    private static final String SHARED_STRINGS = "xl/sharedStrings.xml";
+
+    private static final String FIRST_SHEET = "xl/worksheets/sheet1.xml";
+
+    private static final int MAX_COLUMNS = 256;
+
+    private final ZipFile zip;
+
+    private final InputStream sheetStream;
+
+    private final XMLStreamReader sheet;
+
+    private final SharedStringTable sharedStrings;
+
+    private long rowNumber;
+
+    XlsxStatementReader(Path file) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        this.zip = new ZipFile(file.toFile());
+        try {
+            this.sharedStrings = readSharedStrings(factory, file.toAbsolutePath().getParent());
+        } catch (IOException | RuntimeException ex) {
+            zip.close();
+            throw ex;
+        }
+        try {
+            ZipEntry sheetEntry = firstSheet();
+            this.sheetStream = zip.getInputStream(sheetEntry);
+            this.sheet = factory.createXMLStreamReader(sheetStream);
+        } catch (IOException | XMLStreamException | RuntimeException ex) {
+            sharedStrings.close();
+            zip.close();
+            throw ex instanceof IOException io ? io : new IOException("Not a readable .xlsx workbook: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public List<String> nextRow() throws IOException {
+        try {
+            while (sheet.hasNext()) {
+                if (sheet.next() == XMLStreamConstants.START_ELEMENT && "row".equals(sheet.getLocalName())) {
+                    String r = sheet.getAttributeValue(null, "r");
+                    rowNumber = r != null ? Long.parseLong(r) : rowNumber + 1;
+                    return readRow();
+                }
+            }
+            return null;
+        } catch (XMLStreamException | NumberFormatException ex) {
+            throw new IOException("Malformed worksheet near row " + rowNumber + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public long rowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sheet.close();
+        } catch (XMLStreamException ex) {
+            // closing the underlying stream below is what matters
+        }
+        try {
+            sheetStream.close();
+            sharedStrings.close();
+        } finally {
+            zip.close();
+        }
+    }
+
+    private List<String> readRow() throws XMLStreamException, IOException {
+        List<String> cells = new ArrayList<>();
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "row".equals(sheet.getLocalName())) {
+                return cells;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && "c".equals(sheet.getLocalName())) {
+                int column = columnIndex(sheet.getAttributeValue(null, "r"), cells.size());
+                String type = sheet.getAttributeValue(null, "t");
+                String value = readCell(type);
+                if (column < MAX_COLUMNS) {
+                    while (cells.size() < column) {
+                        cells.add("");
+                    }
+                    cells.add(value);
+                }
+            }
+        }
+        return cells;
+    }
+
+    private String readCell(String type) throws XMLStreamException, IOException {
+        StringBuilder text = new StringBuilder();
+        boolean inValue = false;
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = sheet.getLocalName();
+                inValue = "v".equals(name) || "t".equals(name);
+            } else if (event == XMLStreamConstants.CHARACTERS && inValue) {
+                text.append(sheet.getText());
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if ("c".equals(sheet.getLocalName())) {
+                    break;
+                }
+                inValue = false;
+            }
+        }
+        String raw = text.toString().trim();
+        if ("s".equals(type) && !raw.isEmpty()) {
+            return sharedStrings.get(Long.parseLong(raw)).trim();
+        }
+        return raw;
+    }
+
+    private SharedStringTable readSharedStrings(XMLInputFactory factory, Path dir) throws IOException {
+        ZipEntry entry = zip.getEntry(SHARED_STRINGS);
+        if (entry == null) {
+            return SharedStringTable.empty(dir);
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return SharedStringTable.spool(factory, in, dir);
+        }
+    }
+
+    private ZipEntry firstSheet() throws IOException {
+        ZipEntry entry = zip.getEntry(FIRST_SHEET);
+        if (entry != null) {
+            return entry;
+        }
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry candidate = entries.nextElement();
+            if (candidate.getName().startsWith("xl/worksheets/") && candidate.getName().endsWith(".xml")) {
+                return candidate;
+            }
+        }
+        throw new IOException("Workbook has no worksheets");
+    }
+
+    /** Zero-based column of a cell reference such as {@code "AB12"}; falls back to the next column. */
+    private static int columnIndex(String reference, int fallback) {
+        if (reference == null) {
+            return fallback;
+        }
+        int column = 0;
+        for (int i = 0; i < reference.length(); i++) {
+            char c = reference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column > 0 ? column - 1 : fallback;
+    }
+}
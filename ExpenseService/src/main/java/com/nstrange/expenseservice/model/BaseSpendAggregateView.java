@@ -0,0 +1,10 @@
+package com.nstrange.expenseservice.model;
+
+/**
+ * Spend aggregate for one currency: the sum of base amounts in {@code currency} where rows were
+ * converted on write, otherwise of the original amounts in their own currency.
+ */
+public interface BaseSpendAggregateView extends SpendAggregateView {
+
+    String getCurrency();
+}
@@ -0,0 +1,28 @@
+package com.nstrange.expenseservice.model;
+
+import com.nstrange.expenseservice.dto.ApiErrorResponse;
+import com.nstrange.expenseservice.dto.BulkItemResultDto;
+import com.nstrange.expenseservice.entities.Expense;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Result of one item of a bulk create, in request order. {@code expense} is the created row, or the
+ * previously stored row for a repeated idempotency key; {@code errors} is set for invalid items.
+ */
+@Getter
+@AllArgsConstructor
+public class BulkItemOutcome {
+
+    private final int index;
+
+    private final String idempotencyKey;
+
+    private final BulkItemResultDto.Status status;
+
+    private final Expense expense;
+
+    private final List<ApiErrorResponse.FieldValidationError> errors;
+}
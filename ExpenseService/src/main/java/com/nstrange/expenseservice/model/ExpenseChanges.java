@@ -0,0 +1,21 @@
+package com.nstrange.expenseservice.model;
+
+import com.nstrange.expenseservice.entities.Expense;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of a user's change stream. {@code expenses} includes tombstones (rows with {@code deletedAt} set).
+ */
+@Getter
+@AllArgsConstructor
+public class ExpenseChanges {
+
+    private final List<Expense> expenses;
+
+    private final SyncCursor cursor;
+
+    private final boolean hasMore;
+}
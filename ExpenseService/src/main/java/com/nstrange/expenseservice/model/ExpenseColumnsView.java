@@ -0,0 +1,22 @@
+package com.nstrange.expenseservice.model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Projection for the columns the in-memory spend cache keeps per expense.
+ */
+public interface ExpenseColumnsView {
+
+    Long getId();
+
+    Timestamp getCreatedAt();
+
+    BigDecimal getAmount();
+
+    String getMerchant();
+
+    String getCategory();
+
+    String getFundSource();
+}
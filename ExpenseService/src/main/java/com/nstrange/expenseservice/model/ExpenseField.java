@@ -0,0 +1,74 @@
+package com.nstrange.expenseservice.model;
+
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Expense fields a client can ask for with {@code fields=}; the JSON name, the entity attribute it is
+ * read from and that attribute's type. Declaration order is the order fields are written in, matching
+ * {@code ExpenseDto}.
+ */
+@Getter
+public enum ExpenseField {
+    EXTERNAL_ID("external_id", "externalId", String.class),
+    AMOUNT("amount", "amount", BigDecimal.class),
+    USER_ID("user_id", "userId", String.class),
+    MERCHANT("merchant", "merchant", String.class),
+    CURRENCY("currency", "currency", String.class),
+    BASE_AMOUNT("base_amount", "baseAmount", BigDecimal.class),
+    BASE_CURRENCY("base_currency", "baseCurrency", String.class),
+    CREATED_AT("created_at", "createdAt", Timestamp.class),
+    NOTES("notes", "notes", String.class),
+    CATEGORY("category", "category", String.class),
+    FUND_SOURCE("fund_source", "fundSource", String.class),
+    DUPLICATE_OF("duplicate_of", "duplicateOf", String.class),
+    UPDATED_AT("updated_at", "updatedAt", Timestamp.class),
+    VERSION("version", "version", Long.class);
+
+    public static final List<ExpenseField> ALL = List.of(values());
+
+    private final String jsonName;
+
+    private final String attribute;
+
+    private final Class<?> type;
+
+    ExpenseField(String jsonName, String attribute, Class<?> type) {
+        this.jsonName = jsonName;
+        this.attribute = attribute;
+        this.type = type;
+    }
+
+    /**
+     * Parses a comma-separated {@code fields=} value into canonical order, so equivalent requests
+     * share one query shape.
+     *
+     * @return every field when {@code value} is blank
+     */
+    public static List<ExpenseField> parse(String value) {
+        if (Objects.isNull(value) || value.isBlank()) {
+            return ALL;
+        }
+        EnumSet<ExpenseField> selected = EnumSet.noneOf(ExpenseField.class);
+        for (String name : value.split(",")) {
+            String trimmed = name.trim().toLowerCase(Locale.ROOT);
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            selected.add(Arrays.stream(values())
+                    .filter(f -> f.jsonName.equals(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new InvalidExpenseRequestException("Unknown field '" + trimmed
+                            + "'; expected any of " + ALL.stream().map(ExpenseField::getJsonName).toList())));
+        }
+        return selected.isEmpty() ? ALL : List.copyOf(selected);
+    }
+}
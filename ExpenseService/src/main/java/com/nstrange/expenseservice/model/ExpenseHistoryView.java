@@ -0,0 +1,21 @@
+package com.nstrange.expenseservice.model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Projection for one row of a keyset-paged expense history; {@code id} and {@code createdAt} are the
+ * page position.
+ */
+public interface ExpenseHistoryView {
+
+    Long getId();
+
+    Timestamp getCreatedAt();
+
+    BigDecimal getAmount();
+
+    String getCurrency();
+
+    String getMerchant();
+}
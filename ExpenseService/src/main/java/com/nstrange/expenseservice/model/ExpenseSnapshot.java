@@ -0,0 +1,52 @@
+package com.nstrange.expenseservice.model;
+
+import com.nstrange.expenseservice.entities.Expense;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Objects;
+
+/**
+ * Immutable copy of the fields of an {@link Expense} that derived state (rollups, caches, indexes)
+ * is keyed on. Taken before an entity is mutated so the old contribution can be reversed.
+ */
+@Getter
+@AllArgsConstructor
+public class ExpenseSnapshot {
+
+    private final String userId;
+    private final BigDecimal amount;
+    private final String merchant;
+    private final String category;
+    private final String fundSource;
+    private final String currency;
+    private final BigDecimal baseAmount;
+    private final String baseCurrency;
+    private final String duplicateOf;
+    private final Timestamp createdAt;
+
+    public static ExpenseSnapshot of(Expense expense) {
+        return new ExpenseSnapshot(
+                expense.getUserId(),
+                expense.getAmount(),
+                expense.getMerchant(),
+                expense.getCategory(),
+                expense.getFundSource(),
+                expense.getCurrency(),
+                expense.getBaseAmount(),
+                expense.getBaseCurrency(),
+                expense.getDuplicateOf(),
+                Objects.isNull(expense.getCreatedAt()) ? null : new Timestamp(expense.getCreatedAt().getTime())
+        );
+    }
+
+    /**
+     * A flagged near-duplicate stays stored and listed, but is left out of every total, so the
+     * expense it repeats is counted once.
+     */
+    public boolean isCounted() {
+        return Objects.isNull(duplicateOf);
+    }
+}
@@ -0,0 +1,20 @@
+package com.nstrange.expenseservice.model;
+
+/**
+ * One expense reduced to some {@link ExpenseField}s; the row type of both the MySQL projection and
+ * archived expenses. A value is checked against its field's type when set, and fields that were not
+ * selected read as {@code null}.
+ */
+public final class ProjectedExpense {
+
+    private final Object[] values = new Object[ExpenseField.ALL.size()];
+
+    public Object get(ExpenseField field) {
+        return values[field.ordinal()];
+    }
+
+    public ProjectedExpense set(ExpenseField field, Object value) {
+        values[field.ordinal()] = field.getType().cast(value);
+        return this;
+    }
+}
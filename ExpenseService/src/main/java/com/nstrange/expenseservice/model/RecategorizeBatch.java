@@ -0,0 +1,18 @@
+package com.nstrange.expenseservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of one keyset-paginated re-categorization batch.
+ */
+@Getter
+@AllArgsConstructor
+public class RecategorizeBatch {
+
+    private final long lastId;
+
+    private final int scanned;
+
+    private final int updated;
+}
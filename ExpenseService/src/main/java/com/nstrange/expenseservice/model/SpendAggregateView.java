@@ -0,0 +1,15 @@
+package com.nstrange.expenseservice.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Projection for SQL-side spend aggregates; {@code groupKey} is {@code null} for ungrouped sums.
+ */
+public interface SpendAggregateView {
+
+    String getGroupKey();
+
+    BigDecimal getTotal();
+
+    Long getExpenseCount();
+}
@@ -0,0 +1,15 @@
+package com.nstrange.expenseservice.model;
+
+/**
+ * Projection for one line of a monthly statement, paged like {@link ExpenseHistoryView}.
+ */
+public interface StatementRowView extends ExpenseHistoryView {
+
+    String getCategory();
+
+    String getFundSource();
+
+    String getNotes();
+
+    String getExternalId();
+}
@@ -0,0 +1,16 @@
+package com.nstrange.expenseservice.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Projection for the per-month fingerprint a cached statement is keyed by; {@code lastUpdatedAt} is
+ * {@code null} for a month without rows.
+ */
+public interface StatementVersionView {
+
+    Long getRowCount();
+
+    Timestamp getLastUpdatedAt();
+
+    Long getVersionSum();
+}
@@ -0,0 +1,44 @@
+package com.nstrange.expenseservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position in a user's change stream: the {@code (updated_at, id)} of the last row a client has seen.
+ * Clients treat the encoded form as opaque.
+ */
+@Getter
+@AllArgsConstructor
+public class SyncCursor {
+
+    public static final SyncCursor START = new SyncCursor(0L, 0L);
+
+    private final long updatedAtMillis;
+
+    private final long id;
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((updatedAtMillis + ":" + id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code value} is not a cursor issued by {@link #encode()}
+     */
+    public static SyncCursor decode(String value) {
+        if (Objects.isNull(value) || value.isBlank()) {
+            return START;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(value.trim()), StandardCharsets.US_ASCII);
+        int separator = decoded.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("malformed cursor");
+        }
+        return new SyncCursor(Long.parseLong(decoded.substring(0, separator)),
+                Long.parseLong(decoded.substring(separator + 1)));
+    }
+}
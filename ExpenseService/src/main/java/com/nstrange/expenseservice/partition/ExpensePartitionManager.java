@@ -0,0 +1,247 @@
+package com.nstrange.expenseservice.partition;
+
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.service.SpendRollupService;
+import com.nstrange.expenseservice.sharding.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@code expense} range-partitioned by {@code created_at} month (see
+ * {@code db/migration/002_partition_expense_by_month.sql}): partitions for the coming months are split
+ * off the empty {@code pmax} ahead of time, and months that fall out of the retention window are
+ * exchanged into standalone {@code expense_archive_YYYYMM} tables and dropped from {@code expense}.
+ * <p>
+ * The lower edge of the retained window is also the time predicate every expense query carries, so a
+ * row is never visible in one request and archived by the next month's run. With sharding on, every
+ * shard is maintained the same way.
+ */
+@Service
+public class ExpensePartitionManager
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ExpensePartitionManager.class);
+
+    private static final String LOCK_NAME = "expense_partition_maintenance";
+
+    private static final Timestamp UNBOUNDED = Timestamp.valueOf("1970-01-01 00:00:00");
+
+    private static final String PARTITIONS_SQL = "SELECT partition_name FROM information_schema.partitions "
+            + "WHERE table_schema = DATABASE() AND table_name = 'expense' AND partition_name IS NOT NULL "
+            + "ORDER BY partition_ordinal_position";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Shards shards;
+
+    private final Clock clock;
+
+    private final boolean enabled;
+
+    private final int monthsAhead;
+
+    private final int retentionMonths;
+
+    public ExpensePartitionManager(JdbcTemplate jdbcTemplate, Shards shards,
+                                   @Value("${expense.partitioning.enabled:false}") boolean enabled,
+                                   @Value("${expense.partitioning.months-ahead:3}") int monthsAhead,
+                                   @Value("${expense.partitioning.retention-months:24}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.clock = Clock.system(SpendRollupService.ROLLUP_ZONE);
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * First instant still kept in {@code expense}; the epoch when partitioning is off. Queries bound
+     * {@code created_at} from here so MySQL never has to consider archived months.
+     */
+    public Timestamp retainedFrom() {
+        if (!enabled) {
+            return UNBOUNDED;
+        }
+        return Timestamp.valueOf(oldestRetainedMonth().atDay(1).atStartOfDay());
+    }
+
+    /**
+     * Rejects a {@code created_at} that would land in an archived month, which has no partition to go to.
+     */
+    public void checkWritable(Timestamp createdAt) {
+        if (enabled && Objects.nonNull(createdAt) && createdAt.before(retainedFrom())) {
+            throw new InvalidExpenseRequestException("created_at must not be before " + retainedFrom().toLocalDateTime().toLocalDate()
+                    + " (expenses older than " + retentionMonths + " months are archived)");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${expense.partitioning.maintenance-cron:0 30 2 * * *}", zone = "UTC")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        shards.forEach(this::maintainShard);
+    }
+
+    private void maintainShard(String shard) {
+        String lockName = Objects.isNull(shard) ? LOCK_NAME : LOCK_NAME + "_" + shard;
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                // every instance runs the job; only the one holding the lock touches the schema
+                if (!acquireLock(connection, lockName)) {
+                    log.debug("Partition maintenance is running on another instance");
+                    return null;
+                }
+                try {
+                    maintain(connection);
+                } finally {
+                    releaseLock(connection, lockName);
+                }
+                return null;
+            });
+        } catch (DataAccessException ex) {
+            log.error("Expense partition maintenance failed on shard={}", shard, ex);
+        }
+    }
+
+    private void maintain(Connection connection) throws SQLException {
+        TreeSet<MonthPartition> existing = new TreeSet<>();
+        boolean hasCatchAll = false;
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(PARTITIONS_SQL)) {
+            while (rows.next()) {
+                String name = rows.getString(1);
+                MonthPartition partition = MonthPartition.parse(name);
+                if (Objects.nonNull(partition)) {
+                    existing.add(partition);
+                } else if (MonthPartition.CATCH_ALL.equals(name)) {
+                    hasCatchAll = true;
+                }
+            }
+        }
+        if (existing.isEmpty() || !hasCatchAll) {
+            log.warn("expense is not partitioned by month; run db/migration/002_partition_expense_by_month.sql "
+                    + "or set expense.partitioning.enabled=false");
+            return;
+        }
+
+        YearMonth current = YearMonth.now(clock);
+        List<MonthPartition> missing = new ArrayList<>();
+        for (YearMonth month = existing.last().month().plusMonths(1); !month.isAfter(current.plusMonths(monthsAhead));
+             month = month.plusMonths(1)) {
+            missing.add(new MonthPartition(month));
+        }
+        if (!missing.isEmpty()) {
+            // pmax only ever holds rows dated beyond the last monthly partition, so this split is near free
+            execute(connection, "ALTER TABLE expense REORGANIZE PARTITION " + MonthPartition.CATCH_ALL + " INTO ("
+                    + missing.stream().map(MonthPartition::definition).collect(Collectors.joining(", "))
+                    + ", PARTITION " + MonthPartition.CATCH_ALL + " VALUES LESS THAN (MAXVALUE))");
+            log.info("Added expense partitions {}", missing.stream().map(MonthPartition::name).toList());
+        }
+
+        YearMonth oldestRetained = oldestRetainedMonth();
+        for (MonthPartition partition : existing) {
+            if (!partition.month().isBefore(oldestRetained)) {
+                break;
+            }
+            if (partition.equals(existing.last())) {
+                // MySQL needs at least one partition besides pmax
+                break;
+            }
+            archive(connection, partition);
+        }
+    }
+
+    /**
+     * Moves a month out of {@code expense} without copying rows: the partition is swapped with an empty
+     * table of the same shape, then the now empty partition is dropped.
+     */
+    private void archive(Connection connection, MonthPartition partition) throws SQLException {
+        String archive = partition.archiveTable();
+        if (!tableExists(connection, archive)) {
+            execute(connection, "CREATE TABLE " + archive + " LIKE expense");
+            execute(connection, "ALTER TABLE " + archive + " REMOVE PARTITIONING");
+        } else if (rowCount(connection, archive) > 0) {
+            log.error("Archive table {} is not empty; leaving partition {} in place", archive, partition.name());
+            return;
+        }
+        execute(connection, "ALTER TABLE expense EXCHANGE PARTITION " + partition.name() + " WITH TABLE " + archive);
+        execute(connection, "ALTER TABLE expense DROP PARTITION " + partition.name());
+        log.info("Archived expense partition {} to {}", partition.name(), archive);
+    }
+
+    private YearMonth oldestRetainedMonth() {
+        return YearMonth.now(clock).minusMonths(retentionMonths);
+    }
+
+    private static boolean acquireLock(Connection connection, String lockName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            statement.setString(1, lockName);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection, String lockName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, lockName);
+            statement.executeQuery().close();
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM information_schema.tables "
+                + "WHERE table_schema = DATABASE() AND table_name = ?")) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static long rowCount(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    private static void execute(Connection connection, String ddl) throws SQLException {
+        log.debug("Partition maintenance: {}", ddl);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(ddl);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.nstrange.expenseservice.partition;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+
+/**
+ * One monthly range partition of {@code expense}: {@code pYYYYMM} holds rows with
+ * {@code created_at < first day of the next month} that are not in an earlier partition.
+ */
+final class MonthPartition implements Comparable<MonthPartition> {
+
+    static final String CATCH_ALL = "pmax";
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final YearMonth month;
+
+    MonthPartition(YearMonth month) {
+        this.month = month;
+    }
+
+    /**
+     * @return the partition for a name like {@code p202610}, or {@code null} for any other name
+     */
+    static MonthPartition parse(String name) {
+        if (Objects.isNull(name) || name.length() != 7 || name.charAt(0) != 'p') {
+            return null;
+        }
+        try {
+            return new MonthPartition(YearMonth.parse(name, NAME_FORMAT));
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    YearMonth month() {
+        return month;
+    }
+
+    String name() {
+        return month.format(NAME_FORMAT);
+    }
+
+    String archiveTable() {
+        return "expense_archive_" + name().substring(1);
+    }
+
+    /** Exclusive upper bound, the literal used in {@code VALUES LESS THAN}. */
+    LocalDate upperBound() {
+        return month.plusMonths(1).atDay(1);
+    }
+
+    String definition() {
+        return "PARTITION " + name() + " VALUES LESS THAN ('" + upperBound() + "')";
+    }
+
+    @Override
+    public int compareTo(MonthPartition other) {
+        return month.compareTo(other.month);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MonthPartition other && month.equals(other.month);
+    }
+
+    @Override
+    public int hashCode() {
+        return month.hashCode();
+    }
+}
@@ -0,0 +1,40 @@
+package com.nstrange.expenseservice.producer;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@Builder
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class BudgetAlertEvent {
+
+    private String userId;
+
+    /** {@code null} for the overall budget. */
+    private String category;
+
+    private LocalDate month;
+
+    private int thresholdPercent;
+
+    private BigDecimal monthlyLimit;
+
+    private BigDecimal spent;
+
+    /** The user's base currency, which {@link #monthlyLimit} and {@link #spent} are in. */
+    private String currency;
+
+    private String expenseExternalId;
+
+    private Timestamp crossedAt;
+}
@@ -0,0 +1,39 @@
+package com.nstrange.expenseservice.producer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+@Service
+public class BudgetAlertProducer {
+
+    private static final Logger log = LoggerFactory.getLogger(BudgetAlertProducer.class);
+
+    private final KafkaTemplate<String, BudgetAlertEvent> kafkaTemplate;
+
+    @Value("${spring.kafka.budget-alert-topic.name}")
+    private String topicName;
+
+    @Autowired
+    BudgetAlertProducer(KafkaTemplate<String, BudgetAlertEvent> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    public void sendAlert(BudgetAlertEvent alert) {
+        Message<BudgetAlertEvent> message = MessageBuilder.withPayload(alert)
+                .setHeader(KafkaHeaders.TOPIC, topicName)
+                .setHeader(KafkaHeaders.KEY, alert.getUserId())
+                .build();
+        kafkaTemplate.send(message).whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.error("Failed to publish budget alert for userId={}: {}", alert.getUserId(), ex.getMessage(), ex);
+            }
+        });
+    }
+}
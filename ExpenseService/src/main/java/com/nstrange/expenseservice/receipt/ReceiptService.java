@@ -0,0 +1,260 @@
+package com.nstrange.expenseservice.receipt;
+
+import com.nstrange.expenseservice.dto.ReceiptDto;
+import com.nstrange.expenseservice.entities.ExpenseReceipt;
+import com.nstrange.expenseservice.events.ExpenseChangedEvent;
+import com.nstrange.expenseservice.exception.ExpenseConflictException;
+import com.nstrange.expenseservice.exception.ExpenseNotFoundException;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.ExpenseReceiptRepository;
+import com.nstrange.expenseservice.service.ExpenseService;
+import com.nstrange.expenseservice.sharding.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Attaches one receipt to each expense. Bytes go to the {@link ReceiptStore} before any transaction is
+ * opened, so a slow upload holds no connection; the row that points the expense at its blob is written
+ * afterwards in a short transaction. Replacing or detaching a receipt only changes rows; blobs no row
+ * references any more are removed by a daily sweep once they are older than a grace period.
+ */
+@Service
+public class ReceiptService
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptService.class);
+
+    private final ExpenseReceiptRepository receiptRepository;
+
+    private final ExpenseService expenseService;
+
+    private final ReceiptStore store;
+
+    private final ReceiptThumbnailer thumbnailer;
+
+    private final Shards shards;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final long maxBytes;
+
+    private final Duration sweepGrace;
+
+    public ReceiptService(ExpenseReceiptRepository receiptRepository,
+                          ExpenseService expenseService,
+                          ReceiptStore store,
+                          ReceiptThumbnailer thumbnailer,
+                          Shards shards,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${expense.receipts.max-bytes:20971520}") long maxBytes,
+                          @Value("${expense.receipts.sweep-grace-hours:24}") long sweepGraceHours) {
+        this.receiptRepository = receiptRepository;
+        this.expenseService = expenseService;
+        this.store = store;
+        this.thumbnailer = thumbnailer;
+        this.shards = shards;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBytes = maxBytes;
+        this.sweepGrace = Duration.ofHours(sweepGraceHours);
+    }
+
+    /**
+     * Stores {@code body} as the receipt of the caller's expense, replacing any earlier one.
+     *
+     * @throws ExpenseNotFoundException  if the expense does not exist or is no longer writable
+     * @throws ExpenseConflictException  if another upload for the same expense committed first
+     */
+    public ReceiptDto upload(String userId, String expenseId, InputStream body) {
+        // checked before reading the body, so an upload for the wrong expense is refused without storing it
+        expenseService.getOwnedExpense(expenseId, userId);
+
+        ReceiptStore.StoredReceipt stored;
+        try {
+            stored = store.store(body, maxBytes);
+        } catch (IOException ex) {
+            log.warn("Receipt upload for expenseId={} did not complete: {}", expenseId, ex.getMessage());
+            throw new InvalidExpenseRequestException("Receipt upload did not complete");
+        }
+
+        ExpenseReceipt receipt;
+        try {
+            receipt = transactionTemplate.execute(status -> {
+                ExpenseReceipt row = receiptRepository.findByUserIdAndExternalId(userId, expenseId)
+                        .orElseGet(ExpenseReceipt::new);
+                row.setUserId(userId);
+                row.setExternalId(expenseId);
+                row.setSha256(stored.sha256());
+                row.setContentType(stored.type().mediaType());
+                row.setSizeBytes(stored.sizeBytes());
+                row.setUploadedAt(Timestamp.from(Instant.now()));
+                return receiptRepository.save(row);
+            });
+        } catch (DataIntegrityViolationException ex) {
+            throw new ExpenseConflictException("Another receipt upload for expense " + expenseId + " finished first");
+        } catch (DataAccessException ex) {
+            log.error("Database error while attaching receipt to expenseId={}", expenseId, ex);
+            throw new ExpenseServiceException("Failed to attach receipt to expense " + expenseId, ex);
+        }
+
+        thumbnailer.submit(stored.sha256(), stored.type());
+        log.info("Receipt attached to expenseId={} for userId={}, sha256={}, size={}, deduplicated={}",
+                expenseId, userId, stored.sha256(), stored.sizeBytes(), stored.deduplicated());
+        return toDto(receipt);
+    }
+
+    /**
+     * Locates the file to send for the caller's receipt, or its thumbnail. A thumbnail that is missing is
+     * queued again and reported as not found until it has been written.
+     */
+    public ReceiptFile find(String userId, String expenseId, boolean thumbnail) {
+        ExpenseReceipt receipt = require(userId, expenseId);
+        ReceiptType type = ReceiptType.fromMediaType(receipt.getContentType());
+        Path path;
+        String mediaType;
+        if (thumbnail) {
+            if (Objects.isNull(type) || !type.isThumbnailable()) {
+                throw new ExpenseNotFoundException("Receipt for expense " + expenseId + " has no thumbnail");
+            }
+            path = store.thumbnail(receipt.getSha256());
+            mediaType = ReceiptType.JPEG.mediaType();
+        } else {
+            path = store.blob(receipt.getSha256());
+            mediaType = receipt.getContentType();
+        }
+
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (IOException ex) {
+            if (thumbnail) {
+                thumbnailer.submit(receipt.getSha256(), type);
+                throw new ExpenseNotFoundException("Thumbnail for expense " + expenseId + " is not ready yet");
+            }
+            log.error("Receipt blob {} for expenseId={} is missing from the store", receipt.getSha256(), expenseId, ex);
+            throw new ExpenseServiceException("Receipt for expense " + expenseId + " is unavailable", ex);
+        }
+        String etag = "\"" + receipt.getSha256() + (thumbnail ? "-thumb" : "") + "\"";
+        return new ReceiptFile(path, size, mediaType, etag);
+    }
+
+    /**
+     * Detaches the caller's receipt. The blob stays until the sweep finds nothing pointing at it.
+     */
+    public void delete(String userId, String expenseId) {
+        require(userId, expenseId);
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> receiptRepository.deleteByUserIdAndExternalId(userId, expenseId));
+        } catch (DataAccessException ex) {
+            log.error("Database error while detaching receipt from expenseId={}", expenseId, ex);
+            throw new ExpenseServiceException("Failed to detach receipt from expense " + expenseId, ex);
+        }
+        log.info("Receipt detached from expenseId={} for userId={}", expenseId, userId);
+    }
+
+    /**
+     * Runs inside the delete's transaction, so a deleted expense never keeps serving its receipt.
+     */
+    @EventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        if (event.getType() != ExpenseChangedEvent.Type.DELETED) {
+            return;
+        }
+        receiptRepository.deleteByUserIdAndExternalId(event.getExpense().getUserId(),
+                event.getExpense().getExternalId());
+    }
+
+    /**
+     * Deletes blobs older than the grace period that no shard references, and temp files from uploads that
+     * never finished. The grace period covers an upload that has stored its blob but not yet committed the
+     * row, and the modification time is checked again after the lookup because a deduplicated upload
+     * touches it.
+     */
+    @Scheduled(cron = "${expense.receipts.sweep-cron:0 15 4 * * *}", zone = "UTC")
+    public void sweep() {
+        Instant cutoff = Instant.now().minus(sweepGrace);
+        AtomicInteger removed = new AtomicInteger();
+        try {
+            store.purgeTemp(cutoff);
+            store.forEachBlob(sha256 -> {
+                if (!olderThan(store.blob(sha256), cutoff)) {
+                    return;
+                }
+                boolean referenced = shards.gather(shard -> ReadRoutingContext.callOnPrimary(
+                        () -> receiptRepository.existsBySha256(sha256))).containsValue(true);
+                if (referenced || !olderThan(store.blob(sha256), cutoff)) {
+                    return;
+                }
+                try {
+                    store.delete(sha256);
+                    removed.incrementAndGet();
+                } catch (IOException ex) {
+                    log.warn("Failed to delete unreferenced receipt blob {}", sha256, ex);
+                }
+            });
+        } catch (IOException | DataAccessException | ExpenseServiceException ex) {
+            log.error("Receipt sweep stopped early after removing {} blobs", removed.get(), ex);
+            return;
+        }
+        log.info("Receipt sweep removed {} unreferenced blobs", removed.get());
+    }
+
+    private ExpenseReceipt require(String userId, String expenseId) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        if (Objects.isNull(expenseId) || expenseId.isBlank()) {
+            throw new InvalidExpenseRequestException("Expense ID must not be null or blank");
+        }
+        try {
+            return receiptRepository.findByUserIdAndExternalId(userId, expenseId)
+                    .orElseThrow(() -> new ExpenseNotFoundException("No receipt attached to expense " + expenseId));
+        } catch (DataAccessException ex) {
+            log.error("Database error while fetching receipt for expenseId={}", expenseId, ex);
+            throw new ExpenseServiceException("Failed to fetch receipt for expense " + expenseId, ex);
+        }
+    }
+
+    private static boolean olderThan(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException ex) {
+            // already gone
+            return false;
+        }
+    }
+
+    private ReceiptDto toDto(ExpenseReceipt receipt) {
+        return ReceiptDto.builder()
+                .externalId(receipt.getExternalId())
+                .sha256(receipt.getSha256())
+                .contentType(receipt.getContentType())
+                .sizeBytes(receipt.getSizeBytes())
+                .uploadedAt(receipt.getUploadedAt())
+                .thumbnailAvailable(Files.exists(store.thumbnail(receipt.getSha256())))
+                .build();
+    }
+
+    /** A file ready to be sent: its path, length, media type and quoted entity tag. */
+    public record ReceiptFile(Path path, long sizeBytes, String mediaType, String etag) {
+    }
+}
@@ -0,0 +1,189 @@
+package com.nstrange.expenseservice.receipt;
+
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed receipt files under {@code expense.receipts.dir}: {@code objects/ab/<sha256>} for
+ * uploads and {@code thumbs/ab/<sha256>.jpg} for their thumbnails. An upload is hashed as it streams
+ * through one 64 KB buffer into a temp file, then renamed to its hash, so identical uploads end up as
+ * one file and a receipt is never held in memory whole.
+ */
+@Component
+public class ReceiptStore
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptStore.class);
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path objectsDir;
+
+    private final Path thumbsDir;
+
+    private final Path tmpDir;
+
+    public ReceiptStore(@Value("${expense.receipts.dir:${java.io.tmpdir}/expense-receipts}") String dir) {
+        Path root = Path.of(dir);
+        this.objectsDir = root.resolve("objects");
+        this.thumbsDir = root.resolve("thumbs");
+        this.tmpDir = root.resolve("tmp");
+    }
+
+    /**
+     * Streams {@code in} into the store.
+     *
+     * @throws InvalidExpenseRequestException if the upload is empty, larger than {@code maxBytes}, or not
+     *                                        a supported receipt format
+     */
+    public StoredReceipt store(InputStream in, long maxBytes) throws IOException {
+        Files.createDirectories(tmpDir);
+        Path tmp = tmpDir.resolve(UUID.randomUUID() + ".part");
+        MessageDigest digest = sha256();
+        byte[] chunk = new byte[BUFFER_BYTES];
+        ByteBuffer head = ByteBuffer.allocate(ReceiptType.SNIFF_BYTES);
+        long size = 0;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                size += read;
+                if (size > maxBytes) {
+                    throw new InvalidExpenseRequestException("Receipt must be at most " + maxBytes + " bytes");
+                }
+                digest.update(chunk, 0, read);
+                if (head.hasRemaining()) {
+                    head.put(chunk, 0, Math.min(read, head.remaining()));
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+            out.force(false);
+        } catch (IOException | RuntimeException ex) {
+            deleteQuietly(tmp);
+            throw ex;
+        }
+
+        ReceiptType type = ReceiptType.sniff(head.flip());
+        if (size == 0 || Objects.isNull(type)) {
+            deleteQuietly(tmp);
+            throw new InvalidExpenseRequestException("Receipt must be a JPEG, PNG, WebP, HEIC or PDF file");
+        }
+
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        Path target = blob(sha256);
+        Files.createDirectories(target.getParent());
+        boolean deduplicated = Files.exists(target);
+        if (deduplicated) {
+            deleteQuietly(tmp);
+            // keeps a blob that is about to be referenced again out of the next sweep
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+        } else {
+            // two identical uploads racing here both rename; the loser replaces the file with the same bytes
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        log.debug("Stored receipt sha256={} size={} type={} deduplicated={}", sha256, size, type, deduplicated);
+        return new StoredReceipt(sha256, size, type, deduplicated);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code sha256} is not a lowercase hex SHA-256, so a stored value
+     *                                  can never name a path outside the store
+     */
+    public Path blob(String sha256) {
+        return objectsDir.resolve(shard(sha256)).resolve(sha256);
+    }
+
+    public Path thumbnail(String sha256) {
+        return thumbsDir.resolve(shard(sha256)).resolve(sha256 + ".jpg");
+    }
+
+    /** Runs {@code action} for every stored blob's hash. */
+    void forEachBlob(Consumer<String> action) throws IOException {
+        if (!Files.isDirectory(objectsDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(objectsDir, 2)) {
+            files.filter(Files::isRegularFile)
+                    .map(file -> file.getFileName().toString())
+                    .filter(name -> SHA256_HEX.matcher(name).matches())
+                    .forEach(action);
+        }
+    }
+
+    /** Deletes a blob and its thumbnail. */
+    void delete(String sha256) throws IOException {
+        Files.deleteIfExists(thumbnail(sha256));
+        Files.deleteIfExists(blob(sha256));
+    }
+
+    /** Removes temp files left behind by uploads that were cut off before they finished. */
+    void purgeTemp(Instant olderThan) throws IOException {
+        if (!Files.isDirectory(tmpDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(tmpDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(olderThan)) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    Path tmpFile(String suffix) throws IOException {
+        Files.createDirectories(tmpDir);
+        return tmpDir.resolve(UUID.randomUUID() + suffix);
+    }
+
+    private static String shard(String sha256) {
+        if (Objects.isNull(sha256) || !SHA256_HEX.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256 hex digest: " + sha256);
+        }
+        return sha256.substring(0, 2);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Failed to delete receipt temp file {}", file, ex);
+        }
+    }
+
+    public record StoredReceipt(String sha256, long sizeBytes, ReceiptType type, boolean deduplicated) {
+    }
+}
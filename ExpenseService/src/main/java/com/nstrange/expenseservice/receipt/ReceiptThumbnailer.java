@@ -0,0 +1,150 @@
+package com.nstrange.expenseservice.receipt;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes JPEG thumbnails of uploaded receipts on a small background pool. The source is decoded with
+ * subsampling straight from the file, so only a raster about twice the thumbnail's size is allocated,
+ * however large the photo. A thumbnail that was dropped because the queue was full, or lost, is made
+ * again the next time it is asked for.
+ */
+@Component
+public class ReceiptThumbnailer
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptThumbnailer.class);
+
+    private final ReceiptStore store;
+
+    private final int size;
+
+    private final long maxPixels;
+
+    private final ThreadPoolExecutor executor;
+
+    // hashes queued or in progress, so repeated requests do not pile up duplicate work
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public ReceiptThumbnailer(ReceiptStore store,
+                              @Value("${expense.receipts.thumbnail-size:256}") int size,
+                              @Value("${expense.receipts.thumbnail-max-pixels:100000000}") long maxPixels,
+                              @Value("${expense.receipts.thumbnail-workers:1}") int workers,
+                              @Value("${expense.receipts.thumbnail-queue-capacity:100}") int queueCapacity) {
+        this.store = store;
+        this.size = size;
+        this.maxPixels = maxPixels;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "receipt-thumbnail-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    /** Queues a thumbnail for the blob unless one exists or is already on its way. */
+    public void submit(String sha256, ReceiptType type) {
+        if (!type.isThumbnailable() || Files.exists(store.thumbnail(sha256)) || !pending.add(sha256)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(sha256);
+                } finally {
+                    pending.remove(sha256);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            pending.remove(sha256);
+            log.debug("Thumbnail queue full, skipping sha256={} until it is requested", sha256);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void generate(String sha256) {
+        Path source = store.blob(sha256);
+        Path tmp = null;
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                log.warn("No image reader for receipt sha256={}", sha256);
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("Skipping thumbnail for receipt sha256={} of {}x{} pixels", sha256, width, height);
+                    return;
+                }
+                // decode at no more than twice the thumbnail size, then scale smoothly from there
+                int step = Math.max(1, Math.max(width, height) / (2 * size));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                double scale = Math.min(1.0, (double) size / Math.max(decoded.getWidth(), decoded.getHeight()));
+                int thumbWidth = Math.max(1, (int) Math.round(decoded.getWidth() * scale));
+                int thumbHeight = Math.max(1, (int) Math.round(decoded.getHeight() * scale));
+                BufferedImage thumb = new BufferedImage(thumbWidth, thumbHeight, BufferedImage.TYPE_INT_RGB);
+                Graphics2D graphics = thumb.createGraphics();
+                try {
+                    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    graphics.drawImage(decoded, 0, 0, thumbWidth, thumbHeight, null);
+                } finally {
+                    graphics.dispose();
+                }
+
+                Path target = store.thumbnail(sha256);
+                Files.createDirectories(target.getParent());
+                tmp = store.tmpFile(".jpg");
+                if (!ImageIO.write(thumb, "jpg", tmp.toFile())) {
+                    log.warn("No JPEG writer available for receipt thumbnails");
+                    return;
+                }
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                log.debug("Generated {}x{} thumbnail for receipt sha256={}", thumbWidth, thumbHeight, sha256);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to generate thumbnail for receipt sha256={}: {}", sha256, ex.getMessage());
+        } finally {
+            if (tmp != null) {
+                ReceiptStore.deleteQuietly(tmp);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.nstrange.expenseservice.receipt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Accepted receipt formats, recognised from their leading bytes rather than the client's
+ * {@code Content-Type}, which is what downloads are then served as.
+ */
+public enum ReceiptType {
+
+    JPEG("image/jpeg", true),
+    PNG("image/png", true),
+    WEBP("image/webp", false),
+    HEIC("image/heic", false),
+    PDF("application/pdf", false);
+
+    static final int SNIFF_BYTES = 12;
+
+    private final String mediaType;
+
+    // formats the JDK's ImageIO can decode
+    private final boolean thumbnailable;
+
+    ReceiptType(String mediaType, boolean thumbnailable) {
+        this.mediaType = mediaType;
+        this.thumbnailable = thumbnailable;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public boolean isThumbnailable() {
+        return thumbnailable;
+    }
+
+    public static ReceiptType fromMediaType(String mediaType) {
+        for (ReceiptType type : values()) {
+            if (type.mediaType.equals(mediaType)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param head the first bytes of the file, up to {@link #SNIFF_BYTES}
+     * @return the format, or {@code null} if it is not one we accept
+     */
+    static ReceiptType sniff(ByteBuffer head) {
+        byte[] bytes = new byte[head.remaining()];
+        head.get(bytes);
+        if (startsWith(bytes, 0, 0xFF, 0xD8, 0xFF)) {
+            return JPEG;
+        }
+        if (startsWith(bytes, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return PNG;
+        }
+        if (startsWith(bytes, 0, '%', 'P', 'D', 'F', '-')) {
+            return PDF;
+        }
+        if (startsWith(bytes, 0, 'R', 'I', 'F', 'F') && startsWith(bytes, 8, 'W', 'E', 'B', 'P')) {
+            return WEBP;
+        }
+        if (startsWith(bytes, 4, 'f', 't', 'y', 'p') && bytes.length >= 12) {
+            String brand = new String(bytes, 8, 4, StandardCharsets.US_ASCII);
+            if (brand.startsWith("hei") || brand.startsWith("hev") || brand.equals("mif1")) {
+                return HEIC;
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int... expected) {
+        if (bytes.length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((bytes[offset + i] & 0xFF) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package com.nstrange.expenseservice.recurring;
+
+import java.time.LocalDate;
+
+/**
+ * Billing periods the detector looks for. A gap between two payments matches a cadence when it is within
+ * {@code slackDays} of the nominal length, which absorbs weekends, short months and late card postings.
+ */
+public enum Cadence
+{
+    WEEKLY(7, 1),
+    BIWEEKLY(14, 2),
+    MONTHLY(30, 4),
+    QUARTERLY(91, 7),
+    YEARLY(365, 15);
+
+    private final int days;
+
+    private final int slackDays;
+
+    Cadence(int days, int slackDays) {
+        this.days = days;
+        this.slackDays = slackDays;
+    }
+
+    public int days() {
+        return days;
+    }
+
+    boolean matches(long gapDays) {
+        return Math.abs(gapDays - days) <= slackDays;
+    }
+
+    /**
+     * The date {@code n} periods after {@code start}. Counting from the start rather than from the previous
+     * date keeps a schedule on the 31st on the 31st after a short month.
+     */
+    public LocalDate nth(LocalDate start, long n) {
+        return switch (this) {
+            case WEEKLY -> start.plusWeeks(n);
+            case BIWEEKLY -> start.plusWeeks(2 * n);
+            case MONTHLY -> start.plusMonths(n);
+            case QUARTERLY -> start.plusMonths(3 * n);
+            case YEARLY -> start.plusYears(n);
+        };
+    }
+
+    /** The date one period after {@code date}, by the calendar for monthly and longer cadences. */
+    public LocalDate next(LocalDate date) {
+        return switch (this) {
+            case WEEKLY -> date.plusWeeks(1);
+            case BIWEEKLY -> date.plusWeeks(2);
+            case MONTHLY -> date.plusMonths(1);
+            case QUARTERLY -> date.plusMonths(3);
+            case YEARLY -> date.plusYears(1);
+        };
+    }
+}
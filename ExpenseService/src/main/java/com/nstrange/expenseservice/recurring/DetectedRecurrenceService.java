@@ -0,0 +1,62 @@
+package com.nstrange.expenseservice.recurring;
+
+import com.nstrange.expenseservice.dto.RecurringExpenseDto;
+import com.nstrange.expenseservice.entities.DetectedRecurrence;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.repository.DetectedRecurrenceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Serves what the last detection run found for a user; the rows are read as they are, without going
+ * back to the history.
+ */
+@Service
+public class DetectedRecurrenceService
+{
+
+    private static final Logger log = LoggerFactory.getLogger(DetectedRecurrenceService.class);
+
+    private final DetectedRecurrenceRepository recurrenceRepository;
+
+    public DetectedRecurrenceService(DetectedRecurrenceRepository recurrenceRepository) {
+        this.recurrenceRepository = recurrenceRepository;
+    }
+
+    public List<RecurringExpenseDto> getRecurring(String userId, boolean activeOnly) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        try {
+            return recurrenceRepository.findByUserIdOrderByNextExpectedOnAsc(userId).stream()
+                    .filter(recurrence -> !activeOnly || recurrence.isActive())
+                    .map(this::toDto)
+                    .toList();
+        } catch (DataAccessException ex) {
+            log.error("Database error while fetching recurring expenses for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to fetch recurring expenses for user " + userId, ex);
+        }
+    }
+
+    private RecurringExpenseDto toDto(DetectedRecurrence recurrence) {
+        return RecurringExpenseDto.builder()
+                .merchant(recurrence.getMerchant())
+                .currency(recurrence.getCurrency())
+                .typicalAmount(recurrence.getTypicalAmount())
+                .cadence(recurrence.getCadence())
+                .occurrences(recurrence.getOccurrences())
+                .confidence(recurrence.getConfidence())
+                .firstSeenOn(recurrence.getFirstSeenOn())
+                .lastSeenOn(recurrence.getLastSeenOn())
+                .nextExpectedOn(recurrence.getNextExpectedOn())
+                .active(recurrence.isActive())
+                .detectedAt(recurrence.getDetectedAt())
+                .build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.nstrange.expenseservice.recurring;
+
+import com.nstrange.expenseservice.dto.ExpenseScheduleDto;
+import com.nstrange.expenseservice.dto.ExpenseScheduleRequestDto;
+import com.nstrange.expenseservice.entities.ExpenseSchedule;
+import com.nstrange.expenseservice.exception.ExpenseNotFoundException;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.repository.ExpenseScheduleRepository;
+import com.nstrange.expenseservice.service.SpendRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Defines and removes recurring expenses. Creating one only stores the schedule; its expenses, including
+ * any whose dates are already past, are made by the {@link ExpenseScheduler}.
+ */
+@Service
+public class ExpenseScheduleService
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseScheduleService.class);
+
+    private static final String DEFAULT_CURRENCY = "INR";
+
+    // backdated schedules create their past occurrences at once, so how far back they may start is capped
+    private static final int MAX_BACKDATE_DAYS = 366;
+
+    private final ExpenseScheduleRepository scheduleRepository;
+
+    private final ExpenseScheduler scheduler;
+
+    private final int maxPerUser;
+
+    public ExpenseScheduleService(ExpenseScheduleRepository scheduleRepository, ExpenseScheduler scheduler,
+                                  @Value("${expense.schedules.max-per-user:100}") int maxPerUser) {
+        this.scheduleRepository = scheduleRepository;
+        this.scheduler = scheduler;
+        this.maxPerUser = maxPerUser;
+    }
+
+    @Transactional
+    public ExpenseScheduleDto addSchedule(String userId, ExpenseScheduleRequestDto requestDto) {
+        requireUser(userId);
+        if (Objects.isNull(requestDto)) {
+            throw new InvalidExpenseRequestException("Schedule request body must not be null");
+        }
+        Cadence cadence;
+        try {
+            cadence = Cadence.valueOf(requestDto.getCadence().trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidExpenseRequestException("Unknown cadence '" + requestDto.getCadence() + "'");
+        }
+        LocalDate startOn = Objects.nonNull(requestDto.getStartOn())
+                ? requestDto.getStartOn()
+                : LocalDate.now(SpendRollupService.ROLLUP_ZONE);
+        if (startOn.isBefore(LocalDate.now(SpendRollupService.ROLLUP_ZONE).minusDays(MAX_BACKDATE_DAYS))) {
+            throw new InvalidExpenseRequestException("'start_on' must be at most " + MAX_BACKDATE_DAYS + " days ago");
+        }
+        if (Objects.nonNull(requestDto.getEndOn()) && requestDto.getEndOn().isBefore(startOn)) {
+            throw new InvalidExpenseRequestException("'end_on' must not be before 'start_on'");
+        }
+
+        try {
+            if (scheduleRepository.countByUserId(userId) >= maxPerUser) {
+                throw new InvalidExpenseRequestException("A user may have at most " + maxPerUser + " recurring expenses");
+            }
+            ExpenseSchedule schedule = new ExpenseSchedule();
+            schedule.setUserId(userId);
+            schedule.setAmount(requestDto.getAmount());
+            schedule.setMerchant(requestDto.getMerchant());
+            schedule.setCurrency(Objects.nonNull(requestDto.getCurrency()) ? requestDto.getCurrency() : DEFAULT_CURRENCY);
+            schedule.setNotes(requestDto.getNotes());
+            schedule.setCategory(requestDto.getCategory());
+            schedule.setFundSource(requestDto.getFundSource());
+            schedule.setCadence(cadence.name());
+            schedule.setStartOn(startOn);
+            schedule.setEndOn(requestDto.getEndOn());
+            schedule.setFiredCount(0L);
+            schedule.setNextRunAt(ExpenseScheduler.dueAt(startOn));
+            schedule.setCreatedAt(Timestamp.from(Instant.now()));
+            ExpenseSchedule saved = scheduleRepository.save(schedule);
+            scheduler.track(saved);
+            log.info("Expense schedule {} created for userId={}, cadence={}, startOn={}",
+                    saved.getId(), userId, cadence, startOn);
+            return toDto(saved);
+        } catch (DataAccessException ex) {
+            log.error("Database error while saving expense schedule for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to save expense schedule for user " + userId, ex);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<ExpenseScheduleDto> getSchedules(String userId) {
+        requireUser(userId);
+        try {
+            return scheduleRepository.findByUserIdOrderByIdAsc(userId).stream().map(this::toDto).toList();
+        } catch (DataAccessException ex) {
+            log.error("Database error while fetching expense schedules for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to fetch expense schedules for user " + userId, ex);
+        }
+    }
+
+    /**
+     * Stops the schedule; expenses it already created are kept.
+     */
+    @Transactional
+    public void deleteSchedule(String userId, Long scheduleId) {
+        requireUser(userId);
+        if (Objects.isNull(scheduleId)) {
+            throw new InvalidExpenseRequestException("Schedule ID must not be null");
+        }
+        try {
+            ExpenseSchedule schedule = scheduleRepository.findByIdAndUserId(scheduleId, userId)
+                    .orElseThrow(() -> new ExpenseNotFoundException("Expense schedule " + scheduleId + " not found"));
+            scheduleRepository.delete(schedule);
+            log.info("Expense schedule {} deleted for userId={}", scheduleId, userId);
+        } catch (DataAccessException ex) {
+            log.error("Database error while deleting expense schedule {} for userId={}", scheduleId, userId, ex);
+            throw new ExpenseServiceException("Failed to delete expense schedule " + scheduleId, ex);
+        }
+    }
+
+    private static void requireUser(String userId) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+    }
+
+    private ExpenseScheduleDto toDto(ExpenseSchedule schedule) {
+        return ExpenseScheduleDto.builder()
+                .scheduleId(schedule.getId())
+                .amount(schedule.getAmount())
+                .merchant(schedule.getMerchant())
+                .currency(schedule.getCurrency())
+                .notes(schedule.getNotes())
+                .category(schedule.getCategory())
+                .fundSource(schedule.getFundSource())
+                .cadence(schedule.getCadence())
+                .startOn(schedule.getStartOn())
+                .endOn(schedule.getEndOn())
+                .firedCount(schedule.getFiredCount())
+                .nextRunAt(schedule.getNextRunAt())
+                .build();
+    }
+}
@@ -0,0 +1,417 @@
+package com.nstrange.expenseservice.recurring;
+
+import com.nstrange.expenseservice.dto.BulkCreateExpenseItemDto;
+import com.nstrange.expenseservice.dto.BulkItemResultDto;
+import com.nstrange.expenseservice.entities.ExpenseSchedule;
+import com.nstrange.expenseservice.exception.ExpenseConflictException;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.model.BulkItemOutcome;
+import com.nstrange.expenseservice.repository.ExpenseScheduleRepository;
+import com.nstrange.expenseservice.service.ExpenseService;
+import com.nstrange.expenseservice.service.SpendRollupService;
+import com.nstrange.expenseservice.sharding.ShardContext;
+import com.nstrange.expenseservice.sharding.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the expenses of {@link ExpenseSchedule}s as they fall due. Only schedules due within the next
+ * {@code expense.schedules.window-ms} are held in memory, as {@code (shard, id)} keys in a
+ * {@link TimingWheel}; the window is read ahead from the {@code (next_run_at, id)} index in keyset pages
+ * before the wheel reaches its end, however many schedules exist. When keys fire they are grouped by
+ * shard and materialized in batches: each batch re-reads its schedules on the primary, moves every one
+ * on with a conditional update and inserts the occurrences through {@link ExpenseService#createExpenses},
+ * all in one transaction.
+ *
+ * <p>Nothing is lost to downtime. The first window after startup begins at the epoch, so every schedule
+ * whose occurrences were missed fires straight away, and a schedule more than
+ * {@code expense.schedules.max-catch-up} occurrences behind goes round again until it is current. Each
+ * occurrence carries an idempotency key derived from the schedule and its index, and the conditional
+ * update lets only one instance advance a schedule, so instances racing on the same schedule create each
+ * expense once. A periodic sweep fires anything left overdue behind the window: schedules created on
+ * another instance, batches that failed, users moved between shards.
+ */
+@Component
+public class ExpenseScheduler
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseScheduler.class);
+
+    private static final int WHEEL_LEVELS = 4;
+
+    private static final int SHARD_SHIFT = 48;
+
+    private static final long ID_MASK = (1L << SHARD_SHIFT) - 1;
+
+    private static final Timestamp EPOCH = new Timestamp(0L);
+
+    private final ExpenseScheduleRepository scheduleRepository;
+
+    private final ExpenseService expenseService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Shards shards;
+
+    private final boolean enabled;
+
+    private final long tickMillis;
+
+    private final long windowMillis;
+
+    private final long maxWheelEntries;
+
+    private final int loadPageSize;
+
+    private final int fireBatchSize;
+
+    private final int maxCatchUp;
+
+    private final long sweepIntervalMillis;
+
+    private final long sweepGraceMillis;
+
+    private final int maxBulkItems;
+
+    private final Counter firedCounter;
+
+    private final Counter createdCounter;
+
+    // schedules added or changed through the API, handed to the scheduler thread
+    private final Queue<long[]> tracked = new ConcurrentLinkedQueue<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "expense-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // everything below is touched only by the scheduler thread
+    private TimingWheel wheel;
+
+    // per shard, the (next_run_at, id) of the last schedule loaded into the wheel
+    private Timestamp[] cursorRunAt;
+
+    private long[] cursorId;
+
+    private long loadedUntil;
+
+    private long lastSweep;
+
+    private volatile long wheelSize;
+
+    public ExpenseScheduler(ExpenseScheduleRepository scheduleRepository,
+                            ExpenseService expenseService,
+                            TransactionTemplate transactionTemplate,
+                            Shards shards,
+                            MeterRegistry meterRegistry,
+                            @Value("${expense.schedules.enabled:true}") boolean enabled,
+                            @Value("${expense.schedules.tick-ms:1000}") long tickMillis,
+                            @Value("${expense.schedules.window-ms:3600000}") long windowMillis,
+                            @Value("${expense.schedules.max-wheel-entries:2000000}") long maxWheelEntries,
+                            @Value("${expense.schedules.load-page-size:1000}") int loadPageSize,
+                            @Value("${expense.schedules.fire-batch-size:200}") int fireBatchSize,
+                            @Value("${expense.schedules.max-catch-up:24}") int maxCatchUp,
+                            @Value("${expense.schedules.sweep-interval-ms:300000}") long sweepIntervalMillis,
+                            @Value("${expense.schedules.sweep-grace-ms:60000}") long sweepGraceMillis,
+                            @Value("${expense.bulk.max-items:500}") int maxBulkItems) {
+        this.scheduleRepository = scheduleRepository;
+        this.expenseService = expenseService;
+        this.transactionTemplate = transactionTemplate;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.tickMillis = tickMillis;
+        this.windowMillis = windowMillis;
+        this.maxWheelEntries = maxWheelEntries;
+        this.loadPageSize = loadPageSize;
+        this.fireBatchSize = fireBatchSize;
+        this.maxCatchUp = Math.max(1, maxCatchUp);
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        this.sweepGraceMillis = sweepGraceMillis;
+        this.maxBulkItems = maxBulkItems;
+        this.firedCounter = Counter.builder("expense.schedules.fired").register(meterRegistry);
+        this.createdCounter = Counter.builder("expense.schedules.created").register(meterRegistry);
+        Gauge.builder("expense.schedules.wheel.entries", this, scheduler -> scheduler.wheelSize)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            log.info("Expense schedules are disabled");
+            return;
+        }
+        long now = System.currentTimeMillis();
+        wheel = new TimingWheel(tickMillis, WHEEL_LEVELS, now);
+        if (windowMillis * 2 >= wheel.horizonMillis()) {
+            throw new IllegalStateException("expense.schedules.window-ms must be under half the wheel's horizon of "
+                    + wheel.horizonMillis() + " ms");
+        }
+        int shardCount = Math.max(1, shards.names().size());
+        cursorRunAt = new Timestamp[shardCount];
+        Arrays.fill(cursorRunAt, EPOCH);
+        cursorId = new long[shardCount];
+        loadedUntil = Long.MIN_VALUE;
+        lastSweep = now;
+        executor.scheduleWithFixedDelay(this::tick, 0L, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Makes a schedule created or changed on this instance fire on time even if the window it falls in has
+     * already been read. Safe to call before the change commits: a key whose row is missing or not yet due
+     * when it fires is skipped.
+     */
+    public void track(ExpenseSchedule schedule) {
+        if (!enabled || Objects.isNull(schedule.getNextRunAt())) {
+            return;
+        }
+        tracked.add(new long[] {key(shardIndex(ShardContext.current()), schedule.getId()),
+                schedule.getNextRunAt().getTime()});
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            for (long[] entry; (entry = tracked.poll()) != null; ) {
+                int shard = shardOf(entry[0]);
+                if (isLoaded(shard, new Timestamp(entry[1]), entry[0] & ID_MASK)) {
+                    wheel.add(entry[0], entry[1]);
+                }
+            }
+            // read the next window a quarter of a window before the current one runs out
+            if (now + windowMillis / 4 >= loadedUntil) {
+                loadWindow(now + windowMillis);
+            }
+
+            List<List<Long>> due = new ArrayList<>();
+            for (int i = 0; i < cursorRunAt.length; i++) {
+                due.add(new ArrayList<>());
+            }
+            wheel.advance(now, key -> due.get(shardOf(key)).add(key & ID_MASK));
+            for (int shard = 0; shard < due.size(); shard++) {
+                List<Long> ids = due.get(shard);
+                for (int start = 0; start < ids.size(); start += fireBatchSize) {
+                    fire(shard, ids.subList(start, Math.min(start + fireBatchSize, ids.size())), now);
+                }
+            }
+
+            if (now - lastSweep >= sweepIntervalMillis) {
+                lastSweep = now;
+                sweepOverdue(now - sweepGraceMillis);
+            }
+            wheelSize = wheel.size();
+        } catch (RuntimeException ex) {
+            // the scheduled task stops for good if an exception escapes
+            log.error("Expense scheduler tick failed", ex);
+        }
+    }
+
+    /**
+     * Loads every shard's schedules due before {@code until} into the wheel. When the wheel is full, the
+     * window ends where loading stopped and the rest is read once entries have fired.
+     */
+    private void loadWindow(long until) {
+        long loadedTo = until;
+        for (int shard = 0; shard < cursorRunAt.length; shard++) {
+            int index = shard;
+            Timestamp bound = new Timestamp(until);
+            while (wheel.size() < maxWheelEntries) {
+                List<Object[]> page;
+                try {
+                    page = ShardContext.callOn(shardName(index), () -> scheduleRepository.findDueAfter(
+                            bound, cursorRunAt[index], cursorId[index], PageRequest.of(0, loadPageSize)));
+                } catch (DataAccessException ex) {
+                    log.warn("Failed to load expense schedules from shard={}", shardName(index), ex);
+                    loadedTo = Math.min(loadedTo, cursorRunAt[index].getTime());
+                    break;
+                }
+                for (Object[] row : page) {
+                    long id = (Long) row[0];
+                    Timestamp runAt = (Timestamp) row[1];
+                    wheel.add(key(index, id), runAt.getTime());
+                    cursorRunAt[index] = runAt;
+                    cursorId[index] = id;
+                }
+                if (page.size() < loadPageSize) {
+                    // every row before the bound is in; rows exactly on it sort after (bound, 0)
+                    cursorRunAt[index] = bound;
+                    cursorId[index] = 0L;
+                    break;
+                }
+            }
+            if (cursorRunAt[index].getTime() < until) {
+                loadedTo = Math.min(loadedTo, cursorRunAt[index].getTime());
+            }
+        }
+        loadedUntil = loadedTo;
+        log.debug("Expense schedule wheel holds {} entries, loaded up to {}", wheel.size(), new Timestamp(loadedTo));
+    }
+
+    /** Fires schedules that are overdue behind the window, page by page, without going through the wheel. */
+    private void sweepOverdue(long overdueBefore) {
+        Timestamp bound = new Timestamp(overdueBefore);
+        for (int shard = 0; shard < cursorRunAt.length; shard++) {
+            int index = shard;
+            Timestamp afterRunAt = EPOCH;
+            long afterId = 0L;
+            long swept = 0L;
+            while (!Thread.currentThread().isInterrupted()) {
+                Timestamp pageAfterRunAt = afterRunAt;
+                long pageAfterId = afterId;
+                List<Object[]> page;
+                try {
+                    page = ShardContext.callOn(shardName(index), () -> scheduleRepository.findDueAfter(
+                            bound, pageAfterRunAt, pageAfterId, PageRequest.of(0, fireBatchSize)));
+                } catch (DataAccessException ex) {
+                    log.warn("Failed to sweep overdue expense schedules on shard={}", shardName(index), ex);
+                    break;
+                }
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<Long> ids = new ArrayList<>(page.size());
+                for (Object[] row : page) {
+                    ids.add((Long) row[0]);
+                }
+                fire(index, ids, System.currentTimeMillis());
+                swept += ids.size();
+                Object[] last = page.get(page.size() - 1);
+                afterRunAt = (Timestamp) last[1];
+                afterId = (Long) last[0];
+            }
+            if (swept > 0) {
+                log.info("Swept {} overdue expense schedules on shard={}", swept, shardName(index));
+            }
+        }
+    }
+
+    private void fire(int shard, List<Long> ids, long now) {
+        firedCounter.increment(ids.size());
+        try {
+            ShardContext.runOn(shardName(shard), () -> transactionTemplate.executeWithoutResult(
+                    status -> materialize(shard, ids, now)));
+        } catch (ExpenseConflictException | ExpenseServiceException | DataAccessException ex) {
+            // the schedules keep their next_run_at, so the overdue sweep retries them
+            log.warn("Failed to materialize {} expense schedules on shard={}", ids.size(), shardName(shard), ex);
+        }
+    }
+
+    private void materialize(int shard, List<Long> ids, long now) {
+        Timestamp updatedAt = new Timestamp(now);
+        Map<String, List<BulkCreateExpenseItemDto>> byUser = new LinkedHashMap<>();
+        for (ExpenseSchedule schedule : scheduleRepository.findAllById(ids)) {
+            Timestamp runAt = schedule.getNextRunAt();
+            // deleted, ended, or moved on by another instance since the key was loaded
+            if (Objects.isNull(runAt) || runAt.getTime() > now) {
+                continue;
+            }
+            Cadence cadence = Cadence.valueOf(schedule.getCadence());
+            List<BulkCreateExpenseItemDto> items = new ArrayList<>();
+            long n = schedule.getFiredCount();
+            LocalDate occurrence = cadence.nth(schedule.getStartOn(), n);
+            while (items.size() < maxCatchUp && dueAt(occurrence).getTime() <= now && !ended(schedule, occurrence)) {
+                items.add(toItem(schedule, n, occurrence));
+                n++;
+                occurrence = cadence.nth(schedule.getStartOn(), n);
+            }
+            Timestamp next = ended(schedule, occurrence) ? null : dueAt(occurrence);
+            if (scheduleRepository.advance(schedule.getId(), runAt, n, next, updatedAt) == 0) {
+                continue;
+            }
+            byUser.computeIfAbsent(schedule.getUserId(), user -> new ArrayList<>()).addAll(items);
+            if (Objects.nonNull(next) && isLoaded(shard, next, schedule.getId())) {
+                wheel.add(key(shard, schedule.getId()), next.getTime());
+            }
+        }
+
+        for (Map.Entry<String, List<BulkCreateExpenseItemDto>> entry : byUser.entrySet()) {
+            List<BulkCreateExpenseItemDto> items = entry.getValue();
+            for (int start = 0; start < items.size(); start += maxBulkItems) {
+                List<BulkItemOutcome> outcomes = expenseService.createExpenses(
+                        items.subList(start, Math.min(start + maxBulkItems, items.size())), entry.getKey());
+                long created = outcomes.stream()
+                        .filter(outcome -> outcome.getStatus() == BulkItemResultDto.Status.CREATED)
+                        .count();
+                createdCounter.increment(created);
+                outcomes.stream()
+                        .filter(outcome -> outcome.getStatus() == BulkItemResultDto.Status.INVALID)
+                        .forEach(outcome -> log.warn("Skipped scheduled expense {} for userId={}: {}",
+                                outcome.getIdempotencyKey(), entry.getKey(), outcome.getErrors()));
+            }
+        }
+    }
+
+    private static BulkCreateExpenseItemDto toItem(ExpenseSchedule schedule, long n, LocalDate occurrence) {
+        BulkCreateExpenseItemDto item = new BulkCreateExpenseItemDto();
+        item.setIdempotencyKey("schedule-" + schedule.getId() + "-" + n);
+        item.setAmount(schedule.getAmount());
+        item.setMerchant(schedule.getMerchant());
+        item.setCurrency(schedule.getCurrency());
+        item.setNotes(schedule.getNotes());
+        item.setCategory(schedule.getCategory());
+        item.setFundSource(schedule.getFundSource());
+        item.setCreatedAt(dueAt(occurrence));
+        return item;
+    }
+
+    private static boolean ended(ExpenseSchedule schedule, LocalDate occurrence) {
+        return Objects.nonNull(schedule.getEndOn()) && occurrence.isAfter(schedule.getEndOn());
+    }
+
+    /** When an occurrence falls due: the start of its day in UTC, the zone rollups bucket by. */
+    static Timestamp dueAt(LocalDate occurrence) {
+        return Timestamp.from(occurrence.atStartOfDay(SpendRollupService.ROLLUP_ZONE).toInstant());
+    }
+
+    // whether the loader has already passed (runAt, id), so the wheel must be told directly
+    private boolean isLoaded(int shard, Timestamp runAt, long id) {
+        int order = runAt.compareTo(cursorRunAt[shard]);
+        return order < 0 || (order == 0 && id <= cursorId[shard]);
+    }
+
+    private static long key(int shard, long id) {
+        return ((long) shard << SHARD_SHIFT) | id;
+    }
+
+    private static int shardOf(long key) {
+        return (int) (key >>> SHARD_SHIFT);
+    }
+
+    private int shardIndex(String shardName) {
+        int index = Objects.isNull(shardName) ? -1 : shards.names().indexOf(shardName);
+        return Math.max(0, index);
+    }
+
+    private String shardName(int index) {
+        return shards.names().isEmpty() ? null : shards.names().get(index);
+    }
+}
@@ -0,0 +1,402 @@
+package com.nstrange.expenseservice.recurring;
+
+import com.nstrange.expenseservice.dto.RecurrenceDetectionStatusDto;
+import com.nstrange.expenseservice.entities.DetectedRecurrence;
+import com.nstrange.expenseservice.entities.RecurrenceScanCheckpoint;
+import com.nstrange.expenseservice.model.ExpenseHistoryView;
+import com.nstrange.expenseservice.partition.ExpensePartitionManager;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.DetectedRecurrenceRepository;
+import com.nstrange.expenseservice.repository.ExpenseRepository;
+import com.nstrange.expenseservice.repository.RecurrenceScanCheckpointRepository;
+import com.nstrange.expenseservice.service.SpendRollupService;
+import com.nstrange.expenseservice.sharding.ShardContext;
+import com.nstrange.expenseservice.sharding.Shards;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batch pass that looks for subscriptions and other periodic payments in every user's recent history.
+ * Each shard is walked in user id order a page of users at a time; the page is split across a small
+ * fork-join pool whose workers each read one user's history in keyset pages from a replica, run the
+ * {@link RecurrenceDetector} and replace that user's {@code detected_recurrence} rows in one short
+ * transaction. All reads share one {@link RowThrottle}, and the workers run at minimum priority, so the
+ * scan stays in the background of online traffic.
+ *
+ * <p>After every page of users the shard's {@code recurrence_scan_checkpoint} row records the last user
+ * done. A run that was cut off by a restart or a failure is picked up after that user by the next one,
+ * whether started by hand or by the schedule. A per-shard {@code GET_LOCK} keeps instances from scanning
+ * the same shard twice.
+ */
+@Component
+public class RecurrenceDetectionJob
+{
+
+    private static final Logger log = LoggerFactory.getLogger(RecurrenceDetectionJob.class);
+
+    private static final String LOCK_NAME = "expense_recurrence_detection";
+
+    private final ExpenseRepository expenseRepository;
+
+    private final DetectedRecurrenceRepository recurrenceRepository;
+
+    private final RecurrenceScanCheckpointRepository checkpointRepository;
+
+    private final ExpensePartitionManager partitionManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Shards shards;
+
+    private final RecurrenceDetector detector;
+
+    private final RowThrottle throttle;
+
+    private final boolean enabled;
+
+    private final int lookbackMonths;
+
+    private final int userPageSize;
+
+    private final int historyPageSize;
+
+    private final int usersPerTask;
+
+    private final ForkJoinPool pool;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "recurrence-detection-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong usersScanned = new AtomicLong();
+
+    private final AtomicLong rowsRead = new AtomicLong();
+
+    private final AtomicLong recurrencesFound = new AtomicLong();
+
+    private final AtomicLong usersFailed = new AtomicLong();
+
+    private volatile String shard;
+
+    private volatile boolean resumed;
+
+    private volatile String lastUserId;
+
+    private volatile Instant startedAt;
+
+    private volatile Instant finishedAt;
+
+    private volatile String error;
+
+    public RecurrenceDetectionJob(ExpenseRepository expenseRepository,
+                                  DetectedRecurrenceRepository recurrenceRepository,
+                                  RecurrenceScanCheckpointRepository checkpointRepository,
+                                  ExpensePartitionManager partitionManager,
+                                  JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  Shards shards,
+                                  @Value("${expense.recurring.enabled:true}") boolean enabled,
+                                  @Value("${expense.recurring.lookback-months:18}") int lookbackMonths,
+                                  @Value("${expense.recurring.parallelism:2}") int parallelism,
+                                  @Value("${expense.recurring.max-rows-per-second:5000}") long maxRowsPerSecond,
+                                  @Value("${expense.recurring.user-page-size:200}") int userPageSize,
+                                  @Value("${expense.recurring.history-page-size:500}") int historyPageSize,
+                                  @Value("${expense.recurring.users-per-task:8}") int usersPerTask,
+                                  @Value("${expense.recurring.amount-tolerance:0.1}") double amountTolerance,
+                                  @Value("${expense.recurring.min-occurrences:3}") int minOccurrences,
+                                  @Value("${expense.recurring.min-confidence:0.75}") double minConfidence) {
+        this.expenseRepository = expenseRepository;
+        this.recurrenceRepository = recurrenceRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.partitionManager = partitionManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.lookbackMonths = lookbackMonths;
+        this.userPageSize = userPageSize;
+        this.historyPageSize = historyPageSize;
+        this.usersPerTask = Math.max(1, usersPerTask);
+        this.detector = new RecurrenceDetector(amountTolerance, minOccurrences, minConfidence);
+        this.throttle = new RowThrottle(maxRowsPerSecond);
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("recurrence-detection-" + thread.getPoolIndex());
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * @return {@code false} if a run is already in progress
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        usersScanned.set(0);
+        rowsRead.set(0);
+        recurrencesFound.set(0);
+        usersFailed.set(0);
+        shard = null;
+        resumed = false;
+        lastUserId = null;
+        error = null;
+        finishedAt = null;
+        startedAt = Instant.now();
+        executor.execute(this::run);
+        return true;
+    }
+
+    @Scheduled(cron = "${expense.recurring.detect-cron:0 0 5 * * *}", zone = "UTC")
+    public void scheduledRun() {
+        if (enabled && !start()) {
+            log.info("Skipping scheduled recurrence detection, a run is already in progress");
+        }
+    }
+
+    public RecurrenceDetectionStatusDto status() {
+        return RecurrenceDetectionStatusDto.builder()
+                .running(running.get())
+                .shard(shard)
+                .resumed(resumed)
+                .usersScanned(usersScanned.get())
+                .rowsRead(rowsRead.get())
+                .recurrencesFound(recurrencesFound.get())
+                .usersFailed(usersFailed.get())
+                .lastUserId(lastUserId)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .error(error)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private void run() {
+        log.info("Starting recurrence detection");
+        try {
+            shards.forEach(this::runShard);
+            log.info("Recurrence detection finished: users={} rows={} recurrences={} failed={}",
+                    usersScanned.get(), rowsRead.get(), recurrencesFound.get(), usersFailed.get());
+        } catch (RuntimeException ex) {
+            error = ex.getMessage();
+            log.error("Recurrence detection failed on shard={} after userId={}", shard, lastUserId, ex);
+        } finally {
+            finishedAt = Instant.now();
+            running.set(false);
+        }
+    }
+
+    private void runShard(String shardName) {
+        shard = shardName;
+        String lockName = Objects.isNull(shardName) ? LOCK_NAME : LOCK_NAME + "_" + shardName;
+        // the lock lives as long as this connection, which is held for the whole shard; the workers read
+        // and write on connections of their own
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if (!lock(connection, "SELECT GET_LOCK(?, 0)", lockName)) {
+                log.info("Recurrence detection on shard={} is running on another instance", shardName);
+                return null;
+            }
+            try {
+                scanShard(shardName);
+            } finally {
+                lock(connection, "SELECT RELEASE_LOCK(?)", lockName);
+            }
+            return null;
+        });
+    }
+
+    private void scanShard(String shardName) {
+        RecurrenceScanCheckpoint checkpoint = ReadRoutingContext.callOnPrimary(
+                () -> checkpointRepository.findById(RecurrenceScanCheckpoint.JOB)).orElse(null);
+        if (Objects.nonNull(checkpoint) && Objects.isNull(checkpoint.getCompletedAt())) {
+            resumed = true;
+            log.info("Resuming recurrence detection on shard={} after userId={} ({} users already scanned)",
+                    shardName, checkpoint.getLastUserId(), checkpoint.getUsersScanned());
+        } else {
+            Timestamp now = Timestamp.from(Instant.now());
+            checkpoint = new RecurrenceScanCheckpoint(RecurrenceScanCheckpoint.JOB, null, 0L, now, null, now);
+        }
+
+        ZonedDateTime lookback = ZonedDateTime.now(SpendRollupService.ROLLUP_ZONE).minusMonths(lookbackMonths);
+        Timestamp retained = partitionManager.retainedFrom();
+        Timestamp from = Timestamp.from(lookback.toInstant());
+        if (retained.after(from)) {
+            from = retained;
+        }
+        LocalDate today = LocalDate.now(SpendRollupService.ROLLUP_ZONE);
+
+        String after = Objects.isNull(checkpoint.getLastUserId()) ? "" : checkpoint.getLastUserId();
+        while (!Thread.currentThread().isInterrupted()) {
+            Timestamp fromBound = from;
+            String afterBound = after;
+            List<String> userIds = expenseRepository.findUserIdsAfter(afterBound, fromBound,
+                    PageRequest.of(0, userPageSize));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            pool.invoke(new ScanTask(shardName, userIds, 0, userIds.size(), fromBound, today));
+            if (pool.isShutdown() || Thread.currentThread().isInterrupted()) {
+                // workers may have stopped partway through the page, so it is not checkpointed
+                return;
+            }
+
+            after = userIds.get(userIds.size() - 1);
+            lastUserId = after;
+            checkpoint.setLastUserId(after);
+            checkpoint.setUsersScanned(checkpoint.getUsersScanned() + userIds.size());
+            saveCheckpoint(checkpoint);
+            if (userIds.size() < userPageSize) {
+                checkpoint.setCompletedAt(Timestamp.from(Instant.now()));
+                saveCheckpoint(checkpoint);
+                break;
+            }
+        }
+    }
+
+    private void saveCheckpoint(RecurrenceScanCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(Timestamp.from(Instant.now()));
+        transactionTemplate.executeWithoutResult(status -> checkpointRepository.save(checkpoint));
+    }
+
+    private void scanUser(String userId, Timestamp from, LocalDate today) throws InterruptedException {
+        List<RecurrenceDetector.Payment> payments = new ArrayList<>();
+        Timestamp afterCreatedAt = from;
+        long afterId = 0L;
+        while (true) {
+            List<ExpenseHistoryView> page = expenseRepository.findHistoryPage(userId, from, afterCreatedAt, afterId,
+                    PageRequest.of(0, historyPageSize));
+            throttle.acquire(page.size());
+            rowsRead.addAndGet(page.size());
+            for (ExpenseHistoryView row : page) {
+                payments.add(new RecurrenceDetector.Payment(
+                        row.getCreatedAt().toInstant().atZone(SpendRollupService.ROLLUP_ZONE).toLocalDate(),
+                        row.getAmount(), row.getCurrency(), row.getMerchant()));
+            }
+            if (page.size() < historyPageSize) {
+                break;
+            }
+            ExpenseHistoryView last = page.get(page.size() - 1);
+            afterId = last.getId();
+            afterCreatedAt = last.getCreatedAt();
+        }
+
+        List<RecurrenceDetector.Recurrence> found = detector.detect(payments, today);
+        Timestamp detectedAt = Timestamp.from(Instant.now());
+        List<DetectedRecurrence> rows = new ArrayList<>(found.size());
+        for (RecurrenceDetector.Recurrence recurrence : found) {
+            rows.add(new DetectedRecurrence(null, userId, recurrence.merchant(), recurrence.currency(),
+                    recurrence.typicalAmount(), recurrence.cadence().name(), recurrence.occurrences(),
+                    recurrence.confidence(), recurrence.firstSeenOn(), recurrence.lastSeenOn(),
+                    recurrence.nextExpectedOn(), recurrence.active(), detectedAt));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            recurrenceRepository.deleteByUserId(userId);
+            recurrenceRepository.saveAll(rows);
+        });
+        recurrencesFound.addAndGet(rows.size());
+    }
+
+    private static boolean lock(Connection connection, String sql, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    /**
+     * Halves its slice of a page of users until it is at most {@code usersPerTask} long, then scans those
+     * users one after another on the worker's own shard context.
+     */
+    private class ScanTask extends RecursiveAction
+    {
+
+        private final String shardName;
+
+        private final List<String> userIds;
+
+        private final int start;
+
+        private final int end;
+
+        private final Timestamp from;
+
+        private final LocalDate today;
+
+        ScanTask(String shardName, List<String> userIds, int start, int end, Timestamp from, LocalDate today) {
+            this.shardName = shardName;
+            this.userIds = userIds;
+            this.start = start;
+            this.end = end;
+            this.from = from;
+            this.today = today;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > usersPerTask) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new ScanTask(shardName, userIds, start, mid, from, today),
+                        new ScanTask(shardName, userIds, mid, end, from, today));
+                return;
+            }
+            ShardContext.runOn(shardName, () -> {
+                for (int i = start; i < end; i++) {
+                    String userId = userIds.get(i);
+                    try {
+                        scanUser(userId, from, today);
+                        usersScanned.incrementAndGet();
+                    } catch (DataAccessException ex) {
+                        // one user's failure should not hold back everyone after them in the checkpoint
+                        usersFailed.incrementAndGet();
+                        log.warn("Recurrence detection failed for userId={} on shard={}", userId, shardName, ex);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+    }
+}
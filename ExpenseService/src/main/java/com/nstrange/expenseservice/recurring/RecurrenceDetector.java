@@ -0,0 +1,157 @@
+package com.nstrange.expenseservice.recurring;
+
+import com.nstrange.expenseservice.categorizer.MerchantCategorizer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Finds periodic payments in one user's history. Payments are grouped by normalized merchant and
+ * currency, each group is split into clusters of amounts within a relative tolerance of each other (so a
+ * gym membership and the occasional shop at the same merchant stay apart), and a cluster is recurring
+ * when enough of the gaps between its payment dates match one {@link Cadence}. Holds no state, so one
+ * instance is shared by all of the job's workers.
+ */
+public class RecurrenceDetector
+{
+
+    private final BigDecimal amountTolerance;
+
+    private final int minOccurrences;
+
+    private final double minConfidence;
+
+    public RecurrenceDetector(double amountTolerance, int minOccurrences, double minConfidence) {
+        this.amountTolerance = BigDecimal.valueOf(amountTolerance);
+        this.minOccurrences = minOccurrences;
+        this.minConfidence = minConfidence;
+    }
+
+    /** One expense as the detector sees it; {@code date} is the UTC day it was made. */
+    public record Payment(LocalDate date, BigDecimal amount, String currency, String merchant) {
+    }
+
+    /** A detected pattern; {@code merchant} is the most recent spelling seen. */
+    public record Recurrence(String merchant, String currency, BigDecimal typicalAmount, Cadence cadence,
+                             int occurrences, double confidence, LocalDate firstSeenOn, LocalDate lastSeenOn,
+                             LocalDate nextExpectedOn, boolean active) {
+    }
+
+    /**
+     * @param payments the user's payments in date order
+     * @param today    the day {@code active} is judged against
+     */
+    public List<Recurrence> detect(List<Payment> payments, LocalDate today) {
+        Map<String, List<Payment>> groups = new HashMap<>();
+        for (Payment payment : payments) {
+            String key = MerchantCategorizer.merchantKey(payment.merchant());
+            if (key.isEmpty() || Objects.isNull(payment.amount()) || payment.amount().signum() <= 0) {
+                continue;
+            }
+            groups.computeIfAbsent(key + '\u0000' + payment.currency(), k -> new ArrayList<>()).add(payment);
+        }
+
+        List<Recurrence> found = new ArrayList<>();
+        for (List<Payment> group : groups.values()) {
+            if (group.size() < 2) {
+                continue;
+            }
+            for (List<Payment> cluster : clusterByAmount(group)) {
+                Recurrence recurrence = match(cluster, today);
+                if (Objects.nonNull(recurrence)) {
+                    found.add(recurrence);
+                }
+            }
+        }
+        found.sort(Comparator.comparing(Recurrence::nextExpectedOn));
+        return found;
+    }
+
+    /**
+     * Sorts by amount and starts a new cluster whenever an amount is more than the tolerance above the
+     * cluster's smallest one; each cluster comes back in date order.
+     */
+    private List<List<Payment>> clusterByAmount(List<Payment> group) {
+        List<Payment> byAmount = new ArrayList<>(group);
+        byAmount.sort(Comparator.comparing(Payment::amount));
+        List<List<Payment>> clusters = new ArrayList<>();
+        List<Payment> current = new ArrayList<>();
+        BigDecimal ceiling = null;
+        for (Payment payment : byAmount) {
+            if (Objects.isNull(ceiling) || payment.amount().compareTo(ceiling) > 0) {
+                if (!current.isEmpty()) {
+                    clusters.add(current);
+                }
+                current = new ArrayList<>();
+                ceiling = payment.amount().multiply(BigDecimal.ONE.add(amountTolerance));
+            }
+            current.add(payment);
+        }
+        if (!current.isEmpty()) {
+            clusters.add(current);
+        }
+        clusters.forEach(cluster -> cluster.sort(Comparator.comparing(Payment::date)));
+        return clusters;
+    }
+
+    private Recurrence match(List<Payment> cluster, LocalDate today) {
+        // a same-day repeat is a split or retried charge, not another period
+        List<LocalDate> dates = new ArrayList<>();
+        for (Payment payment : cluster) {
+            if (dates.isEmpty() || !dates.get(dates.size() - 1).equals(payment.date())) {
+                dates.add(payment.date());
+            }
+        }
+        int gaps = dates.size() - 1;
+        if (gaps < 1) {
+            return null;
+        }
+
+        Cadence best = null;
+        int bestMatched = 0;
+        for (Cadence cadence : Cadence.values()) {
+            int matched = 0;
+            for (int i = 1; i < dates.size(); i++) {
+                if (cadence.matches(ChronoUnit.DAYS.between(dates.get(i - 1), dates.get(i)))) {
+                    matched++;
+                }
+            }
+            if (matched > bestMatched) {
+                best = cadence;
+                bestMatched = matched;
+            }
+        }
+        // a yearly charge needs two years of history to show up at all, so it may stand on two payments
+        int required = best == Cadence.YEARLY ? Math.min(minOccurrences, 2) : minOccurrences;
+        double confidence = (double) bestMatched / gaps;
+        if (Objects.isNull(best) || dates.size() < required || confidence < minConfidence) {
+            return null;
+        }
+
+        LocalDate first = dates.get(0);
+        LocalDate last = dates.get(dates.size() - 1);
+        LocalDate next = best.next(last);
+        boolean active = !today.isAfter(best.next(next));
+        return new Recurrence(cluster.get(cluster.size() - 1).merchant(), cluster.get(0).currency(),
+                median(cluster), best, dates.size(), confidence, first, last, next, active);
+    }
+
+    private static BigDecimal median(List<Payment> cluster) {
+        List<BigDecimal> amounts = new ArrayList<>(cluster.size());
+        cluster.forEach(payment -> amounts.add(payment.amount()));
+        amounts.sort(Comparator.naturalOrder());
+        int mid = amounts.size() / 2;
+        if (amounts.size() % 2 == 1) {
+            return amounts.get(mid);
+        }
+        return amounts.get(mid - 1).add(amounts.get(mid)).divide(BigDecimal.valueOf(2), 2, RoundingMode.HALF_EVEN);
+    }
+}
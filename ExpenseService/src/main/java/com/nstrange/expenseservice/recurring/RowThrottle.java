@@ -0,0 +1,37 @@
+package com.nstrange.expenseservice.recurring;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the rows all of a background job's workers read to a fixed rate, so a full scan spreads over time
+ * instead of saturating the replicas that also serve users. Each caller reserves its rows and then sleeps until
+ * its slot; a non-positive rate turns pacing off.
+ */
+public class RowThrottle
+{
+
+    private final long nanosPerRow;
+
+    private long nextFreeNanos = System.nanoTime();
+
+    public RowThrottle(long rowsPerSecond) {
+        this.nanosPerRow = rowsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / rowsPerSecond : 0L;
+    }
+
+    public void acquire(int rows) throws InterruptedException {
+        if (nanosPerRow == 0L || rows <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            // idle time is not banked, so a pause in the scan does not turn into a burst afterwards
+            long start = Math.max(now, nextFreeNanos);
+            nextFreeNanos = start + rows * nanosPerRow;
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
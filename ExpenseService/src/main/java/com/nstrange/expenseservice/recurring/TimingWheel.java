@@ -0,0 +1,193 @@
+package com.nstrange.expenseservice.recurring;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Hierarchical timing wheel of {@code long} keys. Level 0 has 64 slots of one tick each, and every level
+ * above has 64 slots each as wide as the whole level below it. An entry is placed on the lowest level
+ * that can still tell its tick apart from the current one. Whenever the wheel below wraps around, the
+ * next slot up is redistributed downwards, so adding and firing are constant time per entry however
+ * many are pending. Entries are kept as pairs of primitives in per-slot arrays, 16 bytes each, and a
+ * slot's arrays are dropped once it fires.
+ *
+ * <p>Not thread-safe; the scheduler drives it from one thread.
+ */
+final class TimingWheel
+{
+
+    private static final int SLOT_BITS = 6;
+
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final long tickMillis;
+
+    private final int levels;
+
+    private final Slot[][] wheels;
+
+    // due at or before the current tick when added; fired by the next advance
+    private final Slot expired = new Slot();
+
+    private long currentTick;
+
+    private long size;
+
+    TimingWheel(long tickMillis, int levels, long startMillis) {
+        if (tickMillis <= 0 || levels < 1 || levels * SLOT_BITS >= 62) {
+            throw new IllegalArgumentException("Unsupported timing wheel shape: tick=" + tickMillis + " levels=" + levels);
+        }
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.wheels = new Slot[levels][SLOTS];
+        for (Slot[] wheel : wheels) {
+            for (int i = 0; i < SLOTS; i++) {
+                wheel[i] = new Slot();
+            }
+        }
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /** How far ahead of the current tick an entry can be placed. */
+    long horizonMillis() {
+        return (1L << (SLOT_BITS * levels)) * tickMillis;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code dueMillis} is beyond {@link #horizonMillis()}
+     */
+    void add(long key, long dueMillis) {
+        place(key, Math.floorDiv(dueMillis, tickMillis));
+        size++;
+    }
+
+    /**
+     * Moves the wheel to {@code nowMillis} and passes every key due by then to {@code fired}, earliest tick
+     * first. A jump of more than one level-0 turn, after a long pause, redistributes what is left instead
+     * of stepping through every tick in between.
+     *
+     * @return the number of keys fired
+     */
+    long advance(long nowMillis, LongConsumer fired) {
+        long nowTick = Math.floorDiv(nowMillis, tickMillis);
+        long count = drain(expired, fired);
+        if (nowTick - currentTick > SLOTS) {
+            return count + rebase(nowTick, fired);
+        }
+        while (currentTick < nowTick) {
+            currentTick++;
+            for (int level = levels - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(wheels[level][slotIndex(currentTick, level)]);
+                }
+            }
+            count += drain(wheels[0][(int) (currentTick & SLOT_MASK)], fired);
+            // a cascaded entry due on exactly this tick lands in expired rather than in a slot
+            count += drain(expired, fired);
+        }
+        return count;
+    }
+
+    private void place(long key, long dueTick) {
+        if (dueTick <= currentTick) {
+            expired.add(key, dueTick);
+            return;
+        }
+        for (int level = 0; level < levels; level++) {
+            int above = SLOT_BITS * (level + 1);
+            if ((dueTick >>> above) == (currentTick >>> above)) {
+                wheels[level][slotIndex(dueTick, level)].add(key, dueTick);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Due time is beyond the wheel's horizon of " + horizonMillis() + " ms");
+    }
+
+    private void cascade(Slot slot) {
+        long[] keys = slot.keys;
+        long[] ticks = slot.ticks;
+        int count = slot.count;
+        slot.clear();
+        for (int i = 0; i < count; i++) {
+            place(keys[i], ticks[i]);
+        }
+    }
+
+    private long rebase(long nowTick, LongConsumer fired) {
+        Slot pending = new Slot();
+        for (Slot[] wheel : wheels) {
+            for (Slot slot : wheel) {
+                for (int i = 0; i < slot.count; i++) {
+                    pending.add(slot.keys[i], slot.ticks[i]);
+                }
+                slot.clear();
+            }
+        }
+        currentTick = nowTick;
+        long count = 0;
+        for (int i = 0; i < pending.count; i++) {
+            if (pending.ticks[i] <= nowTick) {
+                size--;
+                count++;
+                fired.accept(pending.keys[i]);
+            } else {
+                place(pending.keys[i], pending.ticks[i]);
+            }
+        }
+        return count;
+    }
+
+    private long drain(Slot slot, LongConsumer fired) {
+        int count = slot.count;
+        if (count == 0) {
+            return 0;
+        }
+        long[] keys = slot.keys;
+        slot.clear();
+        size -= count;
+        for (int i = 0; i < count; i++) {
+            fired.accept(keys[i]);
+        }
+        return count;
+    }
+
+    private static int slotIndex(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    private static final class Slot
+    {
+
+        private static final long[] EMPTY = new long[0];
+
+        private long[] keys = EMPTY;
+
+        private long[] ticks = EMPTY;
+
+        private int count;
+
+        void add(long key, long tick) {
+            if (count == keys.length) {
+                int capacity = Math.max(8, count * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                ticks = Arrays.copyOf(ticks, capacity);
+            }
+            keys[count] = key;
+            ticks[count] = tick;
+            count++;
+        }
+
+        // releases the arrays, so a slot that once held a burst does not keep its memory
+        void clear() {
+            keys = EMPTY;
+            ticks = EMPTY;
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.nstrange.expenseservice.replica;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread inputs to {@link ReplicatedDataSource}'s routing: the user the request acts for, which
+ * keeps that user's reads on the primary for a while after they write, and an override that forces
+ * reads onto the primary for code that caches what it reads or cannot tolerate any lag.
+ */
+public final class ReadRoutingContext
+{
+
+    private static final ThreadLocal<String> USER = new ThreadLocal<>();
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReadRoutingContext() {
+    }
+
+    public static String user() {
+        return USER.get();
+    }
+
+    public static void setUser(String userId) {
+        if (userId == null) {
+            USER.remove();
+        } else {
+            USER.set(userId);
+        }
+    }
+
+    public static void clear() {
+        USER.remove();
+        PRIMARY_REQUIRED.remove();
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    /**
+     * Runs {@code action} with every read on the primary. Connections are bound lazily, so this also
+     * works inside a read-only transaction as long as it wraps the transaction's first statement.
+     */
+    public static <T> T callOnPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_REQUIRED.remove();
+            } else {
+                PRIMARY_REQUIRED.set(previous);
+            }
+        }
+    }
+
+    public static void runOnPrimary(Runnable action) {
+        callOnPrimary(() -> {
+            action.run();
+            return null;
+        });
+    }
+}
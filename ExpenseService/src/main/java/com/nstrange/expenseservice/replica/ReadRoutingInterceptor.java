@@ -0,0 +1,37 @@
+package com.nstrange.expenseservice.replica;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.Objects;
+
+/**
+ * Sets {@link ReadRoutingContext#user()} from {@code X-User-ID}, so writes made by the request make
+ * that user sticky and reads honour it.
+ */
+class ReadRoutingInterceptor implements AsyncHandlerInterceptor
+{
+
+    private static final String USER_HEADER = "X-User-ID";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String userId = request.getHeader(USER_HEADER);
+        if (Objects.nonNull(userId) && !userId.isBlank()) {
+            ReadRoutingContext.setUser(userId);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReadRoutingContext.clear();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // an SSE response hands the thread back to the pool long before afterCompletion runs
+        ReadRoutingContext.clear();
+    }
+}
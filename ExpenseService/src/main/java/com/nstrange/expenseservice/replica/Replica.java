@@ -0,0 +1,63 @@
+package com.nstrange.expenseservice.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One read replica's pool and its last health check. A replica starts unhealthy and only takes reads
+ * once {@link ReplicaHealthMonitor} has seen it within {@code max-lag-ms} of the primary.
+ */
+final class Replica
+{
+
+    private final String name;
+
+    private final HikariDataSource pool;
+
+    private final LongAdder selections = new LongAdder();
+
+    private volatile boolean healthy;
+
+    private volatile long lagMs = -1L;
+
+    Replica(String name, HikariDataSource pool) {
+        this.name = name;
+        this.pool = pool;
+    }
+
+    String name() {
+        return name;
+    }
+
+    HikariDataSource pool() {
+        return pool;
+    }
+
+    boolean isHealthy() {
+        return healthy;
+    }
+
+    long lagMs() {
+        return lagMs;
+    }
+
+    void update(boolean healthy, long lagMs) {
+        this.healthy = healthy;
+        this.lagMs = lagMs;
+    }
+
+    void selected() {
+        selections.increment();
+    }
+
+    long selections() {
+        return selections.sum();
+    }
+
+    int activeConnections() {
+        HikariPoolMXBean pool = this.pool.getHikariPoolMXBean();
+        return pool != null ? pool.getActiveConnections() : 0;
+    }
+}
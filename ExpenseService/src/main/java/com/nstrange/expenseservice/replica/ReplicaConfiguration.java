@@ -0,0 +1,43 @@
+package com.nstrange.expenseservice.replica;
+
+import com.nstrange.expenseservice.sharding.Shards;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * With {@code expense.replicas.enabled=true} and sharding off, the application datasource becomes a
+ * {@link ReplicatedDataSource} over the {@code spring.datasource} primary and
+ * {@code expense.replicas.nodes}. With sharding on, {@code ShardingConfiguration} wraps each shard
+ * that lists replicas instead.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaConfiguration
+{
+
+    @Bean
+    public WriteStickiness writeStickiness(ReplicaProperties properties) {
+        return new WriteStickiness(properties.getReadYourWritesMs());
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnExpression("${expense.replicas.enabled:false} and !${expense.sharding.enabled:false}")
+    public ReplicatedDataSource replicatedDataSource(DataSourceProperties dataSourceProperties,
+                                                     ReplicaProperties properties,
+                                                     WriteStickiness stickiness) {
+        if (properties.getNodes().isEmpty()) {
+            throw new IllegalStateException("expense.replicas.enabled=true needs at least one expense.replicas.nodes entry");
+        }
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("expense-primary");
+        return new ReplicatedDataSource(Shards.UNSHARDED, primary, properties.getNodes(), stickiness);
+    }
+}
@@ -0,0 +1,45 @@
+package com.nstrange.expenseservice.replica;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code expense.replicas.*}. {@code nodes} are the read replicas of {@code spring.datasource}; with
+ * sharding on, each shard lists its own under {@code expense.sharding.shards[i].replicas}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "expense.replicas")
+public class ReplicaProperties
+{
+
+    private boolean enabled;
+
+    /** A replica further behind than this stops receiving reads until it catches up. */
+    private long maxLagMs = 1000;
+
+    private long heartbeatIntervalMs = 250;
+
+    private long readYourWritesMs = 3000;
+
+    private List<Node> nodes = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Node {
+
+        private String name;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maxPoolSize = 10;
+    }
+}
@@ -0,0 +1,23 @@
+package com.nstrange.expenseservice.replica;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class ReplicaWebConfig implements WebMvcConfigurer
+{
+
+    private final ReplicaProperties properties;
+
+    public ReplicaWebConfig(ReplicaProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (properties.isEnabled()) {
+            registry.addInterceptor(new ReadRoutingInterceptor()).addPathPatterns("/expense/v1/**");
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.nstrange.expenseservice.replica;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A primary plus its read replicas behind one datasource. Read-only transactions go to a healthy
+ * replica, picked as the less busy of two at random; everything else goes to the primary, and so do
+ * reads of a user who wrote within {@code read-your-writes-ms} or of code inside
+ * {@link ReadRoutingContext#callOnPrimary}.
+ * <p>
+ * The physical connection is bound lazily, on the first statement: Spring marks a transaction
+ * read-only only after opening it, and routing any earlier would always pick the primary.
+ */
+public class ReplicatedDataSource extends LazyConnectionDataSourceProxy implements Closeable
+{
+
+    public enum Route {
+        PRIMARY_WRITE,
+        PRIMARY_REQUIRED,
+        PRIMARY_STICKY,
+        PRIMARY_FALLBACK,
+        REPLICA
+    }
+
+    private static final String PRIMARY = "primary";
+
+    private final String name;
+
+    private final HikariDataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final WriteStickiness stickiness;
+
+    private final EnumMap<Route, LongAdder> decisions = new EnumMap<>(Route.class);
+
+    public ReplicatedDataSource(String name, HikariDataSource primary, List<ReplicaProperties.Node> nodes,
+                                WriteStickiness stickiness) {
+        this.name = name;
+        this.primary = primary;
+        this.stickiness = stickiness;
+        for (Route route : Route.values()) {
+            decisions.put(route, new LongAdder());
+        }
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < nodes.size(); i++) {
+            ReplicaProperties.Node node = nodes.get(i);
+            String replicaName = Objects.nonNull(node.getName()) && !node.getName().isBlank()
+                    ? node.getName() : name + "-replica-" + i;
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("expense-" + replicaName);
+            config.setJdbcUrl(node.getUrl());
+            config.setUsername(node.getUsername());
+            config.setPassword(node.getPassword());
+            config.setMaximumPoolSize(node.getMaxPoolSize());
+            config.setReadOnly(true);
+            Replica replica = new Replica(replicaName, new HikariDataSource(config));
+            replicas.add(replica);
+            targets.put(replicaName, replica.pool());
+        }
+
+        Router router = new Router();
+        router.setTargetDataSources(targets);
+        router.setDefaultTargetDataSource(primary);
+        router.setLenientFallback(false);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+        // known up front, so the proxy never opens a connection just to look them up
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        afterPropertiesSet();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    HikariDataSource primary() {
+        return primary;
+    }
+
+    List<Replica> replicas() {
+        return replicas;
+    }
+
+    long decisions(Route route) {
+        return decisions.get(route).sum();
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool().close());
+        primary.close();
+    }
+
+    private Object route() {
+        String user = ReadRoutingContext.user();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWrite(user);
+            return decide(Route.PRIMARY_WRITE, PRIMARY);
+        }
+        if (ReadRoutingContext.isPrimaryRequired()) {
+            return decide(Route.PRIMARY_REQUIRED, PRIMARY);
+        }
+        if (Objects.nonNull(user) && stickiness.isSticky(user)) {
+            return decide(Route.PRIMARY_STICKY, PRIMARY);
+        }
+        Replica replica = pickReplica(replicas);
+        if (Objects.isNull(replica)) {
+            return decide(Route.PRIMARY_FALLBACK, PRIMARY);
+        }
+        replica.selected();
+        return decide(Route.REPLICA, replica.name());
+    }
+
+    private Object decide(Route route, String target) {
+        decisions.get(route).increment();
+        return target;
+    }
+
+    /**
+     * Power of two choices over the healthy replicas, by active connections.
+     */
+    static Replica pickReplica(List<Replica> replicas) {
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.isHealthy()) {
+                healthy.add(replica);
+            }
+        }
+        if (healthy.size() <= 1) {
+            return healthy.isEmpty() ? null : healthy.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(healthy.size());
+        int second = random.nextInt(healthy.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Replica a = healthy.get(first);
+        Replica b = healthy.get(second);
+        return a.activeConnections() <= b.activeConnections() ? a : b;
+    }
+
+    private void rememberWrite(String user) {
+        if (Objects.isNull(user)) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            stickiness.markWritten(user);
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof StickyOnCommit sticky && sticky.owner() == this) {
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new StickyOnCommit(this, user));
+    }
+
+    private record StickyOnCommit(ReplicatedDataSource owner, String user) implements TransactionSynchronization {
+
+        @Override
+        public void afterCommit() {
+            owner.stickiness.markWritten(user);
+        }
+    }
+
+    private final class Router extends AbstractRoutingDataSource {
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return route();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.nstrange.expenseservice.replica;
+
+import java.time.Clock;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-your-writes: users who committed a write in the last {@code windowMs} read from the primary.
+ * Tracked per instance, so it holds for clients that keep talking to the same instance.
+ */
+public class WriteStickiness
+{
+
+    private final long windowMs;
+
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public WriteStickiness(long windowMs) {
+        this(windowMs, Clock.systemUTC());
+    }
+
+    WriteStickiness(long windowMs, Clock clock) {
+        this.windowMs = windowMs;
+        this.clock = clock;
+    }
+
+    public void markWritten(String userId) {
+        lastWrites.put(userId, clock.millis());
+    }
+
+    public boolean isSticky(String userId) {
+        Long writtenAt = lastWrites.get(userId);
+        return writtenAt != null && clock.millis() - writtenAt < windowMs;
+    }
+
+    public void expire() {
+        long cutoff = clock.millis() - windowMs;
+        lastWrites.values().removeIf(writtenAt -> writtenAt < cutoff);
+    }
+
+    public int size() {
+        return lastWrites.size();
+    }
+}
@@ -0,0 +1,90 @@
+package com.nstrange.expenseservice.report;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+
+/**
+ * RFC 4180 CSV: a header row, one row per expense, then a {@code total} row per currency after a blank
+ * line. Text cells that a spreadsheet would read as a formula get a leading apostrophe.
+ */
+class CsvStatementRenderer implements StatementRenderer
+{
+
+    private static final String HEADER = "date,merchant,category,fund_source,amount,currency,notes,expense_id";
+
+    private final Writer writer;
+
+    private boolean headerWritten;
+
+    CsvStatementRenderer(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void line(StatementLine line) throws IOException {
+        header();
+        writer.write(line.date().toString());
+        writer.write(',');
+        text(line.merchant());
+        writer.write(',');
+        text(line.category());
+        writer.write(',');
+        text(line.fundSource());
+        writer.write(',');
+        writer.write(line.amount().toPlainString());
+        writer.write(',');
+        text(line.currency());
+        writer.write(',');
+        text(line.notes());
+        writer.write(',');
+        text(line.externalId());
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void finish(SortedMap<String, BigDecimal> totals, long count) throws IOException {
+        header();
+        writer.write("\r\n");
+        for (Map.Entry<String, BigDecimal> total : totals.entrySet()) {
+            writer.write("total,,,,");
+            writer.write(total.getValue().toPlainString());
+            writer.write(',');
+            text(total.getKey());
+            writer.write(",,\r\n");
+        }
+        writer.flush();
+    }
+
+    private void header() throws IOException {
+        if (!headerWritten) {
+            writer.write(HEADER);
+            writer.write("\r\n");
+            headerWritten = true;
+        }
+    }
+
+    private void text(String value) throws IOException {
+        if (Objects.isNull(value) || value.isEmpty()) {
+            return;
+        }
+        char lead = value.charAt(0);
+        // =, +, - and @ start a formula in Excel and Sheets; a tab or CR can hide one from a casual look
+        boolean formula = lead == '=' || lead == '+' || lead == '-' || lead == '@' || lead == '\t' || lead == '\r';
+        String cell = formula ? "'" + value : value;
+        if (cell.indexOf(',') < 0 && cell.indexOf('"') < 0 && cell.indexOf('\n') < 0 && cell.indexOf('\r') < 0) {
+            writer.write(cell);
+            return;
+        }
+        writer.write('"');
+        writer.write(cell.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,534 @@
+package com.nstrange.expenseservice.report;
+
+import com.nstrange.expenseservice.coldstorage.ColdExpense;
+import com.nstrange.expenseservice.coldstorage.ColdExpenseStore;
+import com.nstrange.expenseservice.dto.StatementJobStatusDto;
+import com.nstrange.expenseservice.exception.ExpenseNotFoundException;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.exception.StatementRejectedException;
+import com.nstrange.expenseservice.model.StatementRowView;
+import com.nstrange.expenseservice.model.StatementVersionView;
+import com.nstrange.expenseservice.partition.ExpensePartitionManager;
+import com.nstrange.expenseservice.recurring.RowThrottle;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.ExpenseRepository;
+import com.nstrange.expenseservice.service.SpendRollupService;
+import com.nstrange.expenseservice.sharding.UserShardResolver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Monthly statements, rendered in the background and cached on disk. A request is queued on a small
+ * bounded pool rather than rendered on the request thread; the worker streams the month's rows in
+ * keyset pages straight into the CSV or PDF renderer, so memory does not grow with the month. Each
+ * statement is stored under a data version: a hash of the row count, newest {@code updated_at} and
+ * version sum of the month, tombstones included, which changes whenever any expense in the month is
+ * added, edited or deleted. A month that has not changed since its statement was rendered is answered
+ * from the file without rendering again. The version and the rows are read in one read-only
+ * transaction, so a statement always holds exactly the rows its version describes.
+ * <p>
+ * Jobs run on the instance that accepted them. Their status is also saved to the {@link StatementStore}
+ * on every change, so {@link #status} works on any instance; joining a job already in flight only works
+ * on the instance running it, and elsewhere the same statement is rendered a second time.
+ */
+@Service
+public class MonthlyStatementService
+{
+
+    private static final Logger log = LoggerFactory.getLogger(MonthlyStatementService.class);
+
+    // bump when the rendered layout changes, so statements cached in the old layout are rendered again
+    private static final int RENDER_VERSION = 1;
+
+    private static final int VERSION_HASH_BYTES = 8;
+
+    private static final StatementVersionView EMPTY_MONTH = new StatementVersionView() {
+        @Override
+        public Long getRowCount() {
+            return 0L;
+        }
+
+        @Override
+        public Timestamp getLastUpdatedAt() {
+            return null;
+        }
+
+        @Override
+        public Long getVersionSum() {
+            return 0L;
+        }
+    };
+
+    private final ExpenseRepository expenseRepository;
+
+    private final ColdExpenseStore coldExpenseStore;
+
+    private final ExpensePartitionManager partitionManager;
+
+    private final UserShardResolver shardResolver;
+
+    private final StatementStore store;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final int pageSize;
+
+    private final Duration jobRetention;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ConcurrentHashMap<String, StatementJob> jobs = new ConcurrentHashMap<>();
+
+    // jobs still queued or running, by what they render
+    private final ConcurrentHashMap<String, StatementJob> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter requestedRenders;
+
+    private final Counter pregeneratedRenders;
+
+    private final Counter cacheHits;
+
+    public MonthlyStatementService(ExpenseRepository expenseRepository,
+                                   ColdExpenseStore coldExpenseStore,
+                                   ExpensePartitionManager partitionManager,
+                                   UserShardResolver shardResolver,
+                                   StatementStore store,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${expense.statements.page-size:500}") int pageSize,
+                                   @Value("${expense.statements.workers:2}") int workers,
+                                   @Value("${expense.statements.queue-capacity:50}") int queueCapacity,
+                                   @Value("${expense.statements.job-retention-minutes:60}") long jobRetentionMinutes) {
+        this.expenseRepository = expenseRepository;
+        this.coldExpenseStore = coldExpenseStore;
+        this.partitionManager = partitionManager;
+        this.shardResolver = shardResolver;
+        this.store = store;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.pageSize = Math.max(1, pageSize);
+        this.jobRetention = Duration.ofMinutes(jobRetentionMinutes);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "monthly-statement-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.requestedRenders = renderCounter(meterRegistry, "request");
+        this.pregeneratedRenders = renderCounter(meterRegistry, "pregenerate");
+        this.cacheHits = Counter.builder("expense.statements.cache.hits")
+                .description("Statement requests answered from a file already rendered at the month's data version")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues the statement unless it is already stored at the month's current data version, in which
+     * case it comes back {@code COMPLETED} and {@code cached} without a job. A request for a statement
+     * that is already queued or rendering joins that job.
+     *
+     * @throws StatementRejectedException if the queue is full
+     */
+    public StatementJobStatusDto request(String userId, String month, String format) {
+        validateUser(userId);
+        YearMonth yearMonth = parseMonth(month);
+        ReportFormat reportFormat = parseFormat(format);
+
+        String version = currentVersion(userId, yearMonth);
+        Path cached = store.find(userId, yearMonth, version, reportFormat);
+        if (Objects.nonNull(cached)) {
+            cacheHits.increment();
+            return StatementJobStatusDto.builder()
+                    .status(StatementJob.Status.COMPLETED.name())
+                    .month(yearMonth.toString())
+                    .format(reportFormat.extension())
+                    .cached(true)
+                    .version(version)
+                    .sizeBytes(sizeOf(cached))
+                    .build();
+        }
+
+        StatementJob job = new StatementJob(UUID.randomUUID().toString(), userId, yearMonth, reportFormat);
+        StatementJob running = inFlight.putIfAbsent(job.key(), job);
+        if (Objects.nonNull(running)) {
+            return running.toDto();
+        }
+        jobs.put(job.getId(), job);
+        save(job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.getId());
+            inFlight.remove(job.key(), job);
+            delete(job.getId());
+            log.warn("Statement queue full, rejecting {} {} for userId={}", yearMonth, reportFormat, userId);
+            throw new StatementRejectedException("Too many statements being generated; retry later");
+        }
+        log.info("Queued statement jobId={} for userId={} month={} format={}", job.getId(), userId, yearMonth,
+                reportFormat);
+        return job.toDto();
+    }
+
+    /**
+     * Answered from memory on the instance running the job, and from the stored status anywhere else.
+     */
+    public StatementJobStatusDto status(String userId, String jobId) {
+        StatementJob job = Objects.nonNull(jobId) ? jobs.get(jobId) : null;
+        if (Objects.nonNull(job)) {
+            if (!job.getUserId().equals(userId)) {
+                throw new ExpenseNotFoundException("Statement job " + jobId + " not found");
+            }
+            return job.toDto();
+        }
+        StatementJobStatusDto stored = null;
+        try {
+            stored = Objects.nonNull(jobId) ? store.findJob(jobId, userId) : null;
+        } catch (IllegalArgumentException ex) {
+            // not a job id this service could have issued
+        } catch (IOException ex) {
+            log.error("Failed to read statement jobId={}", jobId, ex);
+            throw new ExpenseServiceException("Failed to read statement job " + jobId, ex);
+        }
+        if (Objects.isNull(stored)) {
+            throw new ExpenseNotFoundException("Statement job " + jobId + " not found");
+        }
+        return stored;
+    }
+
+    /**
+     * @throws ExpenseNotFoundException if no statement is stored at the month's current data version
+     */
+    public StatementFile find(String userId, String month, String format) {
+        validateUser(userId);
+        YearMonth yearMonth = parseMonth(month);
+        ReportFormat reportFormat = parseFormat(format);
+
+        String version = currentVersion(userId, yearMonth);
+        Path file = store.find(userId, yearMonth, version, reportFormat);
+        if (Objects.isNull(file)) {
+            throw new ExpenseNotFoundException("No " + reportFormat.extension() + " statement for " + yearMonth
+                    + " reflects the current expenses; request one with POST /expense/v1/requestStatement");
+        }
+        return new StatementFile(file, "statement-" + yearMonth + "." + reportFormat.extension(),
+                reportFormat.mediaType(), version, sizeOf(file));
+    }
+
+    @Scheduled(fixedDelayString = "${expense.statements.cleanup-interval-ms:60000}")
+    public void evictFinishedJobs() {
+        Instant cutoff = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> {
+            if (Objects.isNull(job.getFinishedAt()) || !job.getFinishedAt().isBefore(cutoff)) {
+                return false;
+            }
+            delete(job.getId());
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Renders the statement on the calling thread, paced by {@code throttle}, unless it is already
+     * current. Users with no expenses in the month are skipped.
+     *
+     * @return {@code null} if the month has no expenses
+     */
+    Rendered pregenerate(String userId, YearMonth month, ReportFormat format, RowThrottle throttle) {
+        return render(userId, month, format, throttle, true, pregeneratedRenders);
+    }
+
+    private void run(StatementJob job) {
+        job.started();
+        save(job);
+        // keeps the worker's reads on the primary if the user has just written, like their own requests
+        ReadRoutingContext.setUser(job.getUserId());
+        try {
+            Rendered rendered = render(job.getUserId(), job.getMonth(), job.getFormat(), null, false,
+                    requestedRenders);
+            job.completed(rendered);
+            log.info("Statement jobId={} completed: rows={} bytes={} cached={}", job.getId(), rendered.rows(),
+                    rendered.sizeBytes(), rendered.cached());
+        } catch (RuntimeException ex) {
+            job.failed(ex.getMessage());
+            log.error("Statement jobId={} failed for userId={} month={}", job.getId(), job.getUserId(),
+                    job.getMonth(), ex);
+        } finally {
+            ReadRoutingContext.clear();
+            save(job);
+            inFlight.remove(job.key(), job);
+        }
+    }
+
+    /**
+     * A status that cannot be saved is still served by this instance, so the job carries on.
+     */
+    private void save(StatementJob job) {
+        try {
+            store.saveJob(job.getId(), job.getUserId(), job.toDto());
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not save status of statement jobId={}: {}", job.getId(), ex.getMessage());
+        }
+    }
+
+    private void delete(String jobId) {
+        try {
+            store.deleteJob(jobId);
+        } catch (IOException ex) {
+            log.warn("Could not delete status of statement jobId={}: {}", jobId, ex.getMessage());
+        }
+    }
+
+    private Rendered render(String userId, YearMonth month, ReportFormat format, RowThrottle throttle,
+                            boolean skipEmpty, Counter renders) {
+        MonthRange range = range(month);
+        return shardResolver.callForUser(userId, () -> readOnlyTransaction.execute(status -> {
+            StatementVersionView view = fingerprint(userId, range);
+            if (skipEmpty && view.getRowCount() == 0 && !range.hasCold()) {
+                return null;
+            }
+            String version = versionOf(range, view);
+            Path cached = store.find(userId, month, version, format);
+            if (Objects.nonNull(cached)) {
+                cacheHits.increment();
+                return new Rendered(version, true, null, sizeOf(cached));
+            }
+            long[] rows = new long[1];
+            try {
+                Path file = store.write(userId, month, version, format,
+                        out -> rows[0] = writeStatement(userId, range, format, out, throttle));
+                renders.increment();
+                return new Rendered(version, false, rows[0], sizeOf(file));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }));
+    }
+
+    /**
+     * Streams the month's archived rows, then its MySQL rows, through the format's renderer. Flagged
+     * near-duplicates are left out, as they are from every other total.
+     */
+    private long writeStatement(String userId, MonthRange range, ReportFormat format, OutputStream out,
+                                RowThrottle throttle) throws IOException {
+        StatementRenderer renderer = format.renderer(out, userId, range.month());
+        SortedMap<String, BigDecimal> totals = new TreeMap<>();
+        long count = 0;
+        if (range.hasCold()) {
+            for (ColdExpense cold : coldExpenseStore.find(userId, range.from().getTime(),
+                    Math.min(range.to().getTime(), coldExpenseStore.archivedBefore().getTime()))) {
+                if (Objects.nonNull(cold.getDuplicateOf())) {
+                    continue;
+                }
+                emit(renderer, totals, new StatementLine(dateOf(cold.getCreatedAt()), cold.getMerchant(),
+                        cold.getCategory(), cold.getFundSource(), cold.getAmount(), cold.getCurrency(),
+                        cold.getNotes(), cold.getExternalId()));
+                count++;
+            }
+        }
+
+        Timestamp afterCreatedAt = range.hotFrom();
+        long afterId = 0L;
+        while (afterCreatedAt.before(range.to())) {
+            List<StatementRowView> page = expenseRepository.findStatementPage(userId, range.hotFrom(), range.to(),
+                    afterCreatedAt, afterId, PageRequest.of(0, pageSize));
+            pace(throttle, page.size());
+            for (StatementRowView row : page) {
+                emit(renderer, totals, new StatementLine(dateOf(row.getCreatedAt()), row.getMerchant(),
+                        row.getCategory(), row.getFundSource(), row.getAmount(), row.getCurrency(), row.getNotes(),
+                        row.getExternalId()));
+            }
+            count += page.size();
+            if (page.size() < pageSize) {
+                break;
+            }
+            StatementRowView last = page.get(page.size() - 1);
+            afterId = last.getId();
+            afterCreatedAt = last.getCreatedAt();
+        }
+        renderer.finish(totals, count);
+        return count;
+    }
+
+    private static void emit(StatementRenderer renderer, SortedMap<String, BigDecimal> totals, StatementLine line)
+            throws IOException {
+        renderer.line(line);
+        if (Objects.nonNull(line.currency()) && Objects.nonNull(line.amount())) {
+            totals.merge(line.currency(), line.amount(), BigDecimal::add);
+        }
+    }
+
+    private static void pace(RowThrottle throttle, int rows) throws InterruptedIOException {
+        if (Objects.isNull(throttle)) {
+            return;
+        }
+        try {
+            throttle.acquire(rows);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Statement rendering interrupted");
+        }
+    }
+
+    private String currentVersion(String userId, YearMonth month) {
+        MonthRange range = range(month);
+        try {
+            return shardResolver.callForUser(userId,
+                    () -> readOnlyTransaction.execute(status -> versionOf(range, fingerprint(userId, range))));
+        } catch (DataAccessException ex) {
+            log.error("Database error while fingerprinting {} for userId={}", month, userId, ex);
+            throw new ExpenseServiceException("Failed to read expenses for user " + userId, ex);
+        }
+    }
+
+    private StatementVersionView fingerprint(String userId, MonthRange range) {
+        if (!range.hotFrom().before(range.to())) {
+            return EMPTY_MONTH;
+        }
+        return expenseRepository.findStatementVersion(userId, range.hotFrom(), range.to());
+    }
+
+    /**
+     * The archived part of a month never changes, so the MySQL fingerprint plus where the archive ends
+     * covers the whole month: archiving moves {@code hotFrom} as well as removing the rows.
+     */
+    private static String versionOf(MonthRange range, StatementVersionView view) {
+        String fingerprint = RENDER_VERSION + "|" + range.hotFrom().getTime() + "|" + view.getRowCount() + "|"
+                + (Objects.isNull(view.getLastUpdatedAt()) ? 0L : view.getLastUpdatedAt().getTime()) + "|"
+                + view.getVersionSum();
+        byte[] hash = sha256().digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, VERSION_HASH_BYTES);
+    }
+
+    private MonthRange range(YearMonth month) {
+        Timestamp from = startOf(month);
+        Timestamp to = startOf(month.plusMonths(1));
+        Timestamp archivedBefore = coldExpenseStore.archivedBefore();
+        Timestamp hotFrom = latest(latest(from, partitionManager.retainedFrom()), archivedBefore);
+        boolean hasCold = coldExpenseStore.isEnabled() && from.before(archivedBefore);
+        return new MonthRange(month, from, to, hotFrom.after(to) ? to : hotFrom, hasCold);
+    }
+
+    private static YearMonth parseMonth(String month) {
+        if (Objects.isNull(month) || month.isBlank()) {
+            throw new InvalidExpenseRequestException("month must not be blank");
+        }
+        YearMonth parsed;
+        try {
+            parsed = YearMonth.parse(month.trim());
+        } catch (DateTimeParseException ex) {
+            throw new InvalidExpenseRequestException("month must be formatted as YYYY-MM");
+        }
+        if (parsed.isAfter(YearMonth.now(SpendRollupService.ROLLUP_ZONE))) {
+            throw new InvalidExpenseRequestException("month must not be in the future");
+        }
+        return parsed;
+    }
+
+    private static ReportFormat parseFormat(String format) {
+        ReportFormat parsed = ReportFormat.fromParam(Objects.isNull(format) ? "csv" : format);
+        if (Objects.isNull(parsed)) {
+            throw new InvalidExpenseRequestException("Unsupported statement format; use csv or pdf");
+        }
+        return parsed;
+    }
+
+    private static void validateUser(String userId) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+    }
+
+    private static LocalDate dateOf(Timestamp createdAt) {
+        return createdAt.toInstant().atZone(SpendRollupService.ROLLUP_ZONE).toLocalDate();
+    }
+
+    private static Timestamp startOf(YearMonth month) {
+        return Timestamp.from(month.atDay(1).atStartOfDay(SpendRollupService.ROLLUP_ZONE).toInstant());
+    }
+
+    private static Timestamp latest(Timestamp a, Timestamp b) {
+        if (Objects.isNull(a)) {
+            return b;
+        }
+        return Objects.isNull(b) || a.after(b) ? a : b;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static Counter renderCounter(MeterRegistry meterRegistry, String trigger) {
+        return Counter.builder("expense.statements.rendered")
+                .description("Statements rendered because none was stored at the month's data version")
+                .tag("trigger", trigger)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param hotFrom where MySQL rows start: the later of the month's start, partition retention and the
+     *                end of the cold archive, capped at {@code to}
+     */
+    private record MonthRange(YearMonth month, Timestamp from, Timestamp to, Timestamp hotFrom, boolean hasCold) {
+    }
+
+    record Rendered(String version, boolean cached, Long rows, long sizeBytes) {
+    }
+
+    public record StatementFile(Path path, String fileName, String mediaType, String version, long sizeBytes) {
+    }
+}
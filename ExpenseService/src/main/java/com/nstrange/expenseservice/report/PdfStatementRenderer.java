@@ -0,0 +1,237 @@
+package com.nstrange.expenseservice.report;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+
+/**
+ * Minimal PDF 1.4 writer for statements: A4 pages of a fixed-width table in the standard Helvetica
+ * fonts, which every viewer has, so nothing is embedded. Each page is written out as soon as it is full
+ * and only its object's byte offset is kept; the page tree and the catalog, which have to list every
+ * page, come last, followed by the cross-reference table. Text is WinAnsi encoded, and characters
+ * outside it are shown as {@code ?}.
+ */
+class PdfStatementRenderer implements StatementRenderer
+{
+
+    private static final int PAGE_WIDTH = 595;
+
+    private static final int PAGE_HEIGHT = 842;
+
+    private static final int MARGIN = 40;
+
+    private static final int FONT_SIZE = 9;
+
+    private static final int LEADING = 14;
+
+    private static final int CATALOG = 1;
+
+    private static final int PAGES = 2;
+
+    private static final int FONT = 3;
+
+    private static final int BOLD_FONT = 4;
+
+    private static final int[] COLUMN_X = {MARGIN, 105, 285, 395, 485};
+
+    private static final int[] COLUMN_CHARS = {10, 34, 20, 16, 8};
+
+    private static final String[] COLUMNS = {"Date", "Merchant", "Category", "Amount", "Currency"};
+
+    private static final DateTimeFormatter TITLE_MONTH = DateTimeFormatter.ofPattern("MMMM yyyy", Locale.ENGLISH);
+
+    private final OutputStream out;
+
+    private final String title;
+
+    private final String subtitle;
+
+    private final List<Long> offsets = new ArrayList<>();
+
+    private final List<Integer> pageObjects = new ArrayList<>();
+
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+    private long position;
+
+    private int y;
+
+    PdfStatementRenderer(OutputStream out, String userId, YearMonth month) {
+        this.out = new BufferedOutputStream(out);
+        this.title = "Expense statement - " + month.format(TITLE_MONTH);
+        this.subtitle = "User " + userId + ", generated "
+                + DateTimeFormatter.ISO_LOCAL_DATE.format(Instant.now().atOffset(ZoneOffset.UTC)) + " UTC";
+    }
+
+    @Override
+    public void line(StatementLine line) throws IOException {
+        row(false, line.date().toString(), line.merchant(), line.category(), line.amount().toPlainString(),
+                line.currency());
+    }
+
+    @Override
+    public void finish(SortedMap<String, BigDecimal> totals, long count) throws IOException {
+        if (content.size() == 0 || y < MARGIN + 2 * LEADING) {
+            endPage();
+            startPage();
+        }
+        y -= LEADING / 2;
+        text(true, MARGIN, count + (count == 1 ? " expense" : " expenses"));
+        for (Map.Entry<String, BigDecimal> total : totals.entrySet()) {
+            row(true, "Total", null, null, total.getValue().toPlainString(), total.getKey());
+        }
+        endPage();
+
+        // the catalog and the page tree were numbered 1 and 2 up front, so pages could point at them
+        object(PAGES, "<< /Type /Pages /Count " + pageObjects.size() + " /Kids [" + kids() + "] >>");
+        object(CATALOG, "<< /Type /Catalog /Pages " + PAGES + " 0 R >>");
+        long xref = position;
+        StringBuilder table = new StringBuilder("xref\n0 ").append(offsets.size() + 1).append('\n');
+        table.append("0000000000 65535 f \n");
+        for (Long offset : offsets) {
+            table.append(String.format(Locale.ROOT, "%010d 00000 n \n", offset));
+        }
+        table.append("trailer\n<< /Size ").append(offsets.size() + 1).append(" /Root ").append(CATALOG)
+                .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        write(table.toString().getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private void row(boolean bold, String... cells) throws IOException {
+        if (content.size() == 0 || y < MARGIN + LEADING) {
+            endPage();
+            startPage();
+        }
+        for (int i = 0; i < cells.length; i++) {
+            if (Objects.nonNull(cells[i])) {
+                text(bold, COLUMN_X[i], truncate(cells[i], COLUMN_CHARS[i]));
+            }
+        }
+        y -= LEADING;
+    }
+
+    private void startPage() throws IOException {
+        if (offsets.isEmpty()) {
+            write("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n".getBytes(StandardCharsets.ISO_8859_1));
+            // reserves the catalog's and the page tree's numbers; their offsets are filled in at the end
+            offsets.add(0L);
+            offsets.add(0L);
+            object(FONT, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>");
+            object(BOLD_FONT, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>");
+        }
+        y = PAGE_HEIGHT - MARGIN;
+        if (pageObjects.isEmpty()) {
+            text(true, MARGIN, title, FONT_SIZE + 5);
+            y -= LEADING + 4;
+            text(false, MARGIN, subtitle);
+            y -= LEADING * 2;
+        }
+        for (int i = 0; i < COLUMNS.length; i++) {
+            text(true, COLUMN_X[i], COLUMNS[i]);
+        }
+        y -= LEADING;
+    }
+
+    private void endPage() throws IOException {
+        if (content.size() == 0) {
+            return;
+        }
+        int pageNumber = pageObjects.size() + 1;
+        text(false, PAGE_WIDTH - MARGIN - 40, "Page " + pageNumber, FONT_SIZE, MARGIN / 2);
+
+        int contents = offsets.size() + 1;
+        byte[] stream = content.toByteArray();
+        content.reset();
+        begin(contents);
+        write(("<< /Length " + stream.length + " >>\nstream\n").getBytes(StandardCharsets.US_ASCII));
+        write(stream);
+        write("\nendstream\nendobj\n".getBytes(StandardCharsets.US_ASCII));
+
+        int page = offsets.size() + 1;
+        object(page, "<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + PAGE_WIDTH + " " + PAGE_HEIGHT
+                + "] /Resources << /Font << /F1 " + FONT + " 0 R /F2 " + BOLD_FONT + " 0 R >> >> /Contents "
+                + contents + " 0 R >>");
+        pageObjects.add(page);
+    }
+
+    private void text(boolean bold, int x, String value) {
+        text(bold, x, value, FONT_SIZE);
+    }
+
+    private void text(boolean bold, int x, String value, int size) {
+        text(bold, x, value, size, y);
+    }
+
+    private void text(boolean bold, int x, String value, int size, int atY) {
+        content.writeBytes(("BT /" + (bold ? "F2 " : "F1 ") + size + " Tf " + x + " " + atY + " Td (")
+                .getBytes(StandardCharsets.US_ASCII));
+        content.writeBytes(escape(value));
+        content.writeBytes(") Tj ET\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void object(int number, String body) throws IOException {
+        begin(number);
+        write((body + "\nendobj\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void begin(int number) throws IOException {
+        while (offsets.size() < number) {
+            offsets.add(0L);
+        }
+        offsets.set(number - 1, position);
+        write((number + " 0 obj\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    private String kids() {
+        StringBuilder kids = new StringBuilder();
+        for (int page : pageObjects) {
+            if (!kids.isEmpty()) {
+                kids.append(' ');
+            }
+            kids.append(page).append(" 0 R");
+        }
+        return kids.toString();
+    }
+
+    private static String truncate(String value, int chars) {
+        return value.length() <= chars ? value : value.substring(0, chars - 3) + "...";
+    }
+
+    /** WinAnsi bytes of {@code value} as the body of a PDF literal string. */
+    private static byte[] escape(String value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                bytes.write('\\');
+                bytes.write(c);
+            } else if ((c >= 0x20 && c < 0x7f) || (c >= 0xa0 && c <= 0xff)) {
+                // WinAnsi matches Latin-1 outside 0x80-0x9f
+                bytes.write(c);
+            } else if (c == '\u20ac') {
+                bytes.write(0x80);
+            } else {
+                bytes.write('?');
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
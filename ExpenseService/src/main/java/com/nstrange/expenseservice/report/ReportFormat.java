@@ -0,0 +1,53 @@
+package com.nstrange.expenseservice.report;
+
+import java.io.OutputStream;
+import java.time.YearMonth;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Formats a monthly statement can be rendered in, with the media type it is served as.
+ */
+public enum ReportFormat {
+    CSV("text/csv", "csv"),
+    PDF("application/pdf", "pdf");
+
+    private final String mediaType;
+
+    private final String extension;
+
+    ReportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * @return the format named by {@code value}, case-insensitively, or {@code null} if there is none
+     */
+    public static ReportFormat fromParam(String value) {
+        if (Objects.isNull(value) || value.isBlank()) {
+            return null;
+        }
+        for (ReportFormat format : values()) {
+            if (format.extension.equals(value.trim().toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    StatementRenderer renderer(OutputStream out, String userId, YearMonth month) {
+        return switch (this) {
+            case CSV -> new CsvStatementRenderer(out);
+            case PDF -> new PdfStatementRenderer(out, userId, month);
+        };
+    }
+}
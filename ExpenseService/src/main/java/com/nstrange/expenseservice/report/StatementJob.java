@@ -0,0 +1,111 @@
+package com.nstrange.expenseservice.report;
+
+import com.nstrange.expenseservice.dto.StatementJobStatusDto;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.Objects;
+
+/**
+ * One queued statement render. Written by the worker and read by status requests.
+ */
+final class StatementJob
+{
+
+    enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+
+    private final String userId;
+
+    private final YearMonth month;
+
+    private final ReportFormat format;
+
+    private final Instant submittedAt = Instant.now();
+
+    private volatile Status status = Status.QUEUED;
+
+    private volatile MonthlyStatementService.Rendered result;
+
+    private volatile String error;
+
+    private volatile Instant startedAt;
+
+    private volatile Instant finishedAt;
+
+    StatementJob(String id, String userId, YearMonth month, ReportFormat format) {
+        this.id = id;
+        this.userId = userId;
+        this.month = month;
+        this.format = format;
+    }
+
+    /** Identifies what is being rendered, so requests for the same statement share one job. */
+    static String key(String userId, YearMonth month, ReportFormat format) {
+        return userId + "|" + month + "|" + format;
+    }
+
+    String key() {
+        return key(userId, month, format);
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getUserId() {
+        return userId;
+    }
+
+    YearMonth getMonth() {
+        return month;
+    }
+
+    ReportFormat getFormat() {
+        return format;
+    }
+
+    Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void completed(MonthlyStatementService.Rendered rendered) {
+        result = rendered;
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    void failed(String message) {
+        error = message;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+
+    StatementJobStatusDto toDto() {
+        MonthlyStatementService.Rendered rendered = result;
+        StatementJobStatusDto.StatementJobStatusDtoBuilder dto = StatementJobStatusDto.builder()
+                .jobId(id)
+                .status(status.name())
+                .month(month.toString())
+                .format(format.extension())
+                .error(error)
+                .submittedAt(submittedAt)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt);
+        if (Objects.nonNull(rendered)) {
+            dto.cached(rendered.cached())
+                    .version(rendered.version())
+                    .rows(rendered.rows())
+                    .sizeBytes(rendered.sizeBytes());
+        }
+        return dto.build();
+    }
+}
@@ -0,0 +1,11 @@
+package com.nstrange.expenseservice.report;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One expense as it appears on a statement.
+ */
+record StatementLine(LocalDate date, String merchant, String category, String fundSource, BigDecimal amount,
+                     String currency, String notes, String externalId) {
+}
@@ -0,0 +1,217 @@
+package com.nstrange.expenseservice.report;
+
+import com.nstrange.expenseservice.recurring.RowThrottle;
+import com.nstrange.expenseservice.repository.ExpenseRepository;
+import com.nstrange.expenseservice.service.SpendRollupService;
+import com.nstrange.expenseservice.sharding.Shards;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Renders last month's statements for every user who had expenses in it, early on the first of the
+ * month, so the downloads that follow are served from the cache instead of queueing behind each other.
+ * The pass runs on its own thread, outside the request pool, one user at a time and shard by shard, with
+ * the rows it reads paced by a {@link RowThrottle}. A per-shard {@code GET_LOCK} keeps instances from
+ * rendering the same shard twice. A pass cut short is not resumed: statements it did not reach are
+ * rendered when they are first requested.
+ */
+@Component
+public class StatementPregenerationJob
+{
+
+    private static final Logger log = LoggerFactory.getLogger(StatementPregenerationJob.class);
+
+    private static final String LOCK_NAME = "expense_statement_pregeneration";
+
+    private final MonthlyStatementService statementService;
+
+    private final ExpenseRepository expenseRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Shards shards;
+
+    private final boolean enabled;
+
+    private final List<ReportFormat> formats;
+
+    private final long maxRowsPerSecond;
+
+    private final int userPageSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "statement-pregeneration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StatementPregenerationJob(MonthlyStatementService statementService,
+                                     ExpenseRepository expenseRepository,
+                                     JdbcTemplate jdbcTemplate,
+                                     Shards shards,
+                                     @Value("${expense.statements.pregenerate-enabled:true}") boolean enabled,
+                                     @Value("${expense.statements.pregenerate-formats:csv}") List<String> formats,
+                                     @Value("${expense.statements.pregenerate-rows-per-second:2000}") long maxRowsPerSecond,
+                                     @Value("${expense.statements.pregenerate-user-page-size:200}") int userPageSize) {
+        this.statementService = statementService;
+        this.expenseRepository = expenseRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.formats = new ArrayList<>();
+        for (String format : formats) {
+            ReportFormat parsed = ReportFormat.fromParam(format);
+            if (Objects.isNull(parsed)) {
+                throw new IllegalArgumentException("Unknown statement format in expense.statements.pregenerate-formats: "
+                        + format);
+            }
+            this.formats.add(parsed);
+        }
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.userPageSize = Math.max(1, userPageSize);
+    }
+
+    @Scheduled(cron = "${expense.statements.pregenerate-cron:0 0 2 1 * *}", zone = "UTC")
+    public void scheduledRun() {
+        if (!enabled || formats.isEmpty()) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.info("Skipping statement pre-generation, a pass is already in progress");
+            return;
+        }
+        YearMonth month = YearMonth.now(SpendRollupService.ROLLUP_ZONE).minusMonths(1);
+        executor.execute(() -> run(month));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(YearMonth month) {
+        log.info("Starting statement pre-generation for {} in {}", month, formats);
+        Pass pass = new Pass(month, new RowThrottle(maxRowsPerSecond));
+        try {
+            shards.forEach(shardName -> runShard(shardName, pass));
+            log.info("Statement pre-generation for {} finished: users={} rendered={} cached={} failed={}", month,
+                    pass.users, pass.rendered, pass.cached, pass.failed);
+        } catch (RuntimeException ex) {
+            log.error("Statement pre-generation for {} failed after users={}", month, pass.users, ex);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void runShard(String shardName, Pass pass) {
+        String lockName = Objects.isNull(shardName) ? LOCK_NAME : LOCK_NAME + "_" + shardName;
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if (!lock(connection, "SELECT GET_LOCK(?, 0)", lockName)) {
+                log.info("Statement pre-generation on shard={} is running on another instance", shardName);
+                return null;
+            }
+            try {
+                renderShard(pass);
+            } finally {
+                lock(connection, "SELECT RELEASE_LOCK(?)", lockName);
+            }
+            return null;
+        });
+    }
+
+    private void renderShard(Pass pass) {
+        Timestamp from = Timestamp.from(pass.month.atDay(1).atStartOfDay(SpendRollupService.ROLLUP_ZONE).toInstant());
+        String after = "";
+        while (!Thread.currentThread().isInterrupted()) {
+            List<String> userIds = expenseRepository.findUserIdsAfter(after, from, PageRequest.of(0, userPageSize));
+            for (String userId : userIds) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                renderUser(userId, pass);
+            }
+            if (userIds.size() < userPageSize) {
+                return;
+            }
+            after = userIds.get(userIds.size() - 1);
+        }
+    }
+
+    private void renderUser(String userId, Pass pass) {
+        pass.users++;
+        for (ReportFormat format : formats) {
+            try {
+                // the user list also holds users whose only expenses are this month's; they come back null
+                MonthlyStatementService.Rendered rendered = statementService.pregenerate(userId, pass.month, format,
+                        pass.throttle);
+                if (Objects.isNull(rendered)) {
+                    return;
+                }
+                if (rendered.cached()) {
+                    pass.cached++;
+                } else {
+                    pass.rendered++;
+                }
+            } catch (RuntimeException ex) {
+                // the user's statement is rendered on request instead; the rest of the pass goes on
+                pass.failed++;
+                log.warn("Statement pre-generation failed for userId={} month={} format={}", userId, pass.month,
+                        format, ex);
+            }
+        }
+    }
+
+    private static boolean lock(Connection connection, String sql, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    /** Counters of one pass; touched only by the pass's thread. */
+    private static final class Pass
+    {
+
+        private final YearMonth month;
+
+        private final RowThrottle throttle;
+
+        private long users;
+
+        private long rendered;
+
+        private long cached;
+
+        private long failed;
+
+        Pass(YearMonth month, RowThrottle throttle) {
+            this.month = month;
+            this.throttle = throttle;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.nstrange.expenseservice.report;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.SortedMap;
+
+/**
+ * Writes a statement to a stream as its lines arrive, oldest first, so only the renderer's own small
+ * buffer is held in memory whatever the size of the month.
+ */
+interface StatementRenderer
+{
+
+    void line(StatementLine line) throws IOException;
+
+    /** Writes the per-currency totals and whatever closes the document, then flushes the stream. */
+    void finish(SortedMap<String, BigDecimal> totals, long count) throws IOException;
+}
@@ -0,0 +1,234 @@
+package com.nstrange.expenseservice.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nstrange.expenseservice.dto.StatementJobStatusDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Rendered statements under {@code expense.statements.dir}, one file per user, month, data version and
+ * format: {@code ab/<sha256 of the user id>/<yyyy-MM>-<version>.<ext>}. A file is written to {@code tmp}
+ * and renamed into place once complete, so readers only ever see whole statements, and the versions it
+ * replaces are deleted after it.
+ * <p>
+ * The status of each statement job is kept beside them as {@code jobs/<job id>.json}, so a status
+ * request can be answered by any instance, not only the one that queued the job.
+ */
+@Component
+public class StatementStore
+{
+
+    private static final Logger log = LoggerFactory.getLogger(StatementStore.class);
+
+    private final Path root;
+
+    private final Path tmpDir;
+
+    private final Path jobsDir;
+
+    private final Duration retention;
+
+    private final ObjectMapper objectMapper;
+
+    public StatementStore(@Value("${expense.statements.dir:${java.io.tmpdir}/expense-statements}") String dir,
+                          @Value("${expense.statements.retention-days:90}") long retentionDays,
+                          ObjectMapper objectMapper) {
+        this.root = Path.of(dir);
+        this.tmpDir = root.resolve("tmp");
+        this.jobsDir = root.resolve("jobs");
+        this.retention = Duration.ofDays(retentionDays);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return the stored statement for exactly this data version, or {@code null} if there is none
+     */
+    public Path find(String userId, YearMonth month, String version, ReportFormat format) {
+        Path file = userDir(userId).resolve(fileName(month, version, format));
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            // retention counts from the last time a statement was asked for, not from when it was rendered
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException ex) {
+            log.debug("Could not touch statement {}: {}", file, ex.getMessage());
+        }
+        return file;
+    }
+
+    /**
+     * Renders a statement through {@code content} into a temp file, moves it into place and deletes the
+     * other versions of the same month and format.
+     */
+    public Path write(String userId, YearMonth month, String version, ReportFormat format, Content content)
+            throws IOException {
+        Files.createDirectories(tmpDir);
+        Path tmp = tmpDir.resolve(UUID.randomUUID() + ".part");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+                content.writeTo(out);
+                out.flush();
+                channel.force(false);
+            }
+            Path dir = userDir(userId);
+            Files.createDirectories(dir);
+            Path target = dir.resolve(fileName(month, version, format));
+            // two instances rendering the same version race here harmlessly: both files hold the same rows
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            deleteOtherVersions(dir, month, target, format);
+            return target;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Replaces the stored status of job {@code jobId}. The file is written to {@code tmp} and renamed, so a
+     * reader on another instance sees either the old status or the new one.
+     */
+    public void saveJob(String jobId, String userId, StatementJobStatusDto status) throws IOException {
+        Files.createDirectories(tmpDir);
+        Files.createDirectories(jobsDir);
+        Path tmp = tmpDir.resolve(UUID.randomUUID() + ".part");
+        try {
+            Files.write(tmp, objectMapper.writeValueAsBytes(new StoredJob(userId, status)));
+            Files.move(tmp, jobFile(jobId), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @return the stored status of job {@code jobId}, or {@code null} if there is none or it belongs to
+     *         another user
+     */
+    public StatementJobStatusDto findJob(String jobId, String userId) throws IOException {
+        StoredJob stored;
+        try {
+            stored = objectMapper.readValue(Files.readAllBytes(jobFile(jobId)), StoredJob.class);
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+        return Objects.equals(stored.userId(), userId) ? stored.status() : null;
+    }
+
+    public void deleteJob(String jobId) throws IOException {
+        Files.deleteIfExists(jobFile(jobId));
+    }
+
+    @Scheduled(cron = "${expense.statements.sweep-cron:0 30 4 * * *}", zone = "UTC")
+    public void sweep() {
+        Instant expired = Instant.now().minus(retention);
+        // a temp file this old belongs to a render that died with its instance
+        Instant abandoned = Instant.now().minus(Duration.ofHours(6));
+        long deleted = 0;
+        try {
+            if (!Files.isDirectory(root)) {
+                return;
+            }
+            try (Stream<Path> files = Files.walk(root, 3)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (!Files.isRegularFile(file)) {
+                        continue;
+                    }
+                    Instant modified = Files.getLastModifiedTime(file).toInstant();
+                    // so does a job status left behind by an instance that died before evicting it
+                    boolean temp = file.getParent().equals(tmpDir) || file.getParent().equals(jobsDir);
+                    if (modified.isBefore(temp ? abandoned : expired) && Files.deleteIfExists(file)) {
+                        deleted++;
+                        if (!temp) {
+                            deleteIfEmpty(file.getParent());
+                        }
+                    }
+                }
+            }
+            log.info("Statement sweep deleted {} files", deleted);
+        } catch (IOException ex) {
+            log.error("Statement sweep failed after deleting {} files", deleted, ex);
+        }
+    }
+
+    private void deleteOtherVersions(Path dir, YearMonth month, Path keep, ReportFormat format) throws IOException {
+        String prefix = month + "-";
+        String suffix = "." + format.extension();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!file.equals(keep) && name.startsWith(prefix) && name.endsWith(suffix)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path userDir(String userId) {
+        // user ids are hashed so any id makes a safe directory name
+        String hash = HexFormat.of().formatHex(sha256().digest(userId.getBytes(StandardCharsets.UTF_8)));
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private Path jobFile(String jobId) {
+        // job ids come from the client, so only a UUID may name a file
+        return jobsDir.resolve(UUID.fromString(jobId) + ".json");
+    }
+
+    private static String fileName(YearMonth month, String version, ReportFormat format) {
+        return month + "-" + version + "." + format.extension();
+    }
+
+    private static void deleteIfEmpty(Path dir) {
+        try {
+            Files.deleteIfExists(dir);
+        } catch (DirectoryNotEmptyException ex) {
+            // still holds other statements
+        } catch (IOException ex) {
+            log.debug("Could not delete statement directory {}: {}", dir, ex.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private record StoredJob(String userId, StatementJobStatusDto status) {
+    }
+
+    @FunctionalInterface
+    public interface Content
+    {
+
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,14 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.Budget;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface BudgetRepository extends CrudRepository<Budget, Long> {
+
+    List<Budget> findByUserId(String userId);
+
+    Optional<Budget> findByUserIdAndScope(String userId, String scope);
+}
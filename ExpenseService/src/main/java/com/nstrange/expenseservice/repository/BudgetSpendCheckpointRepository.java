@@ -0,0 +1,104 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.BudgetSpendCheckpoint;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface BudgetSpendCheckpointRepository extends CrudRepository<BudgetSpendCheckpoint, Long> {
+
+    List<BudgetSpendCheckpoint> findByMonth(LocalDate month);
+
+    Optional<BudgetSpendCheckpoint> findByUserIdAndMonthAndScope(String userId, LocalDate month, String scope);
+
+    /** Rows of {@code month} or later written at or after {@code since}. */
+    @Query("select c from BudgetSpendCheckpoint c where c.month >= :month and c.checkpointedAt >= :since")
+    List<BudgetSpendCheckpoint> findChangedSince(@Param("month") LocalDate month,
+                                                 @Param("since") Timestamp since);
+
+    /**
+     * @return {@code 1} if the row was created with {@code totalMinor}, {@code 0} if it already existed
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO budget_spend_checkpoint (user_id, bucket_month, scope, currency, total_minor, alerted_percent, checkpointed_at) "
+            + "VALUES (:userId, :month, :scope, :currency, :totalMinor, 0, :checkpointedAt)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("userId") String userId,
+                       @Param("month") LocalDate month,
+                       @Param("scope") String scope,
+                       @Param("currency") String currency,
+                       @Param("totalMinor") long totalMinor,
+                       @Param("checkpointedAt") Timestamp checkpointedAt);
+
+    /**
+     * Re-seeds a row whose total is in another currency, or in none.
+     *
+     * @return {@code 1} if the row was re-seeded, {@code 0} if it is already in {@code currency}
+     */
+    @Modifying
+    @Query(value = "UPDATE budget_spend_checkpoint SET currency = :currency, total_minor = :totalMinor, checkpointed_at = :checkpointedAt "
+            + "WHERE user_id = :userId AND bucket_month = :month AND scope = :scope "
+            + "AND (currency IS NULL OR currency <> :currency)",
+            nativeQuery = true)
+    int reseedIfCurrencyChanged(@Param("userId") String userId,
+                                @Param("month") LocalDate month,
+                                @Param("scope") String scope,
+                                @Param("currency") String currency,
+                                @Param("totalMinor") long totalMinor,
+                                @Param("checkpointedAt") Timestamp checkpointedAt);
+
+    /**
+     * Adds one instance's unflushed deltas, so instances never write over each other's.
+     *
+     * @return {@code 1} if the row was updated, {@code 0} if it is gone or in another currency
+     */
+    @Modifying
+    @Query(value = "UPDATE budget_spend_checkpoint SET total_minor = total_minor + :deltaMinor, checkpointed_at = :checkpointedAt "
+            + "WHERE user_id = :userId AND bucket_month = :month AND scope = :scope AND currency = :currency",
+            nativeQuery = true)
+    int addToTotal(@Param("userId") String userId,
+                   @Param("month") LocalDate month,
+                   @Param("scope") String scope,
+                   @Param("currency") String currency,
+                   @Param("deltaMinor") long deltaMinor,
+                   @Param("checkpointedAt") Timestamp checkpointedAt);
+
+    /**
+     * Replaces the total with a reconciled one, unless a flush or another reconcile wrote the row
+     * since it was read.
+     *
+     * @return {@code 1} if the total was replaced
+     */
+    @Modifying
+    @Query(value = "UPDATE budget_spend_checkpoint SET total_minor = :totalMinor, checkpointed_at = :checkpointedAt "
+            + "WHERE user_id = :userId AND bucket_month = :month AND scope = :scope AND currency = :currency "
+            + "AND total_minor = :observedMinor AND checkpointed_at = :observedAt",
+            nativeQuery = true)
+    int reconcileTotal(@Param("userId") String userId,
+                       @Param("month") LocalDate month,
+                       @Param("scope") String scope,
+                       @Param("currency") String currency,
+                       @Param("totalMinor") long totalMinor,
+                       @Param("observedMinor") long observedMinor,
+                       @Param("observedAt") Timestamp observedAt,
+                       @Param("checkpointedAt") Timestamp checkpointedAt);
+
+    /**
+     * @return {@code 1} if the threshold was raised to {@code alertedPercent}, {@code 0} if it was
+     * already there or higher
+     */
+    @Modifying
+    @Query(value = "UPDATE budget_spend_checkpoint SET alerted_percent = :alertedPercent "
+            + "WHERE user_id = :userId AND bucket_month = :month AND scope = :scope AND alerted_percent < :alertedPercent",
+            nativeQuery = true)
+    int claimAlert(@Param("userId") String userId,
+                   @Param("month") LocalDate month,
+                   @Param("scope") String scope,
+                   @Param("alertedPercent") int alertedPercent);
+}
@@ -0,0 +1,29 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.CategorySpendRollup;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface CategorySpendRollupRepository extends CrudRepository<CategorySpendRollup, Long> {
+
+    List<CategorySpendRollup> findByUserIdAndMonthBetweenOrderByMonthAsc(String userId, LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query(value = "INSERT INTO expense_category_rollup "
+            + "(user_id, bucket_month, category, currency, total_amount, expense_count) "
+            + "VALUES (:userId, :month, :category, :currency, :amount, :count) "
+            + "ON DUPLICATE KEY UPDATE total_amount = total_amount + :amount, expense_count = expense_count + :count",
+            nativeQuery = true)
+    void addToBucket(@Param("userId") String userId,
+                     @Param("month") LocalDate month,
+                     @Param("category") String category,
+                     @Param("currency") String currency,
+                     @Param("amount") BigDecimal amount,
+                     @Param("count") long count);
+}
@@ -0,0 +1,27 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.DailySpendRollup;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailySpendRollupRepository extends CrudRepository<DailySpendRollup, Long> {
+
+    List<DailySpendRollup> findByUserIdAndDayBetweenOrderByDayAsc(String userId, LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query(value = "INSERT INTO expense_daily_rollup (user_id, bucket_day, currency, total_amount, expense_count) "
+            + "VALUES (:userId, :day, :currency, :amount, :count) "
+            + "ON DUPLICATE KEY UPDATE total_amount = total_amount + :amount, expense_count = expense_count + :count",
+            nativeQuery = true)
+    void addToBucket(@Param("userId") String userId,
+                     @Param("day") LocalDate day,
+                     @Param("currency") String currency,
+                     @Param("amount") BigDecimal amount,
+                     @Param("count") long count);
+}
@@ -0,0 +1,13 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.DetectedRecurrence;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface DetectedRecurrenceRepository extends CrudRepository<DetectedRecurrence, Long> {
+
+    List<DetectedRecurrence> findByUserIdOrderByNextExpectedOnAsc(String userId);
+
+    long deleteByUserId(String userId);
+}
@@ -0,0 +1,119 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.ids.UuidBytes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Multi-row inserts for new expenses. Hibernate cannot batch inserts for IDENTITY ids, so this goes
+ * through JDBC on the connection bound to the current transaction; with
+ * {@code rewriteBatchedStatements=true} each chunk is sent as one multi-row {@code INSERT}.
+ */
+@Repository
+public class ExpenseBatchWriter
+{
+
+    private static final String INSERT_SQL = "INSERT INTO expense (external_id, user_id, amount, merchant, currency, "
+            + "notes, category, fund_source, created_at, duplicate_of, idempotency_key, updated_at, "
+            + "base_amount, base_currency, fx_rate_version, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String KEY_INSERT_SQL = "INSERT INTO expense_idempotency_key (user_id, idempotency_key, expense_id) "
+            + "VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int batchSize;
+
+    public ExpenseBatchWriter(JdbcTemplate jdbcTemplate,
+                              @Value("${expense.bulk.jdbc-batch-size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserts the expenses, sets their generated ids and claims their idempotency keys. Must run inside
+     * the caller's transaction; a key claimed concurrently fails the batch with a duplicate-key error.
+     */
+    public void insertAll(List<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (int start = 0; start < expenses.size(); start += batchSize) {
+                    List<Expense> chunk = expenses.subList(start, Math.min(start + batchSize, expenses.size()));
+                    for (Expense expense : chunk) {
+                        bind(statement, expense);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    readGeneratedIds(statement, chunk);
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(KEY_INSERT_SQL)) {
+                int pending = 0;
+                for (Expense expense : expenses) {
+                    if (expense.getIdempotencyKey() == null) {
+                        continue;
+                    }
+                    statement.setString(1, expense.getUserId());
+                    statement.setString(2, expense.getIdempotencyKey());
+                    statement.setLong(3, expense.getId());
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+            }
+            return null;
+        });
+    }
+
+    private static void bind(PreparedStatement statement, Expense expense) throws SQLException {
+        statement.setBytes(1, UuidBytes.toBytes(UUID.fromString(expense.getExternalId())));
+        statement.setString(2, expense.getUserId());
+        statement.setBigDecimal(3, expense.getAmount());
+        statement.setString(4, expense.getMerchant());
+        statement.setString(5, expense.getCurrency());
+        statement.setString(6, expense.getNotes());
+        statement.setString(7, expense.getCategory());
+        statement.setString(8, expense.getFundSource());
+        statement.setTimestamp(9, expense.getCreatedAt());
+        statement.setString(10, expense.getDuplicateOf());
+        statement.setString(11, expense.getIdempotencyKey());
+        statement.setTimestamp(12, expense.getUpdatedAt());
+        statement.setBigDecimal(13, expense.getBaseAmount());
+        statement.setString(14, expense.getBaseCurrency());
+        statement.setObject(15, expense.getFxRateVersion(), Types.BIGINT);
+    }
+
+    private static void readGeneratedIds(PreparedStatement statement, List<Expense> chunk) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            int i = 0;
+            while (keys.next() && i < chunk.size()) {
+                Expense expense = chunk.get(i++);
+                expense.setId(keys.getLong(1));
+                expense.setVersion(0L);
+            }
+            if (i != chunk.size()) {
+                throw new SQLException("Expected " + chunk.size() + " generated ids but got " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.ExpenseIdempotencyKey;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ExpenseIdempotencyKeyRepository extends CrudRepository<ExpenseIdempotencyKey, Long> {
+
+    List<ExpenseIdempotencyKey> findByUserIdAndIdempotencyKeyIn(String userId, Collection<String> idempotencyKeys);
+}
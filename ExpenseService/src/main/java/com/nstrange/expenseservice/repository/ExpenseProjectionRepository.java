@@ -0,0 +1,66 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.model.ExpenseField;
+import com.nstrange.expenseservice.model.ProjectedExpense;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Scalar projections of a user's expenses. The query is built with the criteria API from the requested
+ * {@link ExpenseField}s, so only those columns are selected, and rows come back as tuples, so no
+ * entities are instantiated, registered in the persistence context or snapshotted for dirty checking.
+ */
+@Repository
+public class ExpenseProjectionRepository
+{
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @param to exclusive upper bound on {@code createdAt}, or {@code null} for none
+     * @return one row per live expense with {@code from <= createdAt < to}, holding {@code fields}
+     */
+    public List<ProjectedExpense> findByUserId(String userId, List<ExpenseField> fields, Timestamp from, Timestamp to) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Expense> e = query.from(Expense.class);
+
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (ExpenseField field : fields) {
+            selections.add(e.get(field.getAttribute()).alias(field.name()));
+        }
+        List<Predicate> where = new ArrayList<>(4);
+        where.add(cb.equal(e.get(ExpenseField.USER_ID.getAttribute()), userId));
+        where.add(cb.isNull(e.get("deletedAt")));
+        where.add(cb.greaterThanOrEqualTo(e.get(ExpenseField.CREATED_AT.getAttribute()), from));
+        if (Objects.nonNull(to)) {
+            where.add(cb.lessThan(e.get(ExpenseField.CREATED_AT.getAttribute()), to));
+        }
+        query.multiselect(selections).where(where.toArray(Predicate[]::new));
+
+        List<Tuple> tuples = entityManager.createQuery(query).getResultList();
+        List<ProjectedExpense> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            ProjectedExpense row = new ProjectedExpense();
+            for (ExpenseField field : fields) {
+                row.set(field, tuple.get(field.name()));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
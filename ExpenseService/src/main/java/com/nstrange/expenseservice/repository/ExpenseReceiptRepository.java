@@ -0,0 +1,15 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.ExpenseReceipt;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Optional;
+
+public interface ExpenseReceiptRepository extends CrudRepository<ExpenseReceipt, Long> {
+
+    Optional<ExpenseReceipt> findByUserIdAndExternalId(String userId, String externalId);
+
+    boolean existsBySha256(String sha256);
+
+    long deleteByUserIdAndExternalId(String userId, String externalId);
+}
@@ -1,17 +1,208 @@
 package com.nstrange.expenseservice.repository;
 
 import com.nstrange.expenseservice.entities.Expense;
-import org.springframework.data.repository.CrudRepository;
+import com.nstrange.expenseservice.model.BaseSpendAggregateView;
+import com.nstrange.expenseservice.model.ExpenseColumnsView;
+import com.nstrange.expenseservice.model.ExpenseHistoryView;
+import com.nstrange.expenseservice.model.SpendAggregateView;
+import com.nstrange.expenseservice.model.StatementRowView;
+import com.nstrange.expenseservice.model.StatementVersionView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface ExpenseRepository extends CrudRepository<Expense, Long> {
+/**
+ * Every query bounds {@code created_at} (at least from {@code ExpensePartitionManager.retainedFrom()}),
+ * so MySQL can prune the month partitions it does not need.
+ */
+public interface ExpenseRepository extends JpaRepository<Expense, Long> {
 
-    List<Expense> findByUserId(String userId);
+    /** {@link com.nstrange.expenseservice.service.SpendRollupService#fundSourceKey} in JPQL. */
+    String FUND_SOURCE_KEY = "coalesce(nullif(trim(e.fundSource), ''), 'unspecified')";
 
-    Optional<Expense> findByExternalId(String expenseId);
+    /**
+     * The owner's expense with this external id, tombstones included. {@code external_id} is not
+     * unique-constrained on the partitioned table (see migration 002), so lookups by it take the oldest
+     * match rather than failing on a second row.
+     */
+    Optional<Expense> findFirstByExternalIdAndUserIdAndCreatedAtGreaterThanEqualOrderByIdAsc(String expenseId, String userId,
+                                                                                             Timestamp from);
+
+    /** As above, live expenses only. */
+    Optional<Expense> findFirstByExternalIdAndUserIdAndDeletedAtIsNullAndCreatedAtGreaterThanEqualOrderByIdAsc(
+            String expenseId, String userId, Timestamp from);
+
+    List<Expense> findByIdInAndCreatedAtGreaterThanEqual(Collection<Long> ids, Timestamp from);
+
+    List<Expense> findByCategoryIsNullAndDeletedAtIsNullAndIdGreaterThanAndCreatedAtGreaterThanEqualOrderByIdAsc(
+            Long id, Timestamp from, Pageable pageable);
+
+    /**
+     * Rows written after the cursor position {@code (since, afterId)}, tombstones included, in cursor order.
+     * Served by the (user_id, updated_at) index, whose entries carry the primary key as a tiebreaker.
+     */
+    @Query("select e from Expense e where e.userId = :userId and e.createdAt >= :from "
+            + "and (e.updatedAt > :since or (e.updatedAt = :since and e.id > :afterId)) "
+            + "order by e.updatedAt asc, e.id asc")
+    List<Expense> findChangesSince(@Param("userId") String userId,
+                                   @Param("from") Timestamp from,
+                                   @Param("since") Timestamp since,
+                                   @Param("afterId") Long afterId,
+                                   Pageable pageable);
+
+    /**
+     * Every user's rows written after {@code (since, afterId)}, tombstones included, in cursor order. Feeds
+     * the search index's catch-up from the (updated_at) index.
+     */
+    @Query("select e from Expense e where e.createdAt >= :from "
+            + "and (e.updatedAt > :since or (e.updatedAt = :since and e.id > :afterId)) "
+            + "order by e.updatedAt asc, e.id asc")
+    List<Expense> findAllChangesSince(@Param("from") Timestamp from,
+                                      @Param("since") Timestamp since,
+                                      @Param("afterId") Long afterId,
+                                      Pageable pageable);
+
+    @Query("select e.id as id, e.createdAt as createdAt, e.amount as amount, e.merchant as merchant, "
+            + "e.category as category, e.fundSource as fundSource from Expense e "
+            + "where e.userId = :userId and e.deletedAt is null and e.duplicateOf is null and e.createdAt >= :from "
+            + "order by e.createdAt")
+    List<ExpenseColumnsView> findColumnsByUserId(@Param("userId") String userId, @Param("from") Timestamp from);
+
+    @Query("select coalesce(sum(e.amount), 0) as total, count(e) as expenseCount from Expense e "
+            + "where e.userId = :userId and e.deletedAt is null and e.duplicateOf is null "
+            + "and e.createdAt >= :from and e.createdAt < :to "
+            + "and (:fundSource is null or " + FUND_SOURCE_KEY + " = :fundSource)")
+    SpendAggregateView sumAmount(@Param("userId") String userId,
+                                 @Param("from") Timestamp from,
+                                 @Param("to") Timestamp to,
+                                 @Param("fundSource") String fundSource);
+
+    @Query("select e.category as groupKey, sum(e.amount) as total, count(e) as expenseCount from Expense e "
+            + "where e.userId = :userId and e.deletedAt is null and e.duplicateOf is null "
+            + "and e.createdAt >= :from and e.createdAt < :to "
+            + "and (:fundSource is null or " + FUND_SOURCE_KEY + " = :fundSource) group by e.category")
+    List<SpendAggregateView> sumAmountByCategory(@Param("userId") String userId,
+                                                 @Param("from") Timestamp from,
+                                                 @Param("to") Timestamp to,
+                                                 @Param("fundSource") String fundSource);
+
+    @Query("select e.merchant as groupKey, sum(e.amount) as total, count(e) as expenseCount from Expense e "
+            + "where e.userId = :userId and e.deletedAt is null and e.duplicateOf is null "
+            + "and e.createdAt >= :from and e.createdAt < :to "
+            + "and (:fundSource is null or " + FUND_SOURCE_KEY + " = :fundSource) group by e.merchant")
+    List<SpendAggregateView> sumAmountByMerchant(@Param("userId") String userId,
+                                                 @Param("from") Timestamp from,
+                                                 @Param("to") Timestamp to,
+                                                 @Param("fundSource") String fundSource);
+
+    @Query("select e.fundSource as groupKey, sum(e.amount) as total, count(e) as expenseCount from Expense e "
+            + "where e.userId = :userId and e.deletedAt is null and e.duplicateOf is null "
+            + "and e.createdAt >= :from and e.createdAt < :to "
+            + "and (:fundSource is null or " + FUND_SOURCE_KEY + " = :fundSource) group by e.fundSource")
+    List<SpendAggregateView> sumAmountByFundSource(@Param("userId") String userId,
+                                                   @Param("from") Timestamp from,
+                                                   @Param("to") Timestamp to,
+                                                   @Param("fundSource") String fundSource);
+
+    @Query("select coalesce(e.baseCurrency, e.currency) as currency, sum(coalesce(e.baseAmount, e.amount)) as total, "
+            + "count(e) as expenseCount from Expense e "
+            + "where e.userId = :userId and e.deletedAt is null and e.duplicateOf is null "
+            + "and e.createdAt >= :from and e.createdAt < :to "
+            + "and (:fundSource is null or " + FUND_SOURCE_KEY + " = :fundSource) "
+            + "group by coalesce(e.baseCurrency, e.currency)")
+    List<BaseSpendAggregateView> sumBaseAmount(@Param("userId") String userId,
+                                               @Param("from") Timestamp from,
+                                               @Param("to") Timestamp to,
+                                               @Param("fundSource") String fundSource);
+
+    @Query("select e.category as groupKey, coalesce(e.baseCurrency, e.currency) as currency, "
+            + "sum(coalesce(e.baseAmount, e.amount)) as total, count(e) as expenseCount from Expense e "
+            + "where e.userId = :userId and e.deletedAt is null and e.duplicateOf is null "
+            + "and e.createdAt >= :from and e.createdAt < :to "
+            + "and (:fundSource is null or " + FUND_SOURCE_KEY + " = :fundSource) "
+            + "group by e.category, coalesce(e.baseCurrency, e.currency)")
+    List<BaseSpendAggregateView> sumBaseAmountByCategory(@Param("userId") String userId,
+                                                         @Param("from") Timestamp from,
+                                                         @Param("to") Timestamp to,
+                                                         @Param("fundSource") String fundSource);
+
+    @Query("select e.merchant as groupKey, coalesce(e.baseCurrency, e.currency) as currency, "
+            + "sum(coalesce(e.baseAmount, e.amount)) as total, count(e) as expenseCount from Expense e "
+            + "where e.userId = :userId and e.deletedAt is null and e.duplicateOf is null "
+            + "and e.createdAt >= :from and e.createdAt < :to "
+            + "and (:fundSource is null or " + FUND_SOURCE_KEY + " = :fundSource) "
+            + "group by e.merchant, coalesce(e.baseCurrency, e.currency)")
+    List<BaseSpendAggregateView> sumBaseAmountByMerchant(@Param("userId") String userId,
+                                                         @Param("from") Timestamp from,
+                                                         @Param("to") Timestamp to,
+                                                         @Param("fundSource") String fundSource);
+
+    @Query("select e.fundSource as groupKey, coalesce(e.baseCurrency, e.currency) as currency, "
+            + "sum(coalesce(e.baseAmount, e.amount)) as total, count(e) as expenseCount from Expense e "
+            + "where e.userId = :userId and e.deletedAt is null and e.duplicateOf is null "
+            + "and e.createdAt >= :from and e.createdAt < :to "
+            + "and (:fundSource is null or " + FUND_SOURCE_KEY + " = :fundSource) "
+            + "group by e.fundSource, coalesce(e.baseCurrency, e.currency)")
+    List<BaseSpendAggregateView> sumBaseAmountByFundSource(@Param("userId") String userId,
+                                                           @Param("from") Timestamp from,
+                                                           @Param("to") Timestamp to,
+                                                           @Param("fundSource") String fundSource);
+
+    /** Users with expenses since {@code from}, in user id order after {@code afterUserId}. */
+    @Query("select distinct e.userId from Expense e where e.userId > :afterUserId and e.createdAt >= :from "
+            + "order by e.userId")
+    List<String> findUserIdsAfter(@Param("afterUserId") String afterUserId,
+                                  @Param("from") Timestamp from,
+                                  Pageable pageable);
+
+    /**
+     * One page of a user's live, non-duplicate expenses, ordered by {@code (createdAt, id)} after the given
+     * position.
+     */
+    @Query("select e.id as id, e.createdAt as createdAt, e.amount as amount, e.currency as currency, "
+            + "e.merchant as merchant from Expense e "
+            + "where e.userId = :userId and e.deletedAt is null and e.duplicateOf is null and e.createdAt >= :from "
+            + "and (e.createdAt > :afterCreatedAt or (e.createdAt = :afterCreatedAt and e.id > :afterId)) "
+            + "order by e.createdAt asc, e.id asc")
+    List<ExpenseHistoryView> findHistoryPage(@Param("userId") String userId,
+                                             @Param("from") Timestamp from,
+                                             @Param("afterCreatedAt") Timestamp afterCreatedAt,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
+
+    /**
+     * Fingerprint of a user's rows in {@code [from, to)}, tombstones included: any insert, edit or delete
+     * changes the count, the newest {@code updated_at} or the version sum.
+     */
+    @Query("select count(e) as rowCount, max(e.updatedAt) as lastUpdatedAt, coalesce(sum(e.version), 0) as versionSum "
+            + "from Expense e where e.userId = :userId and e.createdAt >= :from and e.createdAt < :to")
+    StatementVersionView findStatementVersion(@Param("userId") String userId,
+                                              @Param("from") Timestamp from,
+                                              @Param("to") Timestamp to);
+
+    /**
+     * One page of a user's live, non-duplicate expenses in {@code [from, to)}, ordered by
+     * {@code (createdAt, id)} after the given position.
+     */
+    @Query("select e.id as id, e.createdAt as createdAt, e.amount as amount, e.currency as currency, "
+            + "e.merchant as merchant, e.category as category, e.fundSource as fundSource, e.notes as notes, "
+            + "e.externalId as externalId from Expense e "
+            + "where e.userId = :userId and e.deletedAt is null and e.duplicateOf is null "
+            + "and e.createdAt >= :from and e.createdAt < :to "
+            + "and (e.createdAt > :afterCreatedAt or (e.createdAt = :afterCreatedAt and e.id > :afterId)) "
+            + "order by e.createdAt asc, e.id asc")
+    List<StatementRowView> findStatementPage(@Param("userId") String userId,
+                                             @Param("from") Timestamp from,
+                                             @Param("to") Timestamp to,
+                                             @Param("afterCreatedAt") Timestamp afterCreatedAt,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
 
 //    List<Expense> findByUserIdAndCreatedAtBetween(String userId, Timestamp startTime, Timestamp endTime);
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.ExpenseSchedule;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+public interface ExpenseScheduleRepository extends CrudRepository<ExpenseSchedule, Long> {
+
+    List<ExpenseSchedule> findByUserIdOrderByIdAsc(String userId);
+
+    Optional<ExpenseSchedule> findByIdAndUserId(Long id, String userId);
+
+    long countByUserId(String userId);
+
+    /**
+     * {@code [id, nextRunAt]} of schedules due before {@code until}, after the cursor position
+     * {@code (afterRunAt, afterId)}, in cursor order. Served by {@code idx_expense_schedule_next_run}.
+     */
+    @Query("select s.id, s.nextRunAt from ExpenseSchedule s where s.nextRunAt < :until "
+            + "and (s.nextRunAt > :afterRunAt or (s.nextRunAt = :afterRunAt and s.id > :afterId)) "
+            + "order by s.nextRunAt asc, s.id asc")
+    List<Object[]> findDueAfter(@Param("until") Timestamp until,
+                                @Param("afterRunAt") Timestamp afterRunAt,
+                                @Param("afterId") Long afterId,
+                                Pageable pageable);
+
+    /**
+     * Moves a schedule on only if nobody else has since {@code expectedRunAt} was read, so two instances
+     * firing the same occurrence cannot both create it.
+     *
+     * @return the number of rows updated, 0 if the schedule was already advanced
+     */
+    @Modifying
+    @Query("update ExpenseSchedule s set s.firedCount = :firedCount, s.nextRunAt = :nextRunAt, s.updatedAt = :updatedAt "
+            + "where s.id = :id and s.nextRunAt = :expectedRunAt")
+    int advance(@Param("id") Long id,
+                @Param("expectedRunAt") Timestamp expectedRunAt,
+                @Param("firedCount") long firedCount,
+                @Param("nextRunAt") Timestamp nextRunAt,
+                @Param("updatedAt") Timestamp updatedAt);
+}
@@ -0,0 +1,40 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.MerchantSpendRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface MerchantSpendRollupRepository extends CrudRepository<MerchantSpendRollup, Long> {
+
+    List<MerchantSpendRollup> findByUserIdAndMonthBetweenOrderByMonthAsc(String userId, LocalDate from, LocalDate to);
+
+    /** Rows of (merchant, expense count) over all of the user's months. */
+    @Query("select r.merchant, sum(r.expenseCount) from MerchantSpendRollup r "
+            + "where r.userId = :userId and r.merchant <> :excluded group by r.merchant")
+    List<Object[]> sumCountsByMerchantForUser(@Param("userId") String userId, @Param("excluded") String excluded);
+
+    /** Rows of (merchant, expense count, distinct users), most used first. */
+    @Query("select r.merchant, sum(r.expenseCount), count(distinct r.userId) from MerchantSpendRollup r "
+            + "where r.merchant <> :excluded group by r.merchant order by sum(r.expenseCount) desc")
+    List<Object[]> sumCountsByMerchant(@Param("excluded") String excluded, Pageable pageable);
+
+    @Modifying
+    @Query(value = "INSERT INTO expense_merchant_rollup "
+            + "(user_id, bucket_month, merchant, currency, total_amount, expense_count) "
+            + "VALUES (:userId, :month, :merchant, :currency, :amount, :count) "
+            + "ON DUPLICATE KEY UPDATE total_amount = total_amount + :amount, expense_count = expense_count + :count",
+            nativeQuery = true)
+    void addToBucket(@Param("userId") String userId,
+                     @Param("month") LocalDate month,
+                     @Param("merchant") String merchant,
+                     @Param("currency") String currency,
+                     @Param("amount") BigDecimal amount,
+                     @Param("count") long count);
+}
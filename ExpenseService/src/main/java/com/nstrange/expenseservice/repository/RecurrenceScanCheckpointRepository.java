@@ -0,0 +1,7 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.RecurrenceScanCheckpoint;
+import org.springframework.data.repository.CrudRepository;
+
+public interface RecurrenceScanCheckpointRepository extends CrudRepository<RecurrenceScanCheckpoint, String> {
+}
@@ -0,0 +1,30 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.UserBaseCurrency;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public interface UserBaseCurrencyRepository extends CrudRepository<UserBaseCurrency, Long> {
+
+    @Query("select u from UserBaseCurrency u "
+            + "where u.updatedAt > :since or (u.updatedAt = :since and u.id > :afterId) "
+            + "order by u.updatedAt asc, u.id asc")
+    List<UserBaseCurrency> findChangesSince(@Param("since") Timestamp since,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
+
+    @Modifying
+    @Query(value = "INSERT INTO user_base_currency (user_id, base_currency, updated_at) "
+            + "VALUES (:userId, :baseCurrency, :updatedAt) "
+            + "ON DUPLICATE KEY UPDATE base_currency = :baseCurrency, updated_at = :updatedAt",
+            nativeQuery = true)
+    void upsert(@Param("userId") String userId,
+                @Param("baseCurrency") String baseCurrency,
+                @Param("updatedAt") Timestamp updatedAt);
+}
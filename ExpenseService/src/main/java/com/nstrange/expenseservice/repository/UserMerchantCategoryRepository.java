@@ -0,0 +1,25 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.UserMerchantCategory;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public interface UserMerchantCategoryRepository extends CrudRepository<UserMerchantCategory, Long> {
+
+    List<UserMerchantCategory> findByUserId(String userId);
+
+    @Modifying
+    @Query(value = "INSERT INTO user_merchant_category (user_id, merchant_key, category, updated_at) "
+            + "VALUES (:userId, :merchantKey, :category, :updatedAt) "
+            + "ON DUPLICATE KEY UPDATE category = :category, updated_at = :updatedAt",
+            nativeQuery = true)
+    void upsert(@Param("userId") String userId,
+                @Param("merchantKey") String merchantKey,
+                @Param("category") String category,
+                @Param("updatedAt") Timestamp updatedAt);
+}
@@ -0,0 +1,12 @@
+package com.nstrange.expenseservice.repository;
+
+import com.nstrange.expenseservice.entities.UserShardPin;
+import org.springframework.data.repository.CrudRepository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public interface UserShardPinRepository extends CrudRepository<UserShardPin, String> {
+
+    List<UserShardPin> findByUpdatedAtGreaterThanEqual(Timestamp since);
+}
@@ -0,0 +1,116 @@
+package com.nstrange.expenseservice.revision;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Heap index of an unsealed segment: external id to the offsets of its records, in append order. Kept in
+ * primitive arrays (an open-addressed table of ids, each heading a chain of offsets), 8 bytes per record
+ * and about 40 per expense, because a segment that is still being written can hold hundreds of thousands of them.
+ */
+final class OffsetIndex
+{
+
+    private long[] msbs = new long[1024];
+
+    private long[] lsbs = new long[1024];
+
+    // per slot: the newest entry for that id, or -1
+    private int[] heads = new int[1024];
+
+    private int ids;
+
+    private int[] offsets = new int[1024];
+
+    // per entry: the previous entry for the same id, or -1
+    private int[] previous = new int[1024];
+
+    private int entries;
+
+    OffsetIndex() {
+        Arrays.fill(heads, -1);
+    }
+
+    synchronized void add(UUID externalId, int offset) {
+        if (2 * (ids + 1) > heads.length) {
+            rehash(heads.length * 2);
+        }
+        if (entries == offsets.length) {
+            offsets = Arrays.copyOf(offsets, entries * 2);
+            previous = Arrays.copyOf(previous, entries * 2);
+        }
+        int slot = slotOf(externalId.getMostSignificantBits(), externalId.getLeastSignificantBits(), msbs, lsbs, heads);
+        if (heads[slot] < 0) {
+            msbs[slot] = externalId.getMostSignificantBits();
+            lsbs[slot] = externalId.getLeastSignificantBits();
+            ids++;
+        }
+        offsets[entries] = offset;
+        previous[entries] = heads[slot];
+        heads[slot] = entries;
+        entries++;
+    }
+
+    /** Offsets of the id's records, oldest first; empty if it has none here. */
+    synchronized int[] offsetsOf(UUID externalId) {
+        int slot = slotOf(externalId.getMostSignificantBits(), externalId.getLeastSignificantBits(), msbs, lsbs, heads);
+        int count = 0;
+        for (int entry = heads[slot]; entry >= 0; entry = previous[entry]) {
+            count++;
+        }
+        int[] result = new int[count];
+        for (int entry = heads[slot]; entry >= 0; entry = previous[entry]) {
+            result[--count] = offsets[entry];
+        }
+        return result;
+    }
+
+    synchronized int size() {
+        return entries;
+    }
+
+    /**
+     * Every entry as {@code msb, lsb, offset} triples sorted by id and then offset, the order of a
+     * sealed segment's index file.
+     */
+    synchronized long[][] sortedEntries() {
+        long[][] sorted = new long[entries][];
+        int next = 0;
+        for (int slot = 0; slot < heads.length; slot++) {
+            for (int entry = heads[slot]; entry >= 0; entry = previous[entry]) {
+                sorted[next++] = new long[] {msbs[slot], lsbs[slot], offsets[entry]};
+            }
+        }
+        Arrays.sort(sorted, RevisionSegment::compareEntries);
+        return sorted;
+    }
+
+    private void rehash(int capacity) {
+        long[] newMsbs = new long[capacity];
+        long[] newLsbs = new long[capacity];
+        int[] newHeads = new int[capacity];
+        Arrays.fill(newHeads, -1);
+        for (int slot = 0; slot < heads.length; slot++) {
+            if (heads[slot] >= 0) {
+                int target = slotOf(msbs[slot], lsbs[slot], newMsbs, newLsbs, newHeads);
+                newMsbs[target] = msbs[slot];
+                newLsbs[target] = lsbs[slot];
+                newHeads[target] = heads[slot];
+            }
+        }
+        msbs = newMsbs;
+        lsbs = newLsbs;
+        heads = newHeads;
+    }
+
+    // linear probing; the table is kept at most half full
+    private static int slotOf(long msb, long lsb, long[] msbs, long[] lsbs, int[] heads) {
+        int mask = heads.length - 1;
+        long mixed = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        int slot = (int) (mixed >>> 32) & mask;
+        while (heads[slot] >= 0 && (msbs[slot] != msb || lsbs[slot] != lsb)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,63 @@
+package com.nstrange.expenseservice.revision;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of the revision log. A segment is {@code rev-<writer>-<seq>.log}:
+ * <pre>
+ *   header   magic(8) version(int)
+ *   records  length(int) crc32c(int) body(length bytes), back to back; a zero length ends the data
+ * </pre>
+ * A body is {@code type(byte) changedAt(long) version(long) externalId(16) createdAt(long)
+ * amountScale(byte) amountUnscaled(byte length + two's complement)} followed by userId, merchant,
+ * currency, notes, category and fundSource, each a short UTF-8 length ({@code -1} for null) and the bytes.
+ * <p>
+ * Segments are created at their full size and never shrink, since other instances may have them mapped;
+ * the unwritten tail reads as zeros. A sealed segment has a {@code .idx} beside it:
+ * <pre>
+ *   header   magic(8) dataEnd(int) count(int) newestChangedAt(long)
+ *   entries  msb(long) lsb(long) offset(int), sorted by external id and then offset
+ * </pre>
+ */
+final class RevisionFormat
+{
+
+    static final byte[] MAGIC = "EXPREV01".getBytes(StandardCharsets.US_ASCII);
+
+    static final byte[] INDEX_MAGIC = "EXPRIX01".getBytes(StandardCharsets.US_ASCII);
+
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = MAGIC.length + Integer.BYTES;
+
+    static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    static final int INDEX_HEADER_BYTES = INDEX_MAGIC.length + 2 * Integer.BYTES + Long.BYTES;
+
+    static final int INDEX_ENTRY_BYTES = 2 * Long.BYTES + Integer.BYTES;
+
+    // framing, fixed fields, the widest amount and six strings at their cap
+    static final int MAX_RECORD_BYTES = RECORD_HEADER_BYTES + 1 + 5 * Long.BYTES + 2 + 255
+            + 6 * (Short.BYTES + Short.MAX_VALUE);
+
+    static final String FILE_PREFIX = "rev-";
+
+    static final String LOG_SUFFIX = ".log";
+
+    static final String INDEX_SUFFIX = ".idx";
+
+    private RevisionFormat() {
+    }
+
+    static String fileName(String writer, long sequence) {
+        return FILE_PREFIX + writer + "-" + String.format("%010d", sequence) + LOG_SUFFIX;
+    }
+
+    static boolean isLog(String fileName) {
+        return fileName.startsWith(FILE_PREFIX) && fileName.endsWith(LOG_SUFFIX);
+    }
+
+    static String indexName(String logName) {
+        return logName.substring(0, logName.length() - LOG_SUFFIX.length()) + INDEX_SUFFIX;
+    }
+}
@@ -0,0 +1,512 @@
+package com.nstrange.expenseservice.revision;
+
+import com.nstrange.expenseservice.dto.ExpenseRevisionDto;
+import com.nstrange.expenseservice.events.ExpenseChangedEvent;
+import com.nstrange.expenseservice.exception.ExpenseNotFoundException;
+import com.nstrange.expenseservice.exception.RevisionHistoryUnavailableException;
+import com.nstrange.expenseservice.ids.UuidBytes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revision history of expenses: every committed create, update and delete is appended as one binary
+ * record (see {@link RevisionFormat}) to a memory-mapped segment under {@code expense.revisions.dir}, so
+ * the write path pays for a sequential copy into memory and nothing else. Dirty pages are forced to disk
+ * every {@code flush-interval-ms}.
+ * <p>
+ * Each instance appends to its own segment and rotates it when full, sealing it with a sorted offset
+ * index. Segments written by other instances are picked up every {@code refresh-ms}; until they are
+ * sealed they are indexed on the heap as they grow. A nightly compaction seals segments whose writer
+ * died, drops segments older than {@code retention-days} and merges small sealed segments.
+ */
+@Service
+public class RevisionLog
+{
+
+    private static final Logger log = LoggerFactory.getLogger(RevisionLog.class);
+
+    private static final String LOCK_FILE = "compaction.lock";
+
+    private final Path dir;
+
+    private final boolean enabled;
+
+    private final int segmentBytes;
+
+    private final long sealAfterMs;
+
+    private final int retentionDays;
+
+    private final int maxHistory;
+
+    // distinguishes this process's segments from those of other instances sharing the directory
+    private final String writerId = String.format("%08x", ThreadLocalRandom.current().nextInt());
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    // by file name; everything but this instance's active segment
+    private final Map<String, RevisionSegment> segments = new ConcurrentHashMap<>();
+
+    private final Counter appended;
+
+    private final Counter appendFailures;
+
+    // guarded by this
+    private ActiveSegment active;
+
+    private volatile RevisionSegment activeView;
+
+    public RevisionLog(MeterRegistry meterRegistry,
+                       @Value("${expense.revisions.enabled:true}") boolean enabled,
+                       @Value("${expense.revisions.dir:${java.io.tmpdir}/expense-revisions}") String dir,
+                       @Value("${expense.revisions.segment-bytes:16777216}") int segmentBytes,
+                       @Value("${expense.revisions.seal-after-ms:600000}") long sealAfterMs,
+                       @Value("${expense.revisions.retention-days:0}") int retentionDays,
+                       @Value("${expense.revisions.max-history:500}") int maxHistory) {
+        if (segmentBytes < RevisionFormat.HEADER_BYTES + RevisionFormat.MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("expense.revisions.segment-bytes must be at least "
+                    + (RevisionFormat.HEADER_BYTES + RevisionFormat.MAX_RECORD_BYTES));
+        }
+        this.dir = Path.of(dir);
+        this.enabled = enabled;
+        this.segmentBytes = segmentBytes;
+        this.sealAfterMs = sealAfterMs;
+        this.retentionDays = retentionDays;
+        this.maxHistory = maxHistory;
+        this.appended = Counter.builder("expense.revisions.appended")
+                .description("Expense revisions appended to the revision log")
+                .register(meterRegistry);
+        this.appendFailures = Counter.builder("expense.revisions.append.failures")
+                .description("Committed expense writes whose revision could not be recorded")
+                .register(meterRegistry);
+        Gauge.builder("expense.revisions.segments", segments, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(dir);
+        refresh();
+        synchronized (this) {
+            openNext();
+        }
+        log.info("Revision log writing to {} as writer {}, {} existing segments", dir, writerId, segments.size());
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (Objects.isNull(active)) {
+            return;
+        }
+        try {
+            seal(active);
+        } catch (IOException ex) {
+            // left unsealed; another instance's compaction seals it once it goes stale
+            log.warn("Failed to seal revision segment {}: {}", active.file, ex.getMessage());
+        }
+        active = null;
+        activeView = null;
+    }
+
+    @TransactionalEventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            append(RevisionRecord.of(event.getType(), event.getExpense(), System.currentTimeMillis()));
+        } catch (IOException | RuntimeException ex) {
+            // history is best effort; never fail the write path because of it
+            appendFailures.increment();
+            log.error("Failed to record revision of expenseId={}: {}",
+                    event.getExpense().getExternalId(), ex.getMessage(), ex);
+        }
+    }
+
+    synchronized void append(RevisionRecord record) throws IOException {
+        if (Objects.isNull(active)) {
+            openNext();
+        }
+        int end = RevisionSegment.writeRecord(active.buffer, active.position, record);
+        if (end == 0) {
+            rotate();
+            // segment-bytes leaves room for the largest record, so this fits an empty segment
+            end = RevisionSegment.writeRecord(active.buffer, active.position, record);
+        }
+        active.index.add(record.externalId(), active.position);
+        active.position = end;
+        active.newestChangedAt = Math.max(active.newestChangedAt, record.changedAt());
+        active.dirty = true;
+        appended.increment();
+    }
+
+    /**
+     * Up to {@code limit} states of the expense, newest first, including the delete if there was one.
+     *
+     * @throws ExpenseNotFoundException if the expense has no recorded revisions for the user
+     */
+    public List<ExpenseRevisionDto> getHistory(String userId, String expenseId, Integer limit) {
+        if (!enabled) {
+            throw new RevisionHistoryUnavailableException("Expense revision history is disabled");
+        }
+        UUID externalId = UuidBytes.parseOrNull(expenseId);
+        if (Objects.isNull(externalId)) {
+            throw new ExpenseNotFoundException("Expense with id=" + expenseId + " not found");
+        }
+        List<RevisionRecord> records = new ArrayList<>();
+        for (RevisionSegment segment : segments.values()) {
+            records.addAll(segment.read(externalId));
+        }
+        RevisionSegment view = activeView;
+        if (Objects.nonNull(view)) {
+            records.addAll(view.read(externalId));
+        }
+        int size = Objects.isNull(limit) ? maxHistory : Math.max(1, Math.min(limit, maxHistory));
+        List<ExpenseRevisionDto> history = records.stream()
+                .filter(record -> Objects.equals(record.userId(), userId))
+                // a merge that was interrupted can leave the same record in two segments
+                .distinct()
+                .sorted(Comparator.comparingLong(RevisionRecord::changedAt)
+                        .thenComparingLong(RevisionRecord::version)
+                        .thenComparing(RevisionRecord::type)
+                        .reversed())
+                .limit(size)
+                .map(RevisionLog::toDto)
+                .toList();
+        if (history.isEmpty()) {
+            throw new ExpenseNotFoundException("No revisions recorded for expense with id=" + expenseId);
+        }
+        return history;
+    }
+
+    @Scheduled(fixedDelayString = "${expense.revisions.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (Objects.isNull(active)) {
+            return;
+        }
+        try {
+            if (active.dirty) {
+                active.buffer.force();
+                active.dirty = false;
+            }
+            // the modification time is this writer's heartbeat; a stale one lets compaction seal the segment
+            Files.setLastModifiedTime(active.file, FileTime.fromMillis(System.currentTimeMillis()));
+            if (Files.exists(indexOf(active.file))) {
+                log.warn("Revision segment {} was sealed by another instance while in use; rotating", active.file);
+                rotate();
+            }
+        } catch (IOException ex) {
+            log.warn("Failed to flush revision segment {}: {}", active.file, ex.getMessage());
+        }
+    }
+
+    /** Opens segments written by other instances, indexes what they appended and drops deleted ones. */
+    @Scheduled(fixedDelayString = "${expense.revisions.refresh-ms:2000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        Set<String> present = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir,
+                RevisionFormat.FILE_PREFIX + "*" + RevisionFormat.LOG_SUFFIX)) {
+            RevisionSegment view = activeView;
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (Objects.nonNull(view) && view.file().equals(file)) {
+                    continue;
+                }
+                present.add(name);
+                try {
+                    open(name, file);
+                } catch (IOException | RuntimeException ex) {
+                    log.warn("Skipping unreadable revision segment {}: {}", file, ex.getMessage());
+                }
+            }
+        } catch (IOException ex) {
+            log.error("Failed to list revision segments in {}: {}", dir, ex.getMessage());
+            return;
+        }
+        segments.keySet().retainAll(present);
+    }
+
+    /**
+     * Seals segments abandoned by instances that went away, deletes segments past retention and merges
+     * small sealed segments into segments of up to {@code segment-bytes}. Only one instance compacts at
+     * a time.
+     */
+    @Scheduled(cron = "${expense.revisions.compact-cron:0 45 3 * * *}", zone = "UTC")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        refresh();
+        try (FileChannel lockChannel = FileChannel.open(dir.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.tryLock()) {
+            if (Objects.isNull(lock)) {
+                log.info("Revision log compaction is running on another instance; skipping");
+                return;
+            }
+            int sealed = sealAbandoned();
+            int expired = deleteExpired();
+            int merged = mergeSmall();
+            removeOrphanIndexes();
+            log.info("Revision log compaction sealed {}, expired {} and merged {} segments", sealed, expired, merged);
+        } catch (IOException ex) {
+            log.error("Revision log compaction failed: {}", ex.getMessage(), ex);
+        }
+        refresh();
+    }
+
+    private void open(String name, Path file) throws IOException {
+        RevisionSegment existing = segments.get(name);
+        Path indexFile = indexOf(file);
+        if (Files.exists(indexFile)) {
+            if (Objects.isNull(existing) || !existing.isSealed()) {
+                segments.put(name, RevisionSegment.openSealed(file, indexFile));
+            }
+            return;
+        }
+        if (Objects.isNull(existing)) {
+            existing = RevisionSegment.openUnsealed(file);
+            segments.put(name, existing);
+        }
+        existing.scan();
+    }
+
+    private int sealAbandoned() throws IOException {
+        long staleBefore = System.currentTimeMillis() - sealAfterMs;
+        int count = 0;
+        for (RevisionSegment segment : List.copyOf(segments.values())) {
+            if (segment.isSealed() || Files.getLastModifiedTime(segment.file()).toMillis() >= staleBefore) {
+                continue;
+            }
+            segment.scan();
+            long[] newest = {0L};
+            segment.forEach((record, offset) -> newest[0] = Math.max(newest[0], record.changedAt()));
+            RevisionSegment.writeIndex(indexOf(segment.file()), segment.dataEnd(), newest[0],
+                    segment.heapIndex().sortedEntries());
+            segments.put(segment.file().getFileName().toString(),
+                    RevisionSegment.openSealed(segment.file(), indexOf(segment.file())));
+            log.info("Sealed abandoned revision segment {}", segment.file());
+            count++;
+        }
+        return count;
+    }
+
+    private int deleteExpired() throws IOException {
+        if (retentionDays <= 0) {
+            return 0;
+        }
+        long cutoff = System.currentTimeMillis() - Duration.ofDays(retentionDays).toMillis();
+        int count = 0;
+        for (RevisionSegment segment : List.copyOf(segments.values())) {
+            if (segment.isSealed() && segment.newestChangedAt() < cutoff) {
+                delete(segment);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int mergeSmall() throws IOException {
+        List<RevisionSegment> small = segments.values().stream()
+                .filter(RevisionSegment::isSealed)
+                .filter(segment -> segment.dataEnd() < segmentBytes / 2)
+                .sorted(Comparator.comparing(segment -> segment.file().getFileName().toString()))
+                .toList();
+        int count = 0;
+        List<RevisionSegment> group = new ArrayList<>();
+        long groupBytes = 0;
+        for (RevisionSegment segment : small) {
+            long bytes = segment.dataEnd() - RevisionFormat.HEADER_BYTES;
+            if (!group.isEmpty() && RevisionFormat.HEADER_BYTES + groupBytes + bytes > segmentBytes) {
+                count += merge(group, groupBytes);
+                group = new ArrayList<>();
+                groupBytes = 0;
+            }
+            group.add(segment);
+            groupBytes += bytes;
+        }
+        return count + merge(group, groupBytes);
+    }
+
+    /**
+     * Rewrites {@code group} as one sealed segment, leaving out records past retention. The new index and
+     * then the new segment appear under their final names before the inputs are deleted, so a reader
+     * sees every record throughout, some of them twice for a moment.
+     *
+     * @return the number of input segments merged away
+     */
+    private int merge(List<RevisionSegment> group, long groupBytes) throws IOException {
+        if (group.size() < 2) {
+            return 0;
+        }
+        long cutoff = retentionDays > 0
+                ? System.currentTimeMillis() - Duration.ofDays(retentionDays).toMillis()
+                : Long.MIN_VALUE;
+        ByteBuffer out = ByteBuffer.allocate(
+                (int) (RevisionFormat.HEADER_BYTES + groupBytes + RevisionFormat.MAX_RECORD_BYTES));
+        RevisionSegment.writeHeader(out);
+        OffsetIndex index = new OffsetIndex();
+        int[] position = {RevisionFormat.HEADER_BYTES};
+        long[] newest = {0L};
+        for (RevisionSegment segment : group) {
+            segment.forEach((record, offset) -> {
+                if (record.changedAt() < cutoff) {
+                    return;
+                }
+                index.add(record.externalId(), position[0]);
+                position[0] = RevisionSegment.writeRecord(out, position[0], record);
+                newest[0] = Math.max(newest[0], record.changedAt());
+            });
+        }
+        if (index.size() > 0) {
+            Path file = dir.resolve(RevisionFormat.fileName(writerId, sequence.incrementAndGet()));
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                out.limit(position[0]).position(0);
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(false);
+            }
+            RevisionSegment.writeIndex(indexOf(file), position[0], newest[0], index.sortedEntries());
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            segments.put(file.getFileName().toString(), RevisionSegment.openSealed(file, indexOf(file)));
+        }
+        for (RevisionSegment segment : group) {
+            delete(segment);
+        }
+        return group.size();
+    }
+
+    // an index left behind by a delete or merge that was interrupted
+    private void removeOrphanIndexes() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir,
+                RevisionFormat.FILE_PREFIX + "*" + RevisionFormat.INDEX_SUFFIX)) {
+            for (Path indexFile : files) {
+                String name = indexFile.getFileName().toString();
+                Path file = indexFile.resolveSibling(
+                        name.substring(0, name.length() - RevisionFormat.INDEX_SUFFIX.length()) + RevisionFormat.LOG_SUFFIX);
+                if (Files.notExists(file)) {
+                    Files.deleteIfExists(indexFile);
+                }
+            }
+        }
+    }
+
+    // readers that already mapped the files keep their mappings until they let go of them
+    private void delete(RevisionSegment segment) throws IOException {
+        segments.remove(segment.file().getFileName().toString());
+        Files.deleteIfExists(segment.file());
+        Files.deleteIfExists(indexOf(segment.file()));
+    }
+
+    // caller holds this
+    private void rotate() throws IOException {
+        ActiveSegment full = active;
+        seal(full);
+        openNext();
+    }
+
+    // caller holds this
+    private void seal(ActiveSegment segment) throws IOException {
+        segment.buffer.force();
+        Path indexFile = indexOf(segment.file);
+        RevisionSegment.writeIndex(indexFile, segment.position, segment.newestChangedAt, segment.index.sortedEntries());
+        // registered before the active view moves on, so its records never drop out of reads
+        segments.put(segment.file.getFileName().toString(), RevisionSegment.openSealed(segment.file, indexFile));
+    }
+
+    // caller holds this
+    private void openNext() throws IOException {
+        Path file = dir.resolve(RevisionFormat.fileName(writerId, sequence.incrementAndGet()));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // sizes the file up front; the tail stays sparse until records reach it
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        RevisionSegment.writeHeader(buffer);
+        active = new ActiveSegment(file, buffer);
+        activeView = RevisionSegment.ofWriter(file, buffer, active.index);
+    }
+
+    private static Path indexOf(Path file) {
+        return file.resolveSibling(RevisionFormat.indexName(file.getFileName().toString()));
+    }
+
+    private static ExpenseRevisionDto toDto(RevisionRecord record) {
+        return ExpenseRevisionDto.builder()
+                .changeType(record.type().name())
+                .version(record.version())
+                .changedAt(new Timestamp(record.changedAt()))
+                .createdAt(new Timestamp(record.createdAt()))
+                .amount(record.amount())
+                .merchant(record.merchant())
+                .currency(record.currency())
+                .notes(record.notes())
+                .category(record.category())
+                .fundSource(record.fundSource())
+                .build();
+    }
+
+    private static final class ActiveSegment
+    {
+
+        private final Path file;
+
+        private final MappedByteBuffer buffer;
+
+        private final OffsetIndex index = new OffsetIndex();
+
+        private int position = RevisionFormat.HEADER_BYTES;
+
+        private long newestChangedAt;
+
+        private boolean dirty;
+
+        private ActiveSegment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
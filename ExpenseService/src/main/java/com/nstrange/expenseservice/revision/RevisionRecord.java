@@ -0,0 +1,104 @@
+package com.nstrange.expenseservice.revision;
+
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.events.ExpenseChangedEvent;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * One committed state of an expense: what it looked like right after a create, update or delete.
+ */
+record RevisionRecord(ExpenseChangedEvent.Type type, long changedAt, long version, UUID externalId,
+                      String userId, long createdAt, BigDecimal amount, String merchant, String currency,
+                      String notes, String category, String fundSource) {
+
+    static RevisionRecord of(ExpenseChangedEvent.Type type, Expense expense, long now) {
+        long changedAt = Objects.nonNull(expense.getUpdatedAt()) ? expense.getUpdatedAt().getTime() : now;
+        if (type == ExpenseChangedEvent.Type.DELETED && Objects.nonNull(expense.getDeletedAt())) {
+            changedAt = expense.getDeletedAt().getTime();
+        }
+        return new RevisionRecord(type, changedAt,
+                Objects.nonNull(expense.getVersion()) ? expense.getVersion() : 0L,
+                UUID.fromString(expense.getExternalId()), expense.getUserId(),
+                Objects.nonNull(expense.getCreatedAt()) ? expense.getCreatedAt().getTime() : changedAt,
+                expense.getAmount(), expense.getMerchant(), expense.getCurrency(), expense.getNotes(),
+                expense.getCategory(), expense.getFundSource());
+    }
+
+    /** Writes the body, without the length and checksum that frame it. */
+    void encode(ByteBuffer out) {
+        out.put((byte) type.ordinal());
+        out.putLong(changedAt);
+        out.putLong(version);
+        out.putLong(externalId.getMostSignificantBits());
+        out.putLong(externalId.getLeastSignificantBits());
+        out.putLong(createdAt);
+        if (Objects.isNull(amount)) {
+            out.put((byte) 0);
+            out.put((byte) 0);
+        } else {
+            byte[] unscaled = amount.unscaledValue().toByteArray();
+            out.put((byte) amount.scale());
+            out.put((byte) unscaled.length);
+            out.put(unscaled);
+        }
+        putString(out, userId);
+        putString(out, merchant);
+        putString(out, currency);
+        putString(out, notes);
+        putString(out, category);
+        putString(out, fundSource);
+    }
+
+    /** An upper bound on the encoded body, for sizing the buffer it is written to. */
+    int maxEncodedBytes() {
+        return 1 + 5 * Long.BYTES + 2 + 255
+                + maxString(userId) + maxString(merchant) + maxString(currency)
+                + maxString(notes) + maxString(category) + maxString(fundSource);
+    }
+
+    static RevisionRecord decode(ByteBuffer in) {
+        ExpenseChangedEvent.Type type = ExpenseChangedEvent.Type.values()[in.get()];
+        long changedAt = in.getLong();
+        long version = in.getLong();
+        UUID externalId = new UUID(in.getLong(), in.getLong());
+        long createdAt = in.getLong();
+        int scale = in.get();
+        byte[] unscaled = new byte[Byte.toUnsignedInt(in.get())];
+        in.get(unscaled);
+        BigDecimal amount = unscaled.length == 0 ? null : new BigDecimal(new BigInteger(unscaled), scale);
+        return new RevisionRecord(type, changedAt, version, externalId, getString(in), createdAt, amount,
+                getString(in), getString(in), getString(in), getString(in), getString(in));
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (Objects.isNull(value)) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        // columns are far shorter in practice; the cap only keeps the length in a short
+        int length = Math.min(utf8.length, Short.MAX_VALUE);
+        out.putShort((short) length);
+        out.put(utf8, 0, length);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static int maxString(String value) {
+        return Short.BYTES + (Objects.isNull(value) ? 0 : Math.min(3 * value.length(), Short.MAX_VALUE));
+    }
+}
@@ -0,0 +1,313 @@
+package com.nstrange.expenseservice.revision;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.ObjIntConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Read side of one revision segment, memory-mapped. A sealed segment looks ids up by binary search in
+ * its mapped {@code .idx} file and costs no heap. A segment that is still being appended to, by this
+ * instance or another, is indexed on the heap in an {@link OffsetIndex} as its records are scanned.
+ */
+final class RevisionSegment
+{
+
+    private final Path file;
+
+    private final boolean sealed;
+
+    private final OffsetIndex heapIndex;
+
+    private final MappedByteBuffer index;
+
+    private final int indexCount;
+
+    private final int sealedEnd;
+
+    private final long newestChangedAt;
+
+    private volatile ByteBuffer mapped;
+
+    // unsealed only: where the next scan starts
+    private int scannedTo = RevisionFormat.HEADER_BYTES;
+
+    private RevisionSegment(Path file, ByteBuffer mapped, OffsetIndex heapIndex, MappedByteBuffer index,
+                            int indexCount, int sealedEnd, long newestChangedAt) {
+        this.file = file;
+        this.mapped = mapped;
+        this.sealed = Objects.nonNull(index);
+        this.heapIndex = heapIndex;
+        this.index = index;
+        this.indexCount = indexCount;
+        this.sealedEnd = sealedEnd;
+        this.newestChangedAt = newestChangedAt;
+    }
+
+    static RevisionSegment openSealed(Path file, Path indexFile) throws IOException {
+        MappedByteBuffer index = map(indexFile, -1);
+        if (index.capacity() < RevisionFormat.INDEX_HEADER_BYTES || !hasMagic(index, RevisionFormat.INDEX_MAGIC)) {
+            throw new IOException("Not a revision index: " + indexFile);
+        }
+        int dataEnd = index.getInt(RevisionFormat.INDEX_MAGIC.length);
+        int count = index.getInt(RevisionFormat.INDEX_MAGIC.length + Integer.BYTES);
+        long newest = index.getLong(RevisionFormat.INDEX_MAGIC.length + 2 * Integer.BYTES);
+        if (index.capacity() != RevisionFormat.INDEX_HEADER_BYTES + (long) count * RevisionFormat.INDEX_ENTRY_BYTES) {
+            throw new IOException("Truncated revision index: " + indexFile);
+        }
+        // only the data is mapped, not the zeroed tail of a segment that was sealed before it filled up
+        return new RevisionSegment(file, checkHeader(file, map(file, dataEnd)), null, index, count, dataEnd, newest);
+    }
+
+    /** Opens a segment that may still be growing; call {@link #scan()} to index what has been appended. */
+    static RevisionSegment openUnsealed(Path file) throws IOException {
+        return new RevisionSegment(file, checkHeader(file, map(file, -1)), new OffsetIndex(), null, 0, 0, 0L);
+    }
+
+    /** A view of the segment this instance is writing, sharing the writer's mapping and index. */
+    static RevisionSegment ofWriter(Path file, ByteBuffer mapped, OffsetIndex heapIndex) {
+        return new RevisionSegment(file, mapped, heapIndex, null, 0, 0, 0L);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * Indexes the records appended since the last scan. Stops at the first record that is missing, torn
+     * or fails its checksum, and starts from there next time, since another process may still be
+     * writing it.
+     *
+     * @return the number of records indexed
+     */
+    synchronized int scan() throws IOException {
+        if (sealed) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > mapped.capacity()) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        int count = 0;
+        int end;
+        while ((end = validRecordEnd(mapped, scannedTo)) > 0) {
+            ByteBuffer body = mapped.duplicate().position(scannedTo + RevisionFormat.RECORD_HEADER_BYTES).limit(end);
+            heapIndex.add(idOf(body), scannedTo);
+            scannedTo = end;
+            count++;
+        }
+        return count;
+    }
+
+    /** End of the data: for an unsealed segment, of the intact records scanned so far. */
+    synchronized int dataEnd() {
+        return sealed ? sealedEnd : scannedTo;
+    }
+
+    /** When the newest record of a sealed segment was written; 0 for an unsealed one. */
+    long newestChangedAt() {
+        return newestChangedAt;
+    }
+
+    OffsetIndex heapIndex() {
+        return heapIndex;
+    }
+
+    /** The id's records in this segment, oldest first. Records that fail their checksum are skipped. */
+    List<RevisionRecord> read(UUID externalId) {
+        int[] offsets = sealed ? sealedOffsetsOf(externalId) : heapIndex.offsetsOf(externalId);
+        List<RevisionRecord> records = new ArrayList<>(offsets.length);
+        ByteBuffer buffer = mapped;
+        for (int offset : offsets) {
+            RevisionRecord record = readAt(buffer, offset);
+            if (Objects.nonNull(record)) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /** Passes every intact record with its offset to {@code action}, in file order. */
+    void forEach(ObjIntConsumer<RevisionRecord> action) {
+        ByteBuffer buffer = mapped;
+        int position = RevisionFormat.HEADER_BYTES;
+        int end;
+        while ((end = validRecordEnd(buffer, position)) > 0) {
+            action.accept(RevisionRecord.decode(
+                    buffer.duplicate().position(position + RevisionFormat.RECORD_HEADER_BYTES).limit(end)), position);
+            position = end;
+        }
+    }
+
+    private int[] sealedOffsetsOf(UUID externalId) {
+        long msb = externalId.getMostSignificantBits();
+        long lsb = externalId.getLeastSignificantBits();
+        int low = 0;
+        int high = indexCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(entryMsb(mid), entryLsb(mid), msb, lsb) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < indexCount && entryMsb(end) == msb && entryLsb(end) == lsb) {
+            end++;
+        }
+        int[] offsets = new int[end - low];
+        for (int i = low; i < end; i++) {
+            offsets[i - low] = index.getInt(entryAt(i) + 2 * Long.BYTES);
+        }
+        return offsets;
+    }
+
+    private long entryMsb(int entry) {
+        return index.getLong(entryAt(entry));
+    }
+
+    private long entryLsb(int entry) {
+        return index.getLong(entryAt(entry) + Long.BYTES);
+    }
+
+    private static int entryAt(int entry) {
+        return RevisionFormat.INDEX_HEADER_BYTES + entry * RevisionFormat.INDEX_ENTRY_BYTES;
+    }
+
+    /**
+     * Frames {@code record} at {@code position}: the body first, then its checksum, then its length, so a
+     * reader that sees the length sees the whole record.
+     *
+     * @return the end offset of the record, or 0 if it does not fit before the buffer's capacity
+     */
+    static int writeRecord(ByteBuffer out, int position, RevisionRecord record) {
+        int start = position + RevisionFormat.RECORD_HEADER_BYTES;
+        if ((long) start + record.maxEncodedBytes() > out.capacity()) {
+            return 0;
+        }
+        ByteBuffer body = out.duplicate().position(start);
+        record.encode(body);
+        int end = body.position();
+        CRC32C crc = new CRC32C();
+        crc.update(out.duplicate().position(start).limit(end));
+        out.putInt(position + Integer.BYTES, (int) crc.getValue());
+        out.putInt(position, end - start);
+        return end;
+    }
+
+    /** Writes the header every segment starts with. */
+    static void writeHeader(ByteBuffer out) {
+        out.put(0, RevisionFormat.MAGIC).putInt(RevisionFormat.MAGIC.length, RevisionFormat.VERSION);
+    }
+
+    /**
+     * Writes an index of {@code msb, lsb, offset} triples, already sorted, next to its segment. The file
+     * appears under its final name only once complete.
+     */
+    static void writeIndex(Path indexFile, int dataEnd, long newestChangedAt, long[][] sortedEntries)
+            throws IOException {
+        Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(
+                RevisionFormat.INDEX_HEADER_BYTES + sortedEntries.length * RevisionFormat.INDEX_ENTRY_BYTES);
+        buffer.put(RevisionFormat.INDEX_MAGIC).putInt(dataEnd).putInt(sortedEntries.length).putLong(newestChangedAt);
+        for (long[] entry : sortedEntries) {
+            buffer.putLong(entry[0]).putLong(entry[1]).putInt((int) entry[2]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static int compareEntries(long[] a, long[] b) {
+        int order = compare(a[0], a[1], b[0], b[1]);
+        return order != 0 ? order : Long.compare(a[2], b[2]);
+    }
+
+    private static int compare(long msbA, long lsbA, long msbB, long lsbB) {
+        int order = Long.compare(msbA, msbB);
+        return order != 0 ? order : Long.compare(lsbA, lsbB);
+    }
+
+    /**
+     * @return the end offset of the record at {@code position}, or 0 if there is no intact record there
+     */
+    static int validRecordEnd(ByteBuffer buffer, int position) {
+        if (position + RevisionFormat.RECORD_HEADER_BYTES > buffer.capacity()) {
+            return 0;
+        }
+        int length = buffer.getInt(position);
+        int start = position + RevisionFormat.RECORD_HEADER_BYTES;
+        if (length <= 0 || (long) start + length > buffer.capacity()) {
+            return 0;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(start).limit(start + length));
+        return (int) crc.getValue() == buffer.getInt(position + Integer.BYTES) ? start + length : 0;
+    }
+
+    private static RevisionRecord readAt(ByteBuffer buffer, int position) {
+        int end = validRecordEnd(buffer, position);
+        if (end == 0) {
+            return null;
+        }
+        return RevisionRecord.decode(
+                buffer.duplicate().position(position + RevisionFormat.RECORD_HEADER_BYTES).limit(end));
+    }
+
+    private static UUID idOf(ByteBuffer body) {
+        // type(1) changedAt(8) version(8), then the id
+        int at = body.position() + 1 + 2 * Long.BYTES;
+        return new UUID(body.getLong(at), body.getLong(at + Long.BYTES));
+    }
+
+    /** Maps the first {@code length} bytes, or the whole file if {@code length} is negative. */
+    private static MappedByteBuffer map(Path file, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (length > size) {
+                throw new IOException("Revision file is shorter than its index says: " + file);
+            }
+            // the mapping stays valid after the channel is closed, and after the file is deleted
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, length < 0 ? size : length);
+        }
+    }
+
+    private static ByteBuffer checkHeader(Path file, ByteBuffer mapped) throws IOException {
+        if (mapped.capacity() < RevisionFormat.HEADER_BYTES || !hasMagic(mapped, RevisionFormat.MAGIC)) {
+            throw new IOException("Not a revision segment: " + file);
+        }
+        if (mapped.getInt(RevisionFormat.MAGIC.length) != RevisionFormat.VERSION) {
+            throw new IOException("Unsupported revision segment version in " + file);
+        }
+        return mapped;
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer, byte[] magic) {
+        byte[] actual = new byte[magic.length];
+        buffer.get(0, actual);
+        return Arrays.equals(actual, magic);
+    }
+}
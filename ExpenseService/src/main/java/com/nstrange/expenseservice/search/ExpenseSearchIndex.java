@@ -0,0 +1,453 @@
+package com.nstrange.expenseservice.search;
+
+import com.nstrange.expenseservice.dto.ExpenseDto;
+import com.nstrange.expenseservice.dto.ExpenseSearchHitDto;
+import com.nstrange.expenseservice.dto.ExpenseSearchResultDto;
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.events.ExpenseChangedEvent;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.exception.SearchUnavailableException;
+import com.nstrange.expenseservice.model.SyncCursor;
+import com.nstrange.expenseservice.partition.ExpensePartitionManager;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.ExpenseRepository;
+import com.nstrange.expenseservice.sharding.Shards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Full-text search over expense merchants and notes, backed by a Lucene index on local disk under
+ * {@code expense.search.dir}. The index is sorted by user, so each user's documents sit together in
+ * every segment and a search only walks that user's slice.
+ * <p>
+ * Committed writes are applied straight from {@link ExpenseChangedEvent} and become searchable at the
+ * next refresh. A catch-up job also tails every row by {@code (updated_at, id)}, like {@code /getChanges}
+ * does per user, which picks up writes made by other instances and rebuilds an empty index. Its
+ * position is stored with each index commit, so a restart resumes from there instead of reindexing.
+ */
+@Service
+public class ExpenseSearchIndex
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseSearchIndex.class);
+
+    private static final String EXTERNAL_ID = "external_id";
+
+    private static final String USER_ID = "user_id";
+
+    private static final String MERCHANT = "merchant";
+
+    private static final String NOTES = "notes";
+
+    private static final String CREATED_AT = "created_at";
+
+    private static final String AMOUNT = "amount";
+
+    private static final String CURRENCY = "currency";
+
+    private static final String CATEGORY = "category";
+
+    private static final String FUND_SOURCE = "fund_source";
+
+    private static final String UPDATED_AT = "updated_at";
+
+    private static final String VERSION = "version";
+
+    private static final String CURSOR_PREFIX = "cursor.";
+
+    // a merchant match says more about an expense than a word somewhere in its notes
+    private static final float MERCHANT_BOOST = 2.0f;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    // bounds one catch-up tick, so a rebuild does not hold the scheduler thread for long
+    private static final int MAX_PAGES_PER_TICK = 20;
+
+    private static final Sort RANKING = new Sort(SortField.FIELD_SCORE, new SortField(CREATED_AT, SortField.Type.LONG, true));
+
+    private final ExpenseRepository expenseRepository;
+
+    private final ExpensePartitionManager partitionManager;
+
+    private final Shards shards;
+
+    private final boolean enabled;
+
+    private final Path dir;
+
+    private final int batchSize;
+
+    private final int maxPageSize;
+
+    private final int maxResults;
+
+    private final long settleMillis;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    // tail position per shard; only what the index already holds is ever behind it
+    private final ConcurrentHashMap<String, SyncCursor> cursors = new ConcurrentHashMap<>();
+
+    private Directory directory;
+
+    private IndexWriter writer;
+
+    private SearcherManager searcherManager;
+
+    public ExpenseSearchIndex(ExpenseRepository expenseRepository, ExpensePartitionManager partitionManager, Shards shards,
+                              @Value("${expense.search.enabled:true}") boolean enabled,
+                              @Value("${expense.search.dir:${java.io.tmpdir}/expense-search}") String dir,
+                              @Value("${expense.search.catch-up-batch-size:500}") int batchSize,
+                              @Value("${expense.search.max-page-size:50}") int maxPageSize,
+                              @Value("${expense.search.max-results:1000}") int maxResults,
+                              @Value("${expense.sync.settle-millis:2000}") long settleMillis) {
+        this.expenseRepository = expenseRepository;
+        this.partitionManager = partitionManager;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.batchSize = batchSize;
+        this.maxPageSize = maxPageSize;
+        this.maxResults = maxResults;
+        this.settleMillis = settleMillis;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(dir);
+        directory = FSDirectory.open(dir);
+        if (DirectoryReader.indexExists(directory)) {
+            for (Map.Entry<String, String> entry : SegmentInfos.readLatestCommit(directory).getUserData().entrySet()) {
+                if (entry.getKey().startsWith(CURSOR_PREFIX)) {
+                    cursors.put(entry.getKey().substring(CURSOR_PREFIX.length()), SyncCursor.decode(entry.getValue()));
+                }
+            }
+        }
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setIndexSort(new Sort(new SortField(USER_ID, SortField.Type.STRING)));
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+        log.info("Opened expense search index at {} with {} documents, resuming catch-up from {}",
+                dir, writer.getDocStats().numDocs, cursors.isEmpty() ? "the start" : cursors.keySet());
+    }
+
+    @TransactionalEventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        if (Objects.isNull(writer)) {
+            return;
+        }
+        try {
+            apply(event.getExpense());
+        } catch (IOException | AlreadyClosedException ex) {
+            // the catch-up job reapplies the row from the database
+            log.warn("Failed to index expense externalId={}: {}", event.getExpense().getExternalId(), ex.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${expense.search.refresh-ms:1000}")
+    public void refresh() {
+        if (Objects.isNull(searcherManager)) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException ex) {
+            log.error("Failed to refresh expense search index", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${expense.search.catch-up-interval-ms:2000}")
+    public void catchUp() {
+        if (Objects.isNull(writer)) {
+            return;
+        }
+        shards.forEach(shard -> {
+            String key = Objects.isNull(shard) ? Shards.UNSHARDED : shard;
+            try {
+                catchUp(key);
+            } catch (DataAccessException | IOException ex) {
+                log.error("Search index catch-up failed on shard={}", key, ex);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${expense.search.commit-interval-ms:30000}")
+    public void commit() {
+        if (Objects.isNull(writer)) {
+            return;
+        }
+        try {
+            Map<String, String> userData = new HashMap<>();
+            cursors.forEach((shard, cursor) -> userData.put(CURSOR_PREFIX + shard, cursor.encode()));
+            writer.setLiveCommitData(userData.entrySet());
+            writer.commit();
+        } catch (IOException ex) {
+            log.error("Failed to commit expense search index", ex);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (Objects.isNull(writer)) {
+            return;
+        }
+        commit();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+        analyzer.close();
+    }
+
+    /**
+     * Ranks a user's expenses by how well their merchant and notes match {@code text} (BM25, merchant
+     * weighted up), newest first among equal scores. Pages are {@code size} hits long and only the first
+     * {@code expense.search.max-results} hits can be paged through.
+     */
+    public ExpenseSearchResultDto search(String userId, String text, Integer page, Integer size) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        if (Objects.isNull(text) || text.isBlank()) {
+            throw new InvalidExpenseRequestException("'q' must not be blank");
+        }
+        int pageNo = Objects.isNull(page) ? 0 : page;
+        int pageSize = Objects.isNull(size) ? DEFAULT_PAGE_SIZE : size;
+        if (pageNo < 0) {
+            throw new InvalidExpenseRequestException("'page' must not be negative");
+        }
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            throw new InvalidExpenseRequestException("'size' must be between 1 and " + maxPageSize);
+        }
+        long window = (long) (pageNo + 1) * pageSize;
+        if (window > maxResults) {
+            throw new InvalidExpenseRequestException("Only the first " + maxResults + " results can be paged; refine the query");
+        }
+        if (Objects.isNull(searcherManager)) {
+            throw new SearchUnavailableException("Expense search is disabled on this instance");
+        }
+        Set<String> terms = analyze(text);
+        if (terms.isEmpty()) {
+            throw new InvalidExpenseRequestException("'q' has no searchable words");
+        }
+
+        Query query = buildQuery(userId, terms);
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopFieldDocs top = searcher.search(query, (int) window, RANKING, true);
+                int total = searcher.count(query);
+                StoredFields storedFields = searcher.storedFields();
+                List<ExpenseSearchHitDto> hits = new ArrayList<>(pageSize);
+                for (int i = pageNo * pageSize; i < top.scoreDocs.length; i++) {
+                    ScoreDoc hit = top.scoreDocs[i];
+                    hits.add(ExpenseSearchHitDto.builder()
+                            .score(hit.score)
+                            .expense(toDto(userId, storedFields.document(hit.doc)))
+                            .build());
+                }
+                log.debug("Search for userId={} matched {} expenses, returning {}", userId, total, hits.size());
+                return ExpenseSearchResultDto.builder()
+                        .query(text)
+                        .page(pageNo)
+                        .size(pageSize)
+                        .totalHits(total)
+                        .hasMore(window < Math.min(total, maxResults))
+                        .hits(hits)
+                        .build();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException ex) {
+            log.error("Expense search failed for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to search expenses for user " + userId, ex);
+        }
+    }
+
+    private void catchUp(String shard) throws IOException {
+        Timestamp from = partitionManager.retainedFrom();
+        SyncCursor cursor = cursors.getOrDefault(shard, SyncCursor.START);
+        int indexed = 0;
+        boolean drained = false;
+        for (int pages = 0; pages < MAX_PAGES_PER_TICK && !drained; pages++) {
+            SyncCursor since = cursor;
+            // a replica behind the cursor would make the tail skip rows for good
+            List<Expense> rows = ReadRoutingContext.callOnPrimary(() -> expenseRepository.findAllChangesSince(from,
+                    new Timestamp(since.getUpdatedAtMillis()), since.getId(), PageRequest.of(0, batchSize)));
+            for (Expense expense : rows) {
+                apply(expense);
+            }
+            if (!rows.isEmpty()) {
+                Expense last = rows.get(rows.size() - 1);
+                cursor = new SyncCursor(last.getUpdatedAt().getTime(), last.getId());
+                indexed += rows.size();
+            }
+            drained = rows.size() < batchSize;
+        }
+        // same settle as /getChanges: a row stamped earlier but committed later is still ahead of the cursor
+        long settled = System.currentTimeMillis() - settleMillis;
+        if (drained && cursor.getUpdatedAtMillis() > settled) {
+            SyncCursor previous = cursors.getOrDefault(shard, SyncCursor.START);
+            cursor = new SyncCursor(Math.max(settled, previous.getUpdatedAtMillis()), 0L);
+        }
+        cursors.put(shard, cursor);
+        if (indexed > 0) {
+            log.debug("Search index caught up on {} expenses from shard={}", indexed, shard);
+        }
+    }
+
+    private void apply(Expense expense) throws IOException {
+        Term id = new Term(EXTERNAL_ID, expense.getExternalId());
+        if (Objects.nonNull(expense.getDeletedAt())) {
+            writer.deleteDocuments(id);
+        } else {
+            writer.updateDocument(id, toDocument(expense));
+        }
+    }
+
+    private static Document toDocument(Expense expense) {
+        long createdAt = Objects.nonNull(expense.getCreatedAt()) ? expense.getCreatedAt().getTime() : 0L;
+        Document document = new Document();
+        document.add(new StringField(EXTERNAL_ID, expense.getExternalId(), Field.Store.YES));
+        document.add(new StringField(USER_ID, expense.getUserId(), Field.Store.NO));
+        document.add(new SortedDocValuesField(USER_ID, new BytesRef(expense.getUserId())));
+        if (Objects.nonNull(expense.getMerchant())) {
+            document.add(new TextField(MERCHANT, expense.getMerchant(), Field.Store.YES));
+        }
+        if (Objects.nonNull(expense.getNotes())) {
+            document.add(new TextField(NOTES, expense.getNotes(), Field.Store.YES));
+        }
+        document.add(new LongPoint(CREATED_AT, createdAt));
+        document.add(new NumericDocValuesField(CREATED_AT, createdAt));
+        document.add(new StoredField(CREATED_AT, createdAt));
+        if (Objects.nonNull(expense.getAmount())) {
+            document.add(new StoredField(AMOUNT, expense.getAmount().toPlainString()));
+        }
+        storeIfPresent(document, CURRENCY, expense.getCurrency());
+        storeIfPresent(document, CATEGORY, expense.getCategory());
+        storeIfPresent(document, FUND_SOURCE, expense.getFundSource());
+        if (Objects.nonNull(expense.getUpdatedAt())) {
+            document.add(new StoredField(UPDATED_AT, expense.getUpdatedAt().getTime()));
+        }
+        if (Objects.nonNull(expense.getVersion())) {
+            document.add(new StoredField(VERSION, expense.getVersion()));
+        }
+        return document;
+    }
+
+    private static void storeIfPresent(Document document, String field, String value) {
+        if (Objects.nonNull(value)) {
+            document.add(new StoredField(field, value));
+        }
+    }
+
+    private static ExpenseDto toDto(String userId, Document document) {
+        IndexableField updatedAt = document.getField(UPDATED_AT);
+        IndexableField version = document.getField(VERSION);
+        String amount = document.get(AMOUNT);
+        return ExpenseDto.builder()
+                .externalId(document.get(EXTERNAL_ID))
+                .userId(userId)
+                .amount(Objects.nonNull(amount) ? new BigDecimal(amount) : BigDecimal.ZERO)
+                .merchant(document.get(MERCHANT))
+                .notes(document.get(NOTES))
+                .currency(document.get(CURRENCY))
+                .category(document.get(CATEGORY))
+                .fundSource(document.get(FUND_SOURCE))
+                .createdAt(new Timestamp(document.getField(CREATED_AT).numericValue().longValue()))
+                .updatedAt(Objects.nonNull(updatedAt) ? new Timestamp(updatedAt.numericValue().longValue()) : null)
+                .version(Objects.nonNull(version) ? version.numericValue().longValue() : null)
+                .build();
+    }
+
+    private Query buildQuery(String userId, Set<String> terms) {
+        BooleanQuery.Builder text = new BooleanQuery.Builder();
+        for (String term : terms) {
+            text.add(new BoostQuery(new TermQuery(new Term(MERCHANT, term)), MERCHANT_BOOST), BooleanClause.Occur.SHOULD);
+            text.add(new TermQuery(new Term(NOTES, term)), BooleanClause.Occur.SHOULD);
+        }
+        return new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(USER_ID, userId)), BooleanClause.Occur.FILTER)
+                // rows dropped with their month partition are no longer expenses of the user
+                .add(LongPoint.newRangeQuery(CREATED_AT, partitionManager.retainedFrom().getTime(), Long.MAX_VALUE),
+                        BooleanClause.Occur.FILTER)
+                .add(text.build(), BooleanClause.Occur.MUST)
+                .build();
+    }
+
+    private Set<String> analyze(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        try (TokenStream stream = analyzer.tokenStream(MERCHANT, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,107 @@
+package com.nstrange.expenseservice.service;
+
+import com.nstrange.expenseservice.budget.BudgetEvaluator;
+import com.nstrange.expenseservice.cache.MinorUnits;
+import com.nstrange.expenseservice.dto.BudgetDto;
+import com.nstrange.expenseservice.dto.BudgetRequestDto;
+import com.nstrange.expenseservice.entities.Budget;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.fx.BaseCurrencyService;
+import com.nstrange.expenseservice.repository.BudgetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+@Service
+public class BudgetService
+{
+
+    private static final Logger log = LoggerFactory.getLogger(BudgetService.class);
+
+    private static final String DEFAULT_THRESHOLDS = "80,100";
+
+    private final BudgetRepository budgetRepository;
+
+    private final BudgetEvaluator budgetEvaluator;
+
+    private final BaseCurrencyService baseCurrencyService;
+
+    public BudgetService(BudgetRepository budgetRepository, BudgetEvaluator budgetEvaluator,
+                         BaseCurrencyService baseCurrencyService) {
+        this.budgetRepository = budgetRepository;
+        this.budgetEvaluator = budgetEvaluator;
+        this.baseCurrencyService = baseCurrencyService;
+    }
+
+    @Transactional
+    public BudgetDto setBudget(String userId, BudgetRequestDto requestDto) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        if (Objects.isNull(requestDto)) {
+            throw new InvalidExpenseRequestException("Budget request body must not be null");
+        }
+
+        String scope = Objects.isNull(requestDto.getCategory()) || requestDto.getCategory().isBlank()
+                ? Budget.OVERALL_SCOPE
+                : SpendRollupService.categoryKey(requestDto.getCategory());
+        if (Objects.nonNull(requestDto.getCategory()) && Budget.OVERALL_SCOPE.equals(requestDto.getCategory().trim())) {
+            throw new InvalidExpenseRequestException("'" + Budget.OVERALL_SCOPE + "' is not a valid category");
+        }
+        String thresholds = Objects.isNull(requestDto.getAlertThresholds()) || requestDto.getAlertThresholds().isEmpty()
+                ? DEFAULT_THRESHOLDS
+                : requestDto.getAlertThresholds().stream().sorted().distinct()
+                        .map(String::valueOf).collect(Collectors.joining(","));
+
+        try {
+            Budget budget = budgetRepository.findByUserIdAndScope(userId, scope).orElseGet(Budget::new);
+            budget.setUserId(userId);
+            budget.setScope(scope);
+            budget.setMonthlyLimit(requestDto.getMonthlyLimit());
+            budget.setAlertThresholds(thresholds);
+            Budget saved = budgetRepository.save(budget);
+            budgetEvaluator.invalidateBudgets(userId);
+            log.info("Budget saved for userId={} scope={} limit={}", userId, scope, saved.getMonthlyLimit());
+            return toDto(saved);
+        } catch (DataAccessException ex) {
+            log.error("Database error while saving budget for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to save budget for user " + userId, ex);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<BudgetDto> getBudgets(String userId) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        try {
+            return budgetRepository.findByUserId(userId).stream().map(this::toDto).toList();
+        } catch (DataAccessException ex) {
+            log.error("Database error while fetching budgets for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to fetch budgets for user " + userId, ex);
+        }
+    }
+
+    private BudgetDto toDto(Budget budget) {
+        return BudgetDto.builder()
+                .category(Budget.OVERALL_SCOPE.equals(budget.getScope()) ? null : budget.getScope())
+                .monthlyLimit(budget.getMonthlyLimit())
+                .alertThresholds(Arrays.stream(budget.getAlertThresholds().split(","))
+                        .map(String::trim)
+                        .map(Integer::valueOf)
+                        .toList())
+                .spentThisMonth(BigDecimal.valueOf(
+                        budgetEvaluator.currentSpendMinor(budget.getUserId(), budget.getScope()), MinorUnits.SCALE))
+                .currency(baseCurrencyService.baseCurrencyOf(budget.getUserId()))
+                .build();
+    }
+}
@@ -1,22 +1,63 @@
 package com.nstrange.expenseservice.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nstrange.expenseservice.categorizer.MerchantCategorizer;
+import com.nstrange.expenseservice.coldstorage.ColdExpense;
+import com.nstrange.expenseservice.coldstorage.ColdExpenseStore;
+import com.nstrange.expenseservice.dto.ApiErrorResponse;
+import com.nstrange.expenseservice.dto.BulkCreateExpenseItemDto;
+import com.nstrange.expenseservice.dto.BulkItemResultDto;
 import com.nstrange.expenseservice.dto.CreateExpenseRequestDto;
 import com.nstrange.expenseservice.dto.ExpenseDto;
+import com.nstrange.expenseservice.dto.ProjectedExpenses;
 import com.nstrange.expenseservice.dto.UpdateExpenseDto;
 import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.entities.ExpenseIdempotencyKey;
+import com.nstrange.expenseservice.events.ExpenseChangedEvent;
+import com.nstrange.expenseservice.events.MerchantCategoryChosenEvent;
+import com.nstrange.expenseservice.fx.BaseCurrencyService;
+import com.nstrange.expenseservice.exception.ExpenseConflictException;
 import com.nstrange.expenseservice.exception.ExpenseNotFoundException;
 import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.ExpenseVersionConflictException;
 import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.ids.UuidBytes;
+import com.nstrange.expenseservice.model.BulkItemOutcome;
+import com.nstrange.expenseservice.model.ExpenseChanges;
+import com.nstrange.expenseservice.model.ExpenseField;
+import com.nstrange.expenseservice.model.ExpenseSnapshot;
+import com.nstrange.expenseservice.model.ProjectedExpense;
+import com.nstrange.expenseservice.model.RecategorizeBatch;
+import com.nstrange.expenseservice.model.SyncCursor;
+import com.nstrange.expenseservice.partition.ExpensePartitionManager;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.ExpenseBatchWriter;
+import com.nstrange.expenseservice.repository.ExpenseIdempotencyKeyRepository;
+import com.nstrange.expenseservice.repository.ExpenseProjectionRepository;
 import com.nstrange.expenseservice.repository.ExpenseRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 @Service
 public class ExpenseService
@@ -30,11 +71,60 @@ public class ExpenseService
 
     private final ObjectMapper objectMapper;
 
-    public ExpenseService(ExpenseRepository expenseRepository, ObjectMapper objectMapper){
+    private final SpendRollupService spendRollupService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final MerchantCategorizer merchantCategorizer;
+
+    private final ExpenseBatchWriter expenseBatchWriter;
+
+    private final ExpenseProjectionRepository expenseProjectionRepository;
+
+    private final ExpenseIdempotencyKeyRepository idempotencyKeyRepository;
+
+    private final ExpensePartitionManager partitionManager;
+
+    private final ColdExpenseStore coldExpenseStore;
+
+    private final BaseCurrencyService baseCurrencyService;
+
+    private final Validator validator;
+
+    private final int maxBulkItems;
+
+    private final int maxSyncPageSize;
+
+    private final long syncSettleMillis;
+
+    public ExpenseService(ExpenseRepository expenseRepository, ObjectMapper objectMapper,
+                          SpendRollupService spendRollupService, ApplicationEventPublisher eventPublisher,
+                          MerchantCategorizer merchantCategorizer, ExpenseBatchWriter expenseBatchWriter,
+                          ExpenseProjectionRepository expenseProjectionRepository,
+                          ExpenseIdempotencyKeyRepository idempotencyKeyRepository,
+                          ExpensePartitionManager partitionManager, ColdExpenseStore coldExpenseStore,
+                          BaseCurrencyService baseCurrencyService, Validator validator,
+                          @Value("${expense.bulk.max-items:500}") int maxBulkItems,
+                          @Value("${expense.sync.max-page-size:500}") int maxSyncPageSize,
+                          @Value("${expense.sync.settle-millis:2000}") long syncSettleMillis){
         this.expenseRepository = expenseRepository;
         this.objectMapper = objectMapper;
+        this.spendRollupService = spendRollupService;
+        this.eventPublisher = eventPublisher;
+        this.merchantCategorizer = merchantCategorizer;
+        this.expenseBatchWriter = expenseBatchWriter;
+        this.expenseProjectionRepository = expenseProjectionRepository;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.partitionManager = partitionManager;
+        this.coldExpenseStore = coldExpenseStore;
+        this.baseCurrencyService = baseCurrencyService;
+        this.validator = validator;
+        this.maxBulkItems = maxBulkItems;
+        this.maxSyncPageSize = maxSyncPageSize;
+        this.syncSettleMillis = syncSettleMillis;
     }
 
+    @Transactional
     public Expense createExpense(CreateExpenseRequestDto requestDto, String userId){
         if (Objects.isNull(requestDto)) {
             log.error("Expense request body must not be null");
@@ -59,13 +149,17 @@ public class ExpenseService
         if (Objects.isNull(expense.getCurrency())) {
             expense.setCurrency(DEFAULT_CURRENCY);
         }
+        baseCurrencyService.applyBaseAmount(expense);
 
         if (Objects.isNull(expense.getCreatedAt())) {
             expense.setCreatedAt(new Timestamp(System.currentTimeMillis()));
         }
+        checkWritable(expense.getCreatedAt());
 
         try {
             Expense saved = expenseRepository.save(expense);
+            spendRollupService.add(ExpenseSnapshot.of(saved));
+            eventPublisher.publishEvent(ExpenseChangedEvent.created(saved));
             log.info("Expense persisted successfully with id={} for userId={}", saved.getId(), userId);
             return saved;
         } catch (DataAccessException ex) {
@@ -74,8 +168,95 @@ public class ExpenseService
         }
     }
 
+    /**
+     * Creates many expenses in one transaction. Invalid items and items whose idempotency key was
+     * already used by this user are reported per item and skipped; the rest go in as batched inserts.
+     */
+    @Transactional
+    public List<BulkItemOutcome> createExpenses(List<BulkCreateExpenseItemDto> items, String userId){
+        if (Objects.isNull(items) || items.isEmpty()) {
+            throw new InvalidExpenseRequestException("Bulk request must contain at least one expense");
+        }
+        if (items.size() > maxBulkItems) {
+            throw new InvalidExpenseRequestException("Bulk request may contain at most " + maxBulkItems + " expenses");
+        }
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+
+        BulkItemOutcome[] outcomes = new BulkItemOutcome[items.size()];
+        Timestamp writableFrom = latest(partitionManager.retainedFrom(), coldExpenseStore.coldBefore());
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            BulkCreateExpenseItemDto item = items.get(i);
+            List<ApiErrorResponse.FieldValidationError> errors = validate(item, writableFrom);
+            if (!errors.isEmpty()) {
+                outcomes[i] = new BulkItemOutcome(i, Objects.nonNull(item) ? item.getIdempotencyKey() : null,
+                        BulkItemResultDto.Status.INVALID, null, errors);
+            } else {
+                keys.add(item.getIdempotencyKey());
+            }
+        }
+
+        Map<String, Expense> byKey = new HashMap<>();
+        Set<String> claimedKeys = new HashSet<>();
+        List<Expense> toInsert = new ArrayList<>(keys.size());
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try {
+            if (!keys.isEmpty()) {
+                Map<Long, String> claimed = new HashMap<>();
+                for (ExpenseIdempotencyKey key : idempotencyKeyRepository.findByUserIdAndIdempotencyKeyIn(userId, keys)) {
+                    claimed.put(key.getExpenseId(), key.getIdempotencyKey());
+                    claimedKeys.add(key.getIdempotencyKey());
+                }
+                if (!claimed.isEmpty()) {
+                    for (Expense existing : expenseRepository.findByIdInAndCreatedAtGreaterThanEqual(claimed.keySet(), hotFrom())) {
+                        byKey.put(claimed.get(existing.getId()), existing);
+                    }
+                }
+            }
+
+            for (int i = 0; i < items.size(); i++) {
+                if (Objects.nonNull(outcomes[i])) {
+                    continue;
+                }
+                BulkCreateExpenseItemDto item = items.get(i);
+                Expense previous = byKey.get(item.getIdempotencyKey());
+                // a claimed key whose expense is no longer hot was archived: still a duplicate, without a body
+                if (Objects.nonNull(previous) || claimedKeys.contains(item.getIdempotencyKey())) {
+                    outcomes[i] = new BulkItemOutcome(i, item.getIdempotencyKey(),
+                            BulkItemResultDto.Status.DUPLICATE, previous, null);
+                    continue;
+                }
+                Expense expense = toExpense(item, userId, now);
+                byKey.put(item.getIdempotencyKey(), expense);
+                toInsert.add(expense);
+                outcomes[i] = new BulkItemOutcome(i, item.getIdempotencyKey(),
+                        BulkItemResultDto.Status.CREATED, expense, null);
+            }
+
+            expenseBatchWriter.insertAll(toInsert);
+            if (!toInsert.isEmpty()) {
+                spendRollupService.addAll(toInsert.stream().map(ExpenseSnapshot::of).toList());
+            }
+        } catch (DuplicateKeyException ex) {
+            log.warn("Concurrent bulk create reused an idempotency key for userId={}", userId);
+            throw new ExpenseConflictException("Another request is creating expenses with the same idempotency keys; retry", ex);
+        } catch (DataAccessException ex) {
+            log.error("Database error while bulk creating expenses for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to persist expenses for user " + userId, ex);
+        }
+
+        for (Expense created : toInsert) {
+            eventPublisher.publishEvent(ExpenseChangedEvent.created(created));
+        }
+        log.info("Bulk create for userId={}: {} items, {} created", userId, items.size(), toInsert.size());
+        return List.of(outcomes);
+    }
+
     // create from Kafka
-    public void createExpense(ExpenseDto expenseDto){
+    @Transactional
+    public Expense createExpense(ExpenseDto expenseDto){
         if (Objects.isNull(expenseDto)) {
             throw new InvalidExpenseRequestException("ExpenseDto must not be null");
         }
@@ -91,18 +272,59 @@ public class ExpenseService
         expense.setMerchant(expenseDto.getMerchant());
         expense.setFundSource(expenseDto.getFundSource());
         expense.setCurrency(Objects.nonNull(expenseDto.getCurrency()) ? expenseDto.getCurrency() : DEFAULT_CURRENCY);
+        baseCurrencyService.applyBaseAmount(expense);
         expense.setCreatedAt(Objects.nonNull(expenseDto.getCreatedAt()) ? expenseDto.getCreatedAt() : new Timestamp(System.currentTimeMillis()));
+        checkWritable(expense.getCreatedAt());
+        expense.setDuplicateOf(expenseDto.getDuplicateOf());
+        expense.setCategory(Objects.nonNull(expenseDto.getCategory()) && !expenseDto.getCategory().isBlank()
+                ? expenseDto.getCategory()
+                : merchantCategorizer.categorize(expenseDto.getUserId(), expenseDto.getMerchant()));
 
         try {
-            expenseRepository.save(expense);
+            Expense saved = expenseRepository.save(expense);
+            spendRollupService.add(ExpenseSnapshot.of(saved));
+            eventPublisher.publishEvent(ExpenseChangedEvent.created(saved));
             log.info("Expense from Kafka event persisted successfully for userId={}", expenseDto.getUserId());
+            return saved;
         } catch (DataAccessException ex) {
             log.error("Database error while saving expense from Kafka event for userId={}", expenseDto.getUserId(), ex);
             throw new ExpenseServiceException("Failed to persist expense from event for user " + expenseDto.getUserId(), ex);
         }
     }
 
-    public Expense updateExpense(UpdateExpenseDto expenseDto, String expenseId){
+    /**
+     * @return the caller's live expense with this external id, if it is still writable
+     * @throws ExpenseNotFoundException if there is none, or it was deleted or archived
+     */
+    public Expense getOwnedExpense(String expenseId, String userId){
+        if (Objects.isNull(expenseId) || expenseId.isBlank()) {
+            throw new InvalidExpenseRequestException("Expense ID must not be null or blank");
+        }
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        if (Objects.isNull(UuidBytes.parseOrNull(expenseId))) {
+            throw new ExpenseNotFoundException("Expense with id=" + expenseId + " not found");
+        }
+        try {
+            return expenseRepository.findFirstByExternalIdAndUserIdAndDeletedAtIsNullAndCreatedAtGreaterThanEqualOrderByIdAsc(
+                            expenseId, userId, hotFrom())
+                    .orElseThrow(() -> new ExpenseNotFoundException("Expense with id=" + expenseId + " not found"));
+        } catch (DataAccessException ex) {
+            log.error("Database error while fetching expense for expenseId={}", expenseId, ex);
+            throw new ExpenseServiceException("Failed to fetch expense " + expenseId, ex);
+        }
+    }
+
+    /**
+     * Patches the caller's expense. The row is located by its external id together with the owner (server-minted
+     * UUIDv7s, but not unique-constrained on the partitioned table), and with {@code @DynamicUpdate} plus {@code @Version} the flush is a single
+     * {@code UPDATE ... WHERE id = ? AND version = ?} of the changed columns only.
+     *
+     * @param expectedVersion version from {@code If-Match}, or {@code null} to skip the precondition
+     */
+    @Transactional
+    public Expense updateExpense(UpdateExpenseDto expenseDto, String expenseId, String userId, Long expectedVersion){
 
         if (Objects.isNull(expenseDto)) {
             log.error("Expense update body must not be null");
@@ -112,15 +334,31 @@ public class ExpenseService
             log.error("Expense ID must not be null or blank");
             throw new InvalidExpenseRequestException("Expense ID must not be null or blank");
         }
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+
+        if (Objects.isNull(UuidBytes.parseOrNull(expenseId))) {
+            throw new ExpenseNotFoundException("Expense with id=" + expenseId + " not found");
+        }
 
         Expense existing;
         try {
-            existing = expenseRepository.findByExternalId(expenseId)
+            existing = expenseRepository.findFirstByExternalIdAndUserIdAndDeletedAtIsNullAndCreatedAtGreaterThanEqualOrderByIdAsc(
+                            expenseId, userId, hotFrom())
                     .orElseThrow(() -> new ExpenseNotFoundException("Expense with id=" + expenseId + " not found"));
         } catch (DataAccessException ex) {
             log.error("Database error while fetching expense for expenseId={}", expenseId, ex);
             throw new ExpenseServiceException("Failed to fetch expense " + expenseId, ex);
         }
+        if (Objects.nonNull(expectedVersion) && !expectedVersion.equals(existing.getVersion())) {
+            log.warn("Version mismatch updating expenseId={}: expected={} current={}",
+                    expenseId, expectedVersion, existing.getVersion());
+            throw new ExpenseVersionConflictException("Expense " + expenseId + " was modified by another request");
+        }
+        checkWritable(existing.getCreatedAt());
+
+        ExpenseSnapshot before = ExpenseSnapshot.of(existing);
 
         if (Objects.nonNull(expenseDto.getAmount())) {
             existing.setAmount(expenseDto.getAmount());
@@ -131,7 +369,13 @@ public class ExpenseService
         if (Objects.nonNull(expenseDto.getCurrency()) && !expenseDto.getCurrency().isBlank()) {
             existing.setCurrency(expenseDto.getCurrency());
         }
+        // re-converted at today's rates only when the amount or currency is given; other edits keep the stored base amount
+        if (Objects.nonNull(expenseDto.getAmount())
+                || (Objects.nonNull(expenseDto.getCurrency()) && !expenseDto.getCurrency().isBlank())) {
+            baseCurrencyService.applyBaseAmount(existing);
+        }
         if (Objects.nonNull(expenseDto.getCreatedAt())) {
+            checkWritable(expenseDto.getCreatedAt());
             existing.setCreatedAt(expenseDto.getCreatedAt());
         }
         if (Objects.nonNull(expenseDto.getFundSource())) {
@@ -145,26 +389,255 @@ public class ExpenseService
         }
 
         try {
-            Expense saved = expenseRepository.save(existing);
+            // flushed here so a concurrent update fails the version check inside this try, not at commit
+            Expense saved = expenseRepository.saveAndFlush(existing);
+            spendRollupService.replace(before, ExpenseSnapshot.of(saved));
+            if (Objects.nonNull(expenseDto.getCategory())) {
+                eventPublisher.publishEvent(new MerchantCategoryChosenEvent(
+                        saved.getUserId(), saved.getMerchant(), saved.getCategory()));
+            }
+            eventPublisher.publishEvent(ExpenseChangedEvent.updated(saved, before));
             log.info("Expense updated successfully with id={} (externalId={})", saved.getId(), saved.getExternalId());
             return saved;
+        } catch (OptimisticLockingFailureException ex) {
+            log.warn("Concurrent update of expenseId={} detected at flush", expenseId);
+            throw new ExpenseVersionConflictException("Expense " + expenseId + " was modified by another request", ex);
         } catch (DataAccessException ex) {
             log.error("Database error while updating expenseId={}", expenseId, ex);
             throw new ExpenseServiceException("Failed to update expense " + expenseId, ex);
         }
     }
 
-    public List<Expense> getExpenses(String userId){
+    /**
+     * Soft-deletes an expense owned by {@code userId}: the row stays as a tombstone for sync clients and
+     * stops counting toward rollups. Deleting an already deleted expense is a no-op.
+     */
+    @Transactional
+    public void deleteExpense(String expenseId, String userId){
+        if (Objects.isNull(expenseId) || expenseId.isBlank()) {
+            throw new InvalidExpenseRequestException("Expense ID must not be null or blank");
+        }
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+
+        if (Objects.isNull(UuidBytes.parseOrNull(expenseId))) {
+            throw new ExpenseNotFoundException("Expense with id=" + expenseId + " not found");
+        }
+
+        Expense existing;
+        try {
+            existing = expenseRepository.findFirstByExternalIdAndUserIdAndCreatedAtGreaterThanEqualOrderByIdAsc(
+                            expenseId, userId, hotFrom())
+                    .orElseThrow(() -> new ExpenseNotFoundException("Expense with id=" + expenseId + " not found"));
+        } catch (DataAccessException ex) {
+            log.error("Database error while fetching expense for expenseId={}", expenseId, ex);
+            throw new ExpenseServiceException("Failed to fetch expense " + expenseId, ex);
+        }
+        if (Objects.nonNull(existing.getDeletedAt())) {
+            return;
+        }
+        checkWritable(existing.getCreatedAt());
+
+        ExpenseSnapshot before = ExpenseSnapshot.of(existing);
+        existing.setDeletedAt(new Timestamp(System.currentTimeMillis()));
+        try {
+            Expense saved = expenseRepository.save(existing);
+            spendRollupService.remove(before);
+            eventPublisher.publishEvent(ExpenseChangedEvent.deleted(saved, before));
+            log.info("Expense deleted with id={} (externalId={})", saved.getId(), saved.getExternalId());
+        } catch (OptimisticLockingFailureException ex) {
+            log.warn("Concurrent update of expenseId={} detected while deleting", expenseId);
+            throw new ExpenseVersionConflictException("Expense " + expenseId + " was modified by another request", ex);
+        } catch (DataAccessException ex) {
+            log.error("Database error while deleting expenseId={}", expenseId, ex);
+            throw new ExpenseServiceException("Failed to delete expense " + expenseId, ex);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} rows written after {@code cursor}, tombstones included. When the
+     * stream is drained the returned cursor is held {@code syncSettleMillis} behind the clock, so a
+     * transaction that stamped {@code updated_at} earlier but committed later is picked up next time.
+     */
+    @Transactional(readOnly = true)
+    public ExpenseChanges getChanges(String userId, String cursor, Integer limit){
         if (Objects.isNull(userId) || userId.isBlank()) {
             throw new InvalidExpenseRequestException("User ID must not be null or blank");
         }
+        SyncCursor since;
+        try {
+            since = SyncCursor.decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidExpenseRequestException("Invalid sync cursor");
+        }
+        int pageSize = Objects.isNull(limit) ? maxSyncPageSize : Math.max(1, Math.min(limit, maxSyncPageSize));
+
+        List<Expense> rows;
+        try {
+            // a lagging replica could hand out a cursor past rows it has not seen yet
+            rows = ReadRoutingContext.callOnPrimary(() -> expenseRepository.findChangesSince(userId, hotFrom(),
+                    new Timestamp(since.getUpdatedAtMillis()),
+                    since.getId(), PageRequest.of(0, pageSize + 1)));
+        } catch (DataAccessException ex) {
+            log.error("Database error while fetching changes for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to fetch changes for user " + userId, ex);
+        }
 
-        log.debug("Fetching expenses for userId={}", userId);
+        boolean hasMore = rows.size() > pageSize;
+        List<Expense> page = hasMore ? rows.subList(0, pageSize) : rows;
+        SyncCursor next = since;
+        if (!page.isEmpty()) {
+            Expense last = page.get(page.size() - 1);
+            next = new SyncCursor(last.getUpdatedAt().getTime(), last.getId());
+        }
+        long settled = System.currentTimeMillis() - syncSettleMillis;
+        if (!hasMore && next.getUpdatedAtMillis() > settled) {
+            next = new SyncCursor(Math.max(settled, since.getUpdatedAtMillis()), 0L);
+        }
+        log.debug("Returning {} changes for userId={}, hasMore={}", page.size(), userId, hasMore);
+        return new ExpenseChanges(page, next, hasMore);
+    }
+
+    /**
+     * Categorizes up to {@code batchSize} uncategorized expenses with id greater than {@code afterId}.
+     */
+    @Transactional
+    public RecategorizeBatch recategorizeBatch(long afterId, int batchSize){
+        List<Expense> batch;
         try {
-            return expenseRepository.findByUserId(userId);
+            batch = expenseRepository.findByCategoryIsNullAndDeletedAtIsNullAndIdGreaterThanAndCreatedAtGreaterThanEqualOrderByIdAsc(
+                    afterId, hotFrom(), PageRequest.of(0, batchSize));
+        } catch (DataAccessException ex) {
+            log.error("Database error while scanning uncategorized expenses after id={}", afterId, ex);
+            throw new ExpenseServiceException("Failed to scan uncategorized expenses", ex);
+        }
+
+        long lastId = afterId;
+        int updated = 0;
+        for (Expense expense : batch) {
+            lastId = expense.getId();
+            String category = merchantCategorizer.categorize(expense.getUserId(), expense.getMerchant());
+            if (Objects.isNull(category)) {
+                continue;
+            }
+            ExpenseSnapshot before = ExpenseSnapshot.of(expense);
+            expense.setCategory(category);
+            spendRollupService.replace(before, ExpenseSnapshot.of(expense));
+            eventPublisher.publishEvent(ExpenseChangedEvent.updated(expense, before));
+            updated++;
+        }
+        return new RecategorizeBatch(lastId, batch.size(), updated);
+    }
+
+    private List<ApiErrorResponse.FieldValidationError> validate(BulkCreateExpenseItemDto item, Timestamp writableFrom) {
+        if (Objects.isNull(item)) {
+            return List.of(ApiErrorResponse.FieldValidationError.builder()
+                    .message("Expense must not be null")
+                    .build());
+        }
+        Set<ConstraintViolation<BulkCreateExpenseItemDto>> violations = validator.validate(item);
+        List<ApiErrorResponse.FieldValidationError> errors = new ArrayList<>(violations.size());
+        for (ConstraintViolation<BulkCreateExpenseItemDto> violation : violations) {
+            errors.add(ApiErrorResponse.FieldValidationError.builder()
+                    .field(violation.getPropertyPath().toString())
+                    .message(violation.getMessage())
+                    .rejectedValue(violation.getInvalidValue())
+                    .build());
+        }
+        if (Objects.nonNull(item.getCreatedAt()) && item.getCreatedAt().before(writableFrom)) {
+            errors.add(ApiErrorResponse.FieldValidationError.builder()
+                    .field("createdAt")
+                    .message("must not be before " + writableFrom.toLocalDateTime().toLocalDate() + " (archived months)")
+                    .rejectedValue(item.getCreatedAt())
+                    .build());
+        }
+        return errors;
+    }
+
+    private Expense toExpense(BulkCreateExpenseItemDto item, String userId, Timestamp now) {
+        Expense expense = new Expense();
+        expense.setExternalId(Expense.newExternalId());
+        expense.setUserId(userId);
+        expense.setAmount(item.getAmount());
+        expense.setMerchant(item.getMerchant());
+        expense.setCurrency(Objects.nonNull(item.getCurrency()) ? item.getCurrency() : DEFAULT_CURRENCY);
+        expense.setNotes(item.getNotes());
+        expense.setCategory(item.getCategory());
+        expense.setFundSource(item.getFundSource());
+        expense.setCreatedAt(Objects.nonNull(item.getCreatedAt()) ? item.getCreatedAt() : now);
+        expense.setIdempotencyKey(item.getIdempotencyKey());
+        expense.setUpdatedAt(now);
+        baseCurrencyService.applyBaseAmount(expense);
+        return expense;
+    }
+
+    /**
+     * Lists a user's expenses as scalar rows of just {@code fields}, bypassing entity materialization.
+     * {@code from} / {@code to} (inclusive, UTC days) narrow the scan to the matching month partitions;
+     * without them every retained month is read. Archived months in the range are read from the cold
+     * segments and come first.
+     */
+    @Transactional(readOnly = true)
+    public ProjectedExpenses getExpenseProjection(String userId, List<ExpenseField> fields, LocalDate from, LocalDate to){
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        if (Objects.nonNull(from) && Objects.nonNull(to) && from.isAfter(to)) {
+            throw new InvalidExpenseRequestException("'from' must not be after 'to'");
+        }
+
+        Timestamp requestedFrom = Objects.nonNull(from) ? startOfDay(from) : null;
+        Timestamp upper = Objects.nonNull(to) ? startOfDay(to.plusDays(1)) : null;
+        Timestamp lower = latest(requestedFrom, hotFrom());
+
+        log.debug("Fetching expense projection {} for userId={} from={} to={}", fields, userId, lower, upper);
+        List<ProjectedExpense> rows = new ArrayList<>();
+        for (ColdExpense cold : findCold(userId, requestedFrom, upper)) {
+            rows.add(cold.project(fields));
+        }
+        try {
+            if (Objects.isNull(upper) || lower.before(upper)) {
+                rows.addAll(expenseProjectionRepository.findByUserId(userId, fields, lower, upper));
+            }
+            return new ProjectedExpenses(fields, rows);
         } catch (DataAccessException ex) {
             log.error("Database error while fetching expenses for userId={}", userId, ex);
             throw new ExpenseServiceException("Failed to fetch expenses for user " + userId, ex);
         }
     }
+
+    /**
+     * Lower {@code created_at} bound for MySQL reads: rows before it are either in archived partitions or
+     * in cold segments.
+     */
+    private Timestamp hotFrom() {
+        return latest(partitionManager.retainedFrom(), coldExpenseStore.archivedBefore());
+    }
+
+    private void checkWritable(Timestamp createdAt) {
+        partitionManager.checkWritable(createdAt);
+        coldExpenseStore.checkWritable(createdAt);
+    }
+
+    /** Archived expenses in {@code [from, to)}; either bound may be {@code null}. */
+    private List<ColdExpense> findCold(String userId, Timestamp from, Timestamp to) {
+        if (!coldExpenseStore.isEnabled()) {
+            return List.of();
+        }
+        long archivedBefore = coldExpenseStore.archivedBefore().getTime();
+        long toMillis = Objects.isNull(to) ? archivedBefore : Math.min(to.getTime(), archivedBefore);
+        return coldExpenseStore.find(userId, Objects.isNull(from) ? Long.MIN_VALUE : from.getTime(), toMillis);
+    }
+
+    private static Timestamp latest(Timestamp a, Timestamp b) {
+        if (Objects.isNull(a)) {
+            return b;
+        }
+        return Objects.isNull(b) || a.after(b) ? a : b;
+    }
+
+    private static Timestamp startOfDay(LocalDate day) {
+        return Timestamp.from(day.atStartOfDay(SpendRollupService.ROLLUP_ZONE).toInstant());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,320 @@
+package com.nstrange.expenseservice.service;
+
+import com.nstrange.expenseservice.cache.ColumnarExpenseCache;
+import com.nstrange.expenseservice.cache.MinorUnits;
+import com.nstrange.expenseservice.cache.SpendAggregate;
+import com.nstrange.expenseservice.cache.SpendDimension;
+import com.nstrange.expenseservice.coldstorage.ColdExpense;
+import com.nstrange.expenseservice.coldstorage.ColdExpenseStore;
+import com.nstrange.expenseservice.dto.BaseSpendResultDto;
+import com.nstrange.expenseservice.dto.SpendBucketDto;
+import com.nstrange.expenseservice.dto.SpendQueryResultDto;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.fx.BaseCurrencyService;
+import com.nstrange.expenseservice.fx.FxRateService;
+import com.nstrange.expenseservice.fx.FxRateTable;
+import com.nstrange.expenseservice.model.BaseSpendAggregateView;
+import com.nstrange.expenseservice.model.SpendAggregateView;
+import com.nstrange.expenseservice.repository.ExpenseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Ad-hoc range sums over a user's expenses. Served from {@link ColumnarExpenseCache} when it is
+ * enabled, otherwise aggregated in MySQL; the part of the range that is archived is aggregated from
+ * the cold segments and merged in. Base-currency sums always come from MySQL, grouped by currency and
+ * converted with the in-memory rate table.
+ */
+@Service
+public class SpendQueryService
+{
+
+    private static final Logger log = LoggerFactory.getLogger(SpendQueryService.class);
+
+    private final ExpenseRepository expenseRepository;
+
+    private final ColumnarExpenseCache columnarExpenseCache;
+
+    private final ColdExpenseStore coldExpenseStore;
+
+    private final FxRateService fxRateService;
+
+    private final BaseCurrencyService baseCurrencyService;
+
+    public SpendQueryService(ExpenseRepository expenseRepository, ColumnarExpenseCache columnarExpenseCache,
+                             ColdExpenseStore coldExpenseStore, FxRateService fxRateService,
+                             BaseCurrencyService baseCurrencyService) {
+        this.expenseRepository = expenseRepository;
+        this.columnarExpenseCache = columnarExpenseCache;
+        this.coldExpenseStore = coldExpenseStore;
+        this.fxRateService = fxRateService;
+        this.baseCurrencyService = baseCurrencyService;
+    }
+
+    @Transactional(readOnly = true)
+    public SpendQueryResultDto getSpend(String userId, LocalDate from, LocalDate to, String fundSource, String groupBy) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        if (Objects.isNull(from) || Objects.isNull(to)) {
+            throw new InvalidExpenseRequestException("'from' and 'to' are required");
+        }
+        if (from.isAfter(to)) {
+            throw new InvalidExpenseRequestException("'from' must not be after 'to'");
+        }
+
+        SpendDimension dimension = SpendDimension.parse(groupBy);
+        String fundSourceFilter = Objects.isNull(fundSource) || fundSource.isBlank() ? null : fundSource.trim();
+        long fromMillis = from.atStartOfDay(SpendRollupService.ROLLUP_ZONE).toInstant().toEpochMilli();
+        long toMillis = to.plusDays(1).atStartOfDay(SpendRollupService.ROLLUP_ZONE).toInstant().toEpochMilli();
+        long archivedBefore = coldExpenseStore.archivedBefore().getTime();
+        long hotFromMillis = Math.max(fromMillis, archivedBefore);
+        List<ColdExpense> cold = fromMillis < archivedBefore
+                ? coldExpenseStore.find(userId, fromMillis, Math.min(toMillis, archivedBefore))
+                : List.of();
+
+        log.debug("Computing spend for userId={} from={} to={} fundSource={} groupBy={} columnar={}",
+                userId, from, to, fundSourceFilter, dimension, columnarExpenseCache.isEnabled());
+        try {
+            SpendQueryResultDto.SpendQueryResultDtoBuilder result = SpendQueryResultDto.builder()
+                    .from(from)
+                    .to(to)
+                    .fundSource(fundSourceFilter);
+
+            if (Objects.isNull(dimension)) {
+                SpendAggregate aggregate = SpendAggregate.EMPTY;
+                if (hotFromMillis < toMillis) {
+                    aggregate = columnarExpenseCache.isEnabled()
+                            ? columnarExpenseCache.sum(userId, hotFromMillis, toMillis, fundSourceFilter)
+                            : toAggregate(expenseRepository.sumAmount(userId,
+                                    new Timestamp(hotFromMillis), new Timestamp(toMillis), fundSourceFilter));
+                }
+                for (ColdExpense expense : cold) {
+                    if (Objects.nonNull(expense.getDuplicateOf())) {
+                        continue;
+                    }
+                    if (Objects.isNull(fundSourceFilter)
+                            || fundSourceFilter.equals(SpendRollupService.fundSourceKey(expense.getFundSource()))) {
+                        aggregate = merge(aggregate, new SpendAggregate(MinorUnits.of(expense.getAmount()), 1L));
+                    }
+                }
+                return result.total(aggregate.getTotal()).count(aggregate.getCount()).build();
+            }
+
+            Map<String, SpendAggregate> groups = new LinkedHashMap<>();
+            if (hotFromMillis < toMillis) {
+                groups.putAll(columnarExpenseCache.isEnabled()
+                        ? columnarExpenseCache.groupBy(userId, dimension, hotFromMillis, toMillis, fundSourceFilter)
+                        : groupInDatabase(userId, dimension, hotFromMillis, toMillis, fundSourceFilter));
+            }
+            for (ColdExpense expense : cold) {
+                if (Objects.nonNull(expense.getDuplicateOf()) || Objects.nonNull(fundSourceFilter)
+                        && !fundSourceFilter.equals(SpendRollupService.fundSourceKey(expense.getFundSource()))) {
+                    continue;
+                }
+                String key = switch (dimension) {
+                    case CATEGORY -> SpendRollupService.categoryKey(expense.getCategory());
+                    case MERCHANT -> SpendRollupService.merchantKey(expense.getMerchant());
+                    case FUND_SOURCE -> SpendRollupService.fundSourceKey(expense.getFundSource());
+                };
+                groups.merge(key, new SpendAggregate(MinorUnits.of(expense.getAmount()), 1L), SpendQueryService::merge);
+            }
+
+            long totalMinor = 0L;
+            long count = 0L;
+            for (SpendAggregate aggregate : groups.values()) {
+                totalMinor += aggregate.getTotalMinor();
+                count += aggregate.getCount();
+            }
+            List<SpendBucketDto> buckets = groups.entrySet().stream()
+                    .sorted(Map.Entry.comparingByValue(
+                            Comparator.comparingLong(SpendAggregate::getTotalMinor).reversed()))
+                    .map(e -> SpendBucketDto.builder()
+                            .key(e.getKey())
+                            .total(e.getValue().getTotal())
+                            .count(e.getValue().getCount())
+                            .build())
+                    .toList();
+
+            return result
+                    .groupBy(dimension.name().toLowerCase(Locale.ROOT))
+                    .total(new SpendAggregate(totalMinor, count).getTotal())
+                    .count(count)
+                    .groups(buckets)
+                    .build();
+        } catch (DataAccessException ex) {
+            log.error("Database error while computing spend for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to compute spend for user " + userId, ex);
+        }
+    }
+
+    /**
+     * Like {@link #getSpend}, in the user's base currency. Rows converted on write contribute their
+     * stored base amount; older rows, archived rows and rows stored in an earlier base currency are
+     * converted here, one sum per currency, with a single rate table snapshot.
+     */
+    @Transactional(readOnly = true)
+    public BaseSpendResultDto getBaseSpend(String userId, LocalDate from, LocalDate to, String fundSource, String groupBy) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        if (Objects.isNull(from) || Objects.isNull(to)) {
+            throw new InvalidExpenseRequestException("'from' and 'to' are required");
+        }
+        if (from.isAfter(to)) {
+            throw new InvalidExpenseRequestException("'from' must not be after 'to'");
+        }
+
+        SpendDimension dimension = SpendDimension.parse(groupBy);
+        String fundSourceFilter = Objects.isNull(fundSource) || fundSource.isBlank() ? null : fundSource.trim();
+        FxRateTable rates = fxRateService.current();
+        String base = baseCurrencyService.baseCurrencyOf(userId);
+        long fromMillis = from.atStartOfDay(SpendRollupService.ROLLUP_ZONE).toInstant().toEpochMilli();
+        long toMillis = to.plusDays(1).atStartOfDay(SpendRollupService.ROLLUP_ZONE).toInstant().toEpochMilli();
+        long archivedBefore = coldExpenseStore.archivedBefore().getTime();
+        long hotFromMillis = Math.max(fromMillis, archivedBefore);
+
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+        Map<String, Long> counts = new LinkedHashMap<>();
+        Map<String, BigDecimal> unconvertedTotals = new LinkedHashMap<>();
+        Map<String, Long> unconvertedCounts = new LinkedHashMap<>();
+        try {
+            if (hotFromMillis < toMillis) {
+                Timestamp hotFrom = new Timestamp(hotFromMillis);
+                Timestamp hotTo = new Timestamp(toMillis);
+                List<BaseSpendAggregateView> rows = Objects.isNull(dimension)
+                        ? expenseRepository.sumBaseAmount(userId, hotFrom, hotTo, fundSourceFilter)
+                        : switch (dimension) {
+                            case CATEGORY -> expenseRepository.sumBaseAmountByCategory(userId, hotFrom, hotTo, fundSourceFilter);
+                            case MERCHANT -> expenseRepository.sumBaseAmountByMerchant(userId, hotFrom, hotTo, fundSourceFilter);
+                            case FUND_SOURCE -> expenseRepository.sumBaseAmountByFundSource(userId, hotFrom, hotTo, fundSourceFilter);
+                        };
+                for (BaseSpendAggregateView row : rows) {
+                    BigDecimal total = Objects.nonNull(row.getTotal()) ? row.getTotal() : BigDecimal.ZERO;
+                    long count = Objects.nonNull(row.getExpenseCount()) ? row.getExpenseCount() : 0L;
+                    BigDecimal converted = rates.convert(total, row.getCurrency(), base);
+                    if (Objects.isNull(converted)) {
+                        String currency = Objects.requireNonNullElse(FxRateTable.normalize(row.getCurrency()),
+                                String.valueOf(row.getCurrency()));
+                        unconvertedTotals.merge(currency, total, BigDecimal::add);
+                        unconvertedCounts.merge(currency, count, Long::sum);
+                        continue;
+                    }
+                    // ungrouped sums still arrive one row per currency and collapse into a single entry
+                    String key = Objects.isNull(dimension) ? "" : groupKey(dimension, row.getGroupKey());
+                    totals.merge(key, converted, BigDecimal::add);
+                    counts.merge(key, count, Long::sum);
+                }
+            }
+        } catch (DataAccessException ex) {
+            log.error("Database error while computing base-currency spend for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to compute spend for user " + userId, ex);
+        }
+
+        if (fromMillis < archivedBefore) {
+            for (ColdExpense expense : coldExpenseStore.find(userId, fromMillis, Math.min(toMillis, archivedBefore))) {
+                if (Objects.nonNull(expense.getDuplicateOf()) || Objects.nonNull(fundSourceFilter)
+                        && !fundSourceFilter.equals(SpendRollupService.fundSourceKey(expense.getFundSource()))) {
+                    continue;
+                }
+                BigDecimal converted = rates.convert(expense.getAmount(), expense.getCurrency(), base);
+                if (Objects.isNull(converted)) {
+                    String currency = Objects.requireNonNullElse(FxRateTable.normalize(expense.getCurrency()),
+                            String.valueOf(expense.getCurrency()));
+                    unconvertedTotals.merge(currency, expense.getAmount(), BigDecimal::add);
+                    unconvertedCounts.merge(currency, 1L, Long::sum);
+                    continue;
+                }
+                String key = Objects.isNull(dimension) ? "" : groupKey(dimension, switch (dimension) {
+                    case CATEGORY -> expense.getCategory();
+                    case MERCHANT -> expense.getMerchant();
+                    case FUND_SOURCE -> expense.getFundSource();
+                });
+                totals.merge(key, converted, BigDecimal::add);
+                counts.merge(key, 1L, Long::sum);
+            }
+        }
+
+        BigDecimal total = totals.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        long count = counts.values().stream().mapToLong(Long::longValue).sum();
+        List<SpendBucketDto> unconverted = new ArrayList<>();
+        unconvertedTotals.forEach((currency, amount) -> unconverted.add(SpendBucketDto.builder()
+                .key(currency)
+                .total(amount)
+                .count(unconvertedCounts.get(currency))
+                .build()));
+
+        BaseSpendResultDto.BaseSpendResultDtoBuilder result = BaseSpendResultDto.builder()
+                .from(from)
+                .to(to)
+                .fundSource(fundSourceFilter)
+                .baseCurrency(base)
+                .fxVersion(rates.version())
+                .fxAsOf(rates.asOf())
+                .total(total)
+                .count(count)
+                .unconverted(unconverted.isEmpty() ? null : unconverted);
+        if (Objects.nonNull(dimension)) {
+            result.groupBy(dimension.name().toLowerCase(Locale.ROOT))
+                    .groups(totals.entrySet().stream()
+                            .sorted(Map.Entry.<String, BigDecimal>comparingByValue().reversed())
+                            .map(e -> SpendBucketDto.builder()
+                                    .key(e.getKey())
+                                    .total(e.getValue())
+                                    .count(counts.get(e.getKey()))
+                                    .build())
+                            .toList());
+        }
+        return result.build();
+    }
+
+    private Map<String, SpendAggregate> groupInDatabase(String userId, SpendDimension dimension,
+                                                        long fromMillis, long toMillis, String fundSource) {
+        Timestamp from = new Timestamp(fromMillis);
+        Timestamp to = new Timestamp(toMillis);
+        List<SpendAggregateView> rows = switch (dimension) {
+            case CATEGORY -> expenseRepository.sumAmountByCategory(userId, from, to, fundSource);
+            case MERCHANT -> expenseRepository.sumAmountByMerchant(userId, from, to, fundSource);
+            case FUND_SOURCE -> expenseRepository.sumAmountByFundSource(userId, from, to, fundSource);
+        };
+
+        Map<String, SpendAggregate> groups = new LinkedHashMap<>();
+        for (SpendAggregateView row : rows) {
+            groups.merge(groupKey(dimension, row.getGroupKey()), toAggregate(row), SpendQueryService::merge);
+        }
+        return groups;
+    }
+
+    private static String groupKey(SpendDimension dimension, String value) {
+        return switch (dimension) {
+            case CATEGORY -> SpendRollupService.categoryKey(value);
+            case MERCHANT -> SpendRollupService.merchantKey(value);
+            case FUND_SOURCE -> SpendRollupService.fundSourceKey(value);
+        };
+    }
+
+    private static SpendAggregate merge(SpendAggregate a, SpendAggregate b) {
+        return new SpendAggregate(a.getTotalMinor() + b.getTotalMinor(), a.getCount() + b.getCount());
+    }
+
+    private static SpendAggregate toAggregate(SpendAggregateView view) {
+        BigDecimal total = Objects.nonNull(view.getTotal()) ? view.getTotal() : BigDecimal.ZERO;
+        long count = Objects.nonNull(view.getExpenseCount()) ? view.getExpenseCount() : 0L;
+        return new SpendAggregate(MinorUnits.of(total), count);
+    }
+}
@@ -0,0 +1,329 @@
+package com.nstrange.expenseservice.service;
+
+import com.nstrange.expenseservice.dto.SpendBucketDto;
+import com.nstrange.expenseservice.dto.SpendSummaryDto;
+import com.nstrange.expenseservice.entities.CategorySpendRollup;
+import com.nstrange.expenseservice.entities.DailySpendRollup;
+import com.nstrange.expenseservice.entities.MerchantSpendRollup;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.fx.FxRateTable;
+import com.nstrange.expenseservice.model.ExpenseSnapshot;
+import com.nstrange.expenseservice.repository.CategorySpendRollupRepository;
+import com.nstrange.expenseservice.repository.DailySpendRollupRepository;
+import com.nstrange.expenseservice.repository.MerchantSpendRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Maintains per-user spend rollups (daily, monthly per category, monthly per merchant) incrementally
+ * inside the transaction that writes the expense, so summaries are read in O(buckets). Every bucket is
+ * also keyed by the expenses' currency: amounts in different currencies are never added together.
+ */
+@Service
+public class SpendRollupService
+{
+
+    private static final Logger log = LoggerFactory.getLogger(SpendRollupService.class);
+
+    public static final String UNCATEGORIZED = "uncategorized";
+
+    public static final String UNKNOWN_MERCHANT = "unknown";
+
+    public static final String UNSPECIFIED_FUND_SOURCE = "unspecified";
+
+    public static final String UNKNOWN_CURRENCY = "unknown";
+
+    public static final ZoneId ROLLUP_ZONE = ZoneOffset.UTC;
+
+    private static final int DEFAULT_SUMMARY_MONTHS = 12;
+
+    private final CategorySpendRollupRepository categoryRollupRepository;
+
+    private final MerchantSpendRollupRepository merchantRollupRepository;
+
+    private final DailySpendRollupRepository dailyRollupRepository;
+
+    public SpendRollupService(CategorySpendRollupRepository categoryRollupRepository,
+                              MerchantSpendRollupRepository merchantRollupRepository,
+                              DailySpendRollupRepository dailyRollupRepository) {
+        this.categoryRollupRepository = categoryRollupRepository;
+        this.merchantRollupRepository = merchantRollupRepository;
+        this.dailyRollupRepository = dailyRollupRepository;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(ExpenseSnapshot snapshot) {
+        apply(snapshot, false);
+    }
+
+    /**
+     * Adds many new expenses, issuing one upsert per touched bucket rather than three per expense.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addAll(List<ExpenseSnapshot> snapshots) {
+        Map<List<Object>, BucketAccumulator> daily = new LinkedHashMap<>();
+        Map<List<Object>, BucketAccumulator> byCategory = new LinkedHashMap<>();
+        Map<List<Object>, BucketAccumulator> byMerchant = new LinkedHashMap<>();
+        for (ExpenseSnapshot snapshot : snapshots) {
+            if (!snapshot.isCounted()) {
+                continue;
+            }
+            BigDecimal amount = amountOf(snapshot);
+            String currency = currencyKey(snapshot.getCurrency());
+            LocalDate day = dayOf(snapshot.getCreatedAt());
+            LocalDate month = day.withDayOfMonth(1);
+            daily.computeIfAbsent(List.of(snapshot.getUserId(), day, currency), k -> new BucketAccumulator())
+                    .add(amount, 1);
+            byCategory.computeIfAbsent(List.of(snapshot.getUserId(), month, categoryKey(snapshot.getCategory()),
+                    currency), k -> new BucketAccumulator()).add(amount, 1);
+            byMerchant.computeIfAbsent(List.of(snapshot.getUserId(), month, merchantKey(snapshot.getMerchant()),
+                    currency), k -> new BucketAccumulator()).add(amount, 1);
+        }
+        daily.forEach((k, acc) -> dailyRollupRepository.addToBucket(
+                (String) k.get(0), (LocalDate) k.get(1), (String) k.get(2), acc.total, acc.count));
+        byCategory.forEach((k, acc) -> categoryRollupRepository.addToBucket(
+                (String) k.get(0), (LocalDate) k.get(1), (String) k.get(2), (String) k.get(3), acc.total, acc.count));
+        byMerchant.forEach((k, acc) -> merchantRollupRepository.addToBucket(
+                (String) k.get(0), (LocalDate) k.get(1), (String) k.get(2), (String) k.get(3), acc.total, acc.count));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void remove(ExpenseSnapshot snapshot) {
+        apply(snapshot, true);
+    }
+
+    /**
+     * Moves an expense's contribution from the buckets of {@code before} to those of {@code after}.
+     * When only the amount changed the buckets are adjusted in place by the difference.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void replace(ExpenseSnapshot before, ExpenseSnapshot after) {
+        boolean sameBuckets = before.isCounted() && after.isCounted()
+                && Objects.equals(before.getUserId(), after.getUserId())
+                && dayOf(before.getCreatedAt()).equals(dayOf(after.getCreatedAt()))
+                && currencyKey(before.getCurrency()).equals(currencyKey(after.getCurrency()))
+                && categoryKey(before.getCategory()).equals(categoryKey(after.getCategory()))
+                && merchantKey(before.getMerchant()).equals(merchantKey(after.getMerchant()));
+
+        if (!sameBuckets) {
+            remove(before);
+            add(after);
+            return;
+        }
+
+        BigDecimal delta = amountOf(after).subtract(amountOf(before));
+        if (delta.signum() == 0) {
+            return;
+        }
+        upsert(after.getUserId(), dayOf(after.getCreatedAt()), categoryKey(after.getCategory()),
+                merchantKey(after.getMerchant()), currencyKey(after.getCurrency()), delta, 0);
+    }
+
+    @Transactional(readOnly = true)
+    public SpendSummaryDto getSummary(String userId, String granularity, LocalDate from, LocalDate to) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+
+        SummaryGranularity resolved = SummaryGranularity.parse(granularity);
+        LocalDate end = Objects.nonNull(to) ? to : LocalDate.now(ROLLUP_ZONE);
+        LocalDate start = Objects.nonNull(from) ? from
+                : end.withDayOfMonth(1).minusMonths(DEFAULT_SUMMARY_MONTHS - 1L);
+        if (start.isAfter(end)) {
+            throw new InvalidExpenseRequestException("'from' must not be after 'to'");
+        }
+
+        LocalDate monthFrom = start.withDayOfMonth(1);
+        LocalDate monthTo = end.withDayOfMonth(1);
+
+        log.debug("Building {} spend summary for userId={} from={} to={}", resolved, userId, start, end);
+        try {
+            List<CategorySpendRollup> categories =
+                    categoryRollupRepository.findByUserIdAndMonthBetweenOrderByMonthAsc(userId, monthFrom, monthTo);
+            List<MerchantSpendRollup> merchants =
+                    merchantRollupRepository.findByUserIdAndMonthBetweenOrderByMonthAsc(userId, monthFrom, monthTo);
+
+            List<SpendBucketDto> series = resolved == SummaryGranularity.MONTH
+                    ? monthlySeries(categories)
+                    : dailySeries(userId, start, end, resolved);
+
+            Map<String, BucketAccumulator> byCurrency = new TreeMap<>();
+            long count = 0;
+            for (SpendBucketDto bucket : series) {
+                byCurrency.computeIfAbsent(bucket.getCurrency(), c -> new BucketAccumulator())
+                        .add(bucket.getTotal(), bucket.getCount());
+                count += bucket.getCount();
+            }
+            List<SpendBucketDto> totals = new ArrayList<>(byCurrency.size());
+            byCurrency.forEach((currency, acc) -> totals.add(bucket(null, null, currency, acc.total, acc.count)));
+
+            return SpendSummaryDto.builder()
+                    .granularity(resolved.name().toLowerCase(Locale.ROOT))
+                    .from(resolved == SummaryGranularity.MONTH ? monthFrom : start)
+                    .to(end)
+                    .totals(totals)
+                    .count(count)
+                    .series(series)
+                    .byCategory(categories.stream()
+                            .filter(r -> r.getExpenseCount() > 0)
+                            .sorted(Comparator.comparing(CategorySpendRollup::getMonth)
+                                    .thenComparing(CategorySpendRollup::getTotalAmount, Comparator.reverseOrder()))
+                            .map(r -> bucket(r.getMonth(), r.getCategory(), r.getCurrency(), r.getTotalAmount(),
+                                    r.getExpenseCount()))
+                            .toList())
+                    .byMerchant(merchants.stream()
+                            .filter(r -> r.getExpenseCount() > 0)
+                            .sorted(Comparator.comparing(MerchantSpendRollup::getMonth)
+                                    .thenComparing(MerchantSpendRollup::getTotalAmount, Comparator.reverseOrder()))
+                            .map(r -> bucket(r.getMonth(), r.getMerchant(), r.getCurrency(), r.getTotalAmount(),
+                                    r.getExpenseCount()))
+                            .toList())
+                    .build();
+        } catch (DataAccessException ex) {
+            log.error("Database error while building spend summary for userId={}", userId, ex);
+            throw new ExpenseServiceException("Failed to build spend summary for user " + userId, ex);
+        }
+    }
+
+    public static LocalDate dayOf(Timestamp createdAt) {
+        Timestamp effective = Objects.nonNull(createdAt) ? createdAt : new Timestamp(System.currentTimeMillis());
+        return effective.toInstant().atZone(ROLLUP_ZONE).toLocalDate();
+    }
+
+    public static String categoryKey(String category) {
+        return Objects.isNull(category) || category.isBlank() ? UNCATEGORIZED : category.trim();
+    }
+
+    public static String merchantKey(String merchant) {
+        return Objects.isNull(merchant) || merchant.isBlank() ? UNKNOWN_MERCHANT : merchant.trim();
+    }
+
+    /**
+     * The currency a bucket is keyed by: the expense's ISO code, or {@code unknown} if it has none.
+     */
+    public static String currencyKey(String currency) {
+        return Objects.requireNonNullElse(FxRateTable.normalize(currency), UNKNOWN_CURRENCY);
+    }
+
+    /**
+     * The fund source expenses are filtered and grouped by. The spend queries' SQL applies the same
+     * mapping ({@code coalesce(nullif(trim(fundSource), ''), 'unspecified')}), so a filter matches the
+     * same rows whichever path answers it.
+     */
+    public static String fundSourceKey(String fundSource) {
+        return Objects.isNull(fundSource) || fundSource.isBlank() ? UNSPECIFIED_FUND_SOURCE : fundSource.trim();
+    }
+
+    private void apply(ExpenseSnapshot snapshot, boolean reverse) {
+        if (!snapshot.isCounted()) {
+            return;
+        }
+        BigDecimal amount = amountOf(snapshot);
+        upsert(snapshot.getUserId(), dayOf(snapshot.getCreatedAt()), categoryKey(snapshot.getCategory()),
+                merchantKey(snapshot.getMerchant()), currencyKey(snapshot.getCurrency()),
+                reverse ? amount.negate() : amount, reverse ? -1 : 1);
+    }
+
+    private void upsert(String userId, LocalDate day, String category, String merchant, String currency,
+                        BigDecimal delta, long count) {
+        LocalDate month = day.withDayOfMonth(1);
+        dailyRollupRepository.addToBucket(userId, day, currency, delta, count);
+        categoryRollupRepository.addToBucket(userId, month, category, currency, delta, count);
+        merchantRollupRepository.addToBucket(userId, month, merchant, currency, delta, count);
+    }
+
+    private List<SpendBucketDto> monthlySeries(List<CategorySpendRollup> categories) {
+        Map<LocalDate, Map<String, BucketAccumulator>> byMonth = new TreeMap<>();
+        for (CategorySpendRollup rollup : categories) {
+            byMonth.computeIfAbsent(rollup.getMonth(), m -> new TreeMap<>())
+                    .computeIfAbsent(rollup.getCurrency(), c -> new BucketAccumulator())
+                    .add(rollup.getTotalAmount(), rollup.getExpenseCount());
+        }
+        return toSeries(byMonth);
+    }
+
+    private List<SpendBucketDto> dailySeries(String userId, LocalDate from, LocalDate to, SummaryGranularity granularity) {
+        Map<LocalDate, Map<String, BucketAccumulator>> byPeriod = new TreeMap<>();
+        for (DailySpendRollup rollup : dailyRollupRepository.findByUserIdAndDayBetweenOrderByDayAsc(userId, from, to)) {
+            LocalDate period = granularity == SummaryGranularity.WEEK
+                    ? rollup.getDay().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                    : rollup.getDay();
+            byPeriod.computeIfAbsent(period, p -> new TreeMap<>())
+                    .computeIfAbsent(rollup.getCurrency(), c -> new BucketAccumulator())
+                    .add(rollup.getTotalAmount(), rollup.getExpenseCount());
+        }
+        return toSeries(byPeriod);
+    }
+
+    /** One bucket per period and currency, periods in order and currencies alphabetical within each. */
+    private List<SpendBucketDto> toSeries(Map<LocalDate, Map<String, BucketAccumulator>> periods) {
+        List<SpendBucketDto> series = new ArrayList<>(periods.size());
+        periods.forEach((period, byCurrency) -> byCurrency.forEach((currency, acc) -> {
+            if (acc.count > 0) {
+                series.add(bucket(period, null, currency, acc.total, acc.count));
+            }
+        }));
+        return series;
+    }
+
+    private static SpendBucketDto bucket(LocalDate periodStart, String key, String currency, BigDecimal total,
+                                         long count) {
+        return SpendBucketDto.builder()
+                .periodStart(periodStart)
+                .key(key)
+                .currency(currency)
+                .total(total)
+                .count(count)
+                .build();
+    }
+
+    private static BigDecimal amountOf(ExpenseSnapshot snapshot) {
+        return Objects.nonNull(snapshot.getAmount()) ? snapshot.getAmount() : BigDecimal.ZERO;
+    }
+
+    private static final class BucketAccumulator {
+        private BigDecimal total = BigDecimal.ZERO;
+        private long count;
+
+        private void add(BigDecimal amount, long expenses) {
+            total = total.add(amount);
+            count += expenses;
+        }
+    }
+
+    private enum SummaryGranularity {
+        DAY, WEEK, MONTH;
+
+        private static SummaryGranularity parse(String value) {
+            if (Objects.isNull(value) || value.isBlank()) {
+                return MONTH;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new InvalidExpenseRequestException("Unsupported granularity '" + value + "', expected day, week or month");
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.nstrange.expenseservice.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring over shard names. Each shard owns {@code virtualNodes} points, so adding a
+ * shard to N existing ones moves roughly 1/(N+1) of the users and takes them evenly from every shard.
+ */
+final class ConsistentHashRing
+{
+
+    private final TreeMap<Long, String> points = new TreeMap<>();
+
+    ConsistentHashRing(Collection<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one shard");
+        }
+        for (String shard : shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // on the rare collision the later shard wins; the ring stays deterministic either way
+                points.put(hash(shard + "#" + i), shard);
+            }
+        }
+    }
+
+    String shardFor(String key) {
+        Map.Entry<Long, String> owner = points.ceilingEntry(hash(key));
+        return (owner != null ? owner : points.firstEntry()).getValue();
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes followed by the murmur3 finalizer, which spreads the short,
+     * similar strings that user ids and virtual node names tend to be.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,97 @@
+package com.nstrange.expenseservice.sharding;
+
+import com.nstrange.expenseservice.dto.ShardStatsDto;
+import com.nstrange.expenseservice.dto.UserShardDto;
+import com.nstrange.expenseservice.entities.UserShardPin;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Cross-shard admin queries, scatter-gathered over every shard in parallel.
+ */
+@Service
+public class ShardAdminService
+{
+
+    private static final String SHARD_STATS_SQL =
+            "SELECT COUNT(*), COUNT(DISTINCT user_id) FROM expense WHERE deleted_at IS NULL";
+
+    private static final String USER_EXPENSES_SQL =
+            "SELECT COUNT(*) FROM expense WHERE user_id = ? AND deleted_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Shards shards;
+
+    private final UserShardResolver resolver;
+
+    private final Set<String> ringShards;
+
+    public ShardAdminService(JdbcTemplate jdbcTemplate, Shards shards, UserShardResolver resolver,
+                             ShardingProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.resolver = resolver;
+        this.ringShards = properties.getShards().stream()
+                .filter(ShardingProperties.Shard::isInRing)
+                .map(ShardingProperties.Shard::getName)
+                .collect(Collectors.toSet());
+    }
+
+    public List<ShardStatsDto> shardStats() {
+        Map<String, long[]> counts;
+        try {
+            counts = shards.gather(shard -> jdbcTemplate.queryForObject(SHARD_STATS_SQL,
+                    (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)}));
+        } catch (DataAccessException ex) {
+            throw new ExpenseServiceException("Failed to collect shard statistics", ex);
+        }
+        List<ShardStatsDto> stats = new ArrayList<>(counts.size());
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+            String shard = entry.getKey();
+            stats.add(ShardStatsDto.builder()
+                    .shard(shard)
+                    .directory(!shards.isSharded() || shard.equals(resolver.directoryShard()))
+                    .inRing(!shards.isSharded() || ringShards.contains(shard))
+                    .expenses(entry.getValue()[0])
+                    .users(entry.getValue()[1])
+                    .build());
+        }
+        return stats;
+    }
+
+    /**
+     * Where a user is served from, and how many live expenses each shard holds for them; more than one
+     * non-zero count means a move left rows behind.
+     */
+    public UserShardDto userShard(String userId) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        Map<String, Long> expensesByShard;
+        try {
+            expensesByShard = shards.gather(shard -> jdbcTemplate.queryForObject(USER_EXPENSES_SQL, Long.class, userId));
+        } catch (DataAccessException ex) {
+            throw new ExpenseServiceException("Failed to locate user " + userId + " across shards", ex);
+        }
+        UserShardPin pin = resolver.pinFor(userId);
+        return UserShardDto.builder()
+                .userId(userId)
+                .shard(shards.isSharded() ? resolver.locate(userId) : Shards.UNSHARDED)
+                .ringShard(shards.isSharded() ? resolver.ringShardFor(userId) : Shards.UNSHARDED)
+                .pinned(Objects.nonNull(pin))
+                .moving(Objects.nonNull(pin) && pin.isMoving())
+                .expensesByShard(expensesByShard)
+                .build();
+    }
+}
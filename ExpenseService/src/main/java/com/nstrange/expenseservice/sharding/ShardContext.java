@@ -0,0 +1,51 @@
+package com.nstrange.expenseservice.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard the current thread reads from and writes to. {@link ShardRoutingDataSource} picks its pool
+ * from here when a connection is opened, so the shard must be set before a transaction starts; a
+ * {@code null} shard means the directory (first configured) shard, or simply the one datasource when
+ * sharding is off.
+ */
+public final class ShardContext
+{
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static void set(String shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static <T> T callOn(String shard, Supplier<T> action) {
+        String previous = CURRENT.get();
+        set(shard);
+        try {
+            return action.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    public static void runOn(String shard, Runnable action) {
+        callOn(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package com.nstrange.expenseservice.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Routes each new connection to the pool of {@link ShardContext#current()}, or to the directory shard
+ * when no shard is set. Unknown shard names fail instead of silently landing on the directory shard.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable
+{
+
+    private final Map<String, DataSource> pools;
+
+    ShardRoutingDataSource(Map<String, DataSource> pools, String directoryShard) {
+        this.pools = pools;
+        setTargetDataSources(Map.copyOf(pools));
+        setDefaultTargetDataSource(pools.get(directoryShard));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource pool : pools.values()) {
+            if (pool instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
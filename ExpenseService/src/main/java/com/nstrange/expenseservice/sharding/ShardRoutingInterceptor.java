@@ -0,0 +1,42 @@
+package com.nstrange.expenseservice.sharding;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.Objects;
+
+/**
+ * Sets {@link ShardContext} from {@code X-User-ID} before the controller opens any transaction.
+ */
+class ShardRoutingInterceptor implements AsyncHandlerInterceptor
+{
+
+    private static final String USER_HEADER = "X-User-ID";
+
+    private final UserShardResolver resolver;
+
+    ShardRoutingInterceptor(UserShardResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String userId = request.getHeader(USER_HEADER);
+        if (Objects.nonNull(userId) && !userId.isBlank()) {
+            ShardContext.set(resolver.shardFor(userId));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ShardContext.clear();
+    }
+
+    /** Streaming responses skip {@code afterCompletion} on this thread; clear before it serves another request. */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ShardContext.clear();
+    }
+}
@@ -0,0 +1,81 @@
+package com.nstrange.expenseservice.sharding;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Objects;
+
+/**
+ * Hibernate's {@code ddl-auto=update} runs once, against whatever connection it gets at bootstrap,
+ * which is the directory shard. This repeats the same schema update on every other shard before
+ * the Kafka listeners and schedulers start.
+ */
+@Component
+@ConditionalOnProperty(name = "expense.sharding.enabled", havingValue = "true")
+public class ShardSchemaSynchronizer
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSchemaSynchronizer.class);
+
+    static final MetadataCapture METADATA = new MetadataCapture();
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final ShardingProperties properties;
+
+    private final String ddlAuto;
+
+    public ShardSchemaSynchronizer(EntityManagerFactory entityManagerFactory, ShardingProperties properties,
+                                   @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.properties = properties;
+        this.ddlAuto = ddlAuto;
+    }
+
+    @PostConstruct
+    void synchronize() {
+        if (!"update".equalsIgnoreCase(ddlAuto)) {
+            return;
+        }
+        Metadata metadata = METADATA.metadata;
+        if (Objects.isNull(metadata)) {
+            log.warn("Hibernate metadata was not captured; shards other than the directory shard keep their schema");
+            return;
+        }
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        for (ShardingProperties.Shard shard : properties.getShards().subList(1, properties.getShards().size())) {
+            ShardContext.runOn(shard.getName(), () -> new SchemaUpdate()
+                    .setHaltOnError(true)
+                    .execute(EnumSet.of(TargetType.DATABASE), metadata, sessionFactory.getServiceRegistry()));
+            log.info("Updated schema on shard {}", shard.getName());
+        }
+    }
+
+    static final class MetadataCapture implements Integrator {
+
+        private volatile Metadata metadata;
+
+        @Override
+        public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                              SessionFactoryImplementor sessionFactory) {
+            this.metadata = metadata;
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+    }
+}
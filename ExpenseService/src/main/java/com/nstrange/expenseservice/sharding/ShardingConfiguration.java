@@ -0,0 +1,71 @@
+package com.nstrange.expenseservice.sharding;
+
+import com.nstrange.expenseservice.replica.ReplicaProperties;
+import com.nstrange.expenseservice.replica.ReplicatedDataSource;
+import com.nstrange.expenseservice.replica.WriteStickiness;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * With {@code expense.sharding.enabled=true} the application datasource becomes a
+ * {@link ShardRoutingDataSource} over one Hikari pool per configured shard, and Spring Boot's own
+ * {@code spring.datasource.*} pool is not created. With {@code expense.replicas.enabled=true}, a shard
+ * that lists replicas is served by a {@link ReplicatedDataSource} over its pool and theirs.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfiguration
+{
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "expense.sharding.enabled", havingValue = "true")
+    public ShardRoutingDataSource shardRoutingDataSource(ShardingProperties properties,
+                                                         ReplicaProperties replicaProperties,
+                                                         WriteStickiness stickiness) {
+        List<ShardingProperties.Shard> shards = properties.getShards();
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("expense.sharding.enabled=true needs at least one expense.sharding.shards entry");
+        }
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        Set<String> names = new HashSet<>();
+        for (ShardingProperties.Shard shard : shards) {
+            if (Objects.isNull(shard.getName()) || shard.getName().isBlank() || !names.add(shard.getName())) {
+                throw new IllegalStateException("Every shard needs a unique name, got '" + shard.getName() + "'");
+            }
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("expense-shard-" + shard.getName());
+            config.setJdbcUrl(shard.getUrl());
+            config.setUsername(shard.getUsername());
+            config.setPassword(shard.getPassword());
+            config.setMaximumPoolSize(shard.getMaxPoolSize());
+            HikariDataSource pool = new HikariDataSource(config);
+            pools.put(shard.getName(), replicaProperties.isEnabled() && !shard.getReplicas().isEmpty()
+                    ? new ReplicatedDataSource(shard.getName(), pool, shard.getReplicas(), stickiness)
+                    : pool);
+        }
+        return new ShardRoutingDataSource(pools, shards.get(0).getName());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "expense.sharding.enabled", havingValue = "true")
+    public HibernatePropertiesCustomizer shardMetadataCustomizer() {
+        return properties -> properties.put("hibernate.integrator_provider",
+                (IntegratorProvider) () -> List.of(ShardSchemaSynchronizer.METADATA));
+    }
+}
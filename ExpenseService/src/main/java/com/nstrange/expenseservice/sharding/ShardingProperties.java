@@ -0,0 +1,62 @@
+package com.nstrange.expenseservice.sharding;
+
+import com.nstrange.expenseservice.replica.ReplicaProperties;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code expense.sharding.*}. The first shard is the directory shard: it holds the user pins written
+ * by {@link UserShardMover} and serves requests that carry no user.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "expense.sharding")
+public class ShardingProperties
+{
+
+    private boolean enabled;
+
+    private int virtualNodes = 512;
+
+    private long directoryRefreshMs = 5000;
+
+    /** How long a move waits after marking users as moving, so every instance sees the mark and drains. */
+    private long moveSettleMs = 15000;
+
+    /** How long background writers wait for a moving user before giving up. */
+    private long moveWaitMs = 30000;
+
+    private int copyBatchSize = 500;
+
+    private int reshardBatchSize = 100;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Shard {
+
+        private String name;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maxPoolSize = 10;
+
+        /**
+         * Whether users hash onto this shard. A new shard starts outside the ring, is filled by
+         * {@code POST /expense/v1/admin/reshard}, and joins the ring once that finishes.
+         */
+        private boolean inRing = true;
+
+        /** Read replicas of this shard, used while {@code expense.replicas.enabled=true}. */
+        private List<ReplicaProperties.Node> replicas = new ArrayList<>();
+    }
+}
@@ -0,0 +1,27 @@
+package com.nstrange.expenseservice.sharding;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Kept apart from {@link ShardingConfiguration}: the resolver needs JPA, which needs the datasource
+ * defined there.
+ */
+@Configuration
+public class ShardingWebConfig implements WebMvcConfigurer
+{
+
+    private final UserShardResolver resolver;
+
+    public ShardingWebConfig(UserShardResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (resolver.isEnabled()) {
+            registry.addInterceptor(new ShardRoutingInterceptor(resolver)).addPathPatterns("/expense/v1/**");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.nstrange.expenseservice.sharding;
+
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs work that is not about one user on every shard: maintenance jobs one shard after another,
+ * admin queries scatter-gathered in parallel. With sharding off there is a single unnamed shard.
+ */
+@Component
+public class Shards
+{
+
+    public static final String UNSHARDED = "default";
+
+    private final List<String> names;
+
+    private final ExecutorService gatherPool;
+
+    public Shards(ShardingProperties properties) {
+        this.names = properties.isEnabled()
+                ? properties.getShards().stream().map(ShardingProperties.Shard::getName).toList()
+                : List.of();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.gatherPool = Executors.newFixedThreadPool(Math.max(1, names.size()), r -> {
+            Thread thread = new Thread(r, "shard-gather-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isSharded() {
+        return !names.isEmpty();
+    }
+
+    /** Configured shard names, directory shard first; empty when sharding is off. */
+    public List<String> names() {
+        return names;
+    }
+
+    /**
+     * Runs {@code action} with {@link ShardContext} set to each shard in turn; the argument is the
+     * shard name, or {@code null} when unsharded.
+     */
+    public void forEach(Consumer<String> action) {
+        if (names.isEmpty()) {
+            action.accept(null);
+            return;
+        }
+        for (String shard : names) {
+            ShardContext.runOn(shard, () -> action.accept(shard));
+        }
+    }
+
+    /**
+     * Runs {@code query} on every shard in parallel and returns the results by shard name, in shard order.
+     */
+    public <T> Map<String, T> gather(Function<String, T> query) {
+        Map<String, T> results = new LinkedHashMap<>();
+        if (names.isEmpty()) {
+            results.put(UNSHARDED, query.apply(null));
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(names.size());
+        for (String shard : names) {
+            futures.add(gatherPool.submit(() -> ShardContext.callOn(shard, () -> query.apply(shard))));
+        }
+        for (int i = 0; i < names.size(); i++) {
+            try {
+                results.put(names.get(i), futures.get(i).get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new ExpenseServiceException("Interrupted while querying shards", ex);
+            } catch (ExecutionException ex) {
+                futures.forEach(future -> future.cancel(true));
+                throw new ExpenseServiceException("Query failed on shard " + names.get(i), ex.getCause());
+            }
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        gatherPool.shutdownNow();
+    }
+}
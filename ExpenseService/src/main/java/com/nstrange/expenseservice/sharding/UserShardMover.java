@@ -0,0 +1,514 @@
+package com.nstrange.expenseservice.sharding;
+
+import com.nstrange.expenseservice.cache.ColumnarExpenseCache;
+import com.nstrange.expenseservice.coldstorage.ColdExpenseStore;
+import com.nstrange.expenseservice.dto.ReshardStatusDto;
+import com.nstrange.expenseservice.dto.UserMoveResultDto;
+import com.nstrange.expenseservice.entities.UserShardPin;
+import com.nstrange.expenseservice.exception.ExpenseServiceException;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.UserShardPinRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Moves users between shards while the service keeps running:
+ * <ol>
+ *   <li>the users are pinned to their current shard as moving; once every instance has refreshed its
+ *   pins their requests get a 503 and background writers wait, so after {@code move-settle-ms}
+ *   nothing writes them any more</li>
+ *   <li>each user's rows in every per-user table are copied to the target in one transaction</li>
+ *   <li>the users are pinned to the target, which is where they are served from from then on</li>
+ *   <li>the rows are deleted from the source</li>
+ * </ol>
+ * Expense ids are per shard, so copied expenses get new ids; their {@code updated_at} is bumped so
+ * delta-sync clients fetch them again under the new ids. Users with months in cold storage are not
+ * moved, since segments are per shard.
+ */
+@Service
+public class UserShardMover
+{
+
+    private static final Logger log = LoggerFactory.getLogger(UserShardMover.class);
+
+    private static final String EXPENSE_TABLE = "expense";
+
+    private static final String IDEMPOTENCY_KEY_TABLE = "expense_idempotency_key";
+
+    /** Every table keyed by user_id, parents first so ids can be remapped on the way. */
+    private static final List<String> USER_TABLES = List.of(EXPENSE_TABLE, IDEMPOTENCY_KEY_TABLE,
+            "expense_daily_rollup", "expense_category_rollup", "expense_merchant_rollup",
+            "budget", "budget_spend_checkpoint", "user_merchant_category", "expense_receipt",
+            "user_base_currency", "detected_recurrence", "expense_schedule");
+
+    private final ShardingProperties properties;
+
+    private final Shards shards;
+
+    private final UserShardResolver resolver;
+
+    private final UserShardPinRepository pinRepository;
+
+    private final DataSource dataSource;
+
+    private final ColdExpenseStore coldExpenseStore;
+
+    private final ColumnarExpenseCache columnarCache;
+
+    private final Object moveLock = new Object();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "shard-reshard");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean reshardRunning = new AtomicBoolean();
+
+    private volatile String reshardShard;
+
+    private volatile long scanned;
+
+    private volatile long moved;
+
+    private volatile long skipped;
+
+    private volatile long failed;
+
+    private volatile Instant startedAt;
+
+    private volatile Instant finishedAt;
+
+    private volatile String error;
+
+    public UserShardMover(ShardingProperties properties, Shards shards, UserShardResolver resolver,
+                          UserShardPinRepository pinRepository, DataSource dataSource,
+                          ColdExpenseStore coldExpenseStore, ColumnarExpenseCache columnarCache) {
+        this.properties = properties;
+        this.shards = shards;
+        this.resolver = resolver;
+        this.pinRepository = pinRepository;
+        this.dataSource = dataSource;
+        this.coldExpenseStore = coldExpenseStore;
+        this.columnarCache = columnarCache;
+    }
+
+    /**
+     * Moves one user, blocking for the settle delay and the copy.
+     */
+    public UserMoveResultDto move(String userId, String target) {
+        requireEnabled();
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        if (!shards.names().contains(target)) {
+            throw new InvalidExpenseRequestException("Unknown shard '" + target + "', expected one of " + shards.names());
+        }
+        String source = resolver.locate(userId);
+        if (target.equals(source)) {
+            return result(userId, source, target, UserMoveResultDto.Status.SKIPPED, 0L, "User is already on " + target);
+        }
+        return moveBatch(source, target, List.of(userId)).get(0);
+    }
+
+    /**
+     * Starts moving every user whose shard differs from their place on a ring over all configured
+     * shards, {@code in-ring} or not. Afterwards the new shards can join the ring without moving anyone.
+     *
+     * @return {@code false} if a run is already in progress
+     */
+    public boolean startReshard() {
+        requireEnabled();
+        if (!reshardRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        reshardShard = null;
+        scanned = 0;
+        moved = 0;
+        skipped = 0;
+        failed = 0;
+        error = null;
+        finishedAt = null;
+        startedAt = Instant.now();
+        executor.execute(this::reshard);
+        return true;
+    }
+
+    public ReshardStatusDto reshardStatus() {
+        return ReshardStatusDto.builder()
+                .running(reshardRunning.get())
+                .shard(reshardShard)
+                .scanned(scanned)
+                .moved(moved)
+                .skipped(skipped)
+                .failed(failed)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .error(error)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void reshard() {
+        ConsistentHashRing targetRing = new ConsistentHashRing(shards.names(), properties.getVirtualNodes());
+        log.info("Starting resharding onto shards {}", shards.names());
+        try {
+            for (String shard : shards.names()) {
+                reshardShard = shard;
+                reshard(shard, targetRing);
+            }
+            log.info("Resharding finished: scanned={} moved={} skipped={} failed={}", scanned, moved, skipped, failed);
+        } catch (SQLException | RuntimeException ex) {
+            error = ex.getMessage();
+            log.error("Resharding failed on shard={}", reshardShard, ex);
+        } finally {
+            finishedAt = Instant.now();
+            reshardRunning.set(false);
+        }
+    }
+
+    private void reshard(String source, ConsistentHashRing targetRing) throws SQLException {
+        Map<String, List<String>> byTarget = new LinkedHashMap<>();
+        for (String userId : usersOn(source)) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new ExpenseServiceException("Resharding interrupted", new InterruptedException());
+            }
+            scanned++;
+            String target = targetRing.shardFor(userId);
+            // rows left behind on a shard the user no longer lives on are not the user's data
+            if (target.equals(source) || !source.equals(resolver.locate(userId))) {
+                continue;
+            }
+            List<String> batch = byTarget.computeIfAbsent(target, key -> new ArrayList<>());
+            batch.add(userId);
+            if (batch.size() >= properties.getReshardBatchSize()) {
+                count(moveBatch(source, target, List.copyOf(batch)));
+                batch.clear();
+            }
+        }
+        for (Map.Entry<String, List<String>> batch : byTarget.entrySet()) {
+            if (!batch.getValue().isEmpty()) {
+                count(moveBatch(source, batch.getKey(), batch.getValue()));
+            }
+        }
+    }
+
+    private void count(List<UserMoveResultDto> results) {
+        for (UserMoveResultDto result : results) {
+            switch (result.getStatus()) {
+                case MOVED -> moved++;
+                case SKIPPED -> skipped++;
+                case FAILED -> failed++;
+            }
+        }
+    }
+
+    private List<UserMoveResultDto> moveBatch(String source, String target, List<String> userIds) {
+        synchronized (moveLock) {
+            List<UserMoveResultDto> results = new ArrayList<>(userIds.size());
+            List<String> movable = new ArrayList<>(userIds.size());
+            for (String userId : userIds) {
+                UserShardPin pin = ShardContext.callOn(resolver.directoryShard(),
+                        () -> ReadRoutingContext.callOnPrimary(() -> pinRepository.findById(userId).orElse(null)));
+                if (Objects.nonNull(pin) && pin.isMoving()) {
+                    results.add(result(userId, source, target, UserMoveResultDto.Status.SKIPPED, 0L,
+                            "Another move of this user is in progress"));
+                } else if (hasColdRows(source, userId)) {
+                    results.add(result(userId, source, target, UserMoveResultDto.Status.SKIPPED, 0L,
+                            "User has archived months in cold storage on " + source));
+                } else {
+                    movable.add(userId);
+                }
+            }
+            if (movable.isEmpty()) {
+                return results;
+            }
+
+            pin(movable, source, true);
+            try {
+                Thread.sleep(properties.getMoveSettleMs());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                pin(movable, source, false);
+                throw new ExpenseServiceException("Interrupted while moving users off " + source, ex);
+            }
+
+            List<String> copied = new ArrayList<>(movable.size());
+            List<String> notCopied = new ArrayList<>();
+            for (String userId : movable) {
+                try {
+                    long rows = copyUser(source, target, userId);
+                    copied.add(userId);
+                    results.add(result(userId, source, target, UserMoveResultDto.Status.MOVED, rows, null));
+                } catch (SQLException | RuntimeException ex) {
+                    log.error("Failed to copy userId={} from shard {} to {}", userId, source, target, ex);
+                    notCopied.add(userId);
+                    results.add(result(userId, source, target, UserMoveResultDto.Status.FAILED, 0L, ex.getMessage()));
+                }
+            }
+            pin(copied, target, false);
+            pin(notCopied, source, false);
+
+            for (String userId : copied) {
+                columnarCache.evict(userId);
+                try {
+                    deleteUser(source, userId);
+                } catch (SQLException | RuntimeException ex) {
+                    // harmless: nothing reads them, and they are cleared if the user ever moves back
+                    log.error("Moved userId={} to shard {} but failed to delete its rows from {}", userId, target, source, ex);
+                }
+            }
+            log.info("Moved {} of {} users from shard {} to {}", copied.size(), userIds.size(), source, target);
+            return results;
+        }
+    }
+
+    private void pin(List<String> userIds, String shard, boolean moving) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<UserShardPin> pins = userIds.stream()
+                .map(userId -> new UserShardPin(userId, shard, moving, now))
+                .toList();
+        ShardContext.runOn(resolver.directoryShard(), () -> pinRepository.saveAll(pins));
+        resolver.remember(pins);
+    }
+
+    private boolean hasColdRows(String shard, String userId) {
+        return coldExpenseStore.isEnabled() && ShardContext.callOn(shard,
+                () -> !coldExpenseStore.find(userId, Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+    }
+
+    private long copyUser(String source, String target, String userId) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (Connection from = connectionOn(source); Connection to = connectionOn(target)) {
+            to.setAutoCommit(false);
+            try {
+                for (String table : USER_TABLES) {
+                    try (PreparedStatement statement = to.prepareStatement("DELETE FROM " + table + " WHERE user_id = ?")) {
+                        statement.setString(1, userId);
+                        statement.executeUpdate();
+                    }
+                }
+                Map<Long, Long> expenseIds = new HashMap<>();
+                long rows = 0L;
+                for (String table : USER_TABLES) {
+                    rows += copyTable(from, to, table, userId, expenseIds, now);
+                }
+                to.commit();
+                return rows;
+            } catch (SQLException | RuntimeException ex) {
+                to.rollback();
+                throw ex;
+            } finally {
+                to.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Copies one table's rows for the user, leaving out the surrogate {@code id} so the target assigns
+     * its own. Expense ids are recorded old to new and applied to {@code expense_idempotency_key}.
+     */
+    private long copyTable(Connection from, Connection to, String table, String userId,
+                           Map<Long, Long> expenseIds, Timestamp now) throws SQLException {
+        boolean expenses = EXPENSE_TABLE.equals(table);
+        boolean remapExpenseId = IDEMPOTENCY_KEY_TABLE.equals(table);
+        try (PreparedStatement select = from.prepareStatement("SELECT * FROM " + table + " WHERE user_id = ?",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stream(from, select);
+            select.setString(1, userId);
+            try (ResultSet rows = select.executeQuery()) {
+                ResultSetMetaData meta = rows.getMetaData();
+                int idColumn = 0;
+                int expenseIdColumn = 0;
+                int updatedAtColumn = 0;
+                List<Integer> columns = new ArrayList<>();
+                List<String> names = new ArrayList<>();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    String name = meta.getColumnLabel(i).toLowerCase(Locale.ROOT);
+                    switch (name) {
+                        case "id" -> idColumn = i;
+                        case "expense_id" -> expenseIdColumn = i;
+                        case "updated_at" -> updatedAtColumn = i;
+                        default -> { }
+                    }
+                    if (i != idColumn) {
+                        columns.add(i);
+                        names.add(name);
+                    }
+                }
+                String insert = "INSERT INTO " + table + " (" + String.join(", ", names) + ") VALUES ("
+                        + names.stream().map(name -> "?").collect(Collectors.joining(", ")) + ")";
+
+                long copied = 0L;
+                List<Long> pendingIds = new ArrayList<>();
+                try (PreparedStatement statement = expenses
+                        ? to.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)
+                        : to.prepareStatement(insert)) {
+                    while (rows.next()) {
+                        if (remapExpenseId && !expenseIds.containsKey(rows.getLong(expenseIdColumn))) {
+                            // the expense was archived out of the table; its key has nothing left to guard
+                            continue;
+                        }
+                        for (int p = 0; p < columns.size(); p++) {
+                            int column = columns.get(p);
+                            Object value;
+                            if (remapExpenseId && column == expenseIdColumn) {
+                                value = expenseIds.get(rows.getLong(column));
+                            } else if (expenses && column == updatedAtColumn) {
+                                value = now;
+                            } else {
+                                value = rows.getObject(column);
+                            }
+                            statement.setObject(p + 1, value);
+                        }
+                        statement.addBatch();
+                        if (expenses) {
+                            pendingIds.add(rows.getLong(idColumn));
+                        }
+                        if (++copied % properties.getCopyBatchSize() == 0) {
+                            flush(statement, pendingIds, expenseIds);
+                        }
+                    }
+                    flush(statement, pendingIds, expenseIds);
+                }
+                return copied;
+            }
+        }
+    }
+
+    private static void flush(PreparedStatement statement, List<Long> pendingIds, Map<Long, Long> expenseIds)
+            throws SQLException {
+        statement.executeBatch();
+        if (pendingIds.isEmpty()) {
+            return;
+        }
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            for (Long oldId : pendingIds) {
+                if (!keys.next()) {
+                    throw new SQLException("Missing generated id for copied expense " + oldId);
+                }
+                expenseIds.put(oldId, keys.getLong(1));
+            }
+        }
+        pendingIds.clear();
+    }
+
+    /**
+     * Deletes the user's rows in {@code id} ranges of at most one copy batch, so each delete's locks stay
+     * short on a shard that is still serving. Plain range predicates keep this portable across MySQL and H2.
+     */
+    private void deleteUser(String shard, String userId) throws SQLException {
+        try (Connection connection = connectionOn(shard)) {
+            for (String table : USER_TABLES) {
+                try (PreparedStatement chunk = connection.prepareStatement(
+                        "SELECT id FROM " + table + " WHERE user_id = ? AND id > ? ORDER BY id");
+                     PreparedStatement delete = connection.prepareStatement(
+                             "DELETE FROM " + table + " WHERE user_id = ? AND id > ? AND id <= ?")) {
+                    chunk.setMaxRows(properties.getCopyBatchSize());
+                    long afterId = Long.MIN_VALUE;
+                    while (true) {
+                        chunk.setString(1, userId);
+                        chunk.setLong(2, afterId);
+                        long lastId = afterId;
+                        try (ResultSet ids = chunk.executeQuery()) {
+                            while (ids.next()) {
+                                lastId = ids.getLong(1);
+                            }
+                        }
+                        if (lastId == afterId) {
+                            break;
+                        }
+                        delete.setString(1, userId);
+                        delete.setLong(2, afterId);
+                        delete.setLong(3, lastId);
+                        delete.executeUpdate();
+                        afterId = lastId;
+                    }
+                }
+            }
+        }
+    }
+
+    private List<String> usersOn(String shard) throws SQLException {
+        String sql = USER_TABLES.stream()
+                .map(table -> "SELECT user_id FROM " + table)
+                .collect(Collectors.joining(" UNION "));
+        List<String> users = new ArrayList<>();
+        try (Connection connection = connectionOn(shard);
+             PreparedStatement statement = connection.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stream(connection, statement);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    users.add(rows.getString(1));
+                }
+            }
+        }
+        return users;
+    }
+
+    private Connection connectionOn(String shard) throws SQLException {
+        String previous = ShardContext.current();
+        ShardContext.set(shard);
+        try {
+            return dataSource.getConnection();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    private void stream(Connection connection, PreparedStatement statement) throws SQLException {
+        // Connector/J only streams with this fetch size; other drivers take the batch size as a hint
+        boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+        statement.setFetchSize(mysql ? Integer.MIN_VALUE : properties.getCopyBatchSize());
+    }
+
+    private void requireEnabled() {
+        if (!resolver.isEnabled()) {
+            throw new InvalidExpenseRequestException("Sharding is not enabled (expense.sharding.enabled=false)");
+        }
+    }
+
+    private static UserMoveResultDto result(String userId, String source, String target,
+                                            UserMoveResultDto.Status status, long rows, String message) {
+        return UserMoveResultDto.builder()
+                .userId(userId)
+                .fromShard(source)
+                .toShard(target)
+                .status(status)
+                .rowsCopied(rows)
+                .message(message)
+                .build();
+    }
+}
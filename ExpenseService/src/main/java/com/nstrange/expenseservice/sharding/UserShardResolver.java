@@ -0,0 +1,170 @@
+package com.nstrange.expenseservice.sharding;
+
+import com.nstrange.expenseservice.entities.UserShardPin;
+import com.nstrange.expenseservice.exception.UserShardMovingException;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.UserShardPinRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Maps a user to a shard: a pin from {@code user_shard_pin} on the directory shard if there is one,
+ * otherwise the consistent hash ring over the {@code in-ring} shards. Pins are cached and refreshed
+ * incrementally, so a lookup never touches the database. When sharding is off every user maps to
+ * {@code null}, which leaves {@link ShardContext} empty.
+ */
+@Component
+public class UserShardResolver
+{
+
+    private static final Logger log = LoggerFactory.getLogger(UserShardResolver.class);
+
+    // tolerates clock skew between the instances that write updated_at
+    private static final long REFRESH_OVERLAP_MS = 60_000L;
+
+    private static final long MOVE_POLL_MS = 250L;
+
+    private final ShardingProperties properties;
+
+    private final UserShardPinRepository pinRepository;
+
+    private final ConsistentHashRing ring;
+
+    private final ConcurrentHashMap<String, UserShardPin> pins = new ConcurrentHashMap<>();
+
+    private volatile long refreshedUpTo;
+
+    public UserShardResolver(ShardingProperties properties, UserShardPinRepository pinRepository) {
+        this.properties = properties;
+        this.pinRepository = pinRepository;
+        if (properties.isEnabled()) {
+            List<String> ringShards = properties.getShards().stream()
+                    .filter(ShardingProperties.Shard::isInRing)
+                    .map(ShardingProperties.Shard::getName)
+                    .toList();
+            this.ring = new ConsistentHashRing(ringShards, properties.getVirtualNodes());
+        } else {
+            this.ring = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return Objects.nonNull(ring);
+    }
+
+    public String directoryShard() {
+        return isEnabled() ? properties.getShards().get(0).getName() : null;
+    }
+
+    /**
+     * @throws UserShardMovingException while the user's rows are being copied to another shard
+     */
+    public String shardFor(String userId) {
+        if (!isEnabled()) {
+            return null;
+        }
+        UserShardPin pin = pins.get(userId);
+        if (Objects.isNull(pin)) {
+            return ring.shardFor(userId);
+        }
+        if (pin.isMoving()) {
+            throw new UserShardMovingException("User " + userId + " is being moved between shards; retry shortly");
+        }
+        return pin.getShard();
+    }
+
+    /** Shard holding the user's rows right now, moving or not. */
+    public String locate(String userId) {
+        if (!isEnabled()) {
+            return null;
+        }
+        UserShardPin pin = pins.get(userId);
+        return Objects.nonNull(pin) ? pin.getShard() : ring.shardFor(userId);
+    }
+
+    public String ringShardFor(String userId) {
+        return isEnabled() ? ring.shardFor(userId) : null;
+    }
+
+    public UserShardPin pinFor(String userId) {
+        return pins.get(userId);
+    }
+
+    /**
+     * Runs {@code action} on the user's shard, waiting up to {@code expense.sharding.move-wait-ms} if
+     * the user is being moved. For background writers that cannot hand a 503 back to a client.
+     */
+    public <T> T callForUser(String userId, Supplier<T> action) {
+        long deadline = System.currentTimeMillis() + properties.getMoveWaitMs();
+        while (true) {
+            try {
+                return ShardContext.callOn(shardFor(userId), action);
+            } catch (UserShardMovingException ex) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw ex;
+                }
+            }
+            try {
+                Thread.sleep(MOVE_POLL_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new UserShardMovingException("Interrupted while waiting for user " + userId + " to finish moving");
+            }
+        }
+    }
+
+    public void runForUser(String userId, Runnable action) {
+        callForUser(userId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    @PostConstruct
+    void load() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${expense.sharding.directory-refresh-ms:5000}")
+    public void refresh() {
+        if (!isEnabled()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        Timestamp since = new Timestamp(Math.max(0L, refreshedUpTo - REFRESH_OVERLAP_MS));
+        try {
+            // a moving mark read late from a replica would let writes through mid-move
+            List<UserShardPin> changed = ShardContext.callOn(directoryShard(),
+                    () -> ReadRoutingContext.callOnPrimary(() -> pinRepository.findByUpdatedAtGreaterThanEqual(since)));
+            remember(changed);
+            refreshedUpTo = started;
+            if (!changed.isEmpty()) {
+                log.debug("Refreshed {} user shard pins", changed.size());
+            }
+        } catch (DataAccessException ex) {
+            log.error("Failed to refresh user shard pins", ex);
+        }
+    }
+
+    void remember(Collection<UserShardPin> changed) {
+        for (UserShardPin pin : changed) {
+            // a settled pin that agrees with the ring needs no memory
+            if (!pin.isMoving() && pin.getShard().equals(ring.shardFor(pin.getUserId()))) {
+                pins.remove(pin.getUserId());
+            } else {
+                pins.put(pin.getUserId(), pin);
+            }
+        }
+    }
+}
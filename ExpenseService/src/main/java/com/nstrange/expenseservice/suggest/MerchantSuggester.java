@@ -0,0 +1,462 @@
+package com.nstrange.expenseservice.suggest;
+
+import com.nstrange.expenseservice.dto.MerchantSuggestionDto;
+import com.nstrange.expenseservice.dto.MerchantSuggestionsDto;
+import com.nstrange.expenseservice.entities.Expense;
+import com.nstrange.expenseservice.events.ExpenseChangedEvent;
+import com.nstrange.expenseservice.exception.InvalidExpenseRequestException;
+import com.nstrange.expenseservice.model.ExpenseSnapshot;
+import com.nstrange.expenseservice.replica.ReadRoutingContext;
+import com.nstrange.expenseservice.repository.MerchantSpendRollupRepository;
+import com.nstrange.expenseservice.service.SpendRollupService;
+import com.nstrange.expenseservice.sharding.Shards;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Merchant autocomplete for the add-expense screen. Suggestions come from a global
+ * {@link MerchantTrie} of merchants logged by at least {@code min-users} people, built from the merchant
+ * rollups at startup, overlaid with the asking user's own merchants, which rank first. Committed
+ * expenses bump counts in a small pending map, sorted by folded merchant so lookups merge in only the
+ * prefix's range, that is folded into a new trie on a schedule. Both tiers stay inside fixed byte budgets: the trie keeps only its heaviest merchants,
+ * and user overlays are evicted least recently used first.
+ */
+@Service
+public class MerchantSuggester
+{
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantSuggester.class);
+
+    private static final int DEFAULT_LIMIT = 5;
+
+    private static final int MAX_PREFIX_LENGTH = 128;
+
+    // merchants still short of min-users after this many compactions are forgotten
+    private static final int PENDING_COMPACTIONS = 12;
+
+    // rough cost of one trie entry, used to cap how many rollup rows a build reads per shard
+    private static final int BUILD_BYTES_PER_ENTRY = 40;
+
+    private final MerchantSpendRollupRepository rollupRepository;
+
+    private final Shards shards;
+
+    private final long maxBytes;
+
+    private final long userMaxBytes;
+
+    private final int minUsers;
+
+    private final int maxPending;
+
+    private final int maxLimit;
+
+    private volatile View view = new View(MerchantTrie.EMPTY, Collections.emptyNavigableMap());
+
+    // writers share the lock; compaction takes it exclusively only to swap the pending map out
+    private final ReentrantReadWriteLock pendingLock = new ReentrantReadWriteLock();
+
+    private ConcurrentSkipListMap<String, Pending> pending = new ConcurrentSkipListMap<>();
+
+    // a skip list's size() walks every entry, so the cap is checked against this instead
+    private final AtomicInteger pendingSize = new AtomicInteger();
+
+    // access-ordered, so iteration starts at the least recently used user
+    private final LinkedHashMap<String, UserMerchants> users = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong userResidentBytes = new AtomicLong();
+
+    public MerchantSuggester(MerchantSpendRollupRepository rollupRepository, Shards shards, MeterRegistry meterRegistry,
+                             @Value("${expense.suggest.max-bytes:33554432}") long maxBytes,
+                             @Value("${expense.suggest.user-max-bytes:16777216}") long userMaxBytes,
+                             @Value("${expense.suggest.min-users:3}") int minUsers,
+                             @Value("${expense.suggest.max-pending:10000}") int maxPending,
+                             @Value("${expense.suggest.max-limit:10}") int maxLimit) {
+        this.rollupRepository = rollupRepository;
+        this.shards = shards;
+        this.maxBytes = maxBytes;
+        this.userMaxBytes = userMaxBytes;
+        this.minUsers = Math.max(1, minUsers);
+        this.maxPending = maxPending;
+        this.maxLimit = maxLimit;
+        Gauge.builder("merchant.suggest.global.bytes", this, s -> s.view.trie().estimatedBytes())
+                .register(meterRegistry);
+        Gauge.builder("merchant.suggest.global.merchants", this, s -> s.view.trie().size())
+                .register(meterRegistry);
+        Gauge.builder("merchant.suggest.user.bytes", userResidentBytes, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    public MerchantSuggestionsDto suggest(String userId, String prefix, Integer limit) {
+        if (Objects.isNull(userId) || userId.isBlank()) {
+            throw new InvalidExpenseRequestException("User ID must not be null or blank");
+        }
+        String raw = Objects.isNull(prefix) ? "" : prefix;
+        if (raw.length() > MAX_PREFIX_LENGTH) {
+            throw new InvalidExpenseRequestException("'prefix' must be at most " + MAX_PREFIX_LENGTH + " characters");
+        }
+        int size = Objects.isNull(limit) ? DEFAULT_LIMIT : limit;
+        if (size < 1 || size > maxLimit) {
+            throw new InvalidExpenseRequestException("'limit' must be between 1 and " + maxLimit);
+        }
+        String folded = MerchantTrie.fold(normalizePrefix(raw));
+
+        List<MerchantSuggestionDto> suggestions = new ArrayList<>(size);
+        Set<String> seen = new HashSet<>();
+        for (String merchant : userTop(userId, folded, size)) {
+            seen.add(MerchantTrie.fold(merchant));
+            suggestions.add(MerchantSuggestionDto.builder().merchant(merchant).personal(true).build());
+        }
+        if (suggestions.size() < size) {
+            for (String merchant : globalTop(folded, size)) {
+                if (suggestions.size() == size) {
+                    break;
+                }
+                if (seen.add(MerchantTrie.fold(merchant))) {
+                    suggestions.add(MerchantSuggestionDto.builder().merchant(merchant).personal(false).build());
+                }
+            }
+        }
+        return MerchantSuggestionsDto.builder()
+                .prefix(raw)
+                .suggestions(suggestions)
+                .build();
+    }
+
+    @TransactionalEventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        if (event.getType() == ExpenseChangedEvent.Type.DELETED) {
+            return;
+        }
+        Expense expense = event.getExpense();
+        String merchant = normalizeMerchant(expense.getMerchant());
+        ExpenseSnapshot previous = event.getPrevious();
+        if (Objects.isNull(merchant)
+                || (Objects.nonNull(previous) && merchant.equals(normalizeMerchant(previous.getMerchant())))) {
+            return;
+        }
+        try {
+            record(expense.getUserId(), merchant);
+        } catch (RuntimeException ex) {
+            // suggestions are advisory; never fail the write path because of them
+            log.error("Failed to record merchant suggestion for userId={}: {}", expense.getUserId(), ex.getMessage(), ex);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        int perShardLimit = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / BUILD_BYTES_PER_ENTRY));
+        Map<String, long[]> totals = new HashMap<>();
+        Map<String, String> spellings = new HashMap<>();
+        shards.forEach(shard -> {
+            try {
+                List<Object[]> rows = rollupRepository.sumCountsByMerchant(
+                        SpendRollupService.UNKNOWN_MERCHANT, PageRequest.of(0, perShardLimit));
+                for (Object[] row : rows) {
+                    String merchant = normalizeMerchant((String) row[0]);
+                    if (Objects.isNull(merchant)) {
+                        continue;
+                    }
+                    // shards hold disjoint users, so distinct-user counts add up across them
+                    long[] total = totals.computeIfAbsent(MerchantTrie.fold(merchant), k -> new long[2]);
+                    total[0] += ((Number) row[1]).longValue();
+                    total[1] += ((Number) row[2]).longValue();
+                    spellings.putIfAbsent(MerchantTrie.fold(merchant), merchant);
+                }
+            } catch (DataAccessException ex) {
+                log.error("Failed to read merchant rollups on shard={}, suggestions start without them", shard, ex);
+            }
+        });
+
+        List<MerchantTrie.Entry> entries = new ArrayList<>(totals.size());
+        for (Map.Entry<String, long[]> total : totals.entrySet()) {
+            if (total.getValue()[1] >= minUsers) {
+                entries.add(new MerchantTrie.Entry(spellings.get(total.getKey()), saturate(total.getValue()[0])));
+            }
+        }
+        MerchantTrie trie = MerchantTrie.build(entries, maxBytes);
+        view = new View(trie, view.compacting());
+        log.info("Built merchant suggestion trie with {} merchants in {} bytes", trie.size(), trie.estimatedBytes());
+    }
+
+    /** Folds pending counts into a fresh trie, keeping merchants that do not yet qualify pending. */
+    @Scheduled(fixedDelayString = "${expense.suggest.compact-interval-ms:300000}")
+    public synchronized void compact() {
+        NavigableMap<String, Pending> frozen;
+        pendingLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            frozen = pending;
+            pending = new ConcurrentSkipListMap<>();
+            pendingSize.set(0);
+            view = new View(view.trie(), frozen);
+        } finally {
+            pendingLock.writeLock().unlock();
+        }
+
+        MerchantTrie trie = view.trie();
+        List<MerchantTrie.Entry> entries = trie.entries();
+        List<Pending> carried = new ArrayList<>();
+        for (Pending counted : frozen.values()) {
+            if (counted.qualifies(trie, minUsers)) {
+                entries.add(new MerchantTrie.Entry(counted.merchant, counted.count.get()));
+            } else if (++counted.compactions < PENDING_COMPACTIONS) {
+                carried.add(counted);
+            }
+        }
+        MerchantTrie compacted = MerchantTrie.build(entries, maxBytes);
+        view = new View(compacted, Collections.emptyNavigableMap());
+
+        pendingLock.readLock().lock();
+        try {
+            for (Pending counted : carried) {
+                Pending current = pending.putIfAbsent(counted.key, counted);
+                if (Objects.isNull(current)) {
+                    pendingSize.incrementAndGet();
+                } else {
+                    Pending.absorb(current, counted);
+                }
+            }
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+        log.debug("Compacted {} pending merchants into a trie of {} merchants ({} bytes), {} still pending",
+                frozen.size() - carried.size(), compacted.size(), compacted.estimatedBytes(), carried.size());
+    }
+
+    private void record(String userId, String merchant) {
+        String key = MerchantTrie.fold(merchant);
+        pendingLock.readLock().lock();
+        try {
+            Pending counted = pending.get(key);
+            if (Objects.isNull(counted)) {
+                if (pendingSize.get() >= maxPending) {
+                    log.debug("Pending merchant suggestions full, dropping merchant until the next compaction");
+                } else {
+                    Pending created = new Pending(key, merchant);
+                    counted = pending.putIfAbsent(key, created);
+                    if (Objects.isNull(counted)) {
+                        pendingSize.incrementAndGet();
+                        counted = created;
+                    }
+                }
+            }
+            if (Objects.nonNull(counted)) {
+                counted.count(userId, minUsers);
+            }
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+
+        synchronized (users) {
+            UserMerchants merchants = users.get(userId);
+            if (Objects.nonNull(merchants)) {
+                long before = merchants.estimatedBytes();
+                merchants.add(merchant, 1);
+                userResidentBytes.addAndGet(merchants.estimatedBytes() - before);
+                evictOverBudget(userId);
+            }
+        }
+    }
+
+    private List<String> userTop(String userId, String foldedPrefix, int limit) {
+        synchronized (users) {
+            UserMerchants cached = users.get(userId);
+            if (Objects.nonNull(cached)) {
+                return cached.top(foldedPrefix, limit);
+            }
+        }
+
+        UserMerchants loaded = load(userId);
+
+        synchronized (users) {
+            UserMerchants cached = users.get(userId);
+            if (Objects.isNull(cached)) {
+                users.put(userId, loaded);
+                userResidentBytes.addAndGet(loaded.estimatedBytes());
+                evictOverBudget(userId);
+                cached = loaded;
+            }
+            return cached.top(foldedPrefix, limit);
+        }
+    }
+
+    private UserMerchants load(String userId) {
+        // patched from committed writes until evicted, so start from the primary rather than a replica's past
+        List<Object[]> rows = ReadRoutingContext.callOnPrimary(
+                () -> rollupRepository.sumCountsByMerchantForUser(userId, SpendRollupService.UNKNOWN_MERCHANT));
+        UserMerchants merchants = new UserMerchants();
+        for (Object[] row : rows) {
+            String merchant = normalizeMerchant((String) row[0]);
+            if (Objects.nonNull(merchant)) {
+                merchants.add(merchant, ((Number) row[1]).longValue());
+            }
+        }
+        log.debug("Loaded {} merchants for suggestions for userId={}", rows.size(), userId);
+        return merchants;
+    }
+
+    private List<String> globalTop(String foldedPrefix, int limit) {
+        pendingLock.readLock().lock();
+        try {
+            View current = view;
+            MerchantTrie trie = current.trie();
+            Map<String, Candidate> candidates = new HashMap<>();
+            int[] hits = new int[limit];
+            int found = trie.top(foldedPrefix, hits);
+            for (int i = 0; i < found; i++) {
+                String merchant = trie.merchant(hits[i]);
+                candidates.put(MerchantTrie.fold(merchant), new Candidate(merchant, trie.weight(hits[i])));
+            }
+            addPending(current.compacting(), trie, foldedPrefix, candidates);
+            addPending(pending, trie, foldedPrefix, candidates);
+
+            List<Candidate> ranked = new ArrayList<>(candidates.values());
+            ranked.sort((a, b) -> Long.compare(b.weight, a.weight));
+            List<String> top = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                top.add(ranked.get(i).merchant);
+            }
+            return top;
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+    }
+
+    private void addPending(NavigableMap<String, Pending> counts, MerchantTrie trie, String foldedPrefix,
+                            Map<String, Candidate> candidates) {
+        // keys starting with the prefix sort together, from the prefix itself up
+        for (Pending counted : counts.tailMap(foldedPrefix, true).values()) {
+            if (!counted.key.startsWith(foldedPrefix)) {
+                break;
+            }
+            Candidate candidate = candidates.get(counted.key);
+            if (Objects.nonNull(candidate)) {
+                candidate.weight += counted.count.get();
+                continue;
+            }
+            int index = trie.indexOf(counted.key);
+            if (index >= 0) {
+                candidates.put(counted.key, new Candidate(trie.merchant(index), trie.weight(index) + counted.count.get()));
+            } else if (counted.qualifies(trie, minUsers)) {
+                candidates.put(counted.key, new Candidate(counted.merchant, counted.count.get()));
+            }
+        }
+    }
+
+    private void evictOverBudget(String keep) {
+        Iterator<Map.Entry<String, UserMerchants>> it = users.entrySet().iterator();
+        while (userResidentBytes.get() > userMaxBytes && it.hasNext()) {
+            Map.Entry<String, UserMerchants> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            userResidentBytes.addAndGet(-eldest.getValue().estimatedBytes());
+            it.remove();
+        }
+    }
+
+    /**
+     * @return the merchant with whitespace collapsed, or {@code null} when there is nothing to suggest
+     */
+    static String normalizeMerchant(String merchant) {
+        if (Objects.isNull(merchant)) {
+            return null;
+        }
+        String normalized = merchant.trim().replaceAll("\\s+", " ");
+        if (normalized.isEmpty() || normalized.equalsIgnoreCase(SpendRollupService.UNKNOWN_MERCHANT)) {
+            return null;
+        }
+        return normalized;
+    }
+
+    /** Like {@link #normalizeMerchant} but keeps one trailing space, so "amazon " only matches further words. */
+    private static String normalizePrefix(String prefix) {
+        return prefix.stripLeading().replaceAll("\\s+", " ");
+    }
+
+    private static int saturate(long value) {
+        return (int) Math.min(Integer.MAX_VALUE, value);
+    }
+
+    private record View(MerchantTrie trie, NavigableMap<String, Pending> compacting) {
+    }
+
+    private static final class Candidate {
+
+        private final String merchant;
+
+        private long weight;
+
+        private Candidate(String merchant, long weight) {
+            this.merchant = merchant;
+            this.weight = weight;
+        }
+    }
+
+    /** Uses of one merchant since the last compaction, and who logged it until enough people have. */
+    private static final class Pending {
+
+        private final String key;
+
+        private final String merchant;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private final Set<String> userIds = ConcurrentHashMap.newKeySet();
+
+        private volatile int compactions;
+
+        private Pending(String key, String merchant) {
+            this.key = key;
+            this.merchant = merchant;
+        }
+
+        private void count(String userId, int minUsers) {
+            count.incrementAndGet();
+            if (userIds.size() < minUsers) {
+                userIds.add(userId);
+            }
+        }
+
+        private boolean qualifies(MerchantTrie trie, int minUsers) {
+            return userIds.size() >= minUsers || trie.indexOf(key) >= 0;
+        }
+
+        private static Pending absorb(Pending into, Pending from) {
+            into.count.addAndGet(from.count.get());
+            into.userIds.addAll(from.userIds);
+            into.compactions = Math.max(into.compactions, from.compactions);
+            return into;
+        }
+    }
+}
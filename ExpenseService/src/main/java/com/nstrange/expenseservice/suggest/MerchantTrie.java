@@ -0,0 +1,299 @@
+package com.nstrange.expenseservice.suggest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Frequency-weighted prefix index over merchant names, flattened into a handful of arrays. Merchants
+ * are stored once, in case-folded order, in a single {@code char[]}; every trie node is implicit as the
+ * contiguous range of merchants sharing its prefix, found with two binary searches. A segment tree of
+ * arg-max weights over that order yields a range's heaviest entries in O(k log n) without visiting the
+ * rest of the range, so a one-letter prefix costs the same as a full name.
+ * <p>
+ * Instances are immutable and safe to share between threads. {@link #build} keeps the heaviest merchants
+ * that fit the byte budget and drops the rest.
+ */
+final class MerchantTrie {
+
+    static final MerchantTrie EMPTY = build(List.of(), Long.MAX_VALUE);
+
+    // the four array headers
+    private static final long FIXED_BYTES = 4 * 16L;
+
+    // offset, weight and two tree slots; names add two bytes per char on top
+    private static final long BYTES_PER_ENTRY = 4 * Integer.BYTES;
+
+    private final char[] chars;
+
+    private final int[] offsets;
+
+    private final int[] weights;
+
+    // bottom-up segment tree: leaves at [n, 2n) hold entry indexes, inner nodes the heavier child's
+    private final int[] tree;
+
+    private final int size;
+
+    private MerchantTrie(char[] chars, int[] offsets, int[] weights) {
+        this.chars = chars;
+        this.offsets = offsets;
+        this.weights = weights;
+        this.size = weights.length;
+        this.tree = new int[2 * size];
+        for (int i = 0; i < size; i++) {
+            tree[size + i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            tree[i] = heavier(tree[2 * i], tree[2 * i + 1]);
+        }
+    }
+
+    /**
+     * @param entries merchants (display form, whitespace already collapsed) with their weights; names
+     *                that differ only in case are merged and keep the heaviest spelling
+     */
+    static MerchantTrie build(List<Entry> entries, long maxBytes) {
+        Map<String, Entry> merged = new HashMap<>();
+        Map<String, Integer> spellingWeight = new HashMap<>();
+        for (Entry entry : entries) {
+            if (entry.merchant().isEmpty() || entry.weight() <= 0) {
+                continue;
+            }
+            String key = fold(entry.merchant());
+            Entry existing = merged.get(key);
+            if (Objects.isNull(existing)) {
+                merged.put(key, entry);
+                spellingWeight.put(key, entry.weight());
+                continue;
+            }
+            int total = (int) Math.min(Integer.MAX_VALUE, (long) existing.weight() + entry.weight());
+            String spelling = existing.merchant();
+            if (entry.weight() > spellingWeight.get(key)) {
+                spelling = entry.merchant();
+                spellingWeight.put(key, entry.weight());
+            }
+            merged.put(key, new Entry(spelling, total));
+        }
+
+        List<Map.Entry<String, Entry>> kept = new ArrayList<>(merged.entrySet());
+        kept.sort(Comparator.comparingInt((Map.Entry<String, Entry> e) -> e.getValue().weight()).reversed());
+        long bytes = FIXED_BYTES;
+        int count = 0;
+        for (Map.Entry<String, Entry> entry : kept) {
+            long cost = BYTES_PER_ENTRY + 2L * entry.getKey().length();
+            if (bytes + cost > maxBytes) {
+                break;
+            }
+            bytes += cost;
+            count++;
+        }
+        kept = new ArrayList<>(kept.subList(0, count));
+        // folded keys compare exactly as comparePrefix walks the stored names
+        kept.sort(Map.Entry.comparingByKey());
+
+        int totalChars = 0;
+        for (Map.Entry<String, Entry> entry : kept) {
+            totalChars += entry.getKey().length();
+        }
+        char[] chars = new char[totalChars];
+        int[] offsets = new int[kept.size() + 1];
+        int[] weights = new int[kept.size()];
+        int position = 0;
+        for (int i = 0; i < kept.size(); i++) {
+            Entry entry = kept.get(i).getValue();
+            entry.merchant().getChars(0, entry.merchant().length(), chars, position);
+            offsets[i] = position;
+            position += entry.merchant().length();
+            weights[i] = entry.weight();
+        }
+        offsets[kept.size()] = position;
+        return new MerchantTrie(chars, offsets, weights);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long estimatedBytes() {
+        return FIXED_BYTES + 2L * chars.length + (long) Integer.BYTES * (offsets.length + weights.length + tree.length);
+    }
+
+    String merchant(int index) {
+        return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    int weight(int index) {
+        return weights[index];
+    }
+
+    /**
+     * @return index of the merchant whose folded name is exactly {@code foldedName}, or -1
+     */
+    int indexOf(String foldedName) {
+        int lo = lowerBound(foldedName);
+        if (lo < size && comparePrefix(lo, foldedName) == 0 && length(lo) == foldedName.length()) {
+            return lo;
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the indexes of up to {@code out.length} heaviest merchants starting with {@code foldedPrefix}
+     * into {@code out}, heaviest first.
+     *
+     * @return how many were written
+     */
+    int top(String foldedPrefix, int[] out) {
+        int lo = lowerBound(foldedPrefix);
+        int hi = upperBound(foldedPrefix, lo);
+        if (lo >= hi || out.length == 0) {
+            return 0;
+        }
+        // open ranges and their heaviest entry; popping one splits it around that entry
+        int[] rangeLo = new int[2 * out.length + 1];
+        int[] rangeHi = new int[rangeLo.length];
+        int[] rangeMax = new int[rangeLo.length];
+        int open = 0;
+        rangeLo[open] = lo;
+        rangeHi[open] = hi;
+        rangeMax[open++] = argMax(lo, hi);
+        int found = 0;
+        while (found < out.length && open > 0) {
+            int best = 0;
+            for (int i = 1; i < open; i++) {
+                if (heavier(rangeMax[best], rangeMax[i]) == rangeMax[i]) {
+                    best = i;
+                }
+            }
+            int index = rangeMax[best];
+            int from = rangeLo[best];
+            int to = rangeHi[best];
+            open--;
+            rangeLo[best] = rangeLo[open];
+            rangeHi[best] = rangeHi[open];
+            rangeMax[best] = rangeMax[open];
+            out[found++] = index;
+            if (from < index) {
+                rangeLo[open] = from;
+                rangeHi[open] = index;
+                rangeMax[open++] = argMax(from, index);
+            }
+            if (index + 1 < to) {
+                rangeLo[open] = index + 1;
+                rangeHi[open] = to;
+                rangeMax[open++] = argMax(index + 1, to);
+            }
+        }
+        return found;
+    }
+
+    List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry(merchant(i), weights[i]));
+        }
+        return entries;
+    }
+
+    /**
+     * Case folding shared by the index and its callers; prefixes must be folded the same way.
+     */
+    static String fold(String value) {
+        StringBuilder folded = null;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            char lower = Character.toLowerCase(c);
+            if (lower != c && Objects.isNull(folded)) {
+                folded = new StringBuilder(value.length()).append(value, 0, i);
+            }
+            if (Objects.nonNull(folded)) {
+                folded.append(lower);
+            }
+        }
+        return Objects.isNull(folded) ? value : folded.toString();
+    }
+
+    private int argMax(int from, int to) {
+        int best = -1;
+        for (int l = from + size, r = to + size; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                best = heavier(best, tree[l++]);
+            }
+            if ((r & 1) == 1) {
+                best = heavier(best, tree[--r]);
+            }
+        }
+        return best;
+    }
+
+    /** Heavier of two entries, the earlier one on a tie; -1 stands for none. */
+    private int heavier(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        if (weights[a] != weights[b]) {
+            return weights[a] > weights[b] ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    private int lowerBound(String foldedPrefix) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparePrefix(mid, foldedPrefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int upperBound(String foldedPrefix, int from) {
+        int lo = from;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparePrefix(mid, foldedPrefix) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Compares the merchant at {@code index}, cut to the prefix's length, with the prefix: 0 when the
+     * merchant starts with it.
+     */
+    private int comparePrefix(int index, String foldedPrefix) {
+        int start = offsets[index];
+        int length = offsets[index + 1] - start;
+        int n = Math.min(length, foldedPrefix.length());
+        for (int i = 0; i < n; i++) {
+            char c = Character.toLowerCase(chars[start + i]);
+            char p = foldedPrefix.charAt(i);
+            if (c != p) {
+                return c - p;
+            }
+        }
+        return length < foldedPrefix.length() ? -1 : 0;
+    }
+
+    private int length(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    record Entry(String merchant, int weight) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.nstrange.expenseservice.suggest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One user's merchants and how often they used each, keyed by folded name. Users log a few hundred
+ * merchants at most, so a prefix lookup scans them all. Not thread-safe; {@link MerchantSuggester}
+ * guards instances with its LRU lock.
+ */
+final class UserMerchants {
+
+    // map node, key and display strings, counter
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+
+    private final Map<String, Counted> merchants = new HashMap<>();
+
+    private long estimatedBytes;
+
+    void add(String merchant, long count) {
+        String key = MerchantTrie.fold(merchant);
+        Counted counted = merchants.get(key);
+        if (Objects.isNull(counted)) {
+            merchants.put(key, new Counted(merchant, count));
+            estimatedBytes += ENTRY_OVERHEAD_BYTES + 4L * merchant.length();
+        } else {
+            counted.count += count;
+        }
+    }
+
+    long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    boolean contains(String foldedName) {
+        return merchants.containsKey(foldedName);
+    }
+
+    /**
+     * @return up to {@code limit} merchants starting with {@code foldedPrefix}, most used first
+     */
+    List<String> top(String foldedPrefix, int limit) {
+        List<Map.Entry<String, Counted>> matches = new ArrayList<>();
+        for (Map.Entry<String, Counted> entry : merchants.entrySet()) {
+            if (entry.getKey().startsWith(foldedPrefix)) {
+                matches.add(entry);
+            }
+        }
+        matches.sort((a, b) -> Long.compare(b.getValue().count, a.getValue().count));
+        List<String> top = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            top.add(matches.get(i).getValue().merchant);
+        }
+        return top;
+    }
+
+    private static final class Counted {
+
+        private final String merchant;
+
+        private long count;
+
+        private Counted(String merchant, long count) {
+            this.merchant = merchant;
+            this.count = count;
+        }
+    }
+}
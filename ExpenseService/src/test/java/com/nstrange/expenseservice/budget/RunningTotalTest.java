@@ -0,0 +1,48 @@
+package com.nstrange.expenseservice.budget;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RunningTotalTest {
+
+    @Test
+    void rebasingKeepsTheUnflushedDeltas() {
+        RunningTotal total = new RunningTotal("INR", 1_000L, 0);
+        total.add(200L);
+        // another instance flushed 300 while this one still holds its 200
+        assertEquals(1_500L, total.rebase(1_300L));
+        assertEquals(200L, total.unflushed());
+    }
+
+    @Test
+    void aFlushedDeltaIsNotCountedAgainWhenTheRowIsReadBack() {
+        RunningTotal total = new RunningTotal("INR", 1_000L, 0);
+        total.add(200L);
+        assertEquals(200L, total.takeUnflushed());
+        total.add(50L);
+        // the row now holds this instance's 200 and another instance's 100
+        assertEquals(1_350L, total.rebase(1_300L));
+        assertEquals(50L, total.unflushed());
+    }
+
+    @Test
+    void aFailedFlushIsRetriedWithTheNextDeltas() {
+        RunningTotal total = new RunningTotal("INR", 1_000L, 0);
+        total.add(200L);
+        long delta = total.takeUnflushed();
+        total.add(-20L);
+        total.restoreUnflushed(delta);
+        assertEquals(180L, total.unflushed());
+        assertEquals(1_180L, total.rebase(1_000L));
+    }
+
+    @Test
+    void theAlertedThresholdOnlyRises() {
+        RunningTotal total = new RunningTotal("INR", 0L, 80);
+        total.alerted(50);
+        assertEquals(80, total.alertedPercent());
+        total.alerted(100);
+        assertEquals(100, total.alertedPercent());
+    }
+}
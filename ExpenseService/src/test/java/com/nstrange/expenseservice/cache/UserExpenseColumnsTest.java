@@ -0,0 +1,124 @@
+package com.nstrange.expenseservice.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserExpenseColumnsTest {
+
+    @Test
+    void sumsOnlyTheHalfOpenRangeWhateverTheInsertOrder() {
+        UserExpenseColumns columns = new UserExpenseColumns(0);
+        columns.insert(3L, 3_000L, 300L, "c", "food", "upi");
+        columns.insert(1L, 1_000L, 100L, "a", "food", "upi");
+        columns.insert(4L, 4_000L, 400L, "d", "travel", "card");
+        columns.insert(2L, 2_000L, 200L, "b", "food", "card");
+
+        assertAggregate(1_000L, 4, columns.sum(0L, Long.MAX_VALUE, null));
+        assertAggregate(500L, 2, columns.sum(2_000L, 4_000L, null));
+        assertAggregate(0L, 0, columns.sum(4_001L, Long.MAX_VALUE, null));
+        assertAggregate(600L, 2, columns.sum(0L, Long.MAX_VALUE, "card"));
+        assertAggregate(0L, 0, columns.sum(0L, Long.MAX_VALUE, "cash"));
+    }
+
+    @Test
+    void groupsByEachDimensionWithinTheRange() {
+        UserExpenseColumns columns = new UserExpenseColumns(4);
+        columns.insert(1L, 1_000L, 100L, "Swiggy", "food", "upi");
+        columns.insert(2L, 2_000L, 250L, "Zomato", "food", "card");
+        columns.insert(3L, 3_000L, 50L, "Swiggy", "food", "upi");
+        columns.insert(4L, 4_000L, 900L, "Uber", "travel", "card");
+
+        Map<String, SpendAggregate> byMerchant = columns.groupBy(SpendDimension.MERCHANT, 0L, 4_000L, null);
+        assertEquals(2, byMerchant.size());
+        assertAggregate(150L, 2, byMerchant.get("Swiggy"));
+        assertAggregate(250L, 1, byMerchant.get("Zomato"));
+
+        Map<String, SpendAggregate> byCategory = columns.groupBy(SpendDimension.CATEGORY, 0L, Long.MAX_VALUE, "card");
+        assertAggregate(250L, 1, byCategory.get("food"));
+        assertAggregate(900L, 1, byCategory.get("travel"));
+
+        assertEquals(Map.of(), columns.groupBy(SpendDimension.FUND_SOURCE, 0L, Long.MAX_VALUE, "cash"));
+    }
+
+    @Test
+    void removesByIdEvenWhenTheHintTimeIsStale() {
+        UserExpenseColumns columns = new UserExpenseColumns(0);
+        columns.insert(1L, 1_000L, 100L, "a", "c", "f");
+        columns.insert(2L, 1_000L, 200L, "a", "c", "f");
+        columns.insert(3L, 5_000L, 300L, "a", "c", "f");
+
+        assertTrue(columns.remove(2L, 1_000L));
+        // an update that moved created_at: the row is found by scanning
+        assertTrue(columns.remove(3L, 9_999L));
+        assertFalse(columns.remove(42L, 1_000L));
+        assertAggregate(100L, 1, columns.sum(0L, Long.MAX_VALUE, null));
+    }
+
+    @Test
+    void replacingARowIsIdempotent() {
+        UserExpenseColumns columns = new UserExpenseColumns(0);
+        columns.insert(1L, 1_000L, 100L, "a", "c", "f");
+        // the same committed row arriving from the write event and again from the tail
+        for (int i = 0; i < 2; i++) {
+            columns.remove(1L, 2_000L);
+            columns.insert(1L, 2_000L, 150L, "b", "c", "f");
+        }
+        assertAggregate(150L, 1, columns.sum(0L, Long.MAX_VALUE, null));
+        assertAggregate(0L, 0, columns.sum(0L, 2_000L, null));
+    }
+
+    @Test
+    void matchesABruteForceSumAfterRandomWrites() {
+        Random random = new Random(5);
+        UserExpenseColumns columns = new UserExpenseColumns(0);
+        long[] times = new long[2_000];
+        long[] amounts = new long[times.length];
+        boolean[] live = new boolean[times.length];
+        for (int id = 0; id < times.length; id++) {
+            times[id] = random.nextInt(100_000);
+            amounts[id] = random.nextInt(20_000) - 5_000;
+            live[id] = true;
+            columns.insert(id, times[id], amounts[id], "m" + (id % 7), "c", "f");
+        }
+        for (int i = 0; i < 500; i++) {
+            int id = random.nextInt(times.length);
+            if (live[id]) {
+                assertTrue(columns.remove(id, times[id]));
+                live[id] = false;
+            }
+        }
+        for (int q = 0; q < 100; q++) {
+            long from = random.nextInt(100_000);
+            long to = from + random.nextInt(50_000);
+            long total = 0L;
+            long count = 0L;
+            for (int id = 0; id < times.length; id++) {
+                if (live[id] && times[id] >= from && times[id] < to) {
+                    total += amounts[id];
+                    count++;
+                }
+            }
+            assertAggregate(total, count, columns.sum(from, to, null));
+        }
+    }
+
+    @Test
+    void amountsAreStoredAsRoundedHundredths() {
+        assertEquals(1_250L, MinorUnits.of(new BigDecimal("12.5")));
+        assertEquals(-1_235L, MinorUnits.of(new BigDecimal("-12.345")));
+        assertEquals(0L, MinorUnits.of(null));
+        assertEquals(new BigDecimal("12.50"), new SpendAggregate(1_250L, 1L).getTotal());
+    }
+
+    private static void assertAggregate(long totalMinor, long count, SpendAggregate aggregate) {
+        assertEquals(totalMinor, aggregate.getTotalMinor());
+        assertEquals(count, aggregate.getCount());
+    }
+}
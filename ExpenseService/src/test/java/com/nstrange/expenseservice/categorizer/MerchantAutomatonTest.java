@@ -0,0 +1,99 @@
+package com.nstrange.expenseservice.categorizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MerchantAutomatonTest {
+
+    @Test
+    void theLongestOfOverlappingPatternsWins() {
+        MerchantAutomaton automaton = automaton(
+                "amazon", "shopping",
+                "amazon prime video", "entertainment",
+                "prime", "subscriptions",
+                "swiggy", "food",
+                "swiggy instamart", "groceries");
+
+        assertEquals("entertainment", automaton.match("AMAZON PRIME VIDEO IN"));
+        assertEquals("shopping", automaton.match("AMAZON PRIME MUSIC"));
+        assertEquals("groceries", automaton.match("UPI/SWIGGY INSTAMART/BLR"));
+        assertEquals("food", automaton.match("SWIGGY ORDER 8812"));
+        // a longer pattern that starts later still beats a shorter one that starts first
+        assertEquals("groceries", automaton.match("SWIGGY SWIGGY INSTAMART"));
+    }
+
+    @Test
+    void theLeftmostOfEquallyLongPatternsWins() {
+        MerchantAutomaton automaton = automaton("zara", "shopping", "uber", "travel");
+
+        assertEquals("shopping", automaton.match("ZARA UBER"));
+        assertEquals("travel", automaton.match("UBER ZARA"));
+    }
+
+    @Test
+    void foldsCaseAndCollapsesSeparators() {
+        MerchantAutomaton automaton = automaton("Big Basket", "groceries", "7-ELEVEN", "groceries");
+
+        assertEquals("groceries", automaton.match("bIg   bAsKeT"));
+        assertEquals("groceries", automaton.match("POS*BIG-BASKET*4411"));
+        assertEquals("groceries", automaton.match("7 eleven store"));
+        assertEquals("big basket", MerchantAutomaton.normalize("  --BIG__Basket!! "));
+    }
+
+    @Test
+    void patternsAreAnchoredAtAWordStart() {
+        MerchantAutomaton automaton = automaton("ola", "travel");
+
+        assertEquals("travel", automaton.match("OLACABS BANGALORE"));
+        assertEquals("travel", automaton.match("UPI-OLA-1234"));
+        assertNull(automaton.match("COCA COLA"));
+        assertNull(automaton.match(null));
+        assertNull(automaton.match(""));
+    }
+
+    @Test
+    void findsPatternsAfterAFailedPartialMatch() {
+        MerchantAutomaton automaton = automaton("make my trip", "travel", "my trip", "leisure", "mak", "other");
+
+        assertEquals("travel", automaton.match("MAKE MY TRIP"));
+        assertEquals("travel", automaton.match("MAKE MY TRIPS"));
+        assertEquals("leisure", automaton.match("MAKE YOUR MY TRIP"));
+    }
+
+    @Test
+    void growsPastItsInitialStateTable() {
+        Map<String, String> rules = new LinkedHashMap<>();
+        for (int i = 0; i < 500; i++) {
+            rules.put("merchant" + i + " store", "category" + (i % 7));
+        }
+        MerchantAutomaton automaton = MerchantAutomaton.build(rules);
+
+        assertEquals(500, automaton.patternCount());
+        assertEquals("category3", automaton.match("MERCHANT451 STORE #2"));
+        assertNull(automaton.match("MERCHANT451 SHOP"));
+    }
+
+    @Test
+    void rulesFilesSkipCommentsAndMalformedLines() throws IOException {
+        String file = "# bundled\n\nswiggy = food\n= nothing\nuber =\nbook=my=show = entertainment\n";
+        Map<String, String> rules = CategoryRules.parse(new BufferedReader(new StringReader(file)));
+
+        assertEquals(Map.of("swiggy", "food", "book=my=show", "entertainment"), rules);
+    }
+
+    private static MerchantAutomaton automaton(String... patternsAndCategories) {
+        Map<String, String> rules = new LinkedHashMap<>();
+        for (int i = 0; i < patternsAndCategories.length; i += 2) {
+            rules.put(patternsAndCategories[i], patternsAndCategories[i + 1]);
+        }
+        return MerchantAutomaton.build(rules);
+    }
+}
@@ -0,0 +1,173 @@
+package com.nstrange.expenseservice.coldstorage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SegmentRoundTripTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2024, 3);
+
+    private static final long MONTH_START = Timestamp.valueOf("2024-03-01 00:00:00").getTime();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void varintsRoundTripAtTheEdges() {
+        long[] values = {0L, 1L, -1L, 63L, -64L, 64L, 127L, 128L, 300L, -300L, 1L << 35,
+                Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        ColumnBuffer buffer = new ColumnBuffer();
+        for (long value : values) {
+            buffer.writeSignedVarLong(value);
+        }
+        for (long value : values) {
+            buffer.writeVarLong(value);
+        }
+        buffer.writeString("");
+        buffer.writeString("naïve ₹ 😀");
+
+        ByteBuffer in = ByteBuffer.wrap(buffer.array(), 0, buffer.size());
+        for (long value : values) {
+            assertEquals(value, ColumnBuffer.readSignedVarLong(in));
+        }
+        for (long value : values) {
+            assertEquals(value, ColumnBuffer.readVarLong(in));
+        }
+        assertEquals("", ColumnBuffer.readString(in));
+        assertEquals("naïve ₹ 😀", ColumnBuffer.readString(in));
+        assertEquals(0, in.remaining());
+    }
+
+    @Test
+    void smallSignedValuesStayOneByte() {
+        ColumnBuffer buffer = new ColumnBuffer();
+        buffer.writeSignedVarLong(-1L);
+        buffer.writeSignedVarLong(63L);
+        buffer.writeSignedVarLong(-64L);
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    void usersRoundTripWithDictionaryColumnsAndNulls() throws IOException {
+        List<ColdExpense> alice = List.of(
+                expense(42L, "alice", 0, "12.50", "Swiggy", "food", null, "upi", null),
+                // ids need not increase with created_at, so the id delta goes negative
+                expense(7L, "alice", 60_000, "-3.00", "Zomato", "food", "refund", null, null),
+                expense(43L, "alice", 86_400_000, "999999.99", "Swiggy", null, "team lunch", "upi",
+                        "01900000-0000-7000-8000-000000000001"));
+        List<ColdExpense> bob = List.of(expense(5L, "bob", 1_000, "0.01", null, null, null, null, null));
+
+        Path file = write(List.of(bob, alice));
+        SegmentReader reader = SegmentReader.open(file);
+
+        assertEquals(MONTH, reader.month());
+        assertSameExpenses(alice, reader.read("alice", Long.MIN_VALUE, Long.MAX_VALUE));
+        assertSameExpenses(bob, reader.read("bob", Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(List.of(), reader.read("carol", Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void readsOnlyTheRequestedCreatedAtRange() throws IOException {
+        List<ColdExpense> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(expense(i + 1, "alice", i * 1_000L, "1.00", "m" + (i % 3), "c", null, null, null));
+        }
+        SegmentReader reader = SegmentReader.open(write(List.of(rows)));
+
+        List<ColdExpense> middle = reader.read("alice", MONTH_START + 3_000, MONTH_START + 6_000);
+        assertSameExpenses(rows.subList(3, 6), middle);
+        assertEquals(List.of(), reader.read("alice", MONTH_START + 10_000, Long.MAX_VALUE));
+        assertEquals(List.of(), reader.read("alice", Long.MIN_VALUE, MONTH_START));
+    }
+
+    @Test
+    void largeBlockWithRepeatedValuesRoundTrips() throws IOException {
+        Random random = new Random(11);
+        String[] merchants = {"Swiggy", "Zomato", "Amazon", "Uber", "BigBasket"};
+        List<ColdExpense> rows = new ArrayList<>();
+        long time = 0L;
+        for (int i = 0; i < 5_000; i++) {
+            time += random.nextInt(500);
+            rows.add(expense(10_000L + random.nextInt(1_000_000), "alice", time,
+                    BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, 2).toPlainString(),
+                    merchants[random.nextInt(merchants.length)], random.nextBoolean() ? "food" : null,
+                    random.nextInt(10) == 0 ? "note " + i : null, "upi", null));
+        }
+        Path file = write(List.of(rows));
+
+        assertSameExpenses(rows, SegmentReader.open(file).read("alice", Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void incompleteFileIsRejected() throws IOException {
+        Path file = dir.resolve(SegmentFormat.fileName(MONTH));
+        try (SegmentWriter writer = new SegmentWriter(file, MONTH)) {
+            writer.writeUser("alice", List.of(expense(1L, "alice", 0, "1.00", "m", null, null, null, null)));
+            // closed without finish(): no index and no trailer
+        }
+        assertThrows(IOException.class, () -> SegmentReader.open(file));
+    }
+
+    @Test
+    void fileNamesMapToMonths() {
+        assertEquals("expense-202403.seg", SegmentFormat.fileName(MONTH));
+        assertEquals(MONTH, SegmentFormat.monthOf("expense-202403.seg"));
+        assertNull(SegmentFormat.monthOf("expense-202403.seg.tmp"));
+        assertNull(SegmentFormat.monthOf("expense-202413.seg"));
+        assertNull(SegmentFormat.monthOf("other-202403.seg"));
+    }
+
+    private Path write(List<List<ColdExpense>> users) throws IOException {
+        Path file = dir.resolve(SegmentFormat.fileName(MONTH));
+        try (SegmentWriter writer = new SegmentWriter(file, MONTH)) {
+            for (List<ColdExpense> rows : users) {
+                writer.writeUser(rows.get(0).getUserId(), rows);
+            }
+            writer.finish();
+        }
+        return file;
+    }
+
+    private static ColdExpense expense(long id, String userId, long offsetMillis, String amount, String merchant,
+                                       String category, String notes, String fundSource, String duplicateOf) {
+        Timestamp createdAt = new Timestamp(MONTH_START + offsetMillis);
+        return new ColdExpense(id, "01900000-0000-7000-8000-" + String.format("%012d", id), userId,
+                new BigDecimal(amount).setScale(2), merchant, "INR", createdAt, notes, category, fundSource,
+                duplicateOf, new Timestamp(createdAt.getTime() + 5_000), id % 4);
+    }
+
+    private static void assertSameExpenses(List<ColdExpense> expected, List<ColdExpense> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            ColdExpense e = expected.get(i);
+            ColdExpense a = actual.get(i);
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getExternalId(), a.getExternalId());
+            assertEquals(e.getUserId(), a.getUserId());
+            assertEquals(e.getAmount(), a.getAmount());
+            assertEquals(e.getMerchant(), a.getMerchant());
+            assertEquals(e.getCurrency(), a.getCurrency());
+            assertEquals(e.getCreatedAt(), a.getCreatedAt());
+            assertEquals(e.getNotes(), a.getNotes());
+            assertEquals(e.getCategory(), a.getCategory());
+            assertEquals(e.getFundSource(), a.getFundSource());
+            assertEquals(e.getDuplicateOf(), a.getDuplicateOf());
+            assertEquals(e.getUpdatedAt(), a.getUpdatedAt());
+            assertEquals(e.getVersion(), a.getVersion());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.nstrange.expenseservice.consumer;
+
+import com.nstrange.expenseservice.dto.ExpenseDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DuplicateExpenseDetectorTest {
+
+    private final MutableClock clock = new MutableClock(1_700_000_000_000L);
+
+    private final DuplicateExpenseDetector detector =
+            new DuplicateExpenseDetector(true, 120, 100, 0.5, new SimpleMeterRegistry(), clock);
+
+    @Test
+    void flagsTheSameMerchantWithinTheWindow() {
+        detector.record(expense("Swiggy", "250.00", "INR", "HDFC Card"), "first");
+        clock.advance(5_000L);
+        assertEquals("first", detector.findDuplicate(expense("Swiggy", "250", "inr", "hdfc-card")));
+    }
+
+    @Test
+    void flagsAMerchantSpelledWithRailAndCompanyNoise() {
+        detector.record(expense("UPI-SWIGGY-4172839", "250.00", "INR", "upi"), "first");
+        assertEquals("first", detector.findDuplicate(expense("Swiggy Pvt Ltd", "250.00", "INR", "upi")));
+
+        detector.record(expense("Swiggy Instamart", "99.00", "INR", "upi"), "second");
+        assertEquals("second", detector.findDuplicate(expense("SWIGGY INSTAMART BLR", "99.00", "INR", "upi")));
+    }
+
+    @Test
+    void leavesDifferentMerchantsAlone() {
+        detector.record(expense("Amazon Pay", "500.00", "INR", "card"), "first");
+        assertNull(detector.findDuplicate(expense("Amazon Fresh", "500.00", "INR", "card")));
+        assertNull(detector.findDuplicate(expense("Uber", "500.00", "INR", "card")));
+    }
+
+    @Test
+    void leavesOtherAmountsCurrenciesAndFundSourcesAlone() {
+        detector.record(expense("Starbucks", "10.00", "USD", "card"), "first");
+        assertNull(detector.findDuplicate(expense("Starbucks", "10.01", "USD", "card")));
+        assertNull(detector.findDuplicate(expense("Starbucks", "10.00", "EUR", "card")));
+        assertNull(detector.findDuplicate(expense("Starbucks", "10.00", "USD", "cash")));
+    }
+
+    @Test
+    void forgetsExpensesOnceTheWindowHasPassed() {
+        detector.record(expense("Swiggy", "250.00", "INR", "upi"), "first");
+        clock.advance(120_000L);
+        assertEquals("first", detector.findDuplicate(expense("Swiggy", "250.00", "INR", "upi")));
+        clock.advance(1L);
+        assertNull(detector.findDuplicate(expense("Swiggy", "250.00", "INR", "upi")));
+    }
+
+    @Test
+    void neverMatchesOnAMissingOrNoiseOnlyMerchant() {
+        detector.record(expense(null, "250.00", "INR", "upi"), "first");
+        assertNull(detector.findDuplicate(expense(null, "250.00", "INR", "upi")));
+
+        detector.record(expense("UPI/NEFT 88213", "75.00", "INR", "upi"), "second");
+        assertNull(detector.findDuplicate(expense("UPI", "75.00", "INR", "upi")));
+        assertNull(detector.findDuplicate(expense("Swiggy", "75.00", "INR", "upi")));
+    }
+
+    @Test
+    void dropsTheOldestBucketsOverTheCap() {
+        DuplicateExpenseDetector small =
+                new DuplicateExpenseDetector(true, 120, 2, 0.5, new SimpleMeterRegistry(), clock);
+        small.record(expense("Swiggy", "1.00", "INR", "upi"), "first");
+        small.record(expense("Swiggy", "2.00", "INR", "upi"), "second");
+        small.record(expense("Swiggy", "3.00", "INR", "upi"), "third");
+        assertNull(small.findDuplicate(expense("Swiggy", "1.00", "INR", "upi")));
+        assertEquals("third", small.findDuplicate(expense("Swiggy", "3.00", "INR", "upi")));
+    }
+
+    @Test
+    void similarityIsJaccardOverNonEmptySets() {
+        assertEquals(1.0, DuplicateExpenseDetector.similarity(Set.of("swiggy"), Set.of("swiggy")), 1e-9);
+        assertEquals(1.0 / 3, DuplicateExpenseDetector.similarity(Set.of("amazon", "pay"), Set.of("amazon", "fresh")), 1e-9);
+        assertEquals(0.0, DuplicateExpenseDetector.similarity(Set.of(), Set.of()), 1e-9);
+        assertEquals(0.0, DuplicateExpenseDetector.similarity(Set.of("swiggy"), Set.of()), 1e-9);
+        assertEquals(Set.of("swiggy", "instamart"), DuplicateExpenseDetector.merchantTokens("UPI-Swiggy Instamart-8812 Pvt. Ltd"));
+    }
+
+    private static ExpenseDto expense(String merchant, String amount, String currency, String fundSource) {
+        return ExpenseDto.builder()
+                .userId("user-1")
+                .merchant(merchant)
+                .amount(new BigDecimal(amount))
+                .currency(currency)
+                .fundSource(fundSource)
+                .build();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private long millis;
+
+        private MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        private void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.nstrange.expenseservice.ids;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidV7Test {
+
+    @Test
+    void idsFromOneThreadStrictlyIncrease() {
+        UUID previous = UuidV7.next();
+        // far more than 4096 per millisecond, so the counter carries into the timestamp
+        for (int i = 0; i < 200_000; i++) {
+            UUID next = UuidV7.next();
+            UUID last = previous;
+            assertTrue(Long.compareUnsigned(last.getMostSignificantBits(), next.getMostSignificantBits()) < 0,
+                    () -> next + " does not sort after " + last);
+            previous = next;
+        }
+    }
+
+    @Test
+    void idsFromConcurrentThreadsAreUniqueAndIncreasePerThread() throws Exception {
+        int threads = 4;
+        int perThread = 50_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<UUID>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    List<UUID> ids = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(UuidV7.next());
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> seen = new HashSet<>();
+            for (Future<List<UUID>> future : futures) {
+                List<UUID> ids = future.get();
+                for (int i = 0; i < ids.size(); i++) {
+                    // the 48-bit timestamp and 12-bit counter alone are unique across threads
+                    assertTrue(seen.add(ids.get(i).getMostSignificantBits()));
+                    if (i > 0) {
+                        assertTrue(Long.compareUnsigned(ids.get(i - 1).getMostSignificantBits(),
+                                ids.get(i).getMostSignificantBits()) < 0);
+                    }
+                }
+            }
+            assertEquals(threads * perThread, seen.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void carriesVersionVariantAndTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        // the counter may have borrowed a few milliseconds ahead if earlier tests minted in bursts
+        long timestamp = UuidV7.timestampOf(id);
+        assertTrue(timestamp >= before, () -> timestamp + " is before " + before);
+        assertTrue(timestamp <= after + 1_000, () -> timestamp + " is far after " + after);
+    }
+
+    @Test
+    void canonicalStringFormSortsLikeTheBits() {
+        UUID first = UuidV7.next();
+        UUID second = UuidV7.next();
+        assertTrue(first.toString().compareTo(second.toString()) < 0);
+        assertEquals(first, UuidBytes.fromBytes(UuidBytes.toBytes(first)));
+    }
+}
@@ -0,0 +1,48 @@
+package com.nstrange.expenseservice.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvStatementReaderTest {
+
+    @Test
+    void readsQuotedFieldsWithDelimitersQuotesAndLineBreaks() throws IOException {
+        String csv = "﻿Date,Narration,Amount\r\n"
+                + "01/02/2024,\"SWIGGY, BANGALORE\",250.00\r\n"
+                + "\r\n"
+                + "02/02/2024,\"He said \"\"hi\"\"\nsecond line\", 99 \n"
+                + "03/02/2024,UBER,";
+        try (CsvStatementReader reader = new CsvStatementReader(new StringReader(csv), ',')) {
+            assertEquals(List.of("Date", "Narration", "Amount"), reader.nextRow());
+            assertEquals(1, reader.rowNumber());
+            assertEquals(List.of("01/02/2024", "SWIGGY, BANGALORE", "250.00"), reader.nextRow());
+            assertEquals(2, reader.rowNumber());
+            assertEquals(List.of("02/02/2024", "He said \"hi\"\nsecond line", "99"), reader.nextRow());
+            // the blank line before it still counts, as the user would see it in an editor
+            assertEquals(4, reader.rowNumber());
+            assertEquals(List.of("03/02/2024", "UBER", ""), reader.nextRow());
+            assertEquals(6, reader.rowNumber());
+            assertNull(reader.nextRow());
+        }
+    }
+
+    @Test
+    void rejectsAnUnterminatedQuote() {
+        CsvStatementReader reader = new CsvStatementReader(new StringReader("a,\"never closed\nb"), ',');
+        assertThrows(IOException.class, reader::nextRow);
+    }
+
+    @Test
+    void rejectsAFieldOverTheLengthLimit() {
+        String huge = "x".repeat(64 * 1024 + 1);
+        CsvStatementReader reader = new CsvStatementReader(new StringReader("a," + huge + "\n"), ',');
+        assertThrows(IOException.class, reader::nextRow);
+    }
+}
@@ -0,0 +1,78 @@
+package com.nstrange.expenseservice.importer;
+
+import com.nstrange.expenseservice.dto.BulkCreateExpenseItemDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StatementRowMapperTest {
+
+    @Test
+    void findsTheHeaderOnlyWhenItNamesTheRequiredColumns() {
+        assertNull(StatementRowMapper.fromHeader(List.of("Account Statement", "", ""), null, "INR", null));
+        assertNull(StatementRowMapper.fromHeader(List.of("Date", "Narration"), null, "INR", null));
+        StatementRowMapper mapper = StatementRowMapper.fromHeader(
+                List.of("Txn Date", "Narration", "Withdrawal Amt. (INR)", "Deposit Amt.(INR)"), null, "INR", "hdfc");
+        BulkCreateExpenseItemDto item = mapper.map(List.of("05/03/24", "UPI-SWIGGY  BLR", "1,250.50", ""));
+
+        assertEquals(new BigDecimal("1250.50"), item.getAmount());
+        assertEquals("UPI-SWIGGY BLR", item.getMerchant());
+        assertEquals("INR", item.getCurrency());
+        assertEquals("hdfc", item.getFundSource());
+        assertEquals(Instant.parse("2024-03-05T00:00:00Z"), item.getCreatedAt().toInstant());
+    }
+
+    @Test
+    void skipsCreditsAndZeroAmounts() {
+        StatementRowMapper debitCredit = StatementRowMapper.fromHeader(
+                List.of("Date", "Description", "Debit", "Credit"), null, "INR", null);
+        assertNull(debitCredit.map(List.of("01/01/2024", "Salary", "", "50000")));
+        assertNull(debitCredit.map(List.of("01/01/2024", "Reversal", "0.00", "")));
+
+        StatementRowMapper signed = StatementRowMapper.fromHeader(
+                List.of("Date", "Details", "Amount", "Dr/Cr"), null, "INR", null);
+        assertNull(signed.map(List.of("01/01/2024", "Refund", "500.00", "CR")));
+        assertNull(signed.map(List.of("01/01/2024", "Refund", "500.00 Cr", "")));
+        assertEquals(new BigDecimal("500.00"), signed.map(List.of("01/01/2024", "Rent", "500.00 Dr", "")).getAmount());
+    }
+
+    @Test
+    void parsesCommonAmountSpellings() {
+        assertEquals(new BigDecimal("1234.50"), StatementRowMapper.parseAmount("Rs. 1,234.5"));
+        assertEquals(new BigDecimal("-99.00"), StatementRowMapper.parseAmount("(99)"));
+        assertEquals(new BigDecimal("-10.13"), StatementRowMapper.parseAmount("-INR 10.125"));
+        assertThrows(IllegalArgumentException.class, () -> StatementRowMapper.parseAmount("n/a"));
+    }
+
+    @Test
+    void triesDayFirstFormatsAndExcelSerials() {
+        StatementRowMapper mapper = StatementRowMapper.fromHeader(
+                List.of("Date", "Description", "Amount", "Currency"), null, "INR", null);
+
+        assertEquals(Instant.parse("2024-02-29T00:00:00Z"),
+                mapper.map(List.of("29-Feb-2024", "A", "1", "")).getCreatedAt().toInstant());
+        assertEquals(Instant.parse("2024-03-01T00:00:00Z"),
+                mapper.map(List.of("2024-03-01 14:22:05", "B", "1", "")).getCreatedAt().toInstant());
+        assertEquals(Instant.parse("2024-01-01T00:00:00Z"),
+                mapper.map(List.of("45292", "C", "1", "usd")).getCreatedAt().toInstant());
+        assertEquals("USD", mapper.map(List.of("45292", "C", "1", "usd")).getCurrency());
+        assertThrows(IllegalArgumentException.class, () -> mapper.map(List.of("yesterday", "D", "1", "")));
+        assertThrows(IllegalArgumentException.class, () -> mapper.map(List.of("01/01/2024", "", "1", "")));
+    }
+
+    @Test
+    void honoursAnExplicitDateFormat() {
+        StatementRowMapper mapper = StatementRowMapper.fromHeader(
+                List.of("Date", "Payee", "Amount"), "MM/dd/yyyy", "USD", null);
+
+        assertEquals(Instant.parse("2024-12-03T00:00:00Z"),
+                mapper.map(List.of("12/03/2024", "Costco", "10")).getCreatedAt().toInstant());
+        assertThrows(IllegalArgumentException.class, () -> mapper.map(List.of("31/12/2024", "Costco", "10")));
+    }
+}
@@ -0,0 +1,112 @@
+package com.nstrange.expenseservice.importer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.xml.stream.XMLInputFactory;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class XlsxStatementReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resolvesSharedStringsAndFillsSkippedColumns() throws IOException {
+        Path workbook = workbook(
+                "<sst><si><t>Date</t></si><si><t>Narration</t></si><si><t>Amount</t></si>"
+                        + "<si><r><t>SWIGGY </t></r><r><t>BLR</t></r><rPh><t>skip</t></rPh></si></sst>",
+                "<worksheet><sheetData>"
+                        + "<row r=\"3\"><c r=\"A3\" t=\"s\"><v>0</v></c><c r=\"B3\" t=\"s\"><v>1</v></c>"
+                        + "<c r=\"C3\" t=\"s\"><v>2</v></c></row>"
+                        + "<row r=\"4\"><c r=\"A4\"><v>45292</v></c><c r=\"B4\" t=\"s\"><v>3</v></c>"
+                        + "<c r=\"D4\" t=\"inlineStr\"><is><t>note</t></is></c></row>"
+                        + "<row r=\"5\"><c r=\"C5\" t=\"s\"><v>99</v></c></row>"
+                        + "</sheetData></worksheet>");
+        try (XlsxStatementReader reader = new XlsxStatementReader(workbook)) {
+            assertEquals(List.of("Date", "Narration", "Amount"), reader.nextRow());
+            assertEquals(3, reader.rowNumber());
+            assertEquals(List.of("45292", "SWIGGY BLR", "", "note"), reader.nextRow());
+            // an index past the table reads as empty rather than failing the import
+            assertEquals(List.of("", "", ""), reader.nextRow());
+            assertEquals(5, reader.rowNumber());
+            assertNull(reader.nextRow());
+        }
+        assertEquals(List.of(workbook), filesIn(dir));
+    }
+
+    @Test
+    void readsAWorkbookWithoutSharedStrings() throws IOException {
+        Path workbook = workbook(null,
+                "<worksheet><sheetData><row><c><v>1</v></c><c><v>2</v></c></row></sheetData></worksheet>");
+        try (XlsxStatementReader reader = new XlsxStatementReader(workbook)) {
+            assertEquals(List.of("1", "2"), reader.nextRow());
+            assertEquals(1, reader.rowNumber());
+            assertNull(reader.nextRow());
+        }
+    }
+
+    @Test
+    void sharedStringsAreSpooledToDiskAndCleanedUp() throws IOException {
+        StringBuilder sst = new StringBuilder("<sst>");
+        for (int i = 0; i < 5_000; i++) {
+            sst.append("<si><t>merchant ").append(i).append(" ₹</t></si>");
+        }
+        sst.append("<si><t>").append("y".repeat(SharedStringTable.MAX_STRING_LENGTH + 10)).append("</t></si></sst>");
+        Path xml = dir.resolve("sst.xml");
+        Files.writeString(xml, sst, StandardCharsets.UTF_8);
+
+        try (SharedStringTable table = SharedStringTable.spool(
+                XMLInputFactory.newFactory(), Files.newInputStream(xml), dir)) {
+            assertEquals(5_001, table.size());
+            assertEquals("merchant 4999 ₹", table.get(4_999));
+            assertEquals("merchant 0 ₹", table.get(0));
+            assertEquals("merchant 2500 ₹", table.get(2_500));
+            assertEquals(SharedStringTable.MAX_STRING_LENGTH, table.get(5_000).length());
+            assertEquals("", table.get(5_001));
+            assertEquals("", table.get(-1));
+            assertEquals(3, filesIn(dir).size());
+        }
+        assertEquals(List.of(xml), filesIn(dir));
+    }
+
+    @Test
+    void rejectsAFileThatIsNotAWorkbook() throws IOException {
+        Path notZip = dir.resolve("statement.xlsx");
+        Files.writeString(notZip, "Date,Amount\n");
+        assertThrows(IOException.class, () -> new XlsxStatementReader(notZip));
+    }
+
+    private Path workbook(String sharedStrings, String sheet) throws IOException {
+        Path file = dir.resolve("statement.xlsx");
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            if (sharedStrings != null) {
+                zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+                zip.write(sharedStrings.getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            zip.write(sheet.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return file;
+    }
+
+    private static List<Path> filesIn(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+}
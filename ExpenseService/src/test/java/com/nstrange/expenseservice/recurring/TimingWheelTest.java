@@ -0,0 +1,136 @@
+package com.nstrange.expenseservice.recurring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimingWheelTest {
+
+    private static final long TICK = 1_000L;
+
+    @Test
+    void firesEveryKeyOnItsOwnTickAcrossLevels() {
+        TimingWheel wheel = new TimingWheel(TICK, 3, 0L);
+        // level 0, the level 0/1 boundary, level 1, the level 1/2 boundary and level 2
+        long[] dueTicks = {1, 5, 63, 64, 65, 100, 4_095, 4_096, 4_099, 70_000};
+        for (long tick : dueTicks) {
+            // the key is its own due tick, and due times are mid-tick
+            wheel.add(tick, tick * TICK + TICK / 2);
+        }
+        assertEquals(dueTicks.length, wheel.size());
+
+        List<Long> fired = new ArrayList<>();
+        for (long tick = 1; tick <= 70_000; tick++) {
+            long now = tick;
+            wheel.advance(tick * TICK, key -> {
+                assertEquals(now, key, "key due on tick " + key + " fired on tick " + now);
+                fired.add(key);
+            });
+        }
+
+        assertEquals(List.of(1L, 5L, 63L, 64L, 65L, 100L, 4_095L, 4_096L, 4_099L, 70_000L), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void keysCascadedOntoTheCurrentTickFireOnThatTick() {
+        TimingWheel wheel = new TimingWheel(TICK, 2, 0L);
+        wheel.add(1L, 64 * TICK);
+        wheel.add(2L, 128 * TICK);
+
+        List<Long> fired = new ArrayList<>();
+        for (long tick = 1; tick < 64; tick++) {
+            wheel.advance(tick * TICK, fired::add);
+        }
+        assertEquals(List.of(), fired);
+
+        assertEquals(1, wheel.advance(64 * TICK, fired::add));
+        assertEquals(List.of(1L), fired);
+        for (long tick = 65; tick < 128; tick++) {
+            wheel.advance(tick * TICK, fired::add);
+        }
+        assertEquals(List.of(1L), fired);
+        assertEquals(1, wheel.advance(128 * TICK, fired::add));
+        assertEquals(List.of(1L, 2L), fired);
+    }
+
+    @Test
+    void keysDueByNowFireOnTheNextAdvance() {
+        TimingWheel wheel = new TimingWheel(TICK, 2, 10 * TICK);
+        wheel.add(1L, 3 * TICK);
+        wheel.add(2L, 10 * TICK + 999);
+
+        List<Long> fired = new ArrayList<>();
+        assertEquals(2, wheel.advance(10 * TICK, fired::add));
+        assertEquals(List.of(1L, 2L), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void catchUpAfterALongPauseFiresWhatIsDueAndKeepsTheRest() {
+        TimingWheel wheel = new TimingWheel(TICK, 3, 0L);
+        wheel.add(1L, 10 * TICK);
+        wheel.add(2L, 200 * TICK);
+        wheel.add(3L, 10_000 * TICK);
+        wheel.add(4L, 50_100 * TICK);
+        wheel.add(5L, 100_000 * TICK);
+
+        List<Long> fired = new ArrayList<>();
+        assertEquals(3, wheel.advance(50_000 * TICK, fired::add));
+        assertEquals(List.of(1L, 2L, 3L), fired.stream().sorted().toList());
+        assertEquals(2, wheel.size());
+
+        // what was left is re-placed relative to the new tick, so stepping resumes exactly
+        fired.clear();
+        for (long tick = 50_001; tick <= 50_100; tick++) {
+            long now = tick;
+            wheel.advance(tick * TICK, key -> {
+                assertEquals(50_100L, now);
+                fired.add(key);
+            });
+        }
+        assertEquals(List.of(4L), fired);
+
+        fired.clear();
+        assertEquals(1, wheel.advance(200_000 * TICK, fired::add));
+        assertEquals(List.of(5L), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void keysAddedAfterACatchUpArePlacedFromTheNewTick() {
+        TimingWheel wheel = new TimingWheel(TICK, 2, 0L);
+        wheel.advance(1_000_000 * TICK, key -> { });
+        wheel.add(7L, (1_000_000 + 65) * TICK);
+
+        List<Long> fired = new ArrayList<>();
+        for (long tick = 1_000_001; tick <= 1_000_065; tick++) {
+            long now = tick;
+            wheel.advance(tick * TICK, key -> {
+                assertEquals(1_000_065L, now);
+                fired.add(key);
+            });
+        }
+        assertEquals(List.of(7L), fired);
+    }
+
+    @Test
+    void rejectsKeysBeyondTheHorizon() {
+        TimingWheel wheel = new TimingWheel(TICK, 2, 0L);
+        assertEquals(64 * 64 * TICK, wheel.horizonMillis());
+        wheel.add(1L, 64 * 64 * TICK - 1);
+        assertThrows(IllegalArgumentException.class, () -> wheel.add(2L, 64 * 64 * TICK));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void rejectsUnsupportedShapes() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(0L, 2, 0L));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(TICK, 0, 0L));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(TICK, 11, 0L));
+    }
+}
@@ -0,0 +1,57 @@
+package com.nstrange.expenseservice.replica;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadRoutingContextTest {
+
+    @AfterEach
+    void clear() {
+        ReadRoutingContext.clear();
+    }
+
+    @Test
+    void requiresThePrimaryOnlyInsideTheCall() {
+        assertFalse(ReadRoutingContext.isPrimaryRequired());
+        assertEquals("inside", ReadRoutingContext.callOnPrimary(() -> {
+            assertTrue(ReadRoutingContext.isPrimaryRequired());
+            return "inside";
+        }));
+        assertFalse(ReadRoutingContext.isPrimaryRequired());
+    }
+
+    @Test
+    void aNestedCallLeavesTheOuterOverrideInPlace() {
+        ReadRoutingContext.runOnPrimary(() -> {
+            ReadRoutingContext.runOnPrimary(() -> assertTrue(ReadRoutingContext.isPrimaryRequired()));
+            assertTrue(ReadRoutingContext.isPrimaryRequired());
+        });
+        assertFalse(ReadRoutingContext.isPrimaryRequired());
+    }
+
+    @Test
+    void restoresTheOverrideWhenTheCallThrows() {
+        assertThrows(IllegalStateException.class, () -> ReadRoutingContext.runOnPrimary(() -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertFalse(ReadRoutingContext.isPrimaryRequired());
+    }
+
+    @Test
+    void clearForgetsTheUser() {
+        ReadRoutingContext.setUser("alice");
+        assertEquals("alice", ReadRoutingContext.user());
+        ReadRoutingContext.setUser(null);
+        assertNull(ReadRoutingContext.user());
+
+        ReadRoutingContext.setUser("bob");
+        ReadRoutingContext.clear();
+        assertNull(ReadRoutingContext.user());
+    }
+}
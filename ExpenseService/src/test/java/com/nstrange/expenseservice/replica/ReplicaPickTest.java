@@ -0,0 +1,105 @@
+package com.nstrange.expenseservice.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ReplicaPickTest {
+
+    @Test
+    void fallsBackWhenNoReplicaIsHealthy() {
+        assertNull(ReplicatedDataSource.pickReplica(List.of()));
+        assertNull(ReplicatedDataSource.pickReplica(List.of(replica("r0", false, 0), replica("r1", false, 0))));
+    }
+
+    @Test
+    void neverPicksAnUnhealthyReplica() {
+        Replica healthy = replica("r1", true, 50);
+        List<Replica> replicas = List.of(replica("r0", false, 0), healthy, replica("r2", false, 0));
+        for (int i = 0; i < 100; i++) {
+            assertSame(healthy, ReplicatedDataSource.pickReplica(replicas));
+        }
+    }
+
+    @Test
+    void prefersTheLessBusyOfTwo() {
+        Replica idle = replica("idle", true, 1);
+        List<Replica> replicas = List.of(replica("busy", true, 9), idle);
+        for (int i = 0; i < 100; i++) {
+            assertSame(idle, ReplicatedDataSource.pickReplica(replicas));
+        }
+    }
+
+    @Test
+    void neverPicksTheBusiestOfSeveral() {
+        Replica busiest = replica("r3", true, 30);
+        List<Replica> replicas = List.of(replica("r0", true, 0), replica("r1", true, 10),
+                replica("r2", true, 20), busiest);
+        Set<String> picked = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            picked.add(ReplicatedDataSource.pickReplica(replicas).name());
+        }
+        // two distinct random candidates, so every replica but the busiest can win
+        assertEquals(Set.of("r0", "r1", "r2"), picked);
+    }
+
+    private static Replica replica(String name, boolean healthy, int activeConnections) {
+        Replica replica = new Replica(name, new FixedLoadDataSource(activeConnections));
+        replica.update(healthy, healthy ? 0L : -1L);
+        return replica;
+    }
+
+    private static final class FixedLoadDataSource extends HikariDataSource {
+
+        private final int activeConnections;
+
+        private FixedLoadDataSource(int activeConnections) {
+            this.activeConnections = activeConnections;
+        }
+
+        @Override
+        public HikariPoolMXBean getHikariPoolMXBean() {
+            return new HikariPoolMXBean() {
+                @Override
+                public int getIdleConnections() {
+                    return 0;
+                }
+
+                @Override
+                public int getActiveConnections() {
+                    return activeConnections;
+                }
+
+                @Override
+                public int getTotalConnections() {
+                    return activeConnections;
+                }
+
+                @Override
+                public int getThreadsAwaitingConnection() {
+                    return 0;
+                }
+
+                @Override
+                public void softEvictConnections() {
+                }
+
+                @Override
+                public void suspendPool() {
+                }
+
+                @Override
+                public void resumePool() {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.nstrange.expenseservice.replica;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteStickinessTest {
+
+    private final MutableClock clock = new MutableClock(1_700_000_000_000L);
+
+    private final WriteStickiness stickiness = new WriteStickiness(1_000L, clock);
+
+    @Test
+    void keepsAWriterOnThePrimaryForTheWindow() {
+        assertFalse(stickiness.isSticky("alice"));
+        stickiness.markWritten("alice");
+        assertTrue(stickiness.isSticky("alice"));
+        assertFalse(stickiness.isSticky("bob"));
+
+        clock.advance(999L);
+        assertTrue(stickiness.isSticky("alice"));
+        clock.advance(1L);
+        assertFalse(stickiness.isSticky("alice"));
+    }
+
+    @Test
+    void aNewWriteRestartsTheWindow() {
+        stickiness.markWritten("alice");
+        clock.advance(800L);
+        stickiness.markWritten("alice");
+        clock.advance(800L);
+        assertTrue(stickiness.isSticky("alice"));
+    }
+
+    @Test
+    void expireDropsOnlyWritersPastTheWindow() {
+        stickiness.markWritten("alice");
+        clock.advance(600L);
+        stickiness.markWritten("bob");
+        clock.advance(600L);
+
+        stickiness.expire();
+        assertEquals(1, stickiness.size());
+        assertFalse(stickiness.isSticky("alice"));
+        assertTrue(stickiness.isSticky("bob"));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private long millis;
+
+        private MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        private void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
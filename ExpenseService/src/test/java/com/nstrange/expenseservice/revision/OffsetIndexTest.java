@@ -0,0 +1,49 @@
+package com.nstrange.expenseservice.revision;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffsetIndexTest {
+
+    @Test
+    void keepsEachIdsOffsetsInAppendOrderAcrossRehashes() {
+        OffsetIndex index = new OffsetIndex();
+        int ids = 5000;
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < ids; i++) {
+                index.add(new UUID(i, i), round * ids + i);
+            }
+        }
+
+        assertEquals(3 * ids, index.size());
+        for (int i = 0; i < ids; i++) {
+            assertArrayEquals(new int[]{i, ids + i, 2 * ids + i}, index.offsetsOf(new UUID(i, i)));
+        }
+        assertArrayEquals(new int[0], index.offsetsOf(new UUID(-1, -1)));
+    }
+
+    @Test
+    void sortedEntriesAreOrderedByIdThenOffset() {
+        OffsetIndex index = new OffsetIndex();
+        index.add(new UUID(2, 0), 300);
+        index.add(new UUID(-1, 5), 100);
+        index.add(new UUID(2, 0), 400);
+        index.add(new UUID(1, 9), 200);
+
+        long[][] sorted = index.sortedEntries();
+
+        assertEquals(4, sorted.length);
+        assertArrayEquals(new long[]{-1, 5, 100}, sorted[0]);
+        assertArrayEquals(new long[]{1, 9, 200}, sorted[1]);
+        assertArrayEquals(new long[]{2, 0, 300}, sorted[2]);
+        assertArrayEquals(new long[]{2, 0, 400}, sorted[3]);
+        for (int i = 1; i < sorted.length; i++) {
+            assertTrue(RevisionSegment.compareEntries(sorted[i - 1], sorted[i]) < 0);
+        }
+    }
+}
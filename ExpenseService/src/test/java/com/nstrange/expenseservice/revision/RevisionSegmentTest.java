@@ -0,0 +1,197 @@
+package com.nstrange.expenseservice.revision;
+
+import com.nstrange.expenseservice.events.ExpenseChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevisionSegmentTest {
+
+    private static final int SEGMENT_BYTES = 1 << 16;
+
+    private static final UUID FIRST = UUID.fromString("0190a1b2-c3d4-7e5f-8a6b-7c8d9e0f1a2b");
+
+    private static final UUID SECOND = UUID.fromString("0190a1b2-c3d4-7e5f-8a6b-7c8d9e0f1a2c");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordRoundTripsThroughEncodeAndDecode() {
+        RevisionRecord record = new RevisionRecord(ExpenseChangedEvent.Type.UPDATED, 1_720_000_000_123L, 7L, FIRST,
+                "user-1", 1_719_000_000_000L, new BigDecimal("-1234567890.125"), "Café Ünïcode", "EUR",
+                null, "food", "");
+        ByteBuffer buffer = ByteBuffer.allocate(record.maxEncodedBytes());
+        record.encode(buffer);
+        buffer.flip();
+
+        assertEquals(record, RevisionRecord.decode(buffer));
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void nullAmountAndStringsRoundTrip() {
+        RevisionRecord record = new RevisionRecord(ExpenseChangedEvent.Type.DELETED, 1L, 0L, FIRST,
+                null, 1L, null, null, null, null, null, null);
+        ByteBuffer buffer = ByteBuffer.allocate(record.maxEncodedBytes());
+        record.encode(buffer);
+        buffer.flip();
+
+        assertEquals(record, RevisionRecord.decode(buffer));
+    }
+
+    @Test
+    void scannedRecordsAreReadBackByIdOldestFirst() throws IOException {
+        Path file = dir.resolve(RevisionFormat.fileName("a", 1));
+        MappedByteBuffer out = create(file);
+        List<RevisionRecord> written = List.of(record(FIRST, 1), record(SECOND, 1), record(FIRST, 2));
+        append(out, written);
+
+        RevisionSegment segment = RevisionSegment.openUnsealed(file);
+        assertEquals(3, segment.scan());
+        assertEquals(0, segment.scan());
+
+        assertEquals(List.of(written.get(0), written.get(2)), segment.read(FIRST));
+        assertEquals(List.of(written.get(1)), segment.read(SECOND));
+        assertEquals(List.of(), segment.read(UUID.randomUUID()));
+
+        List<RevisionRecord> visited = new ArrayList<>();
+        segment.forEach((record, offset) -> visited.add(record));
+        assertEquals(written, visited);
+    }
+
+    @Test
+    void sealedSegmentReadsThroughItsIndexFile() throws IOException {
+        Path file = dir.resolve(RevisionFormat.fileName("a", 1));
+        MappedByteBuffer out = create(file);
+        List<RevisionRecord> written = List.of(record(SECOND, 1), record(FIRST, 1), record(SECOND, 2));
+        int[] offsets = append(out, written);
+        int dataEnd = RevisionSegment.validRecordEnd(out, offsets[2]);
+
+        OffsetIndex index = new OffsetIndex();
+        for (int i = 0; i < written.size(); i++) {
+            index.add(written.get(i).externalId(), offsets[i]);
+        }
+        Path indexFile = dir.resolve(RevisionFormat.indexName(file.getFileName().toString()));
+        RevisionSegment.writeIndex(indexFile, dataEnd, 99L, index.sortedEntries());
+
+        RevisionSegment sealed = RevisionSegment.openSealed(file, indexFile);
+        assertTrue(sealed.isSealed());
+        assertEquals(dataEnd, sealed.dataEnd());
+        assertEquals(99L, sealed.newestChangedAt());
+        assertEquals(List.of(written.get(1)), sealed.read(FIRST));
+        assertEquals(List.of(written.get(0), written.get(2)), sealed.read(SECOND));
+    }
+
+    @Test
+    void recordThatFailsItsChecksumEndsTheScanAndIsSkippedOnRead() throws IOException {
+        Path file = dir.resolve(RevisionFormat.fileName("a", 1));
+        MappedByteBuffer out = create(file);
+        List<RevisionRecord> written = List.of(record(FIRST, 1), record(FIRST, 2), record(SECOND, 1));
+        int[] offsets = append(out, written);
+
+        OffsetIndex index = new OffsetIndex();
+        for (int i = 0; i < written.size(); i++) {
+            index.add(written.get(i).externalId(), offsets[i]);
+        }
+        Path indexFile = dir.resolve(RevisionFormat.indexName(file.getFileName().toString()));
+        RevisionSegment.writeIndex(indexFile, RevisionSegment.validRecordEnd(out, offsets[2]), 0L,
+                index.sortedEntries());
+
+        // flip one bit in the middle record's body
+        int corruptAt = offsets[1] + RevisionFormat.RECORD_HEADER_BYTES + 3;
+        out.put(corruptAt, (byte) (out.get(corruptAt) ^ 0x01));
+        out.force();
+
+        assertEquals(0, RevisionSegment.validRecordEnd(out, offsets[1]));
+
+        RevisionSegment unsealed = RevisionSegment.openUnsealed(file);
+        assertEquals(1, unsealed.scan());
+        assertEquals(offsets[1], unsealed.dataEnd());
+
+        RevisionSegment sealed = RevisionSegment.openSealed(file, indexFile);
+        assertEquals(List.of(written.get(0)), sealed.read(FIRST));
+        assertEquals(List.of(written.get(2)), sealed.read(SECOND));
+    }
+
+    @Test
+    void tornTailIsPickedUpOnceTheWriterFinishesIt() throws IOException {
+        Path file = dir.resolve(RevisionFormat.fileName("a", 1));
+        MappedByteBuffer out = create(file);
+        int[] offsets = append(out, List.of(record(FIRST, 1)));
+        int tail = RevisionSegment.validRecordEnd(out, offsets[0]);
+
+        // a reader racing the writer sees the length before the body and checksum are complete
+        RevisionRecord pending = record(SECOND, 1);
+        out.putInt(tail, 64);
+        RevisionSegment segment = RevisionSegment.openUnsealed(file);
+        assertEquals(1, segment.scan());
+        assertEquals(tail, segment.dataEnd());
+        assertEquals(List.of(), segment.read(SECOND));
+
+        int end = RevisionSegment.writeRecord(out, tail, pending);
+        assertTrue(end > tail);
+        assertEquals(1, segment.scan());
+        assertEquals(end, segment.dataEnd());
+        assertEquals(List.of(pending), segment.read(SECOND));
+    }
+
+    @Test
+    void recordThatDoesNotFitIsNotWritten() {
+        ByteBuffer small = ByteBuffer.allocate(RevisionFormat.HEADER_BYTES + 16);
+        assertEquals(0, RevisionSegment.writeRecord(small, RevisionFormat.HEADER_BYTES, record(FIRST, 1)));
+        assertEquals(0, small.getInt(RevisionFormat.HEADER_BYTES));
+    }
+
+    @Test
+    void fileWithoutTheHeaderIsRejected() throws IOException {
+        Path file = dir.resolve(RevisionFormat.fileName("a", 1));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[64]));
+        }
+        assertThrows(IOException.class, () -> RevisionSegment.openUnsealed(file));
+    }
+
+    private static RevisionRecord record(UUID externalId, long version) {
+        return new RevisionRecord(ExpenseChangedEvent.Type.UPDATED, 1_720_000_000_000L + version, version, externalId,
+                "user-1", 1_719_000_000_000L, new BigDecimal("12.50").add(BigDecimal.valueOf(version)), "Swiggy",
+                "INR", "note " + version, "food", "upi");
+    }
+
+    private static MappedByteBuffer create(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+            RevisionSegment.writeHeader(out);
+            return out;
+        }
+    }
+
+    /** @return the offset each record was written at */
+    private static int[] append(MappedByteBuffer out, List<RevisionRecord> records) {
+        int[] offsets = new int[records.size()];
+        int position = RevisionFormat.HEADER_BYTES;
+        while (out.getInt(position) != 0) {
+            position = RevisionSegment.validRecordEnd(out, position);
+        }
+        for (int i = 0; i < records.size(); i++) {
+            offsets[i] = position;
+            position = RevisionSegment.writeRecord(out, position, records.get(i));
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,71 @@
+package com.nstrange.expenseservice.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final int USERS = 20_000;
+
+    @Test
+    void routesTheSameKeyToTheSameShard() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c"), 64);
+        ConsistentHashRing rebuilt = new ConsistentHashRing(List.of("shard-c", "shard-a", "shard-b"), 64);
+        for (int i = 0; i < 1_000; i++) {
+            String userId = "user-" + i;
+            assertEquals(ring.shardFor(userId), ring.shardFor(userId));
+            // the ring depends on the shard names, not the order they are listed in
+            assertEquals(ring.shardFor(userId), rebuilt.shardFor(userId));
+        }
+    }
+
+    @Test
+    void spreadsUsersRoughlyEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c", "shard-d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < USERS; i++) {
+            counts.merge(ring.shardFor("user-" + i), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > USERS / 4 * 0.7 && count < USERS / 4 * 1.3, "uneven shard: " + counts);
+        }
+    }
+
+    @Test
+    void addingAShardOnlyMovesUsersOntoIt() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c", "shard-d"), 128);
+        int moved = 0;
+        for (int i = 0; i < USERS; i++) {
+            String userId = "user-" + i;
+            String from = before.shardFor(userId);
+            String to = after.shardFor(userId);
+            if (!from.equals(to)) {
+                assertEquals("shard-d", to);
+                moved++;
+            }
+        }
+        // roughly 1/(N+1) of the users move
+        assertTrue(moved > USERS / 4 * 0.7 && moved < USERS / 4 * 1.3, "moved " + moved);
+    }
+
+    @Test
+    void aSingleShardOwnsEveryKey() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("only"), 1);
+        assertEquals("only", ring.shardFor("user-1"));
+        assertEquals("only", ring.shardFor(""));
+    }
+
+    @Test
+    void rejectsAnEmptyRing() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of(), 16));
+    }
+}
@@ -0,0 +1,125 @@
+package com.nstrange.expenseservice.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MerchantTrieTest {
+
+    @Test
+    void returnsThePrefixRangeHeaviestFirst() {
+        MerchantTrie trie = MerchantTrie.build(List.of(
+                new MerchantTrie.Entry("Swiggy", 40),
+                new MerchantTrie.Entry("Swiggy Instamart", 90),
+                new MerchantTrie.Entry("Starbucks", 70),
+                new MerchantTrie.Entry("Zomato", 60)), Long.MAX_VALUE);
+
+        assertEquals(List.of("Swiggy Instamart", "Starbucks", "Swiggy"), top(trie, "s", 10));
+        assertEquals(List.of("Swiggy Instamart", "Swiggy"), top(trie, "swiggy", 10));
+        assertEquals(List.of("Swiggy Instamart"), top(trie, "swiggy ", 10));
+        assertEquals(List.of("Swiggy Instamart"), top(trie, "s", 1));
+        assertEquals(List.of(), top(trie, "uber", 10));
+        assertEquals(List.of(), top(trie, "s", 0));
+    }
+
+    @Test
+    void mergesCaseVariantsAndKeepsTheHeaviestSpelling() {
+        MerchantTrie trie = MerchantTrie.build(List.of(
+                new MerchantTrie.Entry("AMAZON", 3),
+                new MerchantTrie.Entry("Amazon", 5),
+                new MerchantTrie.Entry("amazon", 1)), Long.MAX_VALUE);
+
+        assertEquals(1, trie.size());
+        int index = trie.indexOf("amazon");
+        assertEquals("Amazon", trie.merchant(index));
+        assertEquals(9, trie.weight(index));
+    }
+
+    @Test
+    void indexOfMatchesWholeNamesOnly() {
+        MerchantTrie trie = MerchantTrie.build(List.of(
+                new MerchantTrie.Entry("Uber", 1),
+                new MerchantTrie.Entry("Uber Eats", 1)), Long.MAX_VALUE);
+
+        assertEquals("Uber", trie.merchant(trie.indexOf("uber")));
+        assertEquals("Uber Eats", trie.merchant(trie.indexOf("uber eats")));
+        assertEquals(-1, trie.indexOf("ube"));
+        assertEquals(-1, trie.indexOf("uber eats bangalore"));
+    }
+
+    @Test
+    void dropsEmptyAndWeightlessEntries() {
+        MerchantTrie trie = MerchantTrie.build(List.of(
+                new MerchantTrie.Entry("", 5),
+                new MerchantTrie.Entry("Ola", 0),
+                new MerchantTrie.Entry("Rapido", 2)), Long.MAX_VALUE);
+
+        assertEquals(List.of(new MerchantTrie.Entry("Rapido", 2)), trie.entries());
+        assertEquals(0, MerchantTrie.EMPTY.size());
+        assertEquals(List.of(), top(MerchantTrie.EMPTY, "", 5));
+    }
+
+    @Test
+    void keepsTheHeaviestMerchantsThatFitTheBudget() {
+        List<MerchantTrie.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entries.add(new MerchantTrie.Entry(String.format("m%03d", i), i + 1));
+        }
+        long full = MerchantTrie.build(entries, Long.MAX_VALUE).estimatedBytes();
+        MerchantTrie trie = MerchantTrie.build(entries, full / 2);
+
+        int kept = trie.size();
+        assertTrue(kept > 0 && kept < 100, "kept " + kept);
+        for (MerchantTrie.Entry entry : trie.entries()) {
+            assertTrue(entry.weight() > 100 - kept, "kept a light merchant: " + entry);
+        }
+    }
+
+    @Test
+    void foldReturnsTheSameStringWhenAlreadyLowerCase() {
+        String lower = "swiggy instamart";
+        assertSame(lower, MerchantTrie.fold(lower));
+        assertEquals("swiggy instamart", MerchantTrie.fold("Swiggy INSTAMART"));
+    }
+
+    @Test
+    void matchesABruteForceRanking() {
+        Random random = new Random(7);
+        String[] words = {"cafe", "coffee", "day", "apollo", "pharmacy", "big", "basket", "store"};
+        List<MerchantTrie.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + i;
+            entries.add(new MerchantTrie.Entry(name, 1 + random.nextInt(1_000)));
+        }
+        MerchantTrie trie = MerchantTrie.build(entries, Long.MAX_VALUE);
+
+        for (String prefix : List.of("", "c", "co", "coffee d", "apollo pharmacy 1", "zzz")) {
+            List<MerchantTrie.Entry> expected = entries.stream()
+                    .filter(entry -> MerchantTrie.fold(entry.merchant()).startsWith(prefix))
+                    .sorted(Comparator.comparingInt(MerchantTrie.Entry::weight).reversed())
+                    .limit(10)
+                    .toList();
+            int[] hits = new int[10];
+            int found = trie.top(prefix, hits);
+            assertEquals(expected.size(), found, prefix);
+            for (int i = 0; i < found; i++) {
+                // ties may come back in either order, so compare weights rather than names
+                assertEquals(expected.get(i).weight(), trie.weight(hits[i]), prefix + " #" + i);
+            }
+        }
+    }
+
+    private static List<String> top(MerchantTrie trie, String prefix, int limit) {
+        int[] hits = new int[limit];
+        int found = trie.top(prefix, hits);
+        return Arrays.stream(hits, 0, found).mapToObj(trie::merchant).toList();
+    }
+}
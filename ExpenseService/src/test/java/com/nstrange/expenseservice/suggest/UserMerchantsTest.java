@@ -0,0 +1,38 @@
+package com.nstrange.expenseservice.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserMerchantsTest {
+
+    @Test
+    void ranksAUsersMerchantsByUse() {
+        UserMerchants merchants = new UserMerchants();
+        merchants.add("Swiggy", 3);
+        merchants.add("Starbucks", 5);
+        merchants.add("SWIGGY", 4);
+        merchants.add("Uber", 9);
+
+        assertEquals(List.of("Swiggy", "Starbucks"), merchants.top("s", 5));
+        assertEquals(List.of("Swiggy"), merchants.top("s", 1));
+        assertEquals(List.of(), merchants.top("zomato", 5));
+        assertTrue(merchants.contains("swiggy"));
+        assertFalse(merchants.contains("Swiggy"));
+    }
+
+    @Test
+    void countsBytesOncePerDistinctMerchant() {
+        UserMerchants merchants = new UserMerchants();
+        merchants.add("Swiggy", 1);
+        long one = merchants.estimatedBytes();
+        merchants.add("swiggy", 1);
+        assertEquals(one, merchants.estimatedBytes());
+        merchants.add("Zomato", 1);
+        assertTrue(merchants.estimatedBytes() > one);
+    }
+}
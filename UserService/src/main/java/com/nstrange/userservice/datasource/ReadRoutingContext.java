@@ -0,0 +1,56 @@
+package com.nstrange.userservice.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread inputs to {@link ReplicaRoutingDataSource}: the user the request acts for, and an
+ * override that sends reads to the primary.
+ */
+public final class ReadRoutingContext
+{
+    private static final ThreadLocal<String> USER = new ThreadLocal<>();
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReadRoutingContext() {
+    }
+
+    public static String user() {
+        return USER.get();
+    }
+
+    public static void setUser(String userId) {
+        if (userId == null) {
+            USER.remove();
+        } else {
+            USER.set(userId);
+        }
+    }
+
+    public static void clear() {
+        USER.remove();
+        PRIMARY_REQUIRED.remove();
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    /**
+     * Runs {@code action} with every new transaction's reads on the primary. A transaction already
+     * bound to a replica stays there.
+     */
+    public static <T> T callOnPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_REQUIRED.remove();
+            } else {
+                PRIMARY_REQUIRED.set(previous);
+            }
+        }
+    }
+}
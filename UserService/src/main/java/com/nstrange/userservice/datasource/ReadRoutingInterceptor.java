@@ -0,0 +1,31 @@
+package com.nstrange.userservice.datasource;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Sets {@link ReadRoutingContext#user()} from the {@code userId} path variable, so a profile update
+ * keeps that user's reads on the primary for a while.
+ */
+class ReadRoutingInterceptor implements HandlerInterceptor
+{
+    private static final String USER_VARIABLE = "userId";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables instanceof Map<?, ?> map && map.get(USER_VARIABLE) instanceof String userId && !userId.isBlank()) {
+            ReadRoutingContext.setUser(userId);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReadRoutingContext.clear();
+    }
+}
@@ -0,0 +1,52 @@
+package com.nstrange.userservice.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * With {@code user.replicas.enabled=true} the application datasource becomes a
+ * {@link ReplicaRoutingDataSource} over the {@code spring.datasource} primary, still tuned by
+ * {@code spring.datasource.hikari.*}, and {@code user.replicas.nodes}.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaConfiguration
+{
+    @Bean
+    public WriteStickiness writeStickiness(ReplicaProperties properties) {
+        return new WriteStickiness(properties.getReadYourWritesMs());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "user.replicas.enabled", havingValue = "true")
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariConfig primaryHikariConfig(DataSourceProperties dataSourceProperties) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("user-primary");
+        config.setJdbcUrl(dataSourceProperties.determineUrl());
+        config.setUsername(dataSourceProperties.determineUsername());
+        config.setPassword(dataSourceProperties.determinePassword());
+        config.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        return config;
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "user.replicas.enabled", havingValue = "true")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariConfig primaryHikariConfig,
+                                                             ReplicaProperties properties,
+                                                             WriteStickiness stickiness) {
+        if (properties.getNodes().isEmpty()) {
+            throw new IllegalStateException("user.replicas.enabled=true needs at least one user.replicas.nodes entry");
+        }
+        return new ReplicaRoutingDataSource("user", new HikariDataSource(primaryHikariConfig),
+                properties.getNodes(), stickiness);
+    }
+}
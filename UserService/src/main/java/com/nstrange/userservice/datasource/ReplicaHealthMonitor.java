@@ -0,0 +1,185 @@
+package com.nstrange.userservice.datasource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Measures replica lag with a heartbeat row: every tick stamps this instance's row on each primary,
+ * then reads it back from that primary's replicas. A replica's lag is how far its copy trails the
+ * last stamp the primary accepted, so it is exact to within one heartbeat interval. Replicas that
+ * fail the read or trail by more than {@code max-lag-ms} stop receiving reads until they catch up.
+ */
+@Component
+public class ReplicaHealthMonitor
+{
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaHealthMonitor.class);
+
+    private static final long STALE_HEARTBEAT_MS = Duration.ofDays(1).toMillis();
+
+    private final List<ReplicaRoutingDataSource> dataSources;
+
+    private final WriteStickiness stickiness;
+
+    private final long maxLagMs;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // last stamp each primary accepted; only touched from the scheduler thread
+    private final Map<ReplicaRoutingDataSource, Long> lastBeats = new HashMap<>();
+
+    public ReplicaHealthMonitor(DataSource dataSource, ReplicaProperties properties, WriteStickiness stickiness,
+                                MeterRegistry meterRegistry) {
+        this.dataSources = replicated(dataSource);
+        this.stickiness = stickiness;
+        this.maxLagMs = properties.getMaxLagMs();
+        if (!dataSources.isEmpty()) {
+            registerMeters(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void purgeStaleHeartbeats() {
+        long cutoff = System.currentTimeMillis() - STALE_HEARTBEAT_MS;
+        for (ReplicaRoutingDataSource dataSource : dataSources) {
+            try (Connection connection = dataSource.primary().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(
+                         "DELETE FROM replica_heartbeat WHERE beat_at < ?")) {
+                statement.setLong(1, cutoff);
+                int purged = statement.executeUpdate();
+                if (purged > 0) {
+                    log.info("Purged {} stale replica heartbeats on datasource={}", purged, dataSource.getName());
+                }
+            } catch (SQLException ex) {
+                log.warn("Failed to purge stale replica heartbeats on datasource={}: {}", dataSource.getName(), ex.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${user.replicas.heartbeat-interval-ms:250}")
+    public void heartbeat() {
+        if (dataSources.isEmpty()) {
+            return;
+        }
+        for (ReplicaRoutingDataSource dataSource : dataSources) {
+            Long lastBeat = lastBeats.get(dataSource);
+            for (ReplicaRoutingDataSource.Replica replica : dataSource.replicas()) {
+                check(dataSource, replica, lastBeat);
+            }
+            beat(dataSource);
+        }
+        stickiness.expire();
+    }
+
+    private void check(ReplicaRoutingDataSource dataSource, ReplicaRoutingDataSource.Replica replica, Long lastBeat) {
+        if (Objects.isNull(lastBeat)) {
+            // nothing to compare against until the primary has taken a stamp
+            return;
+        }
+        boolean healthy = false;
+        long lagMs = -1L;
+        try (Connection connection = replica.pool().getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT beat_at FROM replica_heartbeat WHERE instance_id = ?")) {
+            statement.setQueryTimeout((int) Math.max(1L, (maxLagMs + 999L) / 1000L));
+            statement.setString(1, instanceId);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    lagMs = Math.max(0L, lastBeat - rs.getLong(1));
+                    healthy = lagMs <= maxLagMs;
+                }
+            }
+        } catch (SQLException ex) {
+            log.debug("Heartbeat read failed on replica={}: {}", replica.name(), ex.getMessage());
+        }
+        if (healthy != replica.isHealthy()) {
+            if (healthy) {
+                log.info("Replica {} of datasource={} is healthy, lagMs={}", replica.name(), dataSource.getName(), lagMs);
+            } else {
+                log.warn("Replica {} of datasource={} taken out of rotation, lagMs={}", replica.name(), dataSource.getName(), lagMs);
+            }
+        }
+        replica.update(healthy, lagMs);
+    }
+
+    private void beat(ReplicaRoutingDataSource dataSource) {
+        long now = System.currentTimeMillis();
+        try (Connection connection = dataSource.primary().getConnection()) {
+            int updated;
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE replica_heartbeat SET beat_at = ? WHERE instance_id = ?")) {
+                update.setLong(1, now);
+                update.setString(2, instanceId);
+                updated = update.executeUpdate();
+            }
+            if (updated == 0) {
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO replica_heartbeat (instance_id, beat_at) VALUES (?, ?)")) {
+                    insert.setString(1, instanceId);
+                    insert.setLong(2, now);
+                    insert.executeUpdate();
+                }
+            }
+            lastBeats.put(dataSource, now);
+        } catch (SQLException ex) {
+            log.warn("Heartbeat write failed on primary of datasource={}: {}", dataSource.getName(), ex.getMessage());
+        }
+    }
+
+    private void registerMeters(MeterRegistry meterRegistry) {
+        for (ReplicaRoutingDataSource dataSource : dataSources) {
+            for (ReplicaRoutingDataSource.Route route : ReplicaRoutingDataSource.Route.values()) {
+                FunctionCounter.builder("db.routing.decisions", dataSource, source -> source.decisions(route))
+                        .description("Connections routed, by the rule that picked the target")
+                        .tag("datasource", dataSource.getName())
+                        .tag("route", route.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry);
+            }
+            for (ReplicaRoutingDataSource.Replica replica : dataSource.replicas()) {
+                Gauge.builder("db.replica.lag", replica, ReplicaRoutingDataSource.Replica::lagMs)
+                        .description("Heartbeat lag behind the primary, -1 when unknown")
+                        .baseUnit("milliseconds")
+                        .tag("datasource", dataSource.getName())
+                        .tag("replica", replica.name())
+                        .register(meterRegistry);
+                Gauge.builder("db.replica.healthy", replica, r -> r.isHealthy() ? 1 : 0)
+                        .description("1 while the replica receives reads")
+                        .tag("datasource", dataSource.getName())
+                        .tag("replica", replica.name())
+                        .register(meterRegistry);
+                FunctionCounter.builder("db.replica.selected", replica, ReplicaRoutingDataSource.Replica::selections)
+                        .description("Read-only connections routed to the replica")
+                        .tag("datasource", dataSource.getName())
+                        .tag("replica", replica.name())
+                        .register(meterRegistry);
+            }
+        }
+        Gauge.builder("db.routing.sticky.users", stickiness, WriteStickiness::size)
+                .description("Users pinned to the primary after a recent write")
+                .register(meterRegistry);
+    }
+
+    private static List<ReplicaRoutingDataSource> replicated(DataSource dataSource) {
+        return dataSource instanceof ReplicaRoutingDataSource replicated ? List.of(replicated) : List.of();
+    }
+}
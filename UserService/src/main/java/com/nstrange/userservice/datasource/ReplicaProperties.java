@@ -0,0 +1,43 @@
+package com.nstrange.userservice.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code user.replicas.*}: read replicas of {@code spring.datasource}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.replicas")
+public class ReplicaProperties
+{
+    private boolean enabled;
+
+    /** A replica further behind than this stops receiving reads until it catches up. */
+    private long maxLagMs = 1000;
+
+    private long heartbeatIntervalMs = 250;
+
+    private long readYourWritesMs = 3000;
+
+    private List<Node> nodes = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Node
+    {
+        private String name;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maxPoolSize = 10;
+    }
+}
@@ -0,0 +1,20 @@
+package com.nstrange.userservice.datasource;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class ReplicaWebConfig implements WebMvcConfigurer
+{
+    private final ReplicaProperties properties;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (properties.isEnabled()) {
+            registry.addInterceptor(new ReadRoutingInterceptor()).addPathPatterns("/user/v1/users/**");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.nstrange.userservice.datasource;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-your-writes: users who committed a write in the last {@code windowMs} read from the primary.
+ * Tracked per instance.
+ */
+public class WriteStickiness
+{
+    private final long windowMs;
+
+    private final ConcurrentHashMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public WriteStickiness(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    public void markWritten(String userId) {
+        lastWrites.put(userId, System.currentTimeMillis());
+    }
+
+    public boolean isSticky(String userId) {
+        Long writtenAt = lastWrites.get(userId);
+        return writtenAt != null && System.currentTimeMillis() - writtenAt < windowMs;
+    }
+
+    public void expire() {
+        long cutoff = System.currentTimeMillis() - windowMs;
+        lastWrites.values().removeIf(writtenAt -> writtenAt < cutoff);
+    }
+
+    public int size() {
+        return lastWrites.size();
+    }
+}
@@ -0,0 +1,31 @@
+package com.nstrange.userservice.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One row per running instance, stamped on the primary and read back from each replica to measure
+ * its lag. Written with plain JDBC by {@code ReplicaHealthMonitor}.
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "replica_heartbeat")
+public class ReplicaHeartbeat
+{
+
+    @Id
+    @Column(name = "instance_id", length = 64)
+    private String instanceId;
+
+    @Column(name = "beat_at", nullable = false)
+    private long beatAt;
+}
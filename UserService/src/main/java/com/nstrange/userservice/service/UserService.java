@@ -1,11 +1,13 @@
 package com.nstrange.userservice.service;
 
+import com.nstrange.userservice.datasource.ReadRoutingContext;
 import com.nstrange.userservice.entities.UserInfo;
 import com.nstrange.userservice.dtos.UserInfoDto;
 import com.nstrange.userservice.dtos.UserProfileUpdateDto;
 import com.nstrange.userservice.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -15,6 +17,8 @@ public class UserService
 {
     private final UserRepository userRepository;
 
+    // one transaction keeps the existence check on the primary with the insert
+    @Transactional
     public void createUserFromEvent(UserInfoDto userInfoDto){
         Optional<UserInfo> existing = userRepository.findByUserId(userInfoDto.getUserId());
         if (existing.isPresent()) {
@@ -24,14 +28,22 @@ public class UserService
         userRepository.save(userInfoDto.transformToUserInfo());
     }
 
+    /**
+     * Reads from a replica when replicas are enabled. A user the replica does not have yet, e.g. one
+     * created from an Auth Service event a moment ago, is looked up again on the primary.
+     */
     public UserInfoDto getUserById(String userId) throws Exception{
         Optional<UserInfo> userInfoOpt = userRepository.findByUserId(userId);
+        if(userInfoOpt.isEmpty()){
+            userInfoOpt = ReadRoutingContext.callOnPrimary(() -> userRepository.findByUserId(userId));
+        }
         if(userInfoOpt.isEmpty()){
             throw new Exception("User not found");
         }
         return toDto(userInfoOpt.get());
     }
 
+    @Transactional
     public UserInfoDto updateUserProfile(String userId, UserProfileUpdateDto updateDto) throws Exception {
         Optional<UserInfo> userInfoOpt = userRepository.findByUserId(userId);
         if (userInfoOpt.isEmpty()) {
@@ -0,0 +1,5 @@
+CREATE DATABASE IF NOT EXISTS expense_service;
+CREATE DATABASE IF NOT EXISTS user_service;
+
+CREATE USER IF NOT EXISTS 'repl'@'%' IDENTIFIED BY 'repl-password';
+GRANT REPLICATION SLAVE ON *.* TO 'repl'@'%';